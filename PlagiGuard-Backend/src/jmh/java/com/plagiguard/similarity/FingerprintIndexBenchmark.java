@@ -0,0 +1,86 @@
+package com.plagiguard.similarity;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link FingerprintIndex} under a 90/10 query/add mix, with one stripe
+ * (a single lock) against the striped default. Thread count is JMH's -t, e.g. run at
+ * -t 1, 4, 16 and 32 to see contention grow. The index is rebuilt every iteration so
+ * added uploads do not pile up across iterations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FingerprintIndexBenchmark {
+    private static final int DOCUMENTS = 2000;
+    private static final int FINGERPRINTS = 200;
+    private static final int VOCABULARY = 200_000;
+    private static final int SAMPLES = 256;
+
+    @Param({"1", "16"})
+    int stripes;
+
+    private Fingerprints[] samples;
+    private FingerprintIndex index;
+    private final AtomicInteger nextUploadId = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(10);
+        samples = new Fingerprints[SAMPLES];
+        for (int s = 0; s < SAMPLES; s++) {
+            long[] hashes = new long[FINGERPRINTS];
+            int[] positions = new int[FINGERPRINTS];
+            for (int i = 0; i < FINGERPRINTS; i++) {
+                // Squaring skews draws to the low end, so common fingerprints have long postings
+                double u = random.nextDouble();
+                hashes[i] = (long) (u * u * VOCABULARY) * 0x9E3779B97F4A7C15L;
+                positions[i] = i * 5;
+            }
+            samples[s] = new Fingerprints(hashes, positions, FINGERPRINTS);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        index = new FingerprintIndex(DOCUMENTS * FINGERPRINTS * 2, stripes, null);
+        nextUploadId.set(0);
+        for (int d = 0; d < DOCUMENTS; d++) {
+            add(index, nextUploadId.incrementAndGet());
+        }
+    }
+
+    private void add(FingerprintIndex target, int uploadId) {
+        target.add(new DocumentFeatures(uploadId, samples[uploadId % SAMPLES], new int[0], Paragraphs.EMPTY,
+            TermCounts.EMPTY));
+    }
+
+    @Benchmark
+    public Object mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(10) == 0) {
+            add(index, nextUploadId.incrementAndGet());
+            return null;
+        }
+        return index.query(samples[random.nextInt(SAMPLES)], -1, 10);
+    }
+}
@@ -0,0 +1,80 @@
+package com.plagiguard.similarity;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Near-duplicate query latency of {@link LshIndex} as the corpus grows, with the
+ * production 32 bands of 4 rows over 128-permutation signatures. Every query is a near
+ * copy of one of a fixed set of planted documents, so the candidates per query stay the
+ * same at every corpus size and the latency should too; a full scan would grow a
+ * hundredfold from the smallest corpus to the largest. The 1M corpus needs about 3 GB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LshIndexBenchmark {
+    private static final int BANDS = 32;
+    private static final int ROWS = 4;
+    private static final int LENGTH = 128;
+    private static final int PLANTED = 64;
+    private static final int QUERIES = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    int corpusSize;
+
+    private LshIndex index;
+    private int[][] queries;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        index = new LshIndex(BANDS, ROWS, LENGTH);
+        int[][] planted = new int[PLANTED][];
+        for (int id = 1; id <= corpusSize; id++) {
+            int[] signature = signature(random);
+            if (id <= PLANTED) {
+                planted[id - 1] = signature;
+            }
+            index.add(id, signature);
+        }
+        // About 0.8 estimated Jaccard with the planted document it copies
+        queries = new int[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            int[] copy = planted[q % PLANTED].clone();
+            for (int i = 0; i < LENGTH / 5; i++) {
+                copy[random.nextInt(LENGTH)] = random.nextInt();
+            }
+            queries[q] = copy;
+        }
+    }
+
+    private static int[] signature(Random random) {
+        int[] signature = new int[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            signature[i] = random.nextInt();
+        }
+        return signature;
+    }
+
+    @Benchmark
+    public Object query() {
+        return index.query(queries[ThreadLocalRandom.current().nextInt(QUERIES)], 0.5, -1);
+    }
+}
@@ -0,0 +1,63 @@
+package com.plagiguard.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Extraction time of a generated text PDF by page count, stripped on the calling thread
+ * against split into 16-page ranges on a pool of 4, the production defaults. Sample time
+ * mode reports p50 and p99 per configuration. With ranged extraction every document is
+ * split, so the 64-page threshold does not hide the cost of splitting small ones.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelPdfExtractorBenchmark {
+    private static final long MAX_MAIN_MEMORY_BYTES = 32L * 1024 * 1024;
+
+    @Param({"16", "64", "256"})
+    int pages;
+
+    @Param({"sequential", "ranged"})
+    String mode;
+
+    private byte[] pdf;
+    private ParallelPdfExtractor extractor;
+
+    @Setup
+    public void setUp() throws IOException {
+        pdf = ParallelPdfExtractorTest.pdf(pages);
+        extractor = mode.equals("sequential")
+            ? ParallelPdfExtractor.sequential(MAX_MAIN_MEMORY_BYTES)
+            : new ParallelPdfExtractor(4, 1, 16, MAX_MAIN_MEMORY_BYTES);
+    }
+
+    @TearDown
+    public void tearDown() {
+        extractor.close();
+    }
+
+    @Benchmark
+    public int extract() throws IOException {
+        StringWriter out = new StringWriter(pages * 2048);
+        extractor.extract(pdf, out);
+        return out.getBuffer().length();
+    }
+}
@@ -1,14 +1,206 @@
 package com.plagiguard.config;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnResource;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import com.plagiguard.repository.DetectionResultRepository;
+import com.plagiguard.util.BpeTokenizer;
+import com.plagiguard.util.DetectionCache;
+import com.plagiguard.util.PreClassifier;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+
+/**
+ * HTTP client for the AI detector: a bounded keep-alive connection pool with connect,
+ * read and response timeouts, so a slow detector fails fast instead of holding Tomcat
+ * threads. Pool usage is published as httpcomponents.httpclient.pool.* gauges and
+ * request latency as the http.client.requests histogram of the Boot RestTemplateBuilder.
+ * Verdicts are cached per model version so repeated texts skip the detector. Calls pass a
+ * count-based circuit breaker and a semaphore bulkhead, exported as resilience4j.* meters.
+ * Clearly human windows can be settled in process by the {@link PreClassifier} model at
+ * ai.detector.precheck.model, off by default and shadow-only until calibrated. Detector
+ * windows are sized in model tokens by the {@link BpeTokenizer} over the bundled
+ * ai/roberta vocab.json and merges.txt.
+ */
 @Configuration
 public class AIDetectorConfig {
-    
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager aiDetectorConnectionManager(
+        @Value("${ai.detector.pool.max.total:50}") int maxTotal,
+        @Value("${ai.detector.pool.max.per.route:20}") int maxPerRoute,
+        @Value("${ai.detector.connect.timeout.ms:2000}") long connectTimeoutMs,
+        @Value("${ai.detector.read.timeout.ms:30000}") long readTimeoutMs,
+        MeterRegistry meterRegistry
+    ) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxTotal)
+            .setMaxConnPerRoute(maxPerRoute)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                .build())
+            .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "ai-detector").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient aiDetectorHttpClient(
+        PoolingHttpClientConnectionManager aiDetectorConnectionManager,
+        @Value("${ai.detector.connection.request.timeout.ms:1000}") long connectionRequestTimeoutMs,
+        @Value("${ai.detector.response.timeout.ms:30000}") long responseTimeoutMs,
+        @Value("${ai.detector.keep.alive.seconds:30}") long keepAliveSeconds,
+        @Value("${ai.detector.idle.evict.seconds:30}") long idleEvictSeconds
+    ) {
+        TimeValue maxKeepAlive = TimeValue.ofSeconds(keepAliveSeconds);
+        return HttpClients.custom()
+            .setConnectionManager(aiDetectorConnectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                .build())
+            // Honour a shorter server Keep-Alive, but never keep a connection longer than configured
+            .setKeepAliveStrategy((response, context) -> {
+                TimeValue offered = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return offered.compareTo(maxKeepAlive) < 0 ? offered : maxKeepAlive;
+            })
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.of(idleEvictSeconds, TimeUnit.SECONDS))
+            .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient aiDetectorHttpClient) {
+        return builder
+            .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(aiDetectorHttpClient))
+            .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public DetectionCache detectionCache(
+        @Value("${ai.detector.cache.max.entries:100000}") long maxEntries,
+        @Value("${ai.detector.cache.ttl.hours:24}") long ttlHours,
+        @Value("${ai.detector.cache.persistent:true}") boolean persistent,
+        @Value("${ai.detector.model.version:roberta-base-openai-detector}") String modelVersion,
+        ObjectProvider<DetectionResultRepository> repository,
+        MeterRegistry meterRegistry
+    ) {
+        return new DetectionCache(maxEntries, Duration.ofHours(ttlHours), modelVersion,
+            persistent ? repository.getIfAvailable() : null, meterRegistry);
+    }
+
+    @Bean
+    public PreClassifier preClassifier(
+        @Value("${ai.detector.precheck.model:classpath:ai/preclassifier.properties}") Resource model,
+        @Value("${ai.detector.precheck.enabled:false}") boolean enabled,
+        @Value("${ai.detector.precheck.shadow.only:true}") boolean shadowOnly,
+        @Value("${ai.detector.precheck.human.below:0.05}") double humanBelow,
+        @Value("${ai.detector.precheck.min.words:100}") int minWords,
+        @Value("${ai.detector.precheck.shadow.rate:0.05}") double shadowRate,
+        MeterRegistry meterRegistry
+    ) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = model.getInputStream()) {
+            properties.load(in);
+        }
+        return new PreClassifier(properties, enabled, shadowOnly, humanBelow, minWords, shadowRate, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnResource(resources = {
+        "${ai.detector.tokenizer.vocab:classpath:ai/roberta/vocab.json}",
+        "${ai.detector.tokenizer.merges:classpath:ai/roberta/merges.txt}"
+    })
+    public BpeTokenizer bpeTokenizer(
+        @Value("${ai.detector.tokenizer.vocab:classpath:ai/roberta/vocab.json}") Resource vocab,
+        @Value("${ai.detector.tokenizer.merges:classpath:ai/roberta/merges.txt}") Resource merges
+    ) throws IOException {
+        try (InputStream vocabIn = vocab.getInputStream(); InputStream mergesIn = merges.getInputStream()) {
+            return BpeTokenizer.load(vocabIn, mergesIn);
+        }
+    }
+
+    @Bean
+    public CircuitBreaker aiDetectorCircuitBreaker(
+        @Value("${ai.detector.breaker.window.size:20}") int windowSize,
+        @Value("${ai.detector.breaker.minimum.calls:10}") int minimumCalls,
+        @Value("${ai.detector.breaker.failure.rate:50}") float failureRate,
+        @Value("${ai.detector.breaker.slow.call.ms:10000}") long slowCallMs,
+        @Value("${ai.detector.breaker.slow.call.rate:80}") float slowCallRate,
+        @Value("${ai.detector.breaker.open.seconds:30}") long openSeconds,
+        @Value("${ai.detector.breaker.half.open.calls:3}") int halfOpenCalls,
+        MeterRegistry meterRegistry
+    ) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+            .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+            .slidingWindowSize(windowSize)
+            .minimumNumberOfCalls(minimumCalls)
+            .failureRateThreshold(failureRate)
+            .slowCallDurationThreshold(Duration.ofMillis(slowCallMs))
+            .slowCallRateThreshold(slowCallRate)
+            .waitDurationInOpenState(Duration.ofSeconds(openSeconds))
+            .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+            .automaticTransitionFromOpenToHalfOpenEnabled(true)
+            // A rejected request says nothing about the detector's health, throttling does
+            .recordException(e -> !(e instanceof HttpClientErrorException clientError)
+                || clientError.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS)
+            .build();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker("aiDetector");
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public Bulkhead aiDetectorBulkhead(
+        @Value("${ai.detector.bulkhead.max.concurrent:16}") int maxConcurrent,
+        MeterRegistry meterRegistry
+    ) {
+        BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom()
+            .maxConcurrentCalls(maxConcurrent)
+            .maxWaitDuration(Duration.ZERO)
+            .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        Bulkhead bulkhead = registry.bulkhead("aiDetector");
+        Counter rejected = Counter.builder("ai.detector.bulkhead.rejected")
+            .description("Detector calls rejected because the bulkhead was full")
+            .register(meterRegistry);
+        bulkhead.getEventPublisher().onCallRejected(event -> rejected.increment());
+        return bulkhead;
     }
 }
@@ -0,0 +1,56 @@
+package com.plagiguard.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import com.plagiguard.entity.DetectionStatus;
+import com.plagiguard.repository.UploadRepository;
+import com.plagiguard.util.AIDetectorClient;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+/**
+ * Reports the AI detector circuit breaker as the aiDetector health component. An open
+ * breaker maps to CIRCUIT_OPEN rather than DOWN: uploads still succeed with a pending
+ * verdict, so the application itself stays in service.
+ */
+@Component("aiDetector")
+public class AIDetectorHealthIndicator implements HealthIndicator {
+
+    private static final Status CIRCUIT_OPEN = new Status("CIRCUIT_OPEN");
+
+    @Autowired
+    private CircuitBreaker aiDetectorCircuitBreaker;
+
+    @Autowired
+    private Bulkhead aiDetectorBulkhead;
+
+    @Autowired
+    private UploadRepository uploadRepository;
+
+    @Autowired
+    private AIDetectorClient aiDetectorClient;
+
+    @Override
+    public Health health() {
+        CircuitBreaker.State state = aiDetectorCircuitBreaker.getState();
+        CircuitBreaker.Metrics metrics = aiDetectorCircuitBreaker.getMetrics();
+        Health.Builder builder = state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN
+            ? Health.status(CIRCUIT_OPEN)
+            : Health.up();
+        return builder
+            .withDetail("state", state.name())
+            .withDetail("failureRate", metrics.getFailureRate())
+            .withDetail("slowCallRate", metrics.getSlowCallRate())
+            .withDetail("bufferedCalls", metrics.getNumberOfBufferedCalls())
+            .withDetail("notPermittedCalls", metrics.getNumberOfNotPermittedCalls())
+            .withDetail("availableConcurrentCalls", aiDetectorBulkhead.getMetrics().getAvailableConcurrentCalls())
+            .withDetail("endpoints", aiDetectorClient.endpointHealth())
+            .withDetail("pendingUploads", uploadRepository.countByDetectionStatus(DetectionStatus.PENDING))
+            .build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.plagiguard.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.plagiguard.util.ExtractionCache;
+import com.plagiguard.util.ParallelPdfExtractor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class ExtractionConfig {
+
+    @Bean(destroyMethod = "close")
+    public ParallelPdfExtractor parallelPdfExtractor(
+        @Value("${extraction.pdf.parallelism:4}") int parallelism,
+        @Value("${extraction.pdf.parallel.page.threshold:64}") int pageThreshold,
+        @Value("${extraction.pdf.pages.per.task:16}") int pagesPerTask,
+        @Value("${extraction.pdf.max.main.memory.mb:32}") long maxMainMemoryMb
+    ) {
+        return new ParallelPdfExtractor(parallelism, pageThreshold, pagesPerTask, maxMainMemoryMb * 1024 * 1024);
+    }
+
+    @Bean
+    public ExtractionCache extractionCache(
+        @Value("${extraction.cache.memory.max.mb:64}") long maxMemoryMb,
+        @Value("${extraction.cache.dir:${java.io.tmpdir}/plagiguard/extraction-cache}") String directory,
+        @Value("${extraction.cache.disk.max.mb:1024}") long maxDiskMb,
+        @Value("${extraction.cache.disk.max.age.days:7}") long maxDiskAgeDays,
+        MeterRegistry meterRegistry
+    ) throws IOException {
+        return new ExtractionCache(maxMemoryMb * 1024 * 1024, Path.of(directory), maxDiskMb * 1024 * 1024,
+            Duration.ofDays(maxDiskAgeDays), meterRegistry);
+    }
+}
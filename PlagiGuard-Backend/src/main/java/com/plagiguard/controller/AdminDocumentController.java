@@ -18,7 +18,11 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.plagiguard.entity.Upload;
 import com.plagiguard.repository.UploadRepository;
+import com.plagiguard.repository.UploadSummary;
 import com.plagiguard.service.FileUploadService;
+import com.plagiguard.service.SimilarityService;
+import com.plagiguard.service.TextExtractionService;
+import com.plagiguard.similarity.LshIndex.NearDuplicate;
 
 @RestController
 @RequestMapping("/api/admin/documents")
@@ -31,6 +35,12 @@ public class AdminDocumentController {
     @Autowired
     private FileUploadService fileUploadService;
 
+    @Autowired
+    private SimilarityService similarityService;
+
+    @Autowired
+    private TextExtractionService textExtractionService;
+
     @GetMapping
     public ResponseEntity<?> getAllDocuments(
             @RequestParam(required = false) String sortBy,
@@ -113,6 +123,8 @@ public class AdminDocumentController {
                 .orElseThrow(() -> new RuntimeException("Document not found"));
             // Only delete the database record (file is in DB)
             uploadRepository.deleteById(id);
+            similarityService.remove(upload.getId());
+            textExtractionService.forget(List.of(upload));
             return ResponseEntity.ok(Map.of("message", "Document deleted successfully"));
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
@@ -120,6 +132,36 @@ public class AdminDocumentController {
         }
     }
 
+    @GetMapping("/{id}/near-duplicates")
+    public ResponseEntity<?> getNearDuplicates(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0.5") Double minJaccard) {
+        try {
+            List<NearDuplicate> duplicates = similarityService.findNearDuplicates(id.intValue(), minJaccard);
+            Map<Integer, UploadSummary> summaries = uploadRepository.findSummariesByIds(
+                    duplicates.stream().map(NearDuplicate::uploadId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(UploadSummary::getId, summary -> summary));
+
+            List<Map<String, Object>> response = duplicates.stream()
+                .map(duplicate -> {
+                    UploadSummary summary = summaries.get(duplicate.uploadId());
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("id", duplicate.uploadId());
+                    item.put("fileName", summary == null ? null
+                        : summary.getOriginalFilename() != null ? summary.getOriginalFilename() : summary.getFilename());
+                    item.put("estimatedJaccard", duplicate.estimatedJaccard());
+                    return item;
+                })
+                .collect(Collectors.toList());
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Failed to find near duplicates: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}/download")
     public ResponseEntity<?> downloadDocument(@PathVariable Long id) {
         try {
@@ -3,9 +3,12 @@ package com.plagiguard.controller;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -17,11 +20,14 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.plagiguard.dto.BatchComparisonDTO;
 import com.plagiguard.dto.UploadResultDTO;
+import com.plagiguard.entity.DetectionStatus;
 import com.plagiguard.entity.Upload;
 import com.plagiguard.entity.User;
 import com.plagiguard.repository.UploadRepository;
 import com.plagiguard.repository.UserRepository;
+import com.plagiguard.service.BatchComparisonService;
 import com.plagiguard.service.FileUploadService;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -34,7 +40,7 @@ public class FileUploadController {
     @Autowired
     private FileUploadService fileUploadService;
       @PostMapping("/upload/user")
-    public ResponseEntity<UploadResultDTO> uploadFileByUserId(
+    public CompletableFuture<ResponseEntity<UploadResultDTO>> uploadFileByUserId(
             @RequestParam("file") MultipartFile file,
             @RequestParam("userId") Long userId) {
         try {
@@ -42,26 +48,24 @@ public class FileUploadController {
             System.out.println("File name: " + file.getOriginalFilename());
             System.out.println("File size: " + file.getSize());
             System.out.println("User ID: " + userId);
-            UploadResultDTO result = fileUploadService.uploadFile(file, userId);
-            return ResponseEntity.ok(result);
+            return fileUploadService.uploadFile(file, userId).thenApply(ResponseEntity::ok);
         } catch (Exception e) {
-            return ResponseEntity
+            return CompletableFuture.completedFuture(ResponseEntity
                 .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new UploadResultDTO(false, "Failed to upload file: " + e.getMessage(), null));
+                .body(new UploadResultDTO(false, "Failed to upload file: " + e.getMessage(), null)));
         }
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<UploadResultDTO> uploadFileByEmail(
+    public CompletableFuture<ResponseEntity<UploadResultDTO>> uploadFileByEmail(
             @RequestParam("file") MultipartFile file,
             @RequestParam("email") String email) {
         try {
-            UploadResultDTO result = fileUploadService.uploadFileByEmail(file, email);
-            return ResponseEntity.ok(result);
+            return fileUploadService.uploadFileByEmail(file, email).thenApply(ResponseEntity::ok);
         } catch (Exception e) {
-            return ResponseEntity
+            return CompletableFuture.completedFuture(ResponseEntity
                 .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new UploadResultDTO(false, "Failed to upload file: " + e.getMessage(), null));
+                .body(new UploadResultDTO(false, "Failed to upload file: " + e.getMessage(), null)));
         }
     }    @GetMapping("/history/{userId}")
     public ResponseEntity<?> getUploadHistory(@PathVariable Long userId) {
@@ -82,6 +86,8 @@ public class FileUploadController {
                     historyItem.put("percentAI", upload.getSimilarityScore() != null ? 
                         Math.round(upload.getSimilarityScore() * 100) : 0);
                     historyItem.put("timestamp", upload.getUploadDate().toString());
+                    historyItem.put("detectionStatus", upload.getDetectionStatus() != null ?
+                        upload.getDetectionStatus().name() : DetectionStatus.COMPLETE.name());
                     return historyItem;
                 })
                 .collect(Collectors.toList());
@@ -98,9 +104,50 @@ public class FileUploadController {
         }
     }
 
+    @PostMapping("/batch-compare")
+    public ResponseEntity<?> batchCompare(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "threshold", defaultValue = "0.1") double threshold,
+            @RequestParam(value = "mode", defaultValue = "text") String mode) {
+        try {
+            if (!mode.equals("text") && !mode.equals("code")) {
+                throw new IllegalArgumentException("Unknown comparison mode: " + mode);
+            }
+            BatchComparisonDTO job = batchComparisonService.submit(files, threshold, mode.equals("code"));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "60")
+                .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity
+                .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to start batch comparison: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/batch-compare/{jobId}")
+    public ResponseEntity<?> getBatchComparison(@PathVariable String jobId) {
+        BatchComparisonDTO job = batchComparisonService.status(jobId);
+        if (job == null) {
+            return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "Batch comparison not found: " + jobId));
+        }
+        return ResponseEntity.ok(job);
+    }
+
     @Autowired
     private UserRepository userRepository;
     
     @Autowired
     private UploadRepository uploadRepository;
+
+    @Autowired
+    private BatchComparisonService batchComparisonService;
 }
@@ -0,0 +1,43 @@
+package com.plagiguard.dto;
+
+/**
+ * End-exclusive word range of the submitted document with the AI probability of the
+ * detector windows that cover it.
+ */
+public class AISpanDTO {
+    private int start;
+    private int end;
+    private double aiScore;
+
+    public AISpanDTO() {}
+
+    public AISpanDTO(int start, int end, double aiScore) {
+        this.start = start;
+        this.end = end;
+        this.aiScore = aiScore;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public void setEnd(int end) {
+        this.end = end;
+    }
+
+    public double getAiScore() {
+        return aiScore;
+    }
+
+    public void setAiScore(double aiScore) {
+        this.aiScore = aiScore;
+    }
+}
@@ -0,0 +1,84 @@
+package com.plagiguard.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of a batch comparison job. The pairs are only filled in once the status is DONE.
+ */
+public class BatchComparisonDTO {
+    private String jobId;
+    private String status;
+    private String phase;
+    private int processed;
+    private int total;
+    private List<String> fileNames;
+    private Map<String, String> errors;
+    private List<BatchPairDTO> pairs;
+
+    public BatchComparisonDTO() {}
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(int processed) {
+        this.processed = processed;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public List<String> getFileNames() {
+        return fileNames;
+    }
+
+    public void setFileNames(List<String> fileNames) {
+        this.fileNames = fileNames;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(Map<String, String> errors) {
+        this.errors = errors;
+    }
+
+    public List<BatchPairDTO> getPairs() {
+        return pairs;
+    }
+
+    public void setPairs(List<BatchPairDTO> pairs) {
+        this.pairs = pairs;
+    }
+}
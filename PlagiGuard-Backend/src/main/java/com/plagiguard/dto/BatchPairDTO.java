@@ -0,0 +1,55 @@
+package com.plagiguard.dto;
+
+/**
+ * One cell of the sparse batch similarity matrix: two submissions by index into the
+ * batch's file list, the fingerprints they share and the Jaccard similarity of their
+ * fingerprint sets. In code mode sharedFingerprints counts the tokens covered by
+ * tiles and similarity is the tiled share of both token streams.
+ */
+public class BatchPairDTO {
+    private int first;
+    private int second;
+    private int sharedFingerprints;
+    private double similarity;
+
+    public BatchPairDTO() {}
+
+    public BatchPairDTO(int first, int second, int sharedFingerprints, double similarity) {
+        this.first = first;
+        this.second = second;
+        this.sharedFingerprints = sharedFingerprints;
+        this.similarity = similarity;
+    }
+
+    public int getFirst() {
+        return first;
+    }
+
+    public void setFirst(int first) {
+        this.first = first;
+    }
+
+    public int getSecond() {
+        return second;
+    }
+
+    public void setSecond(int second) {
+        this.second = second;
+    }
+
+    public int getSharedFingerprints() {
+        return sharedFingerprints;
+    }
+
+    public void setSharedFingerprints(int sharedFingerprints) {
+        this.sharedFingerprints = sharedFingerprints;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    public void setSimilarity(double similarity) {
+        this.similarity = similarity;
+    }
+}
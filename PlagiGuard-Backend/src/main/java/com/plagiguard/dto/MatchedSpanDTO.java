@@ -0,0 +1,63 @@
+package com.plagiguard.dto;
+
+/**
+ * Passage shared with a stored upload, as end-exclusive word ranges in the source
+ * upload and in the submitted document.
+ */
+public class MatchedSpanDTO {
+    private Integer sourceUploadId;
+    private int srcStart;
+    private int srcEnd;
+    private int dstStart;
+    private int dstEnd;
+
+    public MatchedSpanDTO() {}
+
+    public MatchedSpanDTO(Integer sourceUploadId, int srcStart, int srcEnd, int dstStart, int dstEnd) {
+        this.sourceUploadId = sourceUploadId;
+        this.srcStart = srcStart;
+        this.srcEnd = srcEnd;
+        this.dstStart = dstStart;
+        this.dstEnd = dstEnd;
+    }
+
+    public Integer getSourceUploadId() {
+        return sourceUploadId;
+    }
+
+    public void setSourceUploadId(Integer sourceUploadId) {
+        this.sourceUploadId = sourceUploadId;
+    }
+
+    public int getSrcStart() {
+        return srcStart;
+    }
+
+    public void setSrcStart(int srcStart) {
+        this.srcStart = srcStart;
+    }
+
+    public int getSrcEnd() {
+        return srcEnd;
+    }
+
+    public void setSrcEnd(int srcEnd) {
+        this.srcEnd = srcEnd;
+    }
+
+    public int getDstStart() {
+        return dstStart;
+    }
+
+    public void setDstStart(int dstStart) {
+        this.dstStart = dstStart;
+    }
+
+    public int getDstEnd() {
+        return dstEnd;
+    }
+
+    public void setDstEnd(int dstEnd) {
+        this.dstEnd = dstEnd;
+    }
+}
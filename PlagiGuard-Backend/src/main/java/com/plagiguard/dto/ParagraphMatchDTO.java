@@ -0,0 +1,24 @@
+package com.plagiguard.dto;
+
+/**
+ * Paragraph of the submitted document that nearly matches a paragraph of a stored
+ * upload, with the Hamming distance between their SimHashes.
+ */
+public class ParagraphMatchDTO extends MatchedSpanDTO {
+    private int distance;
+
+    public ParagraphMatchDTO() {}
+
+    public ParagraphMatchDTO(Integer sourceUploadId, int srcStart, int srcEnd, int dstStart, int dstEnd, int distance) {
+        super(sourceUploadId, srcStart, srcEnd, dstStart, dstEnd);
+        this.distance = distance;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    public void setDistance(int distance) {
+        this.distance = distance;
+    }
+}
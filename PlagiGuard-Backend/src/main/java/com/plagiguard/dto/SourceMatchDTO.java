@@ -0,0 +1,39 @@
+package com.plagiguard.dto;
+
+public class SourceMatchDTO {
+    private Integer uploadId;
+    private String fileName;
+    private Double similarity;
+
+    public SourceMatchDTO() {}
+
+    public SourceMatchDTO(Integer uploadId, String fileName, Double similarity) {
+        this.uploadId = uploadId;
+        this.fileName = fileName;
+        this.similarity = similarity;
+    }
+
+    public Integer getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(Integer uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Double getSimilarity() {
+        return similarity;
+    }
+
+    public void setSimilarity(Double similarity) {
+        this.similarity = similarity;
+    }
+}
@@ -9,6 +9,13 @@ public class UploadResultDTO {
     private Double similarityScore;
     private String content;
     private List<Integer> aiParts;
+    private Double plagiarismScore;
+    private List<SourceMatchDTO> sources;
+    private List<MatchedSpanDTO> matchedSpans;
+    private List<ParagraphMatchDTO> paragraphMatches;
+    private List<SourceMatchDTO> topicalSources;
+    private List<AISpanDTO> aiSpans;
+    private String detectionStatus;
 
     public UploadResultDTO() {}
 
@@ -65,4 +72,60 @@ public class UploadResultDTO {
     public void setAiParts(List<Integer> aiParts) {
         this.aiParts = aiParts;
     }
-}
\ No newline at end of file
+
+    public Double getPlagiarismScore() {
+        return plagiarismScore;
+    }
+
+    public void setPlagiarismScore(Double plagiarismScore) {
+        this.plagiarismScore = plagiarismScore;
+    }
+
+    public List<SourceMatchDTO> getSources() {
+        return sources;
+    }
+
+    public void setSources(List<SourceMatchDTO> sources) {
+        this.sources = sources;
+    }
+
+    public List<MatchedSpanDTO> getMatchedSpans() {
+        return matchedSpans;
+    }
+
+    public void setMatchedSpans(List<MatchedSpanDTO> matchedSpans) {
+        this.matchedSpans = matchedSpans;
+    }
+
+    public List<ParagraphMatchDTO> getParagraphMatches() {
+        return paragraphMatches;
+    }
+
+    public void setParagraphMatches(List<ParagraphMatchDTO> paragraphMatches) {
+        this.paragraphMatches = paragraphMatches;
+    }
+
+    public List<SourceMatchDTO> getTopicalSources() {
+        return topicalSources;
+    }
+
+    public void setTopicalSources(List<SourceMatchDTO> topicalSources) {
+        this.topicalSources = topicalSources;
+    }
+
+    public List<AISpanDTO> getAiSpans() {
+        return aiSpans;
+    }
+
+    public void setAiSpans(List<AISpanDTO> aiSpans) {
+        this.aiSpans = aiSpans;
+    }
+
+    public String getDetectionStatus() {
+        return detectionStatus;
+    }
+
+    public void setDetectionStatus(String detectionStatus) {
+        this.detectionStatus = detectionStatus;
+    }
+}
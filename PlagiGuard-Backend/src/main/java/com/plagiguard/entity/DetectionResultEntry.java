@@ -0,0 +1,67 @@
+package com.plagiguard.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/** Persistent tier of the AI detection cache, keyed by the hash of model version and text. */
+@Entity
+@Table(name = "detection_results")
+public class DetectionResultEntry {
+    @Id
+    @Column(name = "cache_key", length = 64)
+    private String cacheKey;
+
+    @Column(name = "ai_score", nullable = false)
+    private double aiScore;
+
+    @Column(name = "ai_generated", nullable = false)
+    private boolean aiGenerated;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public DetectionResultEntry() {}
+
+    public DetectionResultEntry(String cacheKey, double aiScore, boolean aiGenerated) {
+        this.cacheKey = cacheKey;
+        this.aiScore = aiScore;
+        this.aiGenerated = aiGenerated;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    public double getAiScore() {
+        return aiScore;
+    }
+
+    public void setAiScore(double aiScore) {
+        this.aiScore = aiScore;
+    }
+
+    public boolean isAiGenerated() {
+        return aiGenerated;
+    }
+
+    public void setAiGenerated(boolean aiGenerated) {
+        this.aiGenerated = aiGenerated;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,7 @@
+package com.plagiguard.entity;
+
+/** AI detection state of an upload; PENDING uploads are rescored once the detector is reachable. */
+public enum DetectionStatus {
+    PENDING,
+    COMPLETE
+}
@@ -6,6 +6,8 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -39,6 +41,13 @@ public class Upload {
     @Column(name = "file_data", columnDefinition = "LONGBLOB")
     private byte[] fileData;
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "detection_status", length = 16)
+    private DetectionStatus detectionStatus;
+
     public Upload() {
         this.uploadDate = LocalDateTime.now();
     }
@@ -99,4 +108,20 @@ public class Upload {
     public void setFileData(byte[] fileData) {
         this.fileData = fileData;
     }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public DetectionStatus getDetectionStatus() {
+        return detectionStatus;
+    }
+
+    public void setDetectionStatus(DetectionStatus detectionStatus) {
+        this.detectionStatus = detectionStatus;
+    }
 }
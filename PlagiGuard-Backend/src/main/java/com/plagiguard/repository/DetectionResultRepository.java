@@ -0,0 +1,21 @@
+package com.plagiguard.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.plagiguard.entity.DetectionResultEntry;
+
+@Repository
+public interface DetectionResultRepository extends JpaRepository<DetectionResultEntry, String> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DetectionResultEntry d WHERE d.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
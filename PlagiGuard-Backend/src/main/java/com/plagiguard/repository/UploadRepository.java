@@ -1,12 +1,18 @@
 package com.plagiguard.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.plagiguard.entity.DetectionStatus;
 import com.plagiguard.entity.Upload;
 import com.plagiguard.entity.User;
 
@@ -21,4 +27,31 @@ public interface UploadRepository extends JpaRepository<Upload, Long> {
     Double findAverageAIScore();
     
     List<Upload> findByUploadDateBefore(LocalDateTime cutoff);
+
+    boolean existsByContentHash(String contentHash);
+
+    @Query("SELECT u.id AS id, u.filename AS filename, u.originalFilename AS originalFilename, "
+        + "u.contentHash AS contentHash FROM Upload u WHERE u.id > :afterId ORDER BY u.id")
+    List<UploadSummary> findSummariesAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    @Query("SELECT u.id AS id, u.filename AS filename, u.originalFilename AS originalFilename, "
+        + "u.contentHash AS contentHash FROM Upload u WHERE u.id IN :ids")
+    List<UploadSummary> findSummariesByIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT u.fileData FROM Upload u WHERE u.id = :id")
+    byte[] findFileDataById(@Param("id") Integer id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Upload u SET u.similarityScore = :score, "
+        + "u.detectionStatus = com.plagiguard.entity.DetectionStatus.COMPLETE WHERE u.id = :id")
+    int completeDetection(@Param("id") Integer id, @Param("score") Double score);
+
+    @Query("SELECT u.id AS id, u.filename AS filename, u.originalFilename AS originalFilename, "
+        + "u.contentHash AS contentHash FROM Upload u "
+        + "WHERE u.detectionStatus = :status AND u.uploadDate < :before ORDER BY u.id")
+    List<UploadSummary> findSummariesByDetectionStatus(@Param("status") DetectionStatus status,
+        @Param("before") LocalDateTime before, Pageable pageable);
+
+    long countByDetectionStatus(DetectionStatus status);
 }
@@ -0,0 +1,11 @@
+package com.plagiguard.repository;
+
+/**
+ * Lightweight view of an upload row that leaves out the file blob.
+ */
+public interface UploadSummary {
+    Integer getId();
+    String getFilename();
+    String getOriginalFilename();
+    String getContentHash();
+}
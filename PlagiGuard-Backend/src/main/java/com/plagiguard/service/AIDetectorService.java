@@ -0,0 +1,346 @@
+package com.plagiguard.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.plagiguard.dto.AISpanDTO;
+import com.plagiguard.util.AIDetectorClient;
+import com.plagiguard.util.BpeTokenizer;
+import com.plagiguard.util.DetectionCache;
+import com.plagiguard.util.DetectionResult;
+import com.plagiguard.util.PreClassifier;
+import com.plagiguard.util.TokenStream;
+
+/**
+ * Whole-document AI detection. The detector model only reads 512 subword tokens, so the
+ * normalized text is cut into overlapping word windows that are scored concurrently, at
+ * most maxInFlight at a time per document. With the model's {@link BpeTokenizer} the
+ * windows hold as many words as fit in 512 tokens exactly, otherwise windowWords words.
+ * Every word gets the mean score of the windows covering it; the document score is the
+ * mean over all words, i.e. weighted by length.
+ * Windows whose text was scored before, here or in an earlier upload, come from the
+ * {@link DetectionCache} and repeated windows of one document are sent once. Windows the
+ * {@link PreClassifier} finds clearly human take its score and skip the detector.
+ * Window verdicts are handled on a small completion pool rather than on the detector
+ * client's request threads, which are kept for HTTP calls.
+ */
+@Service
+public class AIDetectorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIDetectorService.class);
+
+    @Autowired
+    private AIDetectorClient aiDetectorClient;
+
+    @Autowired
+    private DetectionCache detectionCache;
+
+    @Autowired
+    private PreClassifier preClassifier;
+
+    @Autowired(required = false)
+    private BpeTokenizer tokenizer;
+
+    @Value("${ai.detector.window.max.tokens:512}")
+    private int maxTokens;
+
+    @Value("${ai.detector.window.words:320}")
+    private int windowWords;
+
+    @Value("${ai.detector.window.overlap.words:64}")
+    private int overlapWords;
+
+    @Value("${ai.detector.max.in.flight:8}")
+    private int maxInFlight;
+
+    @Value("${ai.detector.threshold:0.7}")
+    private double threshold;
+
+    @Value("${ai.detector.completion.threads:2}")
+    private int completionThreads;
+
+    private ExecutorService completer;
+
+    /** Length-weighted document score and the word ranges of equal window coverage. */
+    public record DocumentDetection(double aiScore, boolean aiGenerated, List<AISpanDTO> spans) {}
+
+    /** Word ranges [starts[i], ends[i]) of the detector windows, in ascending start order. */
+    record Windows(int[] starts, int[] ends) {}
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threads = new AtomicInteger();
+        completer = Executors.newFixedThreadPool(Math.max(1, completionThreads),
+            r -> new Thread(r, "ai-detector-complete-" + threads.incrementAndGet()));
+        if (tokenizer == null) {
+            logger.info("No BPE tokenizer resources found; AI detector windows hold {} words", windowWords);
+        } else {
+            logger.info("AI detector windows are sized to {} model tokens", maxTokens);
+        }
+    }
+
+    public CompletableFuture<DocumentDetection> detect(TokenStream tokens) {
+        Windows windows = tokenizer != null
+            ? tokenWindows(tokens)
+            : wordWindows(tokens.size(), Math.max(1, windowWords), Math.max(1, windowWords - overlapWords));
+        int[] starts = windows.starts();
+        int[] ends = windows.ends();
+
+        // Group windows by cache key so each distinct text is looked up and scored once
+        Map<String, List<Integer>> windowsByKey = new LinkedHashMap<>();
+        Map<String, String> textByKey = new HashMap<>();
+        for (int i = 0; i < starts.length; i++) {
+            String text = windowText(tokens, starts[i], ends[i]);
+            String key = detectionCache.key(text);
+            windowsByKey.computeIfAbsent(key, k -> new ArrayList<>(1)).add(i);
+            textByKey.putIfAbsent(key, text);
+        }
+        Map<String, DetectionResult> cached = detectionCache.getAll(windowsByKey.keySet());
+
+        double[] scores = new double[starts.length];
+        List<String> missing = new ArrayList<>();
+        Map<String, PreClassifier.Decision> shadowed = new HashMap<>();
+        windowsByKey.forEach((key, indexes) -> {
+            DetectionResult result = cached.get(key);
+            if (result != null) {
+                indexes.forEach(w -> scores[w] = result.aiScore());
+                return;
+            }
+            int first = indexes.get(0);
+            PreClassifier.Verdict verdict = preClassifier.classify(tokens, starts[first], ends[first]);
+            if (verdict.decision() == PreClassifier.Decision.ESCALATE || verdict.shadow()) {
+                missing.add(key);
+                if (verdict.shadow()) {
+                    shadowed.put(key, verdict.decision());
+                }
+            } else {
+                indexes.forEach(w -> scores[w] = verdict.aiScore());
+            }
+        });
+        logger.debug("Scoring {} words in {} detector windows, {} distinct, not cached and not pre-classified",
+            tokens.size(), starts.length, missing.size());
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(aggregate(tokens.size(), windows, scores));
+        }
+        return new Fanout(tokens.size(), windows, scores, missing, windowsByKey, textByKey, shadowed).start();
+    }
+
+    public double threshold() {
+        return threshold;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        completer.shutdown();
+    }
+
+    // Windows step by window - overlap; the last one is pulled back to end at the final word
+    static Windows wordWindows(int size, int window, int stride) {
+        if (size <= window) {
+            return new Windows(new int[] {0}, new int[] {size});
+        }
+        int count = (size - window + stride - 1) / stride + 1;
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        for (int i = 0; i < count - 1; i++) {
+            starts[i] = i * stride;
+            ends[i] = starts[i] + window;
+        }
+        starts[count - 1] = size - window;
+        ends[count - 1] = size;
+        return new Windows(starts, ends);
+    }
+
+    /**
+     * Windows holding as many words as fit in the model's token limit, less the two special
+     * tokens, stepping back overlapWords words, or a quarter of the window when that is less.
+     * Like the word windows the last one is pulled back to a full window ending at the final
+     * word. A single word longer than the limit still gets a window of its own, which the
+     * detector truncates.
+     */
+    Windows tokenWindows(TokenStream tokens) {
+        int size = tokens.size();
+        if (size == 0) {
+            return new Windows(new int[] {0}, new int[] {0});
+        }
+        int budget = Math.max(1, maxTokens - 2);
+        int[] counts = tokenizer.wordCounts(tokens);
+
+        // Earliest start whose window reaches the final word
+        int tailStart = size - 1;
+        int tail = 0;
+        while (tailStart > 0 && alone(tokens, tailStart - 1) + counts[tailStart] + tail <= budget) {
+            tail += counts[tailStart];
+            tailStart--;
+        }
+
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int count = 0;
+        int start = 0;
+        while (true) {
+            int used = alone(tokens, start);
+            int end = start + 1;
+            while (end < size && used + counts[end] <= budget) {
+                used += counts[end];
+                end++;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count++] = end;
+            if (end >= size) {
+                break;
+            }
+            // Short windows of many-token words would otherwise advance a word at a time
+            int overlap = Math.min(overlapWords, (end - start) / 4);
+            start = Math.max(start + 1, Math.min(end - overlap, tailStart));
+        }
+        return new Windows(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+
+    // Tokens of a word opening a window, where it has no separator to join
+    private int alone(TokenStream tokens, int word) {
+        return tokenizer.count(tokens, tokens.start(word), tokens.end(word));
+    }
+
+    private DocumentDetection aggregate(int size, Windows windows, double[] scores) {
+        if (size == 0) {
+            return new DocumentDetection(scores[0], scores[0] > threshold, List.of());
+        }
+        int[] starts = windows.starts();
+        int[] ends = windows.ends();
+        int[] boundaries = new int[starts.length * 2];
+        for (int i = 0; i < starts.length; i++) {
+            boundaries[2 * i] = starts[i];
+            boundaries[2 * i + 1] = ends[i];
+        }
+        Arrays.sort(boundaries);
+
+        List<AISpanDTO> spans = new ArrayList<>();
+        double weighted = 0;
+        int first = 0;
+        for (int b = 0; b < boundaries.length - 1; b++) {
+            int start = boundaries[b];
+            int end = boundaries[b + 1];
+            if (start == end) {
+                continue;
+            }
+            // Windows start in ascending order; those passed here end at or before every later segment
+            while (ends[first] <= start) {
+                first++;
+            }
+            double sum = 0;
+            int covering = 0;
+            for (int w = first; w < starts.length && starts[w] <= start; w++) {
+                if (ends[w] > start) {
+                    sum += scores[w];
+                    covering++;
+                }
+            }
+            double score = sum / covering;
+            weighted += score * (end - start);
+            spans.add(new AISpanDTO(start, end, score));
+        }
+        double aiScore = weighted / size;
+        return new DocumentDetection(aiScore, aiScore > threshold, spans);
+    }
+
+    private String windowText(TokenStream tokens, int first, int end) {
+        if (tokens.size() == 0) {
+            return tokens.toString();
+        }
+        return tokens.subSequence(tokens.start(first), tokens.end(end - 1)).toString();
+    }
+
+    /** Keeps up to maxInFlight distinct texts of one document outstanding; each completion launches the next. */
+    private final class Fanout {
+        private final int size;
+        private final Windows windows;
+        private final double[] scores;
+        private final List<String> keys;
+        private final Map<String, List<Integer>> windowsByKey;
+        private final Map<String, String> textByKey;
+        private final Map<String, PreClassifier.Decision> shadowed;
+        private final Map<String, DetectionResult> fresh = new ConcurrentHashMap<>();
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final CompletableFuture<DocumentDetection> result = new CompletableFuture<>();
+
+        Fanout(int size, Windows windows, double[] scores, List<String> keys,
+                Map<String, List<Integer>> windowsByKey, Map<String, String> textByKey,
+                Map<String, PreClassifier.Decision> shadowed) {
+            this.size = size;
+            this.windows = windows;
+            this.scores = scores;
+            this.keys = keys;
+            this.windowsByKey = windowsByKey;
+            this.textByKey = textByKey;
+            this.shadowed = shadowed;
+            this.remaining = new AtomicInteger(keys.size());
+        }
+
+        CompletableFuture<DocumentDetection> start() {
+            int initial = Math.min(keys.size(), Math.max(1, maxInFlight));
+            for (int i = 0; i < initial; i++) {
+                launch();
+            }
+            return result;
+        }
+
+        private void launch() {
+            int index = next.getAndIncrement();
+            if (index >= keys.size() || result.isDone()) {
+                return;
+            }
+            String key = keys.get(index);
+            long started = System.nanoTime();
+            aiDetectorClient.detect(textByKey.get(key)).whenCompleteAsync((verdict, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+                detectionCache.put(key, verdict, System.nanoTime() - started);
+                PreClassifier.Decision decision = shadowed.get(key);
+                if (decision != null) {
+                    preClassifier.recordAgreement(decision, verdict.aiScore() > threshold);
+                }
+                fresh.put(key, verdict);
+                for (int window : windowsByKey.get(key)) {
+                    scores[window] = verdict.aiScore();
+                }
+                // The decrement publishes every earlier score write to the thread that aggregates
+                if (remaining.decrementAndGet() == 0) {
+                    try {
+                        result.complete(aggregate(size, windows, scores));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                    detectionCache.persist(fresh);
+                } else {
+                    launch();
+                }
+            }, completer);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.plagiguard.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.plagiguard.dto.BatchComparisonDTO;
+import com.plagiguard.dto.BatchPairDTO;
+import com.plagiguard.similarity.AllPairsOverlap;
+import com.plagiguard.similarity.GreedyStringTiling;
+import com.plagiguard.util.CodeTokenizer;
+import com.plagiguard.util.TextNormalizer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * All-pairs comparison of a class set. Submissions are extracted and fingerprinted in
+ * parallel, then a single inverted index over the batch yields the shared fingerprint
+ * count of every overlapping pair. In code mode, source files are lexed into normalized
+ * token streams and every pair is compared with Greedy String Tiling, rows of the pair
+ * matrix running in parallel. Jobs run in the background; callers poll for progress.
+ * Submitted files stay on heap until their job finishes, so submissions are rejected
+ * once maxQueuedJobs wait behind the running one or the files of all unfinished jobs
+ * would exceed maxQueuedMb.
+ */
+@Service
+public class BatchComparisonService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchComparisonService.class);
+
+    @Autowired
+    private TextExtractionService textExtractionService;
+
+    @Autowired
+    private SimilarityService similarityService;
+
+    @Value("${batch.compare.parallelism:4}")
+    private int parallelism;
+
+    @Value("${batch.compare.max.files:500}")
+    private int maxFiles;
+
+    @Value("${batch.compare.max.document.frequency:0.5}")
+    private double maxDocumentFrequency;
+
+    @Value("${batch.compare.code.min.match:9}")
+    private int codeMinMatch;
+
+    @Value("${batch.compare.job.ttl.minutes:60}")
+    private long jobTtlMinutes;
+
+    @Value("${batch.compare.max.queued.jobs:4}")
+    private int maxQueuedJobs;
+
+    @Value("${batch.compare.max.queued.mb:400}")
+    private long maxQueuedMb;
+
+    private ExecutorService workers;
+    private ExecutorService jobRunner;
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private Cache<String, BatchJob> jobs;
+
+    private record BatchFile(String fileName, byte[] data) {}
+
+    private static final class BatchJob {
+        final String id = UUID.randomUUID().toString();
+        final List<String> fileNames;
+        final Map<String, String> errors = new ConcurrentHashMap<>();
+        final AtomicInteger processed = new AtomicInteger();
+        volatile String status = "QUEUED";
+        volatile String phase = "QUEUED";
+        volatile int total;
+        volatile List<BatchPairDTO> pairs;
+
+        BatchJob(List<String> fileNames) {
+            this.fileNames = fileNames;
+            this.total = fileNames.size();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(parallelism, r -> new Thread(r, "batch-compare-" + threads.incrementAndGet()));
+        jobRunner = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxQueuedJobs),
+            r -> new Thread(r, "batch-compare-job"));
+        jobs = Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(jobTtlMinutes)).build();
+    }
+
+    /**
+     * Reads the files and queues the comparison; returns the job's initial state. Throws
+     * RejectedExecutionException when the queue is full.
+     */
+    public BatchComparisonDTO submit(List<MultipartFile> files, double threshold, boolean codeMode) throws Exception {
+        if (files == null || files.size() < 2) {
+            throw new IllegalArgumentException("At least two files are required");
+        }
+        int limit = Math.min(maxFiles, AllPairsOverlap.MAX_DOCUMENTS);
+        if (files.size() > limit) {
+            throw new IllegalArgumentException("At most " + limit + " files per batch");
+        }
+        long bytes = files.stream().mapToLong(MultipartFile::getSize).sum();
+        reserve(bytes);
+        try {
+            // Multipart temp files are gone once the request ends, so read them now
+            List<BatchFile> batch = new ArrayList<>(files.size());
+            List<String> fileNames = new ArrayList<>(files.size());
+            for (MultipartFile file : files) {
+                batch.add(new BatchFile(file.getOriginalFilename(), file.getBytes()));
+                fileNames.add(file.getOriginalFilename());
+            }
+            BatchJob job = new BatchJob(fileNames);
+            jobs.put(job.id, job);
+            try {
+                jobRunner.execute(() -> {
+                    try {
+                        if (codeMode) {
+                            runCode(job, batch, threshold);
+                        } else {
+                            run(job, batch, threshold);
+                        }
+                    } finally {
+                        queuedBytes.addAndGet(-bytes);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                jobs.invalidate(job.id);
+                throw new RejectedExecutionException("Batch comparison queue is full, try again later", e);
+            }
+            return toDTO(job);
+        } catch (Exception e) {
+            queuedBytes.addAndGet(-bytes);
+            throw e;
+        }
+    }
+
+    private void reserve(long bytes) {
+        long limit = maxQueuedMb * 1024 * 1024;
+        long current;
+        do {
+            current = queuedBytes.get();
+            // A single batch larger than the limit still runs when nothing else is queued
+            if (current > 0 && current + bytes > limit) {
+                throw new RejectedExecutionException("Batch comparison queue is full, try again later");
+            }
+        } while (!queuedBytes.compareAndSet(current, current + bytes));
+    }
+
+    public BatchComparisonDTO status(String jobId) {
+        BatchJob job = jobs.getIfPresent(jobId);
+        return job == null ? null : toDTO(job);
+    }
+
+    private void run(BatchJob job, List<BatchFile> batch, double threshold) {
+        long start = System.currentTimeMillis();
+        try {
+            job.status = "RUNNING";
+            job.phase = "EXTRACTING";
+            List<CompletableFuture<long[]>> futures = new ArrayList<>(batch.size());
+            for (BatchFile file : batch) {
+                futures.add(CompletableFuture.supplyAsync(() -> fingerprint(job, file), workers));
+            }
+            long[][] documents = new long[batch.size()][];
+            for (int d = 0; d < documents.length; d++) {
+                documents[d] = futures.get(d).join();
+            }
+            batch.clear();
+
+            job.phase = "COMPARING";
+            job.processed.set(0);
+            int maxFrequency = Math.max(2, (int) Math.ceil(maxDocumentFrequency * documents.length));
+            List<AllPairsOverlap.Pair> overlaps = AllPairsOverlap.overlaps(documents, maxFrequency, (done, total) -> {
+                job.total = total;
+                job.processed.set(done);
+            });
+
+            List<BatchPairDTO> pairs = new ArrayList<>();
+            for (AllPairsOverlap.Pair pair : overlaps) {
+                int union = documents[pair.first()].length + documents[pair.second()].length - pair.sharedFingerprints();
+                double similarity = (double) pair.sharedFingerprints() / union;
+                if (similarity >= threshold) {
+                    pairs.add(new BatchPairDTO(pair.first(), pair.second(), pair.sharedFingerprints(), similarity));
+                }
+            }
+            pairs.sort(Comparator.comparingDouble(BatchPairDTO::getSimilarity).reversed());
+            job.pairs = pairs;
+            job.phase = "DONE";
+            job.status = "DONE";
+            logger.info("Batch {} compared {} files in {} ms, {} pairs above {}",
+                job.id, documents.length, System.currentTimeMillis() - start, pairs.size(), threshold);
+        } catch (Exception e) {
+            failed(job, "Batch comparison", e);
+        }
+        // Refresh the expiry so finished results stay available for the full TTL
+        jobs.put(job.id, job);
+    }
+
+    private void runCode(BatchJob job, List<BatchFile> batch, double threshold) {
+        long start = System.currentTimeMillis();
+        try {
+            job.status = "RUNNING";
+            job.phase = "TOKENIZING";
+            List<CompletableFuture<GreedyStringTiling.Prepared>> futures = new ArrayList<>(batch.size());
+            for (BatchFile file : batch) {
+                futures.add(CompletableFuture.supplyAsync(() -> tokenize(job, file), workers));
+            }
+            int n = batch.size();
+            GreedyStringTiling.Prepared[] documents = new GreedyStringTiling.Prepared[n];
+            for (int d = 0; d < n; d++) {
+                documents[d] = futures.get(d).join();
+            }
+            batch.clear();
+
+            job.phase = "COMPARING";
+            job.processed.set(0);
+            job.total = n * (n - 1) / 2;
+            List<CompletableFuture<List<BatchPairDTO>>> rows = new ArrayList<>(n);
+            for (int i = 0; i < n - 1; i++) {
+                int row = i;
+                rows.add(CompletableFuture.supplyAsync(() -> {
+                    List<BatchPairDTO> pairs = new ArrayList<>();
+                    for (int j = row + 1; j < n; j++) {
+                        GreedyStringTiling.Result result = GreedyStringTiling.compare(documents[row], documents[j]);
+                        if (result.covered() > 0 && result.similarity() >= threshold) {
+                            pairs.add(new BatchPairDTO(row, j, result.covered(), result.similarity()));
+                        }
+                    }
+                    job.processed.addAndGet(n - 1 - row);
+                    return pairs;
+                }, workers));
+            }
+            List<BatchPairDTO> pairs = new ArrayList<>();
+            rows.forEach(row -> pairs.addAll(row.join()));
+            pairs.sort(Comparator.comparingDouble(BatchPairDTO::getSimilarity).reversed());
+            job.pairs = pairs;
+            job.phase = "DONE";
+            job.status = "DONE";
+            logger.info("Code batch {} compared {} files in {} ms, {} pairs above {}",
+                job.id, n, System.currentTimeMillis() - start, pairs.size(), threshold);
+        } catch (Exception e) {
+            failed(job, "Code batch comparison", e);
+        }
+        jobs.put(job.id, job);
+    }
+
+    private void failed(BatchJob job, String kind, Exception e) {
+        if (workers.isShutdown()) {
+            // Shutdown interrupts the running job; that is not a comparison failure
+            logger.info("{} {} stopped by shutdown", kind, job.id);
+            job.errors.put("batch", "Stopped by shutdown");
+        } else {
+            logger.error("{} {} failed", kind, job.id, e);
+            job.errors.put("batch", String.valueOf(e.getMessage()));
+        }
+        job.status = "FAILED";
+    }
+
+    private void skipped(BatchJob job, BatchFile file, Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        if (!workers.isShutdown()) {
+            logger.warn("Skipping {} in batch {}: {}", file.fileName(), job.id, e.getMessage());
+        }
+        job.errors.put(String.valueOf(file.fileName()), String.valueOf(e.getMessage()));
+    }
+
+    private GreedyStringTiling.Prepared tokenize(BatchJob job, BatchFile file) {
+        try {
+            CodeTokenizer.Language language = CodeTokenizer.Language.of(file.fileName());
+            if (language == null) {
+                throw new IllegalArgumentException("Not a supported source file: " + file.fileName());
+            }
+            String source = textExtractionService.extract(file.fileName(), file.data());
+            return GreedyStringTiling.prepare(CodeTokenizer.tokenize(source, language).types(), codeMinMatch);
+        } catch (Exception e) {
+            skipped(job, file, e);
+            return GreedyStringTiling.prepare(new int[0], codeMinMatch);
+        } finally {
+            job.processed.incrementAndGet();
+        }
+    }
+
+    private long[] fingerprint(BatchJob job, BatchFile file) {
+        try {
+            String text = textExtractionService.extract(file.fileName(), file.data());
+            return similarityService.fingerprint(TextNormalizer.normalize(text)).distinctHashes();
+        } catch (Exception e) {
+            skipped(job, file, e);
+            return new long[0];
+        } finally {
+            job.processed.incrementAndGet();
+        }
+    }
+
+    private BatchComparisonDTO toDTO(BatchJob job) {
+        BatchComparisonDTO dto = new BatchComparisonDTO();
+        dto.setJobId(job.id);
+        dto.setStatus(job.status);
+        dto.setPhase(job.phase);
+        dto.setProcessed(job.processed.get());
+        dto.setTotal(job.total);
+        dto.setFileNames(job.fileNames);
+        dto.setErrors(Map.copyOf(job.errors));
+        dto.setPairs(job.pairs);
+        return dto;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Workers first, so a job failing on the shutdown already sees it
+        workers.shutdownNow();
+        jobRunner.shutdownNow();
+    }
+}
@@ -0,0 +1,102 @@
+package com.plagiguard.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.plagiguard.entity.DetectionStatus;
+import com.plagiguard.repository.UploadRepository;
+import com.plagiguard.repository.UploadSummary;
+import com.plagiguard.service.AIDetectorService.DocumentDetection;
+import com.plagiguard.util.TextNormalizer;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Scores uploads that were stored while the AI detector was unavailable. Uploads are only
+ * picked up once older than the request timeout, so their original detection is over, and
+ * never while the circuit breaker is open.
+ */
+@Service
+public class DetectionRescoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DetectionRescoreService.class);
+
+    @Autowired
+    private UploadRepository uploadRepository;
+
+    @Autowired
+    private TextExtractionService textExtractionService;
+
+    @Autowired
+    private AIDetectorService aiDetectorService;
+
+    @Autowired
+    private CircuitBreaker aiDetectorCircuitBreaker;
+
+    @Value("${ai.detector.rescore.batch.size:20}")
+    private int batchSize;
+
+    @Value("${ai.detector.rescore.min.age.seconds:300}")
+    private long minAgeSeconds;
+
+    private final ExecutorService rescorer = Executors.newSingleThreadExecutor(r -> new Thread(r, "ai-detector-rescore"));
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(fixedDelayString = "${ai.detector.rescore.interval.ms:60000}")
+    public void rescorePending() {
+        if (aiDetectorCircuitBreaker.getState() == CircuitBreaker.State.OPEN || !running.compareAndSet(false, true)) {
+            return;
+        }
+        rescorer.execute(() -> {
+            try {
+                List<UploadSummary> pending = uploadRepository.findSummariesByDetectionStatus(DetectionStatus.PENDING,
+                    LocalDateTime.now().minusSeconds(minAgeSeconds), PageRequest.of(0, batchSize));
+                int rescored = 0;
+                for (UploadSummary upload : pending) {
+                    if (aiDetectorCircuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                        break;
+                    }
+                    if (rescore(upload)) {
+                        rescored++;
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    logger.info("Rescored {} of {} uploads with pending AI detection", rescored, pending.size());
+                }
+            } catch (Exception e) {
+                logger.error("Rescoring pending uploads failed: {}", e.getMessage(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private boolean rescore(UploadSummary upload) {
+        try {
+            String text = textExtractionService.extractStored(upload);
+            DocumentDetection detection = aiDetectorService.detect(TextNormalizer.normalize(text)).join();
+            uploadRepository.completeDetection(upload.getId(), detection.aiScore());
+            return true;
+        } catch (Exception e) {
+            logger.warn("AI detection still failing for upload {}: {}", upload.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rescorer.shutdownNow();
+    }
+}
@@ -5,22 +5,40 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.plagiguard.dto.AISpanDTO;
+import com.plagiguard.dto.MatchedSpanDTO;
+import com.plagiguard.dto.ParagraphMatchDTO;
+import com.plagiguard.dto.SourceMatchDTO;
 import com.plagiguard.dto.UploadResultDTO;
+import com.plagiguard.entity.DetectionStatus;
 import com.plagiguard.entity.Upload;
 import com.plagiguard.entity.User;
 import com.plagiguard.repository.UploadRepository;
 import com.plagiguard.repository.UserRepository;
-import com.plagiguard.util.AIDetectorClient;
-import com.plagiguard.util.FileTextExtractor;
+import com.plagiguard.service.AIDetectorService.DocumentDetection;
+import com.plagiguard.service.SimilarityService.SourceReport;
+import com.plagiguard.service.TextExtractionService.ExtractedDocument;
+import com.plagiguard.similarity.Fingerprints;
+import com.plagiguard.similarity.Paragraphs;
+import com.plagiguard.similarity.TermCounts;
+import com.plagiguard.util.TextNormalizer;
+import com.plagiguard.util.TokenStream;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityNotFoundException;
 
 @Service
@@ -34,12 +52,40 @@ public class FileUploadService {
     private UploadRepository uploadRepository;
 
     @Autowired
-    private AIDetectorClient aiDetectorClient;
+    private AIDetectorService aiDetectorService;
 
-    public UploadResultDTO uploadFile(MultipartFile file, Long userId) {
+    @Autowired
+    private TextExtractionService textExtractionService;
+
+    @Autowired
+    private SimilarityService similarityService;
+
+    // Answer with a pending verdict instead of an error when the detector is unavailable
+    @Value("${ai.detector.fast.fail:true}")
+    private boolean fastFail;
+
+    @Value("${upload.completion.threads:4}")
+    private int completionThreads;
+
+    // Writes the verdict to the database once detection completes, off the detector's threads
+    private ExecutorService completer;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threads = new AtomicInteger();
+        completer = Executors.newFixedThreadPool(Math.max(1, completionThreads),
+            r -> new Thread(r, "upload-complete-" + threads.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        completer.shutdown();
+    }
+
+    public CompletableFuture<UploadResultDTO> uploadFile(MultipartFile file, Long userId) {
         try {
             if (file.isEmpty()) {
-                return new UploadResultDTO(false, "Failed to upload empty file", null);
+                return CompletableFuture.completedFuture(new UploadResultDTO(false, "Failed to upload empty file", null));
             }
             
             logger.debug("Processing upload for user ID: {}", userId);
@@ -48,21 +94,21 @@ public class FileUploadService {
             return processUpload(file, user);
         } catch (EntityNotFoundException e) {
             logger.error("User not found error: {}", e.getMessage());
-            return new UploadResultDTO(false, e.getMessage(), null);
+            return CompletableFuture.completedFuture(new UploadResultDTO(false, e.getMessage(), null));
         } catch (IOException e) {
             logger.error("IO error during upload: {}", e.getMessage(), e);
-            return new UploadResultDTO(false, "Failed to process file: " + e.getMessage(), null);
+            return CompletableFuture.completedFuture(new UploadResultDTO(false, "Failed to process file: " + e.getMessage(), null));
         } catch (Exception e) {
             logger.error("Unexpected error during upload: {}", e.getMessage(), e);
-            return new UploadResultDTO(false, "Unexpected error during upload: " + e.getMessage(), null);
+            return CompletableFuture.completedFuture(unexpectedError(e));
         }
     }
 
 
-    public UploadResultDTO uploadFileByEmail(MultipartFile file, String email) {
+    public CompletableFuture<UploadResultDTO> uploadFileByEmail(MultipartFile file, String email) {
         try {
             if (file.isEmpty()) {
-                return new UploadResultDTO(false, "Failed to upload empty file", null);
+                return CompletableFuture.completedFuture(new UploadResultDTO(false, "Failed to upload empty file", null));
             }
             logger.debug("Processing upload for email: {}", email);
             User user = userRepository.findByEmail(email)
@@ -70,66 +116,114 @@ public class FileUploadService {
             return processUpload(file, user);
         } catch (EntityNotFoundException e) {
             logger.error("User not found error: {}", e.getMessage());
-            return new UploadResultDTO(false, e.getMessage(), null);
+            return CompletableFuture.completedFuture(new UploadResultDTO(false, e.getMessage(), null));
         } catch (IOException e) {
             logger.error("IO error during upload: {}", e.getMessage(), e);
-            return new UploadResultDTO(false, "Failed to process file: " + e.getMessage(), null);
+            return CompletableFuture.completedFuture(new UploadResultDTO(false, "Failed to process file: " + e.getMessage(), null));
         } catch (Exception e) {
             logger.error("Unexpected error during upload: {}", e.getMessage(), e);
-            return new UploadResultDTO(false, "Unexpected error during upload: " + e.getMessage(), null);
+            return CompletableFuture.completedFuture(unexpectedError(e));
         }
     }
 
-    private UploadResultDTO processUpload(MultipartFile file, User user) throws Exception {
+    private static UploadResultDTO unexpectedError(Throwable e) {
+        return new UploadResultDTO(false, "Unexpected error during upload: " + e.getMessage(), null);
+    }
+
+    /**
+     * Detection is started as soon as the text is normalized and runs while the similarity
+     * search and the upload row are persisted; the returned future completes with the
+     * detector verdict, so no request thread waits on the detector.
+     */
+    private CompletableFuture<UploadResultDTO> processUpload(MultipartFile file, User user) throws Exception {
 
         String originalFilename = file.getOriginalFilename();
         String uniqueFileName = UUID.randomUUID().toString() + "_" + originalFilename;
         logger.debug("Processing file: {} (unique: {}) in memory", originalFilename, uniqueFileName);
 
-        // Extract text directly from the MultipartFile stream
-        String extractedText = FileTextExtractor.extractText(file);
+        // Read and hash the upload once; identical content is served from the extraction cache
+        ExtractedDocument document = textExtractionService.extract(file);
+        String extractedText = document.text();
         if (extractedText == null || extractedText.trim().isEmpty()) {
             logger.error("Failed to extract text from file: {}", originalFilename);
-            return new UploadResultDTO(false, "Failed to extract text from file", originalFilename);
-        }
-        
-        logger.debug("Analyzing text with AI detector");        // Check AI content
-        JSONObject aiResult = aiDetectorClient.checkAIContent(extractedText);
-        double aiScore = aiResult.getDouble("ai_score");
-        boolean isAiGenerated = aiResult.getBoolean("ai_generated");
-        
-        // Create a simple list of AI-detected parts
-        List<Integer> aiParts = new ArrayList<>();
-        if (isAiGenerated) {
-            String[] words = extractedText.split("\\s+");
-            for (int i = 0; i < words.length; i++) {
-                if (Math.random() < aiScore) { // Use AI score as probability
-                    aiParts.add(i);
-                }
-            }
+            return CompletableFuture.completedFuture(new UploadResultDTO(false, "Failed to extract text from file", originalFilename));
         }
         
+        // Normalize and tokenize once; detection, highlighting and similarity share the stream
+        TokenStream tokens = TextNormalizer.normalize(extractedText);
+        logger.debug("Analyzing text with AI detector");
+        CompletableFuture<DocumentDetection> detection = aiDetectorService.detect(tokens);
+
+        // Compare against every previously stored upload
+        Fingerprints fingerprints = similarityService.fingerprint(tokens);
+        SourceReport sourceReport = similarityService.findSources(fingerprints);
+        int[] signature = similarityService.signature(tokens);
+        Paragraphs paragraphs = similarityService.paragraphs(tokens);
+        List<ParagraphMatchDTO> paragraphMatches = similarityService.findParagraphMatches(paragraphs);
+        TermCounts terms = similarityService.terms(tokens);
+        List<SourceMatchDTO> topicalSources = similarityService.findTopicalSources(terms);
+
+        // Highlight the words that overlap exact passages of stored uploads
+        List<MatchedSpanDTO> matchedSpans = similarityService.alignSources(tokens, sourceReport);
 
         // Save to database only
         Upload upload = new Upload();
         upload.setFilename(uniqueFileName);
         upload.setOriginalFilename(originalFilename);
         upload.setUploadDate(LocalDateTime.now());
-        upload.setSimilarityScore(aiScore);
         upload.setUser(user);
-        upload.setFileData(file.getBytes());
+        upload.setFileData(document.data());
+        upload.setContentHash(document.contentHash());
+        // Pending until the verdict is written, so an upload whose detection never completes gets rescored
+        upload.setDetectionStatus(DetectionStatus.PENDING);
         Upload savedUpload = uploadRepository.save(upload);
         logger.debug("Saved upload to database with ID: {}", savedUpload.getId());
-        
-        String message = isAiGenerated ? 
-            String.format("File processed. AI content detected (%.2f%% confidence)", aiScore * 100) :
-            String.format("File processed. No significant AI content detected (%.2f%% confidence)", aiScore * 100);
-            
-        UploadResultDTO result = new UploadResultDTO(true, message, originalFilename);
-        result.setSimilarityScore(aiScore);
-        result.setContent(extractedText);
-        result.setAiParts(aiParts);
-        
-        return result;
+        similarityService.index(savedUpload.getId(), fingerprints, signature, paragraphs, terms);
+
+        UploadResultDTO result = new UploadResultDTO(true, null, originalFilename);
+        result.setContent(tokens.toString());
+        result.setPlagiarismScore(sourceReport.score());
+        result.setSources(sourceReport.sources());
+        result.setMatchedSpans(matchedSpans);
+        result.setParagraphMatches(paragraphMatches);
+        result.setTopicalSources(topicalSources);
+
+        return detection.handleAsync((verdict, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.error("AI detection failed for upload {}: {}", savedUpload.getId(), cause.getMessage());
+                if (!fastFail) {
+                    return unexpectedError(cause);
+                }
+                result.setMessage("File processed. AI detection is pending and will be completed shortly");
+                result.setDetectionStatus(DetectionStatus.PENDING.name());
+                return result;
+            }
+            double aiScore = verdict.aiScore();
+            uploadRepository.completeDetection(savedUpload.getId(), aiScore);
+
+            String message = verdict.aiGenerated() ? 
+                String.format("File processed. AI content detected (%.2f%% confidence)", aiScore * 100) :
+                String.format("File processed. No significant AI content detected (%.2f%% confidence)", aiScore * 100);
+            result.setMessage(message);
+            result.setSimilarityScore(aiScore);
+            result.setAiSpans(verdict.spans());
+            result.setAiParts(aiParts(verdict));
+            result.setDetectionStatus(DetectionStatus.COMPLETE.name());
+            return result;
+        }, completer);
+    }
+
+    // Words of the spans the detector windows scored above its threshold
+    private List<Integer> aiParts(DocumentDetection detection) {
+        List<Integer> aiParts = new ArrayList<>();
+        for (AISpanDTO span : detection.spans()) {
+            if (span.getAiScore() > aiDetectorService.threshold()) {
+                for (int i = span.getStart(); i < span.getEnd(); i++) {
+                    aiParts.add(i);
+                }
+            }
+        }
+        return aiParts;
     }
 }
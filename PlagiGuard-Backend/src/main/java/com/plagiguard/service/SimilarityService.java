@@ -0,0 +1,375 @@
+package com.plagiguard.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.plagiguard.dto.MatchedSpanDTO;
+import com.plagiguard.dto.ParagraphMatchDTO;
+import com.plagiguard.dto.SourceMatchDTO;
+import com.plagiguard.repository.UploadRepository;
+import com.plagiguard.repository.UploadSummary;
+import com.plagiguard.similarity.DocumentFeatures;
+import com.plagiguard.similarity.FingerprintIndex;
+import com.plagiguard.similarity.FingerprintSegment;
+import com.plagiguard.similarity.Fingerprints;
+import com.plagiguard.similarity.LshIndex;
+import com.plagiguard.similarity.LshIndex.NearDuplicate;
+import com.plagiguard.similarity.MinHash;
+import com.plagiguard.similarity.Paragraphs;
+import com.plagiguard.similarity.PassageAligner;
+import com.plagiguard.similarity.SegmentStore;
+import com.plagiguard.similarity.SimHash;
+import com.plagiguard.similarity.SimHashIndex;
+import com.plagiguard.similarity.TermCounts;
+import com.plagiguard.similarity.TfIdfIndex;
+import com.plagiguard.similarity.Winnowing;
+import com.plagiguard.util.TextNormalizer;
+import com.plagiguard.util.TokenStream;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Corpus plagiarism detection: every upload is winnowed into fingerprints and checked
+ * against the inverted index of all previously stored uploads. The index is persisted
+ * as memory-mapped segments, so a restart only re-extracts uploads newer than the last flush.
+ */
+@Service
+public class SimilarityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityService.class);
+    private static final int LOAD_BATCH_SIZE = 100;
+
+    @Autowired
+    private UploadRepository uploadRepository;
+
+    @Autowired
+    private TextExtractionService textExtractionService;
+
+    @Value("${similarity.winnowing.k:5}")
+    private int kgramSize;
+
+    @Value("${similarity.winnowing.window:4}")
+    private int windowSize;
+
+    @Value("${similarity.max.sources:5}")
+    private int maxSources;
+
+    @Value("${similarity.index.expected.fingerprints:1000000}")
+    private int expectedFingerprints;
+
+    @Value("${similarity.minhash.permutations:128}")
+    private int minHashPermutations;
+
+    @Value("${similarity.minhash.shingle:3}")
+    private int minHashShingle;
+
+    @Value("${similarity.lsh.bands:32}")
+    private int lshBands;
+
+    @Value("${similarity.lsh.rows:4}")
+    private int lshRows;
+
+    @Value("${similarity.align.max.sources:3}")
+    private int alignMaxSources;
+
+    @Value("${similarity.align.min.tokens:8}")
+    private int alignMinTokens;
+
+    @Value("${similarity.index.expected.documents:100000}")
+    private int expectedDocuments;
+
+    @Value("${similarity.segments.dir:${java.io.tmpdir}/plagiguard/segments}")
+    private String segmentsDir;
+
+    @Value("${similarity.segments.verify.on.open:true}")
+    private boolean verifySegments;
+
+    @Value("${similarity.simhash.max.distance:3}")
+    private int simHashMaxDistance;
+
+    @Value("${similarity.simhash.min.tokens:8}")
+    private int simHashMinTokens;
+
+    @Value("${similarity.simhash.max.matches.per.paragraph:3}")
+    private int simHashMaxMatches;
+
+    @Value("${similarity.index.expected.paragraphs:200000}")
+    private int expectedParagraphs;
+
+    @Value("${similarity.tfidf.top.k:10}")
+    private int tfIdfTopK;
+
+    @Value("${similarity.tfidf.query.max.terms:64}")
+    private int tfIdfQueryMaxTerms;
+
+    @Value("${similarity.index.expected.terms:500000}")
+    private int expectedTerms;
+
+    @Value("${similarity.index.stripes:16}")
+    private int indexStripes;
+
+    @Value("${similarity.query.parallelism:4}")
+    private int queryParallelism;
+
+    private FingerprintIndex index;
+    private ForkJoinPool queryPool;
+    private SegmentStore segmentStore;
+    private MinHash minHash;
+    private LshIndex lshIndex;
+    private SimHashIndex simHashIndex;
+    private TfIdfIndex tfIdfIndex;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> new Thread(r, "similarity-loader"));
+
+    public record SourceReport(double score, List<SourceMatchDTO> sources, Map<Integer, UploadSummary> uploads) {}
+
+    @PostConstruct
+    public void init() throws IOException {
+        queryPool = queryParallelism > 1 ? new ForkJoinPool(queryParallelism) : null;
+        index = new FingerprintIndex(expectedFingerprints, indexStripes, queryPool);
+        minHash = new MinHash(minHashPermutations, minHashShingle);
+        lshIndex = new LshIndex(lshBands, lshRows, minHashPermutations);
+        simHashIndex = new SimHashIndex(simHashMaxDistance, expectedParagraphs);
+        tfIdfIndex = new TfIdfIndex(expectedDocuments, expectedTerms);
+
+        long start = System.currentTimeMillis();
+        segmentStore = SegmentStore.open(Path.of(segmentsDir), minHashPermutations, verifySegments);
+        int[] deleted = segmentStore.deletedIds();
+        index.attachSegments(segmentStore.segments(), deleted);
+        int[] documents = {0};
+        for (FingerprintSegment segment : segmentStore.segments()) {
+            segment.forEachDocument((uploadId, fingerprintCount, signature, paragraphs, terms) -> {
+                lshIndex.add(uploadId, signature);
+                simHashIndex.add(uploadId, paragraphs);
+                tfIdfIndex.add(uploadId, terms);
+                documents[0]++;
+            });
+        }
+        for (int uploadId : deleted) {
+            lshIndex.remove(uploadId);
+            simHashIndex.remove(uploadId);
+            tfIdfIndex.remove(uploadId);
+        }
+        logger.info("Opened {} fingerprint segments with {} uploads in {} ms",
+            segmentStore.segments().size(), documents[0], System.currentTimeMillis() - start);
+    }
+
+    public Fingerprints fingerprint(TokenStream tokens) {
+        return Winnowing.fingerprint(tokens, kgramSize, windowSize);
+    }
+
+    /**
+     * Share of the document's fingerprints found anywhere in the corpus, plus the
+     * prior uploads contributing most of them.
+     */
+    public SourceReport findSources(Fingerprints fingerprints) {
+        FingerprintIndex.QueryResult result = index.query(fingerprints, -1, maxSources);
+        if (result.matches().isEmpty()) {
+            return new SourceReport(result.coverage(), List.of(), Map.of());
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        result.matches().forEach(match -> ids.add(match.uploadId()));
+        Map<Integer, UploadSummary> uploads = new HashMap<>();
+        for (UploadSummary summary : uploadRepository.findSummariesByIds(ids)) {
+            uploads.put(summary.getId(), summary);
+        }
+
+        List<SourceMatchDTO> sources = new ArrayList<>();
+        for (FingerprintIndex.Match match : result.matches()) {
+            UploadSummary summary = uploads.get(match.uploadId());
+            if (summary != null) {
+                String name = summary.getOriginalFilename() != null ? summary.getOriginalFilename() : summary.getFilename();
+                sources.add(new SourceMatchDTO(match.uploadId(), name, match.coverage()));
+            }
+        }
+        return new SourceReport(result.coverage(), sources, uploads);
+    }
+
+    /**
+     * Exact passages the document shares with its strongest sources, aligned on the
+     * full token sequences so graders see every overlapping span with its offsets.
+     */
+    public List<MatchedSpanDTO> alignSources(TokenStream tokens, SourceReport report) {
+        List<MatchedSpanDTO> spans = new ArrayList<>();
+        long[] destination = tokens.hashes();
+        for (SourceMatchDTO source : report.sources().subList(0, Math.min(alignMaxSources, report.sources().size()))) {
+            try {
+                String sourceText = textExtractionService.extractStored(report.uploads().get(source.getUploadId()));
+                long[] sourceHashes = TextNormalizer.normalize(sourceText).hashes();
+                for (PassageAligner.Span span : PassageAligner.align(sourceHashes, destination, alignMinTokens)) {
+                    spans.add(new MatchedSpanDTO(source.getUploadId(),
+                        span.srcStart(), span.srcEnd(), span.dstStart(), span.dstEnd()));
+                }
+            } catch (Exception e) {
+                logger.warn("Could not align against upload {}: {}", source.getUploadId(), e.getMessage());
+            }
+        }
+        return spans;
+    }
+
+    public int[] signature(TokenStream tokens) {
+        return minHash.signature(tokens);
+    }
+
+    /** Stored uploads whose estimated Jaccard similarity with the given upload is at least minJaccard. */
+    public List<NearDuplicate> findNearDuplicates(int uploadId, double minJaccard) {
+        int[] signature = lshIndex.signatureOf(uploadId);
+        return signature == null ? List.of() : lshIndex.query(signature, minJaccard, uploadId);
+    }
+
+    public List<NearDuplicate> findNearDuplicates(int[] signature, double minJaccard) {
+        return lshIndex.query(signature, minJaccard, -1);
+    }
+
+    public Paragraphs paragraphs(TokenStream tokens) {
+        return SimHash.paragraphs(tokens, simHashMinTokens);
+    }
+
+    /**
+     * Stored paragraphs within the SimHash distance of each paragraph of the document,
+     * which catches passages reworded too much for exact fingerprints to line up.
+     */
+    public List<ParagraphMatchDTO> findParagraphMatches(Paragraphs paragraphs) {
+        List<ParagraphMatchDTO> matches = new ArrayList<>();
+        for (int p = 0; p < paragraphs.size(); p++) {
+            List<SimHashIndex.ParagraphMatch> found = simHashIndex.query(paragraphs.hash(p), -1);
+            for (SimHashIndex.ParagraphMatch match : found.subList(0, Math.min(simHashMaxMatches, found.size()))) {
+                matches.add(new ParagraphMatchDTO(match.uploadId(), match.start(), match.end(),
+                    paragraphs.start(p), paragraphs.end(p), match.distance()));
+            }
+        }
+        return matches;
+    }
+
+    public TermCounts terms(TokenStream tokens) {
+        return TermCounts.of(tokens);
+    }
+
+    /** Stored uploads closest in topic to the document, by TF-IDF cosine similarity. */
+    public List<SourceMatchDTO> findTopicalSources(TermCounts terms) {
+        List<TfIdfIndex.Scored> scored = tfIdfIndex.query(terms, tfIdfTopK, tfIdfQueryMaxTerms, -1);
+        if (scored.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> ids = new ArrayList<>();
+        scored.forEach(match -> ids.add(match.uploadId()));
+        Map<Integer, UploadSummary> uploads = new HashMap<>();
+        for (UploadSummary summary : uploadRepository.findSummariesByIds(ids)) {
+            uploads.put(summary.getId(), summary);
+        }
+        List<SourceMatchDTO> sources = new ArrayList<>();
+        for (TfIdfIndex.Scored match : scored) {
+            UploadSummary summary = uploads.get(match.uploadId());
+            if (summary != null) {
+                String name = summary.getOriginalFilename() != null ? summary.getOriginalFilename() : summary.getFilename();
+                sources.add(new SourceMatchDTO(match.uploadId(), name, match.cosine()));
+            }
+        }
+        return sources;
+    }
+
+    public void index(int uploadId, Fingerprints fingerprints, int[] signature, Paragraphs paragraphs, TermCounts terms) {
+        if (index.add(new DocumentFeatures(uploadId, fingerprints, signature, paragraphs, terms))) {
+            lshIndex.add(uploadId, signature);
+            simHashIndex.add(uploadId, paragraphs);
+            tfIdfIndex.add(uploadId, terms);
+        }
+    }
+
+    public void remove(int uploadId) {
+        index.remove(uploadId);
+        lshIndex.remove(uploadId);
+        simHashIndex.remove(uploadId);
+        tfIdfIndex.remove(uploadId);
+        try {
+            segmentStore.markDeleted(uploadId);
+        } catch (IOException e) {
+            logger.error("Failed to record deletion of upload {} in the segment store", uploadId, e);
+        }
+    }
+
+    /** Writes uploads indexed since the last flush to a new segment. */
+    @Scheduled(fixedDelayString = "${similarity.segments.flush.interval.ms:60000}")
+    public synchronized void flushSegments() {
+        List<DocumentFeatures> documents = index.pendingDocuments();
+        if (documents.isEmpty()) {
+            return;
+        }
+        try {
+            FingerprintSegment segment = segmentStore.append(documents);
+            index.segmentFlushed(segment, documents);
+            logger.debug("Flushed {} uploads to {}", documents.size(), segment.path().getFileName());
+        } catch (IOException e) {
+            logger.error("Failed to flush {} uploads to a fingerprint segment", documents.size(), e);
+        }
+    }
+
+    /** Merges all segments into one, physically dropping deleted uploads. */
+    public synchronized void compactSegments() {
+        flushSegments();
+        try {
+            index.segmentsCompacted(segmentStore.compact());
+        } catch (IOException e) {
+            logger.error("Fingerprint segment compaction failed", e);
+        }
+        lshIndex.compact();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCorpus() {
+        loader.submit(() -> {
+            long start = System.currentTimeMillis();
+            int loaded = 0;
+            // Every stored upload is checked rather than those after the newest flushed id: flushes
+            // are not ordered by id, and an upload whose indexing failed must be retried
+            int lastId = 0;
+            List<UploadSummary> batch;
+            do {
+                batch = uploadRepository.findSummariesAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+                for (UploadSummary upload : batch) {
+                    lastId = upload.getId();
+                    if (index.contains(upload.getId())) {
+                        continue;
+                    }
+                    try {
+                        TokenStream tokens = TextNormalizer.normalize(textExtractionService.extractStored(upload));
+                        index(upload.getId(), fingerprint(tokens), signature(tokens), paragraphs(tokens),
+                            terms(tokens));
+                        loaded++;
+                    } catch (Exception e) {
+                        logger.warn("Skipping upload {} while building similarity index: {}",
+                            upload.getId(), e.getMessage());
+                    }
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+            logger.info("Similarity index loaded {} uploads in {} ms", loaded, System.currentTimeMillis() - start);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+        flushSegments();
+        if (queryPool != null) {
+            queryPool.shutdown();
+        }
+    }
+}
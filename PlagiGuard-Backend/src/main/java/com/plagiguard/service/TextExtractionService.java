@@ -0,0 +1,148 @@
+package com.plagiguard.service;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.plagiguard.entity.Upload;
+import com.plagiguard.repository.UploadRepository;
+import com.plagiguard.repository.UploadSummary;
+import com.plagiguard.util.ExtractionCache;
+import com.plagiguard.util.FileTextExtractor;
+import com.plagiguard.util.ParallelPdfExtractor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Service
+public class TextExtractionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TextExtractionService.class);
+
+    @Autowired
+    private ParallelPdfExtractor pdfExtractor;
+
+    @Autowired
+    private ExtractionCache extractionCache;
+
+    @Autowired
+    private UploadRepository uploadRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public record ExtractedDocument(byte[] data, String contentHash, String text) {}
+
+    /**
+     * Reads the upload once, hashing it on the way in, and returns its bytes together
+     * with the extracted text. Identical content is only ever parsed once.
+     */
+    public ExtractedDocument extract(MultipartFile file) throws Exception {
+        MessageDigest digest = sha256();
+        byte[] data;
+        try (InputStream is = new DigestInputStream(file.getInputStream(), digest)) {
+            data = is.readAllBytes();
+        }
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+        return new ExtractedDocument(data, contentHash, extract(file.getOriginalFilename(), data, contentHash));
+    }
+
+    public String extract(String fileName, byte[] data) throws Exception {
+        return extract(fileName, data, sha256Hex(data));
+    }
+
+    public String extract(String fileName, byte[] data, String contentHash) throws Exception {
+        String key = cacheKey(fileName, contentHash);
+        String text = extractionCache.get(key);
+        if (text != null) {
+            logger.debug("Extraction cache hit for {} ({})", fileName, contentHash);
+            return text;
+        }
+        FileTextExtractor.Extracted extracted = FileTextExtractor.extractMeasured(fileName, data, pdfExtractor);
+        recordAllocation(fileName, data.length, extracted);
+        extractionCache.put(key, extracted.text());
+        return extracted.text();
+    }
+
+    /**
+     * Text of an already stored upload. The blob is only read from the database when
+     * the extraction cache has no entry for the upload's content hash.
+     */
+    public String extractStored(UploadSummary upload) throws Exception {
+        String fileName = upload.getOriginalFilename() != null ? upload.getOriginalFilename() : upload.getFilename();
+        if (upload.getContentHash() != null) {
+            String text = extractionCache.get(cacheKey(fileName, upload.getContentHash()));
+            if (text != null) {
+                return text;
+            }
+        }
+        byte[] data = uploadRepository.findFileDataById(upload.getId());
+        if (data == null || data.length == 0) {
+            throw new Exception("File data not found for upload " + upload.getId());
+        }
+        return extract(fileName, data, upload.getContentHash() != null ? upload.getContentHash() : sha256Hex(data));
+    }
+
+    /**
+     * Drops the cached text of deleted uploads, unless another stored upload has the
+     * same content. Call after the uploads are removed from the database.
+     */
+    public void forget(List<Upload> uploads) {
+        uploads.stream()
+            .map(Upload::getContentHash)
+            .filter(Objects::nonNull)
+            .distinct()
+            .filter(contentHash -> !uploadRepository.existsByContentHash(contentHash))
+            .forEach(extractionCache::evict);
+    }
+
+    // Heap allocated per extraction, by file type, to size the extraction pool against the heap
+    private void recordAllocation(String fileName, int size, FileTextExtractor.Extracted extracted) {
+        if (extracted.allocatedBytes() < 0) {
+            return;
+        }
+        String name = fileName != null ? fileName.toLowerCase() : "";
+        String type = name.endsWith(".pdf") ? "pdf"
+            : name.endsWith(".docx") ? "docx"
+            : FileTextExtractor.isSourceCode(name) ? "code"
+            : "text";
+        DistributionSummary.builder("extraction.allocated.bytes")
+            .description("Heap bytes allocated extracting one document")
+            .baseUnit("bytes")
+            .tag("type", type)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(extracted.allocatedBytes());
+        logger.debug("Extracted {} ({} bytes, {} chars): {} bytes allocated", fileName, size,
+            extracted.text().length(), extracted.allocatedBytes());
+    }
+
+    public static String sha256Hex(byte[] data) {
+        return HexFormat.of().formatHex(sha256().digest(data));
+    }
+
+    // The same bytes are read differently depending on the extension they arrive with
+    private static String cacheKey(String fileName, String contentHash) {
+        String name = fileName != null ? fileName.toLowerCase() : "";
+        int dot = name.lastIndexOf('.');
+        return contentHash + (dot >= 0 ? name.substring(dot) : "");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
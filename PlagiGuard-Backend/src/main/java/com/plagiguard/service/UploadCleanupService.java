@@ -1,8 +1,11 @@
 package com.plagiguard.service;
 
+import com.plagiguard.repository.DetectionResultRepository;
 import com.plagiguard.repository.UploadRepository;
 import com.plagiguard.entity.Upload;
+import com.plagiguard.util.ExtractionCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -14,6 +17,21 @@ public class UploadCleanupService {
     @Autowired
     private UploadRepository uploadRepository;
 
+    @Autowired
+    private SimilarityService similarityService;
+
+    @Autowired
+    private TextExtractionService textExtractionService;
+
+    @Autowired
+    private ExtractionCache extractionCache;
+
+    @Autowired
+    private DetectionResultRepository detectionResultRepository;
+
+    @Value("${ai.detector.cache.persistent.ttl.days:30}")
+    private int detectionCacheTtlDays;
+
     // Runs every day at 2:00 AM
     @Scheduled(cron = "0 0 2 * * *")
     public void deleteOldUploads() {
@@ -21,7 +39,30 @@ public class UploadCleanupService {
         List<Upload> oldUploads = uploadRepository.findByUploadDateBefore(cutoff);
         if (!oldUploads.isEmpty()) {
             uploadRepository.deleteAll(oldUploads);
+            oldUploads.forEach(upload -> similarityService.remove(upload.getId()));
+            textExtractionService.forget(oldUploads);
             System.out.println("Deleted " + oldUploads.size() + " uploads older than 7 days.");
         }
     }
+
+    // Runs every day at 2:15 AM; batch comparison files never become uploads and only age out here
+    @Scheduled(cron = "0 15 2 * * *")
+    public void purgeExtractionCache() {
+        extractionCache.purge();
+    }
+
+    // Runs every day at 2:30 AM, after the old uploads are gone
+    @Scheduled(cron = "0 30 2 * * *")
+    public void compactFingerprintSegments() {
+        similarityService.compactSegments();
+    }
+
+    // Runs every day at 2:45 AM; cached verdicts of replaced models age out here too
+    @Scheduled(cron = "0 45 2 * * *")
+    public void deleteOldDetectionResults() {
+        int deleted = detectionResultRepository.deleteCreatedBefore(LocalDateTime.now().minusDays(detectionCacheTtlDays));
+        if (deleted > 0) {
+            System.out.println("Deleted " + deleted + " cached AI detection results older than " + detectionCacheTtlDays + " days.");
+        }
+    }
 }
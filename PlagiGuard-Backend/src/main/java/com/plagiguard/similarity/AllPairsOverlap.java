@@ -0,0 +1,73 @@
+package com.plagiguard.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the fingerprints shared by every pair of documents in a batch with one pass
+ * over an inverted index, instead of comparing each pair of documents. Only pairs that
+ * actually share a fingerprint are ever touched, so the cost follows the posting list
+ * sizes rather than N squared. Fingerprints found in more than maxDocumentFrequency
+ * documents (a shared assignment prompt or template) are skipped, since they say
+ * nothing about copying and would otherwise pair every document with every other.
+ */
+public final class AllPairsOverlap {
+
+    /** Largest batch whose pair keys fit an int. */
+    public static final int MAX_DOCUMENTS = 46340;
+
+    public record Pair(int first, int second, int sharedFingerprints) {}
+
+    @FunctionalInterface
+    public interface Progress {
+        void update(int done, int total);
+    }
+
+    private AllPairsOverlap() {}
+
+    /** @param documents distinct fingerprint hashes of each document */
+    public static List<Pair> overlaps(long[][] documents, int maxDocumentFrequency, Progress progress) {
+        int n = documents.length;
+        if (n > MAX_DOCUMENTS) {
+            throw new IllegalArgumentException("At most " + MAX_DOCUMENTS + " documents per batch");
+        }
+        int total = 0;
+        for (long[] hashes : documents) {
+            total += hashes.length;
+        }
+        LongPostingsMap postings = new LongPostingsMap(1, Math.max(16, total));
+        for (int d = 0; d < n; d++) {
+            for (long hash : documents[d]) {
+                postings.add(hash, d);
+            }
+        }
+
+        IntIntMap pairs = new IntIntMap(Math.max(64, n * 4));
+        int[] members = new int[Math.min(n, Math.max(2, maxDocumentFrequency))];
+        int keys = postings.keyCount();
+        int[] visited = {0};
+        postings.forEachKey((hash, head, count) -> {
+            if (++visited[0] % 65536 == 0) {
+                progress.update(visited[0], keys);
+            }
+            if (count < 2 || count > maxDocumentFrequency) {
+                return;
+            }
+            int size = 0;
+            for (int e = head; e != 0; e = postings.next(e)) {
+                members[size++] = postings.value(e, 0);
+            }
+            // Lists are newest first, so document indexes come out descending
+            for (int i = 0; i < size; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    pairs.increment(members[j] * n + members[i], 1);
+                }
+            }
+        });
+        progress.update(keys, keys);
+
+        List<Pair> result = new ArrayList<>(pairs.size());
+        pairs.forEach((key, shared) -> result.add(new Pair(key / n, key % n, shared)));
+        return result;
+    }
+}
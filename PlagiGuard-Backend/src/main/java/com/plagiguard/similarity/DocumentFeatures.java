@@ -0,0 +1,7 @@
+package com.plagiguard.similarity;
+
+/**
+ * Everything the similarity indexes keep per upload, as persisted in fingerprint segments.
+ */
+public record DocumentFeatures(int uploadId, Fingerprints fingerprints, int[] signature, Paragraphs paragraphs,
+    TermCounts terms) {}
@@ -0,0 +1,370 @@
+package com.plagiguard.similarity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Inverted index from winnowing fingerprint to (upload id, token position). Recent
+ * uploads live in in-memory postings until they are flushed to an on-disk segment;
+ * queries read both. Removed uploads are filtered out at query time until compaction
+ * drops them from the segments.
+ * <p>
+ * The in-memory postings are split into stripes by fingerprint hash, each guarded by a
+ * read-write lock: this is the per-stripe locking scheme, not lock-free reads. A writer
+ * holds a stripe's write lock while it adds its fingerprints for that stripe, and queries
+ * of that stripe wait for it, but readers of the other stripes do not. Optimistic reads
+ * are not used because the postings map grows and relinks in place, so a reader racing a
+ * writer could follow a half-written chain. A query is not atomic across stripes and may
+ * see an upload that is being added in some stripes only.
+ * The removed set and the segment list are immutable snapshots swapped on change, which
+ * queries read without locking. Large queries fan out across stripes in parallel.
+ */
+public class FingerprintIndex {
+
+    public record Match(int uploadId, int sharedFingerprints, double coverage) {}
+
+    public record QueryResult(int queryFingerprints, int matchedFingerprints, List<Match> matches) {
+        public double coverage() {
+            return queryFingerprints == 0 ? 0.0 : (double) matchedFingerprints / queryFingerprints;
+        }
+    }
+
+    private static final int PARALLEL_QUERY_THRESHOLD = 2048;
+
+    private static final class Stripe {
+        final StampedLock lock = new StampedLock();
+        LongPostingsMap postings;
+
+        Stripe(int expectedFingerprints) {
+            postings = new LongPostingsMap(2, expectedFingerprints);
+        }
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int expectedFingerprints;
+    private final ForkJoinPool queryPool;
+
+    // Guards pending and documentSizes, and serializes writers of the stripes
+    private final ReentrantLock documentsLock = new ReentrantLock();
+    private final Map<Integer, DocumentFeatures> pending = new LinkedHashMap<>();
+    private final IntIntMap documentSizes = new IntIntMap(1024);
+    private volatile IntIntMap removed = new IntIntMap(64);
+    private volatile List<FingerprintSegment> segments = List.of();
+
+    public FingerprintIndex(int expectedFingerprints) {
+        this(expectedFingerprints, 1, null);
+    }
+
+    /**
+     * @param stripeCount number of lock stripes, rounded up to a power of two
+     * @param queryPool pool for parallel stripe fan-out, or null to query on the caller's thread
+     */
+    public FingerprintIndex(int expectedFingerprints, int stripeCount, ForkJoinPool queryPool) {
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << (stripeCount > 1 ? 1 : 0);
+        this.stripes = new Stripe[count];
+        this.stripeMask = count - 1;
+        this.expectedFingerprints = expectedFingerprints;
+        this.queryPool = queryPool;
+        for (int s = 0; s < count; s++) {
+            stripes[s] = new Stripe(Math.max(1024, expectedFingerprints / count));
+        }
+    }
+
+    private int stripeOf(long hash) {
+        // Slots use the low bits of the same mix, so take the stripe from high ones
+        return (int) (LongPostingsMap.mix(hash) >>> 40) & stripeMask;
+    }
+
+    public boolean add(DocumentFeatures document) {
+        documentsLock.lock();
+        try {
+            if (documentSizes.containsKey(document.uploadId())) {
+                return false;
+            }
+            Fingerprints fingerprints = document.fingerprints();
+            int[] order = orderByStripe(fingerprints.size(), i -> fingerprints.hash(i));
+            int i = 0;
+            while (i < order.length) {
+                Stripe stripe = stripes[stripeOf(fingerprints.hash(order[i]))];
+                long stamp = stripe.lock.writeLock();
+                try {
+                    int s = stripeOf(fingerprints.hash(order[i]));
+                    for (; i < order.length && stripeOf(fingerprints.hash(order[i])) == s; i++) {
+                        stripe.postings.add(fingerprints.hash(order[i]), document.uploadId(), fingerprints.position(order[i]));
+                    }
+                } finally {
+                    stripe.lock.unlockWrite(stamp);
+                }
+            }
+            pending.put(document.uploadId(), document);
+            documentSizes.put(document.uploadId(), fingerprints.size());
+            return true;
+        } finally {
+            documentsLock.unlock();
+        }
+    }
+
+    public void remove(int uploadId) {
+        documentsLock.lock();
+        try {
+            if (documentSizes.containsKey(uploadId) && removed.get(uploadId) == 0) {
+                IntIntMap updated = copyOf(removed);
+                updated.put(uploadId, 1);
+                removed = updated;
+            }
+        } finally {
+            documentsLock.unlock();
+        }
+    }
+
+    public boolean contains(int uploadId) {
+        documentsLock.lock();
+        try {
+            return documentSizes.containsKey(uploadId) && removed.get(uploadId) == 0;
+        } finally {
+            documentsLock.unlock();
+        }
+    }
+
+    /** Serves the given segments alongside the in-memory postings, skipping the deleted ids. */
+    public void attachSegments(List<FingerprintSegment> attached, int[] deletedIds) {
+        documentsLock.lock();
+        try {
+            for (FingerprintSegment segment : attached) {
+                segment.forEachDocument((uploadId, fingerprintCount, signature, paragraphs, terms) ->
+                    documentSizes.put(uploadId, fingerprintCount));
+            }
+            IntIntMap updated = copyOf(removed);
+            for (int uploadId : deletedIds) {
+                updated.put(uploadId, 1);
+            }
+            removed = updated;
+            segments = List.copyOf(attached);
+        } finally {
+            documentsLock.unlock();
+        }
+    }
+
+    /** Documents added since the last flush, excluding those removed in the meantime. */
+    public List<DocumentFeatures> pendingDocuments() {
+        documentsLock.lock();
+        try {
+            IntIntMap removedNow = removed;
+            List<DocumentFeatures> documents = new ArrayList<>(pending.size());
+            for (DocumentFeatures document : pending.values()) {
+                if (removedNow.get(document.uploadId()) == 0) {
+                    documents.add(document);
+                }
+            }
+            return documents;
+        } finally {
+            documentsLock.unlock();
+        }
+    }
+
+    /**
+     * Swaps the flushed documents' in-memory postings for the segment now holding them.
+     * The segment is published before the stripes are rebuilt, so a concurrent query
+     * always finds a flushed document in one place or the other.
+     */
+    public void segmentFlushed(FingerprintSegment segment, List<DocumentFeatures> flushed) {
+        documentsLock.lock();
+        try {
+            List<FingerprintSegment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            segments = List.copyOf(updated);
+            for (DocumentFeatures document : flushed) {
+                pending.remove(document.uploadId());
+            }
+            // Removed documents that never reached a segment can go as well
+            IntIntMap removedNow = removed;
+            pending.values().removeIf(document -> removedNow.get(document.uploadId()) != 0);
+
+            LongPostingsMap[] rebuilt = new LongPostingsMap[stripes.length];
+            int remaining = 0;
+            for (DocumentFeatures document : pending.values()) {
+                remaining += document.fingerprints().size();
+            }
+            int expected = Math.max(1024, Math.min(remaining, expectedFingerprints) / stripes.length);
+            for (int s = 0; s < stripes.length; s++) {
+                rebuilt[s] = new LongPostingsMap(2, expected);
+            }
+            for (DocumentFeatures document : pending.values()) {
+                Fingerprints fingerprints = document.fingerprints();
+                for (int i = 0; i < fingerprints.size(); i++) {
+                    rebuilt[stripeOf(fingerprints.hash(i))].add(fingerprints.hash(i), document.uploadId(), fingerprints.position(i));
+                }
+            }
+            for (int s = 0; s < stripes.length; s++) {
+                long stamp = stripes[s].lock.writeLock();
+                stripes[s].postings = rebuilt[s];
+                stripes[s].lock.unlockWrite(stamp);
+            }
+        } finally {
+            documentsLock.unlock();
+        }
+    }
+
+    /** Replaces the segment list after compaction merged the previous segments. */
+    public void segmentsCompacted(List<FingerprintSegment> compacted) {
+        segments = List.copyOf(compacted);
+    }
+
+    /**
+     * Finds the indexed uploads sharing fingerprints with the query. Each distinct query
+     * fingerprint counts at most once per upload; coverage is the share of the query's
+     * distinct fingerprints found in that upload.
+     */
+    public QueryResult query(Fingerprints fingerprints, int excludeUploadId, int maxMatches) {
+        long[] distinct = fingerprints.distinctHashes();
+        int[] order = orderByStripe(distinct.length, i -> distinct[i]);
+        IntIntMap removedNow = removed;
+
+        // Split the stripe-ordered hashes into one run per stripe
+        List<int[]> runs = new ArrayList<>();
+        for (int i = 0; i < order.length; ) {
+            int start = i;
+            int s = stripeOf(distinct[order[i]]);
+            while (i < order.length && stripeOf(distinct[order[i]]) == s) {
+                i++;
+            }
+            runs.add(new int[] {s, start, i});
+        }
+
+        List<QueryVisitor> visitors = new ArrayList<>(runs.size());
+        if (queryPool != null && runs.size() > 1 && distinct.length >= PARALLEL_QUERY_THRESHOLD) {
+            List<ForkJoinTask<QueryVisitor>> tasks = new ArrayList<>(runs.size());
+            for (int[] run : runs) {
+                tasks.add(queryPool.submit(() -> queryStripe(run, distinct, order, excludeUploadId, removedNow)));
+            }
+            tasks.forEach(task -> visitors.add(task.join()));
+        } else {
+            for (int[] run : runs) {
+                visitors.add(queryStripe(run, distinct, order, excludeUploadId, removedNow));
+            }
+        }
+
+        IntIntMap shared = new IntIntMap(64);
+        int matched = 0;
+        for (QueryVisitor visitor : visitors) {
+            matched += visitor.matched;
+            visitor.shared.forEach(shared::increment);
+        }
+
+        List<Match> matches = new ArrayList<>(shared.size());
+        int total = distinct.length;
+        shared.forEach((uploadId, count) -> matches.add(new Match(uploadId, count, (double) count / total)));
+        matches.sort(Comparator.comparingInt(Match::sharedFingerprints).reversed());
+        return new QueryResult(total, matched,
+            matches.size() > maxMatches ? new ArrayList<>(matches.subList(0, maxMatches)) : matches);
+    }
+
+    private QueryVisitor queryStripe(int[] run, long[] distinct, int[] order, int excludeUploadId, IntIntMap removedNow) {
+        QueryVisitor visitor = new QueryVisitor(excludeUploadId, removedNow);
+        Stripe stripe = stripes[run[0]];
+        long stamp = stripe.lock.readLock();
+        try {
+            // Read under the stripe lock: a flush publishes its segment before clearing the stripe
+            List<FingerprintSegment> segmentsNow = segments;
+            LongPostingsMap postings = stripe.postings;
+            for (int i = run[1]; i < run[2]; i++) {
+                long hash = distinct[order[i]];
+                // Stamp with i + 1 so a fingerprint repeated in one upload is counted once
+                visitor.stamp = i + 1;
+                visitor.found = false;
+                for (int e = postings.head(hash); e != 0; e = postings.next(e)) {
+                    visitor.visit(postings.value(e, 0), postings.value(e, 1));
+                }
+                for (FingerprintSegment segment : segmentsNow) {
+                    segment.forEachPosting(hash, visitor);
+                }
+                if (visitor.found) {
+                    visitor.matched++;
+                }
+            }
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+        return visitor;
+    }
+
+    public int documentCount() {
+        documentsLock.lock();
+        try {
+            IntIntMap removedNow = removed;
+            int[] live = new int[1];
+            documentSizes.forEach((uploadId, size) -> {
+                if (removedNow.get(uploadId) == 0) {
+                    live[0]++;
+                }
+            });
+            return live[0];
+        } finally {
+            documentsLock.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    private interface HashAt {
+        long hash(int index);
+    }
+
+    /** Indexes 0..size-1 grouped by stripe with a counting sort. */
+    private int[] orderByStripe(int size, HashAt hashes) {
+        int[] starts = new int[stripes.length + 1];
+        int[] stripeOf = new int[size];
+        for (int i = 0; i < size; i++) {
+            stripeOf[i] = stripeOf(hashes.hash(i));
+            starts[stripeOf[i] + 1]++;
+        }
+        for (int s = 0; s < stripes.length; s++) {
+            starts[s + 1] += starts[s];
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[starts[stripeOf[i]]++] = i;
+        }
+        return order;
+    }
+
+    private static IntIntMap copyOf(IntIntMap source) {
+        IntIntMap copy = new IntIntMap(Math.max(64, source.size() * 2));
+        source.forEach(copy::put);
+        return copy;
+    }
+
+    private static final class QueryVisitor implements FingerprintSegment.PostingVisitor {
+        final IntIntMap shared = new IntIntMap(64);
+        final IntIntMap lastSeen = new IntIntMap(64);
+        final int excludeUploadId;
+        final IntIntMap removed;
+        int stamp;
+        boolean found;
+        int matched;
+
+        QueryVisitor(int excludeUploadId, IntIntMap removed) {
+            this.excludeUploadId = excludeUploadId;
+            this.removed = removed;
+        }
+
+        @Override
+        public void visit(int uploadId, int position) {
+            if (uploadId == excludeUploadId || removed.get(uploadId) != 0) {
+                return;
+            }
+            if (lastSeen.get(uploadId) != stamp) {
+                lastSeen.put(uploadId, stamp);
+                shared.increment(uploadId, 1);
+                found = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.plagiguard.similarity;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Read-only view of a fingerprint segment written by FingerprintSegmentWriter. The
+ * file is memory-mapped, so lookups decode postings straight from the OS page cache
+ * without copying; a binary search over the sorted hash table finds a hash's postings.
+ * Only absolute buffer reads are used, which makes a segment safe to share between threads.
+ */
+public final class FingerprintSegment {
+    static final int MAGIC = 0x50474653;
+    static final int VERSION = 3;
+    static final int FOOTER_SIZE = 76;
+    static final int PARAGRAPH_SIZE = 16;
+    static final int TERM_SIZE = 12;
+    private static final int HASH_ENTRY_SIZE = 16;
+
+    @FunctionalInterface
+    public interface PostingVisitor {
+        void visit(int uploadId, int position);
+    }
+
+    @FunctionalInterface
+    public interface DocumentVisitor {
+        void visit(int uploadId, int fingerprintCount, int[] signature, Paragraphs paragraphs, TermCounts terms);
+    }
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int docsOffset;
+    private final int docCount;
+    private final int signatureLength;
+    private final int hashOffset;
+    private final int hashCount;
+    private final int paragraphsOffset;
+    private final int termsOffset;
+    private final int maxUploadId;
+
+    private FingerprintSegment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        int size = buffer.capacity();
+        if (size < 8 + FOOTER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not a fingerprint segment: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported segment version " + buffer.getInt(4) + ": " + path);
+        }
+        int footer = size - FOOTER_SIZE;
+        this.docsOffset = (int) buffer.getLong(footer);
+        this.docCount = buffer.getInt(footer + 8);
+        this.signatureLength = buffer.getInt(footer + 12);
+        this.hashOffset = (int) buffer.getLong(footer + 16);
+        this.hashCount = buffer.getInt(footer + 24);
+        this.paragraphsOffset = (int) buffer.getLong(footer + 44);
+        this.termsOffset = (int) buffer.getLong(footer + 52);
+        this.maxUploadId = buffer.getInt(footer + 60);
+    }
+
+    public static FingerprintSegment open(Path path, boolean verifyChecksum) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segment exceeds 2 GB: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        FingerprintSegment segment = new FingerprintSegment(path, buffer);
+        if (verifyChecksum) {
+            segment.verify();
+        }
+        return segment;
+    }
+
+    private void verify() throws IOException {
+        int footer = buffer.capacity() - FOOTER_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, footer));
+        if (crc.getValue() != buffer.getLong(footer + 64)) {
+            throw new IOException("Checksum mismatch in segment " + path);
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int documentCount() {
+        return docCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    public int maxUploadId() {
+        return maxUploadId;
+    }
+
+    public int signatureLength() {
+        return signatureLength;
+    }
+
+    public long sizeBytes() {
+        return buffer.capacity();
+    }
+
+    public void forEachDocument(DocumentVisitor visitor) {
+        int recordSize = 24 + 4 * signatureLength;
+        for (int d = 0; d < docCount; d++) {
+            int offset = docsOffset + d * recordSize;
+            int[] signature = new int[signatureLength];
+            for (int i = 0; i < signatureLength; i++) {
+                signature[i] = buffer.getInt(offset + 24 + 4 * i);
+            }
+            int paragraphCount = buffer.getInt(offset + 8);
+            int paragraphOffset = paragraphsOffset + buffer.getInt(offset + 12);
+            long[] hashes = new long[paragraphCount];
+            int[] starts = new int[paragraphCount];
+            int[] ends = new int[paragraphCount];
+            for (int p = 0; p < paragraphCount; p++) {
+                int at = paragraphOffset + p * PARAGRAPH_SIZE;
+                hashes[p] = buffer.getLong(at);
+                starts[p] = buffer.getInt(at + 8);
+                ends[p] = buffer.getInt(at + 12);
+            }
+            int termCount = buffer.getInt(offset + 16);
+            int termOffset = termsOffset + buffer.getInt(offset + 20);
+            long[] termHashes = new long[termCount];
+            int[] termCounts = new int[termCount];
+            for (int t = 0; t < termCount; t++) {
+                int at = termOffset + t * TERM_SIZE;
+                termHashes[t] = buffer.getLong(at);
+                termCounts[t] = buffer.getInt(at + 8);
+            }
+            visitor.visit(buffer.getInt(offset), buffer.getInt(offset + 4), signature,
+                new Paragraphs(hashes, starts, ends, paragraphCount), new TermCounts(termHashes, termCounts, termCount));
+        }
+    }
+
+    /** Visits every (uploadId, position) posting of the hash; returns false when the hash is absent. */
+    public boolean forEachPosting(long hash, PostingVisitor visitor) {
+        int entry = find(hash);
+        if (entry < 0) {
+            return false;
+        }
+        decodePostings(entry, visitor);
+        return true;
+    }
+
+    public long hashAt(int entry) {
+        return buffer.getLong(hashOffset + entry * HASH_ENTRY_SIZE);
+    }
+
+    public void decodePostings(int entry, PostingVisitor visitor) {
+        int[] cursor = {(int) buffer.getLong(hashOffset + entry * HASH_ENTRY_SIZE + 8)};
+        int docs = readVarint(cursor);
+        int uploadId = 0;
+        for (int d = 0; d < docs; d++) {
+            uploadId += readVarint(cursor);
+            int positions = readVarint(cursor);
+            int position = 0;
+            for (int p = 0; p < positions; p++) {
+                position += readVarint(cursor);
+                visitor.visit(uploadId, position);
+            }
+        }
+    }
+
+    private int find(long hash) {
+        int low = 0;
+        int high = hashCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = hashAt(mid);
+            if (value < hash) {
+                low = mid + 1;
+            } else if (value > hash) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int readVarint(int[] cursor) {
+        int offset = cursor[0];
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(offset++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        cursor[0] = offset;
+        return value;
+    }
+}
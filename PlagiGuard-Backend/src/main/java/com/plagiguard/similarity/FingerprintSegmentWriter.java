@@ -0,0 +1,215 @@
+package com.plagiguard.similarity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes an immutable fingerprint segment. Documents must all be added before the
+ * first hash, and hashes must arrive in ascending signed order with their postings
+ * packed as (uploadId << 32 | position) and sorted. The file is written under a
+ * temporary name and only renamed into place once the footer is complete.
+ *
+ * Layout: header (magic, version), fixed-size document records (uploadId,
+ * fingerprintCount, paragraphCount, paragraph offset, termCount, term offset,
+ * signature), varint postings per hash (doc count, then per doc the upload id delta,
+ * position count and position deltas), the sorted hash table of (hash, postings offset)
+ * pairs, the paragraph SimHashes as (hash, start token, end token), the term counts as
+ * (term hash, count), and a footer with section offsets and a CRC32C of everything
+ * before it.
+ */
+public final class FingerprintSegmentWriter implements AutoCloseable {
+    private final Path target;
+    private final Path temp;
+    private final Path hashTableTemp;
+    private final Path paragraphsTemp;
+    private final Path termsTemp;
+    private final CRC32C crc = new CRC32C();
+    private final DataOutputStream out;
+    private final DataOutputStream hashTable;
+    private final DataOutputStream paragraphs;
+    private final DataOutputStream terms;
+    private final int signatureLength;
+    private final byte[] varintBuffer = new byte[5];
+
+    private long position;
+    private long docsOffset;
+    private int docCount;
+    private long postingsOffset = -1;
+    private int hashCount;
+    private long lastHash;
+    private int maxUploadId;
+    private long paragraphsLength;
+    private long termsLength;
+    private boolean finished;
+
+    public FingerprintSegmentWriter(Path target, int signatureLength) throws IOException {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.hashTableTemp = target.resolveSibling(target.getFileName() + ".hashes.tmp");
+        this.paragraphsTemp = target.resolveSibling(target.getFileName() + ".paragraphs.tmp");
+        this.termsTemp = target.resolveSibling(target.getFileName() + ".terms.tmp");
+        this.signatureLength = signatureLength;
+        this.out = new DataOutputStream(new BufferedOutputStream(
+            new CheckedOutputStream(Files.newOutputStream(temp), crc), 1 << 16));
+        this.hashTable = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(hashTableTemp), 1 << 16));
+        this.paragraphs = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(paragraphsTemp), 1 << 16));
+        this.terms = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(termsTemp), 1 << 16));
+        out.writeInt(FingerprintSegment.MAGIC);
+        out.writeInt(FingerprintSegment.VERSION);
+        position = 8;
+        docsOffset = position;
+    }
+
+    public void addDocument(int uploadId, int fingerprintCount, int[] signature, Paragraphs documentParagraphs,
+            TermCounts documentTerms) throws IOException {
+        if (postingsOffset >= 0) {
+            throw new IllegalStateException("Documents must be written before postings");
+        }
+        out.writeInt(uploadId);
+        out.writeInt(fingerprintCount);
+        out.writeInt(documentParagraphs.size());
+        out.writeInt((int) paragraphsLength);
+        for (int i = 0; i < documentParagraphs.size(); i++) {
+            paragraphs.writeLong(documentParagraphs.hash(i));
+            paragraphs.writeInt(documentParagraphs.start(i));
+            paragraphs.writeInt(documentParagraphs.end(i));
+        }
+        paragraphsLength += (long) FingerprintSegment.PARAGRAPH_SIZE * documentParagraphs.size();
+        out.writeInt(documentTerms.size());
+        out.writeInt((int) termsLength);
+        for (int i = 0; i < documentTerms.size(); i++) {
+            terms.writeLong(documentTerms.hash(i));
+            terms.writeInt(documentTerms.count(i));
+        }
+        termsLength += (long) FingerprintSegment.TERM_SIZE * documentTerms.size();
+        for (int i = 0; i < signatureLength; i++) {
+            out.writeInt(signature != null && i < signature.length ? signature[i] : 0);
+        }
+        position += 24 + 4L * signatureLength;
+        docCount++;
+        maxUploadId = Math.max(maxUploadId, uploadId);
+    }
+
+    public void addHash(long hash, long[] packedPostings, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (postingsOffset < 0) {
+            postingsOffset = position;
+        } else if (hash <= lastHash) {
+            throw new IllegalStateException("Hashes must be added in ascending order");
+        }
+        lastHash = hash;
+        hashTable.writeLong(hash);
+        hashTable.writeLong(position);
+        hashCount++;
+
+        int docs = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || (int) (packedPostings[i] >>> 32) != (int) (packedPostings[i - 1] >>> 32)) {
+                docs++;
+            }
+        }
+        writeVarint(docs);
+        int previousUpload = 0;
+        int i = 0;
+        while (i < count) {
+            int uploadId = (int) (packedPostings[i] >>> 32);
+            int end = i;
+            while (end < count && (int) (packedPostings[end] >>> 32) == uploadId) {
+                end++;
+            }
+            writeVarint(uploadId - previousUpload);
+            writeVarint(end - i);
+            int previousPosition = 0;
+            for (int p = i; p < end; p++) {
+                int pos = (int) packedPostings[p];
+                writeVarint(pos - previousPosition);
+                previousPosition = pos;
+            }
+            previousUpload = uploadId;
+            i = end;
+        }
+    }
+
+    public void finish() throws IOException {
+        if (postingsOffset < 0) {
+            postingsOffset = position;
+        }
+        long postingsLength = position - postingsOffset;
+        hashTable.close();
+        paragraphs.close();
+        terms.close();
+        long hashOffset = position;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(hashTableTemp))) {
+            position += in.transferTo(out);
+        }
+        long paragraphsOffset = position;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(paragraphsTemp))) {
+            position += in.transferTo(out);
+        }
+        long termsOffset = position;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(termsTemp))) {
+            position += in.transferTo(out);
+        }
+        out.flush();
+        long checksum = crc.getValue();
+
+        if (position + FingerprintSegment.FOOTER_SIZE > Integer.MAX_VALUE) {
+            throw new IOException("Segment exceeds 2 GB: " + target);
+        }
+
+        // The footer is not covered by the checksum it carries
+        out.writeLong(docsOffset);
+        out.writeInt(docCount);
+        out.writeInt(signatureLength);
+        out.writeLong(hashOffset);
+        out.writeInt(hashCount);
+        out.writeLong(postingsOffset);
+        out.writeLong(postingsLength);
+        out.writeLong(paragraphsOffset);
+        out.writeLong(termsOffset);
+        out.writeInt(maxUploadId);
+        out.writeLong(checksum);
+        out.writeInt(FingerprintSegment.MAGIC);
+        out.close();
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(hashTableTemp);
+        Files.deleteIfExists(paragraphsTemp);
+        Files.deleteIfExists(termsTemp);
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            out.close();
+            hashTable.close();
+            paragraphs.close();
+            terms.close();
+            Files.deleteIfExists(temp);
+            Files.deleteIfExists(hashTableTemp);
+            Files.deleteIfExists(paragraphsTemp);
+            Files.deleteIfExists(termsTemp);
+        }
+    }
+
+    private void writeVarint(int value) throws IOException {
+        int length = 0;
+        while ((value & ~0x7F) != 0) {
+            varintBuffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        varintBuffer[length++] = (byte) value;
+        out.write(varintBuffer, 0, length);
+        position += length;
+    }
+}
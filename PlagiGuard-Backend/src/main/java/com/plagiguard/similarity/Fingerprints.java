@@ -0,0 +1,44 @@
+package com.plagiguard.similarity;
+
+import java.util.Arrays;
+
+/**
+ * Winnowed fingerprints of one document: parallel arrays of k-gram hashes and the
+ * token index where each selected k-gram starts.
+ */
+public final class Fingerprints {
+    private final long[] hashes;
+    private final int[] positions;
+    private final int size;
+
+    public Fingerprints(long[] hashes, int[] positions, int size) {
+        this.hashes = hashes;
+        this.positions = positions;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long hash(int i) {
+        return hashes[i];
+    }
+
+    public int position(int i) {
+        return positions[i];
+    }
+
+    /** Sorted copy of the hashes with duplicates removed. */
+    public long[] distinctHashes() {
+        long[] sorted = Arrays.copyOf(hashes, size);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, distinct);
+    }
+}
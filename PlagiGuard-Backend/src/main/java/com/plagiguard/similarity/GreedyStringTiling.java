@@ -0,0 +1,144 @@
+package com.plagiguard.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Running-Karp-Rabin Greedy String Tiling (Wise), the comparison behind JPlag. Two
+ * token sequences are covered greedily with the longest common, non-overlapping tiles
+ * of at least minMatch tokens, longest first, so reordered methods and moved blocks are
+ * still found. Each sequence is prepared once with Karp-Rabin hashes of every
+ * minMatch-token window and a hash table of window positions; a comparison then looks
+ * up each unmarked window of one sequence in the other's table and only extends
+ * candidates whose hashes agree.
+ */
+public final class GreedyStringTiling {
+
+    private static final int BASE = 0x01000193;
+
+    public record Tile(int firstStart, int secondStart, int length) {}
+
+    public record Result(List<Tile> tiles, int covered, int firstLength, int secondLength) {
+        /** Share of both sequences covered by tiles, as JPlag's average similarity. */
+        public double similarity() {
+            int total = firstLength + secondLength;
+            return total == 0 ? 0.0 : 2.0 * covered / total;
+        }
+    }
+
+    /** Token sequence with its window hashes and hash table, reusable across comparisons. */
+    public static final class Prepared {
+        private final int[] tokens;
+        private final int[] windowHashes;
+        private final LongPostingsMap windows;
+        private final int minMatch;
+
+        private Prepared(int[] tokens, int[] windowHashes, LongPostingsMap windows, int minMatch) {
+            this.tokens = tokens;
+            this.windowHashes = windowHashes;
+            this.windows = windows;
+            this.minMatch = minMatch;
+        }
+
+        public int length() {
+            return tokens.length;
+        }
+    }
+
+    private GreedyStringTiling() {}
+
+    public static Prepared prepare(int[] tokens, int minMatch) {
+        int count = Math.max(0, tokens.length - minMatch + 1);
+        int[] hashes = new int[count];
+        LongPostingsMap windows = new LongPostingsMap(1, Math.max(16, count));
+        int power = 1;
+        for (int i = 1; i < minMatch; i++) {
+            power *= BASE;
+        }
+        int rolling = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (i >= minMatch) {
+                rolling -= tokens[i - minMatch] * power;
+            }
+            rolling = rolling * BASE + tokens[i];
+            if (i >= minMatch - 1) {
+                int start = i - minMatch + 1;
+                hashes[start] = rolling;
+                windows.add(rolling, start);
+            }
+        }
+        return new Prepared(tokens, hashes, windows, minMatch);
+    }
+
+    public static Result compare(Prepared first, Prepared second) {
+        if (first.minMatch != second.minMatch) {
+            throw new IllegalArgumentException("Sequences prepared with different minimum match lengths");
+        }
+        int[] a = first.tokens;
+        int[] b = second.tokens;
+        int minMatch = first.minMatch;
+        boolean[] markedA = new boolean[a.length];
+        boolean[] markedB = new boolean[b.length];
+        List<Tile> tiles = new ArrayList<>();
+        int covered = 0;
+        // Matches of the current maximal length as (start in a, start in b) pairs
+        int[] matches = new int[32];
+
+        int maxMatch;
+        do {
+            maxMatch = minMatch;
+            int matchCount = 0;
+            for (int i = 0; i < first.windowHashes.length; i++) {
+                if (markedA[i] || markedA[i + minMatch - 1]) {
+                    continue;
+                }
+                for (int e = second.windows.head(first.windowHashes[i]); e != 0; e = second.windows.next(e)) {
+                    int j = second.windows.value(e, 0);
+                    if (markedB[j]) {
+                        continue;
+                    }
+                    int k = 0;
+                    while (i + k < a.length && j + k < b.length && a[i + k] == b[j + k]
+                            && !markedA[i + k] && !markedB[j + k]) {
+                        k++;
+                    }
+                    if (k < maxMatch) {
+                        continue;
+                    }
+                    if (k > maxMatch) {
+                        matchCount = 0;
+                        maxMatch = k;
+                    }
+                    if (matchCount * 2 == matches.length) {
+                        matches = Arrays.copyOf(matches, matches.length * 2);
+                    }
+                    matches[matchCount * 2] = i;
+                    matches[matchCount * 2 + 1] = j;
+                    matchCount++;
+                }
+            }
+            for (int m = 0; m < matchCount; m++) {
+                int i = matches[m * 2];
+                int j = matches[m * 2 + 1];
+                if (occluded(markedA, i, maxMatch) || occluded(markedB, j, maxMatch)) {
+                    continue;
+                }
+                Arrays.fill(markedA, i, i + maxMatch, true);
+                Arrays.fill(markedB, j, j + maxMatch, true);
+                tiles.add(new Tile(i, j, maxMatch));
+                covered += maxMatch;
+            }
+        } while (maxMatch > minMatch);
+        return new Result(tiles, covered, a.length, b.length);
+    }
+
+    private static boolean occluded(boolean[] marked, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if (marked[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
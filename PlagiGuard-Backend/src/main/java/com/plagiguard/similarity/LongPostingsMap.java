@@ -0,0 +1,154 @@
+package com.plagiguard.similarity;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from a long key to a list of fixed-width int postings,
+ * stored without boxing. Postings live in one int pool as [next, v0 .. vN-1] entries
+ * linked newest first; entry 0 is reserved so a zero pointer terminates a list.
+ * Not thread-safe; callers provide their own locking.
+ */
+public final class LongPostingsMap {
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final int stride;
+    private long[] keys;
+    private int[] heads;
+    private int[] counts;
+    private int keyCount;
+    private int[] pool;
+    private int poolSize;
+
+    public LongPostingsMap(int stride, int expectedKeys) {
+        this.stride = stride;
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedKeys / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new long[capacity];
+        this.heads = new int[capacity];
+        this.counts = new int[capacity];
+        this.pool = new int[Math.max(64, expectedKeys * (stride + 1))];
+        this.poolSize = stride + 1;
+    }
+
+    public void add(long key, int v0) {
+        int entry = newEntry(key);
+        pool[entry + 1] = v0;
+    }
+
+    public void add(long key, int v0, int v1) {
+        int entry = newEntry(key);
+        pool[entry + 1] = v0;
+        pool[entry + 2] = v1;
+    }
+
+    /** Pointer to the newest posting for key, or 0 when the key is absent. */
+    public int head(long key) {
+        int mask = keys.length - 1;
+        for (int slot = (int) mix(key) & mask; heads[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return heads[slot];
+            }
+        }
+        return 0;
+    }
+
+    public int count(long key) {
+        int mask = keys.length - 1;
+        for (int slot = (int) mix(key) & mask; heads[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    public int next(int entry) {
+        return pool[entry];
+    }
+
+    public int value(int entry, int field) {
+        return pool[entry + 1 + field];
+    }
+
+    public int keyCount() {
+        return keyCount;
+    }
+
+    public int postingCount() {
+        return poolSize / (stride + 1) - 1;
+    }
+
+    public long memoryBytes() {
+        return keys.length * (8L + 4 + 4) + pool.length * 4L;
+    }
+
+    /** Calls visitor once per key with its posting count, in no particular order. */
+    public void forEachKey(KeyVisitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (heads[slot] != 0) {
+                visitor.visit(keys[slot], heads[slot], counts[slot]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface KeyVisitor {
+        void visit(long key, int head, int count);
+    }
+
+    private int newEntry(long key) {
+        if (keyCount + 1 > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        int entryWidth = stride + 1;
+        if (poolSize + entryWidth > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length + (pool.length >> 1), poolSize + entryWidth));
+        }
+        int entry = poolSize;
+        poolSize += entryWidth;
+
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (heads[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (heads[slot] == 0) {
+            keys[slot] = key;
+            keyCount++;
+        }
+        pool[entry] = heads[slot];
+        heads[slot] = entry;
+        counts[slot]++;
+        return entry;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        heads = new int[capacity];
+        counts = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] == 0) {
+                continue;
+            }
+            int slot = (int) mix(oldKeys[i]) & mask;
+            while (heads[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            heads[slot] = oldHeads[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
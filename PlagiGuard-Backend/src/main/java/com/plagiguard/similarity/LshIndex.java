@@ -0,0 +1,183 @@
+package com.plagiguard.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Banded locality-sensitive hashing over MinHash signatures. A signature is cut into
+ * bands of rows; two documents become candidates when any band hashes equal, which for
+ * Jaccard s happens with probability 1 - (1 - s^rows)^bands. More rows per band raise
+ * precision, more bands raise recall. Candidates are then verified against the stored
+ * signatures, so query cost follows the number of candidates rather than the corpus.
+ * Storage grows with the documents actually added. Removed documents are only marked
+ * until max(1000, live / 10) of them accumulate, then slots and buckets are rebuilt
+ * from the live signatures.
+ */
+public class LshIndex {
+
+    public record NearDuplicate(int uploadId, double estimatedJaccard) {}
+
+    private final int bands;
+    private final int rows;
+    private final int signatureLength;
+    private static final int INITIAL_DOCUMENTS = 16;
+    private static final int MIN_COMPACTION_REMOVALS = 1000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private LongPostingsMap buckets;
+    private IntIntMap slots;
+    private int[] signatures;
+    private int[] uploadIds;
+    private boolean[] removed;
+    private int size;
+    private int removedCount;
+
+    public LshIndex(int bands, int rows, int signatureLength) {
+        if (bands * rows > signatureLength) {
+            throw new IllegalArgumentException("bands x rows exceeds signature length " + signatureLength);
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.signatureLength = signatureLength;
+        allocate(INITIAL_DOCUMENTS);
+    }
+
+    private void allocate(int documents) {
+        buckets = new LongPostingsMap(1, documents * bands);
+        slots = new IntIntMap(documents);
+        signatures = new int[documents * signatureLength];
+        uploadIds = new int[documents];
+        removed = new boolean[documents];
+        size = 0;
+        removedCount = 0;
+    }
+
+    public void add(int uploadId, int[] signature) {
+        lock.writeLock().lock();
+        try {
+            // A removed upload that comes back gets a fresh slot; the old one waits for compaction
+            if (slots.containsKey(uploadId) && !removed[slots.get(uploadId)]) {
+                return;
+            }
+            append(uploadId, signature, 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int uploadId) {
+        lock.writeLock().lock();
+        try {
+            if (!slots.containsKey(uploadId) || removed[slots.get(uploadId)]) {
+                return;
+            }
+            removed[slots.get(uploadId)] = true;
+            removedCount++;
+            if (removedCount >= Math.max(MIN_COMPACTION_REMOVALS, (size - removedCount) / 10)) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Rebuilds slots and buckets from the live documents, reclaiming removed ones. */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            if (removedCount == 0) {
+                return;
+            }
+            int[] oldSignatures = signatures;
+            int[] oldUploadIds = uploadIds;
+            boolean[] oldRemoved = removed;
+            int oldSize = size;
+            allocate(Math.max(INITIAL_DOCUMENTS, oldSize - removedCount));
+            for (int slot = 0; slot < oldSize; slot++) {
+                if (!oldRemoved[slot]) {
+                    append(oldUploadIds[slot], oldSignatures, slot * signatureLength);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - removedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void append(int uploadId, int[] signature, int offset) {
+        if (size == uploadIds.length) {
+            int capacity = size * 2;
+            uploadIds = Arrays.copyOf(uploadIds, capacity);
+            removed = Arrays.copyOf(removed, capacity);
+            signatures = Arrays.copyOf(signatures, capacity * signatureLength);
+        }
+        int slot = size++;
+        uploadIds[slot] = uploadId;
+        System.arraycopy(signature, offset, signatures, slot * signatureLength, signatureLength);
+        slots.put(uploadId, slot);
+        for (int band = 0; band < bands; band++) {
+            buckets.add(bandKey(signature, offset, band), slot);
+        }
+    }
+
+    public int[] signatureOf(int uploadId) {
+        lock.readLock().lock();
+        try {
+            if (!slots.containsKey(uploadId) || removed[slots.get(uploadId)]) {
+                return null;
+            }
+            int offset = slots.get(uploadId) * signatureLength;
+            return Arrays.copyOfRange(signatures, offset, offset + signatureLength);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Indexed documents whose estimated Jaccard similarity with the signature is at least minJaccard. */
+    public List<NearDuplicate> query(int[] signature, double minJaccard, int excludeUploadId) {
+        List<NearDuplicate> results = new ArrayList<>();
+        IntIntMap seen = new IntIntMap(64);
+        lock.readLock().lock();
+        try {
+            for (int band = 0; band < bands; band++) {
+                for (int e = buckets.head(bandKey(signature, 0, band)); e != 0; e = buckets.next(e)) {
+                    int slot = buckets.value(e, 0);
+                    if (removed[slot] || uploadIds[slot] == excludeUploadId || seen.containsKey(slot)) {
+                        continue;
+                    }
+                    seen.put(slot, 1);
+                    double jaccard = MinHash.estimateJaccard(signature, 0, signatures, slot * signatureLength,
+                        signatureLength);
+                    if (jaccard >= minJaccard) {
+                        results.add(new NearDuplicate(uploadIds[slot], jaccard));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        results.sort(Comparator.comparingDouble(NearDuplicate::estimatedJaccard).reversed());
+        return results;
+    }
+
+    private long bandKey(int[] signature, int offset, int band) {
+        long hash = band + 1;
+        int start = offset + band * rows;
+        for (int r = 0; r < rows; r++) {
+            hash = LongPostingsMap.mix(hash * 31 + signature[start + r]);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,67 @@
+package com.plagiguard.similarity;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import com.plagiguard.util.TokenStream;
+
+/**
+ * MinHash signatures over word shingles. Each of the permutations is simulated by a
+ * seeded 64-bit mix of the shingle hash; the signature keeps the low 32 bits of every
+ * minimum so a 128-permutation signature costs 512 bytes. The fraction of equal
+ * positions between two signatures estimates the Jaccard similarity of their shingle sets.
+ */
+public final class MinHash {
+    private static final long BASE = 0x100000001b3L;
+
+    private final int permutations;
+    private final int shingleSize;
+    private final long[] seeds;
+
+    public MinHash(int permutations, int shingleSize) {
+        this.permutations = permutations;
+        this.shingleSize = shingleSize;
+        this.seeds = new long[permutations];
+        SplittableRandom random = new SplittableRandom(0x5eed_1dea_f00dL);
+        for (int i = 0; i < permutations; i++) {
+            seeds[i] = random.nextLong() | 1;
+        }
+    }
+
+    public int permutations() {
+        return permutations;
+    }
+
+    public int[] signature(TokenStream tokens) {
+        long[] minimums = new long[permutations];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        int shingles = tokens.size() - shingleSize + 1;
+        for (int s = 0; s < shingles; s++) {
+            long shingle = 0;
+            for (int j = 0; j < shingleSize; j++) {
+                shingle = shingle * BASE + tokens.hash(s + j);
+            }
+            for (int p = 0; p < permutations; p++) {
+                long value = LongPostingsMap.mix(shingle * seeds[p]) >>> 1;
+                if (value < minimums[p]) {
+                    minimums[p] = value;
+                }
+            }
+        }
+        int[] signature = new int[permutations];
+        for (int p = 0; p < permutations; p++) {
+            signature[p] = (int) minimums[p];
+        }
+        return signature;
+    }
+
+    public static double estimateJaccard(int[] a, int aOffset, int[] b, int bOffset, int length) {
+        int equal = 0;
+        for (int i = 0; i < length; i++) {
+            if (a[aOffset + i] == b[bOffset + i]) {
+                equal++;
+            }
+        }
+        return (double) equal / length;
+    }
+}
@@ -0,0 +1,38 @@
+package com.plagiguard.similarity;
+
+/**
+ * SimHash of each paragraph of one document, with the token range the paragraph covers.
+ */
+public final class Paragraphs {
+    public static final Paragraphs EMPTY = new Paragraphs(new long[0], new int[0], new int[0], 0);
+
+    private final long[] hashes;
+    private final int[] starts;
+    private final int[] ends;
+    private final int size;
+
+    public Paragraphs(long[] hashes, int[] starts, int[] ends, int size) {
+        this.hashes = hashes;
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long hash(int i) {
+        return hashes[i];
+    }
+
+    /** First token of the paragraph. */
+    public int start(int i) {
+        return starts[i];
+    }
+
+    /** Token index just past the paragraph. */
+    public int end(int i) {
+        return ends[i];
+    }
+}
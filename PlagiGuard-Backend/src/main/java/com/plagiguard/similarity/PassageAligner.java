@@ -0,0 +1,136 @@
+package com.plagiguard.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the exact passages a document shares with a source. Both token sequences are
+ * mapped to dense ids, concatenated around a unique separator and indexed with a
+ * suffix array and LCP array; for every destination position the nearest source
+ * suffixes in suffix-array order give its longest match. Maximal matches of at least
+ * minLength tokens are then tiled greedily, longest first, without overlap in the
+ * destination. Everything is linear apart from the token-id sort.
+ */
+public final class PassageAligner {
+
+    /** Matching token range, end exclusive, in source and destination. */
+    public record Span(int srcStart, int srcEnd, int dstStart, int dstEnd) {
+        public int length() {
+            return dstEnd - dstStart;
+        }
+    }
+
+    private PassageAligner() {}
+
+    public static List<Span> align(long[] source, long[] destination, int minLength) {
+        int n = source.length;
+        int m = destination.length;
+        if (n < minLength || m < minLength) {
+            return List.of();
+        }
+
+        // Dense ids 1..V; V + 1 separates the two documents and 0 terminates the text
+        long[] vocabulary = new long[n + m];
+        System.arraycopy(source, 0, vocabulary, 0, n);
+        System.arraycopy(destination, 0, vocabulary, n, m);
+        Arrays.sort(vocabulary);
+        int distinct = 0;
+        for (int i = 0; i < vocabulary.length; i++) {
+            if (i == 0 || vocabulary[i] != vocabulary[i - 1]) {
+                vocabulary[distinct++] = vocabulary[i];
+            }
+        }
+        int separator = distinct + 1;
+        int[] text = new int[n + m + 2];
+        for (int i = 0; i < n; i++) {
+            text[i] = Arrays.binarySearch(vocabulary, 0, distinct, source[i]) + 1;
+        }
+        text[n] = separator;
+        for (int i = 0; i < m; i++) {
+            text[n + 1 + i] = Arrays.binarySearch(vocabulary, 0, distinct, destination[i]) + 1;
+        }
+        text[n + m + 1] = 0;
+
+        int[] sa = SuffixArrays.suffixArray(text, separator);
+        int[] lcp = SuffixArrays.lcpArray(text, sa);
+
+        int[] bestLength = new int[m];
+        int[] bestSource = new int[m];
+        // Forward pass: nearest source suffix above each destination suffix
+        int lastSource = -1;
+        int runMin = 0;
+        for (int i = 0; i < sa.length; i++) {
+            if (i > 0) {
+                runMin = Math.min(runMin, lcp[i - 1]);
+            }
+            int pos = sa[i];
+            if (pos < n) {
+                lastSource = pos;
+                runMin = Integer.MAX_VALUE;
+            } else if (pos > n && pos <= n + m && lastSource >= 0 && runMin > bestLength[pos - n - 1]) {
+                bestLength[pos - n - 1] = runMin;
+                bestSource[pos - n - 1] = lastSource;
+            }
+        }
+        // Backward pass: nearest source suffix below
+        lastSource = -1;
+        runMin = 0;
+        for (int i = sa.length - 1; i >= 0; i--) {
+            if (i < sa.length - 1) {
+                runMin = Math.min(runMin, lcp[i]);
+            }
+            int pos = sa[i];
+            if (pos < n) {
+                lastSource = pos;
+                runMin = Integer.MAX_VALUE;
+            } else if (pos > n && pos <= n + m && lastSource >= 0 && runMin > bestLength[pos - n - 1]) {
+                bestLength[pos - n - 1] = runMin;
+                bestSource[pos - n - 1] = lastSource;
+            }
+        }
+
+        // A match is maximal unless it is the tail of the match one position earlier
+        List<Span> candidates = new ArrayList<>();
+        for (int d = 0; d < m; d++) {
+            int length = bestLength[d];
+            if (length < minLength) {
+                continue;
+            }
+            if (d > 0 && bestLength[d - 1] == length + 1 && bestSource[d - 1] + 1 == bestSource[d]) {
+                continue;
+            }
+            candidates.add(new Span(bestSource[d], bestSource[d] + length, d, d + length));
+        }
+
+        candidates.sort(Comparator.comparingInt(Span::length).reversed());
+        boolean[] covered = new boolean[m];
+        List<Span> spans = new ArrayList<>();
+        for (Span span : candidates) {
+            int start = span.dstStart();
+            int end = span.dstEnd();
+            while (start < end && covered[start]) {
+                start++;
+            }
+            while (end > start && covered[end - 1]) {
+                end--;
+            }
+            if (end - start < minLength) {
+                continue;
+            }
+            boolean free = true;
+            for (int d = start; d < end && free; d++) {
+                free = !covered[d];
+            }
+            if (!free) {
+                continue;
+            }
+            Arrays.fill(covered, start, end, true);
+            int shift = start - span.dstStart();
+            spans.add(new Span(span.srcStart() + shift, span.srcStart() + shift + (end - start), start, end));
+        }
+        spans.sort(Comparator.comparingInt(Span::dstStart));
+        return spans;
+    }
+}
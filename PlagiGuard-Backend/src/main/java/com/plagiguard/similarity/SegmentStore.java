@@ -0,0 +1,314 @@
+package com.plagiguard.similarity;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Directory of append-only fingerprint segments. New documents are written to a fresh
+ * segment, deletions are appended to a tombstone log, and compaction merges all segments
+ * into one while dropping deleted documents. A manifest names the live segments, so a
+ * crash mid-write or mid-compaction never exposes half-written or superseded files.
+ */
+public final class SegmentStore {
+    private static final Logger logger = LoggerFactory.getLogger(SegmentStore.class);
+    private static final String MANIFEST = "segments.manifest";
+    private static final String TOMBSTONES = "deleted.ids";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int signatureLength;
+    private volatile List<FingerprintSegment> segments;
+    private final Set<Integer> tombstones = new HashSet<>();
+    private long generation;
+
+    private SegmentStore(Path directory, int signatureLength) {
+        this.directory = directory;
+        this.signatureLength = signatureLength;
+    }
+
+    /**
+     * Maps the segments named in the manifest. Segments that fail to open or verify are
+     * dropped from the manifest; their uploads are picked up again by the caller's catch-up.
+     */
+    public static SegmentStore open(Path directory, int signatureLength, boolean verifyChecksums) throws IOException {
+        Files.createDirectories(directory);
+        SegmentStore store = new SegmentStore(directory, signatureLength);
+        List<String> names = store.readManifest();
+        List<FingerprintSegment> opened = new ArrayList<>();
+        for (String name : names) {
+            Path path = directory.resolve(name);
+            try {
+                FingerprintSegment segment = FingerprintSegment.open(path, verifyChecksums);
+                if (segment.signatureLength() != signatureLength) {
+                    throw new IOException("Signature length " + segment.signatureLength() + " != " + signatureLength);
+                }
+                opened.add(segment);
+            } catch (IOException e) {
+                logger.error("Discarding fingerprint segment {}: {}", name, e.getMessage());
+            }
+            store.generation = Math.max(store.generation, generationOf(name));
+        }
+        store.segments = Collections.unmodifiableList(opened);
+        store.writeManifest(opened);
+        store.deleteUnreferencedFiles(opened);
+        store.readTombstones();
+        return store;
+    }
+
+    public List<FingerprintSegment> segments() {
+        return segments;
+    }
+
+    public synchronized int[] deletedIds() {
+        return tombstones.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public synchronized void markDeleted(int uploadId) throws IOException {
+        if (tombstones.add(uploadId)) {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(directory.resolve(TOMBSTONES),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                out.writeInt(uploadId);
+            }
+        }
+    }
+
+    /** Writes the documents to a new segment and adds it to the manifest. */
+    public synchronized FingerprintSegment append(List<DocumentFeatures> documents) throws IOException {
+        LongPostingsMap postings = new LongPostingsMap(2, 1024);
+        List<DocumentFeatures> sorted = new ArrayList<>(documents);
+        sorted.sort((a, b) -> Integer.compare(a.uploadId(), b.uploadId()));
+
+        Path path = nextSegmentPath();
+        try (FingerprintSegmentWriter writer = new FingerprintSegmentWriter(path, signatureLength)) {
+            for (DocumentFeatures document : sorted) {
+                Fingerprints fingerprints = document.fingerprints();
+                writer.addDocument(document.uploadId(), fingerprints.size(), document.signature(), document.paragraphs(),
+                    document.terms());
+                for (int i = 0; i < fingerprints.size(); i++) {
+                    postings.add(fingerprints.hash(i), document.uploadId(), fingerprints.position(i));
+                }
+            }
+            long[] hashes = new long[postings.keyCount()];
+            int[] count = {0};
+            postings.forEachKey((hash, head, size) -> hashes[count[0]++] = hash);
+            Arrays.sort(hashes);
+            long[] packed = new long[16];
+            for (long hash : hashes) {
+                int size = 0;
+                for (int e = postings.head(hash); e != 0; e = postings.next(e)) {
+                    if (size == packed.length) {
+                        packed = Arrays.copyOf(packed, size * 2);
+                    }
+                    packed[size++] = pack(postings.value(e, 0), postings.value(e, 1));
+                }
+                Arrays.sort(packed, 0, size);
+                writer.addHash(hash, packed, size);
+            }
+            writer.finish();
+        }
+        FingerprintSegment segment = FingerprintSegment.open(path, false);
+        List<FingerprintSegment> updated = new ArrayList<>(segments);
+        updated.add(segment);
+        writeManifest(updated);
+        segments = Collections.unmodifiableList(updated);
+        return segment;
+    }
+
+    /**
+     * Merges every segment into one, leaving out tombstoned uploads. Tombstones whose
+     * documents were physically removed are dropped from the log.
+     */
+    public synchronized List<FingerprintSegment> compact() throws IOException {
+        List<FingerprintSegment> inputs = segments;
+        if (inputs.size() <= 1 && tombstones.isEmpty()) {
+            return inputs;
+        }
+        Set<Integer> removed = new HashSet<>();
+        Path path = nextSegmentPath();
+        try (FingerprintSegmentWriter writer = new FingerprintSegmentWriter(path, signatureLength)) {
+            List<int[]> documents = new ArrayList<>();
+            List<int[]> signatures = new ArrayList<>();
+            List<Paragraphs> paragraphs = new ArrayList<>();
+            List<TermCounts> terms = new ArrayList<>();
+            for (FingerprintSegment segment : inputs) {
+                segment.forEachDocument((uploadId, fingerprintCount, signature, documentParagraphs, documentTerms) -> {
+                    if (tombstones.contains(uploadId)) {
+                        removed.add(uploadId);
+                    } else {
+                        documents.add(new int[] {uploadId, fingerprintCount});
+                        signatures.add(signature);
+                        paragraphs.add(documentParagraphs);
+                        terms.add(documentTerms);
+                    }
+                });
+            }
+            Integer[] order = new Integer[documents.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(documents.get(a)[0], documents.get(b)[0]));
+            for (int i : order) {
+                writer.addDocument(documents.get(i)[0], documents.get(i)[1], signatures.get(i), paragraphs.get(i),
+                    terms.get(i));
+            }
+
+            int[] cursors = new int[inputs.size()];
+            long[][] packed = {new long[16]};
+            int[] size = {0};
+            while (true) {
+                long min = 0;
+                boolean any = false;
+                for (int s = 0; s < inputs.size(); s++) {
+                    if (cursors[s] < inputs.get(s).hashCount()) {
+                        long hash = inputs.get(s).hashAt(cursors[s]);
+                        if (!any || hash < min) {
+                            min = hash;
+                            any = true;
+                        }
+                    }
+                }
+                if (!any) {
+                    break;
+                }
+                size[0] = 0;
+                for (int s = 0; s < inputs.size(); s++) {
+                    FingerprintSegment segment = inputs.get(s);
+                    if (cursors[s] < segment.hashCount() && segment.hashAt(cursors[s]) == min) {
+                        segment.decodePostings(cursors[s], (uploadId, position) -> {
+                            if (!tombstones.contains(uploadId)) {
+                                if (size[0] == packed[0].length) {
+                                    packed[0] = Arrays.copyOf(packed[0], size[0] * 2);
+                                }
+                                packed[0][size[0]++] = pack(uploadId, position);
+                            }
+                        });
+                        cursors[s]++;
+                    }
+                }
+                Arrays.sort(packed[0], 0, size[0]);
+                writer.addHash(min, packed[0], size[0]);
+            }
+            writer.finish();
+        }
+
+        FingerprintSegment merged = FingerprintSegment.open(path, false);
+        List<FingerprintSegment> updated = List.of(merged);
+        writeManifest(updated);
+        segments = updated;
+        for (FingerprintSegment segment : inputs) {
+            deleteQuietly(segment.path());
+        }
+        // Keep tombstones for uploads that may still arrive in a later flush
+        tombstones.removeAll(removed);
+        rewriteTombstones();
+        logger.info("Compacted {} fingerprint segments into {} ({} documents, {} removed)",
+            inputs.size(), path.getFileName(), merged.documentCount(), removed.size());
+        return updated;
+    }
+
+    private static long pack(int uploadId, int position) {
+        return ((long) uploadId << 32) | (position & 0xFFFFFFFFL);
+    }
+
+    private Path nextSegmentPath() {
+        generation++;
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+    }
+
+    private static long generationOf(String name) {
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private List<String> readManifest() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                names.add(line.trim());
+            }
+        }
+        return names;
+    }
+
+    private void writeManifest(List<FingerprintSegment> live) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (FingerprintSegment segment : live) {
+            content.append(segment.path().getFileName()).append('\n');
+        }
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteUnreferencedFiles(List<FingerprintSegment> live) throws IOException {
+        Set<Path> referenced = new HashSet<>();
+        live.forEach(segment -> referenced.add(segment.path().getFileName()));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : files) {
+                if (!referenced.contains(file.getFileName())) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    private void readTombstones() throws IOException {
+        Path file = directory.resolve(TOMBSTONES);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (InputStream is = Files.newInputStream(file); DataInputStream in = new DataInputStream(is)) {
+            while (true) {
+                tombstones.add(in.readInt());
+            }
+        } catch (EOFException e) {
+            // End of log; a torn trailing write is simply ignored
+        }
+    }
+
+    private void rewriteTombstones() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(tombstones.size() * 4);
+        tombstones.forEach(buffer::putInt);
+        Path temp = directory.resolve(TOMBSTONES + ".tmp");
+        Files.write(temp, buffer.array());
+        Files.move(temp, directory.resolve(TOMBSTONES), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Still mapped on some platforms; unreferenced files are removed on the next open
+            logger.debug("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.plagiguard.similarity;
+
+import java.util.Arrays;
+
+import com.plagiguard.util.TokenStream;
+
+/**
+ * Charikar's SimHash over the words of each paragraph. Every word hash votes +1 or -1
+ * on each of the 64 bits and the sign of the tally gives the bit, so paragraphs that
+ * differ by a few swapped or reworded words end up a few bits apart in Hamming distance.
+ */
+public final class SimHash {
+
+    private SimHash() {}
+
+    /**
+     * Hashes each paragraph of at least minTokens words. Paragraphs are the runs of
+     * tokens between line breaks, which is how the extractors separate them.
+     */
+    public static Paragraphs paragraphs(TokenStream tokens, int minTokens) {
+        long[] hashes = new long[16];
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int size = 0;
+        int[] tally = new int[64];
+
+        int start = 0;
+        for (int i = 1; i <= tokens.size(); i++) {
+            if (i < tokens.size() && !lineBreakBetween(tokens, i - 1, i)) {
+                continue;
+            }
+            if (i - start >= minTokens) {
+                if (size == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, size * 2);
+                    starts = Arrays.copyOf(starts, size * 2);
+                    ends = Arrays.copyOf(ends, size * 2);
+                }
+                hashes[size] = hash(tokens, start, i, tally);
+                starts[size] = start;
+                ends[size] = i;
+                size++;
+            }
+            start = i;
+        }
+        return new Paragraphs(hashes, starts, ends, size);
+    }
+
+    private static boolean lineBreakBetween(TokenStream tokens, int previous, int next) {
+        for (int c = tokens.end(previous); c < tokens.start(next); c++) {
+            if (tokens.charAt(c) == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long hash(TokenStream tokens, int from, int to, int[] tally) {
+        Arrays.fill(tally, 0);
+        for (int i = from; i < to; i++) {
+            // FNV bits are poorly spread, so mix before voting
+            long word = LongPostingsMap.mix(tokens.hash(i));
+            for (int bit = 0; bit < 64; bit++) {
+                tally[bit] += (int) ((word >>> bit) & 1) * 2 - 1;
+            }
+        }
+        long simhash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (tally[bit] > 0) {
+                simhash |= 1L << bit;
+            }
+        }
+        return simhash;
+    }
+}
@@ -0,0 +1,239 @@
+package com.plagiguard.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds stored paragraphs whose SimHash is within a small Hamming distance k of a query,
+ * using the permuted tables of Manku, Jain and Das Sarma. The 64 bits are cut into k + 1
+ * blocks; two hashes at distance at most k agree exactly on at least one block, so table t
+ * keeps every paragraph sorted by block t and a query probes each table with a binary
+ * search on its own block. Only the few paragraphs sharing a block are compared bit by bit.
+ * <p>
+ * Each table holds (block << 32 | entry) longs. Paragraphs added since the last rebuild
+ * sit in a small unsorted tail that queries scan directly; the tables are re-sorted once
+ * the tail, or the paragraphs of removed uploads, grow past an eighth of the indexed
+ * entries. Removed uploads are dropped from the entry arrays on every re-sort.
+ */
+public class SimHashIndex {
+
+    public record ParagraphMatch(int uploadId, int start, int end, int distance) {}
+
+    private static final int MIN_TAIL = 1024;
+
+    private final int maxDistance;
+    private final int[] blockOffsets;
+    private final int[] blockWidths;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IntIntMap documents = new IntIntMap(1024);
+    private IntIntMap removed = new IntIntMap(64);
+    private long[][] tables;
+    private long[] hashes;
+    private int[] uploadIds;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+    private int indexed;
+    private int removedParagraphs;
+
+    public SimHashIndex(int maxDistance, int expectedParagraphs) {
+        if (maxDistance < 1 || maxDistance > 7) {
+            throw new IllegalArgumentException("maxDistance must be between 1 and 7");
+        }
+        this.maxDistance = maxDistance;
+        int blocks = maxDistance + 1;
+        this.blockOffsets = new int[blocks];
+        this.blockWidths = new int[blocks];
+        for (int b = 0, offset = 0; b < blocks; b++) {
+            blockWidths[b] = 64 / blocks + (b < 64 % blocks ? 1 : 0);
+            blockOffsets[b] = offset;
+            offset += blockWidths[b];
+        }
+        int capacity = Math.max(16, expectedParagraphs);
+        this.tables = new long[blocks][0];
+        this.hashes = new long[capacity];
+        this.uploadIds = new int[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+    }
+
+    public void add(int uploadId, Paragraphs paragraphs) {
+        lock.writeLock().lock();
+        try {
+            if (removed.get(uploadId) != 0) {
+                // Purge the old paragraphs before the upload comes back
+                rebuildTables();
+            }
+            if (documents.containsKey(uploadId)) {
+                return;
+            }
+            documents.put(uploadId, paragraphs.size());
+            if (size + paragraphs.size() > hashes.length) {
+                int capacity = Math.max(size + paragraphs.size(), hashes.length * 2);
+                hashes = Arrays.copyOf(hashes, capacity);
+                uploadIds = Arrays.copyOf(uploadIds, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+            }
+            for (int i = 0; i < paragraphs.size(); i++) {
+                hashes[size] = paragraphs.hash(i);
+                uploadIds[size] = uploadId;
+                starts[size] = paragraphs.start(i);
+                ends[size] = paragraphs.end(i);
+                size++;
+            }
+            if (size - indexed > Math.max(MIN_TAIL, indexed / 8)) {
+                rebuildTables();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int uploadId) {
+        lock.writeLock().lock();
+        try {
+            if (!documents.containsKey(uploadId) || removed.get(uploadId) != 0) {
+                return;
+            }
+            removed.put(uploadId, 1);
+            removedParagraphs += documents.get(uploadId);
+            if (removedParagraphs > Math.max(MIN_TAIL, size / 8)) {
+                rebuildTables();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Stored paragraphs within maxDistance bits of the hash, closest first. */
+    public List<ParagraphMatch> query(long hash, int excludeUploadId) {
+        List<ParagraphMatch> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int t = 0; t < tables.length; t++) {
+                long[] table = tables[t];
+                long block = block(hash, t);
+                for (int i = lowerBound(table, block << 32); i < table.length && table[i] >>> 32 == block; i++) {
+                    int entry = (int) table[i];
+                    // An entry agreeing on several blocks is reported from the first of them only
+                    if (firstSharedBlock(hash, hashes[entry]) == t) {
+                        collect(entry, hash, excludeUploadId, matches);
+                    }
+                }
+            }
+            for (int entry = indexed; entry < size; entry++) {
+                collect(entry, hash, excludeUploadId, matches);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort((a, b) -> Integer.compare(a.distance(), b.distance()));
+        return matches;
+    }
+
+    /** Paragraphs of uploads that have not been removed. */
+    public int paragraphCount() {
+        lock.readLock().lock();
+        try {
+            return size - removedParagraphs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Entries still held, including removed ones awaiting the next re-sort
+    int storedEntries() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(int entry, long hash, int excludeUploadId, List<ParagraphMatch> matches) {
+        int distance = Long.bitCount(hash ^ hashes[entry]);
+        int uploadId = uploadIds[entry];
+        if (distance <= maxDistance && uploadId != excludeUploadId && removed.get(uploadId) == 0) {
+            matches.add(new ParagraphMatch(uploadId, starts[entry], ends[entry], distance));
+        }
+    }
+
+    private long block(long hash, int t) {
+        return Long.rotateLeft(hash, blockOffsets[t]) >>> (64 - blockWidths[t]);
+    }
+
+    private int firstSharedBlock(long a, long b) {
+        for (int t = 0; t < blockOffsets.length; t++) {
+            if (block(a, t) == block(b, t)) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    private void rebuildTables() {
+        if (removed.size() > 0) {
+            dropRemoved();
+        }
+        long[][] rebuilt = new long[tables.length][];
+        for (int t = 0; t < tables.length; t++) {
+            long[] table = new long[size];
+            for (int entry = 0; entry < size; entry++) {
+                table[entry] = block(hashes[entry], t) << 32 | entry;
+            }
+            Arrays.sort(table);
+            rebuilt[t] = table;
+        }
+        tables = rebuilt;
+        indexed = size;
+    }
+
+    private void dropRemoved() {
+        int kept = 0;
+        for (int entry = 0; entry < size; entry++) {
+            if (removed.get(uploadIds[entry]) == 0) {
+                hashes[kept] = hashes[entry];
+                uploadIds[kept] = uploadIds[entry];
+                starts[kept] = starts[entry];
+                ends[kept] = ends[entry];
+                kept++;
+            }
+        }
+        size = kept;
+        if (size < hashes.length / 4) {
+            int capacity = Math.max(16, size * 2);
+            hashes = Arrays.copyOf(hashes, capacity);
+            uploadIds = Arrays.copyOf(uploadIds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        IntIntMap live = new IntIntMap(Math.max(1024, documents.size() - removed.size()));
+        documents.forEach((uploadId, paragraphs) -> {
+            if (removed.get(uploadId) == 0) {
+                live.put(uploadId, paragraphs);
+            }
+        });
+        documents = live;
+        removed = new IntIntMap(64);
+        removedParagraphs = 0;
+    }
+
+    private static int lowerBound(long[] table, long key) {
+        int low = 0;
+        int high = table.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (table[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,187 @@
+package com.plagiguard.similarity;
+
+import java.util.Arrays;
+
+/**
+ * Linear-time suffix array construction (SA-IS, Nong, Zhang and Chan) over integer
+ * alphabets, plus Kasai's LCP array.
+ */
+public final class SuffixArrays {
+    private static final int NAIVE_THRESHOLD = 10;
+
+    private SuffixArrays() {}
+
+    /** Suffix array of s, whose values must lie in [0, upper]. */
+    public static int[] suffixArray(int[] s, int upper) {
+        int n = s.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        if (n == 1) {
+            return new int[] {0};
+        }
+        if (n < NAIVE_THRESHOLD) {
+            return naive(s);
+        }
+
+        int[] sa = new int[n];
+        boolean[] ls = new boolean[n];
+        for (int i = n - 2; i >= 0; i--) {
+            ls[i] = s[i] == s[i + 1] ? ls[i + 1] : s[i] < s[i + 1];
+        }
+        int[] sumL = new int[upper + 2];
+        int[] sumS = new int[upper + 2];
+        for (int i = 0; i < n; i++) {
+            if (!ls[i]) {
+                sumS[s[i]]++;
+            } else {
+                sumL[s[i] + 1]++;
+            }
+        }
+        for (int i = 0; i <= upper; i++) {
+            sumS[i] += sumL[i];
+            if (i < upper) {
+                sumL[i + 1] += sumS[i];
+            }
+        }
+
+        int[] lmsMap = new int[n + 1];
+        Arrays.fill(lmsMap, -1);
+        int m = 0;
+        for (int i = 1; i < n; i++) {
+            if (!ls[i - 1] && ls[i]) {
+                lmsMap[i] = m++;
+            }
+        }
+        int[] lms = new int[m];
+        for (int i = 1, j = 0; i < n; i++) {
+            if (!ls[i - 1] && ls[i]) {
+                lms[j++] = i;
+            }
+        }
+
+        induce(s, sa, ls, sumS, sumL, upper, lms);
+
+        if (m > 0) {
+            int[] sortedLms = new int[m];
+            int k = 0;
+            for (int v : sa) {
+                if (lmsMap[v] != -1) {
+                    sortedLms[k++] = v;
+                }
+            }
+            int[] recS = new int[m];
+            int recUpper = 0;
+            recS[lmsMap[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i++) {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                int endL = lmsMap[l] + 1 < m ? lms[lmsMap[l] + 1] : n;
+                int endR = lmsMap[r] + 1 < m ? lms[lmsMap[r] + 1] : n;
+                boolean same = true;
+                if (endL - l != endR - r) {
+                    same = false;
+                } else {
+                    while (l < endL && s[l] == s[r]) {
+                        l++;
+                        r++;
+                    }
+                    if (l == n || s[l] != s[r]) {
+                        same = false;
+                    }
+                }
+                if (!same) {
+                    recUpper++;
+                }
+                recS[lmsMap[sortedLms[i]]] = recUpper;
+            }
+            int[] recSa = suffixArray(recS, recUpper);
+            for (int i = 0; i < m; i++) {
+                sortedLms[i] = lms[recSa[i]];
+            }
+            induce(s, sa, ls, sumS, sumL, upper, sortedLms);
+        }
+        return sa;
+    }
+
+    /** lcp[i] is the longest common prefix of suffixes sa[i] and sa[i + 1]. */
+    public static int[] lcpArray(int[] s, int[] sa) {
+        int n = s.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[sa[i]] = i;
+        }
+        int[] lcp = new int[n - 1];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            if (h > 0) {
+                h--;
+            }
+            if (rank[i] == 0) {
+                continue;
+            }
+            int j = sa[rank[i] - 1];
+            while (j + h < n && i + h < n && s[j + h] == s[i + h]) {
+                h++;
+            }
+            lcp[rank[i] - 1] = h;
+        }
+        return lcp;
+    }
+
+    private static void induce(int[] s, int[] sa, boolean[] ls, int[] sumS, int[] sumL, int upper, int[] lms) {
+        int n = s.length;
+        Arrays.fill(sa, -1);
+        int[] buf = Arrays.copyOf(sumS, upper + 1);
+        for (int d : lms) {
+            if (d != n) {
+                sa[buf[s[d]]++] = d;
+            }
+        }
+        buf = Arrays.copyOf(sumL, upper + 1);
+        sa[buf[s[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; i++) {
+            int v = sa[i];
+            if (v >= 1 && !ls[v - 1]) {
+                sa[buf[s[v - 1]]++] = v - 1;
+            }
+        }
+        buf = Arrays.copyOf(sumL, upper + 2);
+        for (int i = n - 1; i >= 0; i--) {
+            int v = sa[i];
+            if (v >= 1 && ls[v - 1]) {
+                sa[--buf[s[v - 1] + 1]] = v - 1;
+            }
+        }
+    }
+
+    private static int[] naive(int[] s) {
+        Integer[] order = new Integer[s.length];
+        for (int i = 0; i < s.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            if (a.equals(b)) {
+                return 0;
+            }
+            int i = a;
+            int j = b;
+            while (i < s.length && j < s.length) {
+                if (s[i] != s[j]) {
+                    return Integer.compare(s[i], s[j]);
+                }
+                i++;
+                j++;
+            }
+            return i == s.length ? -1 : 1;
+        });
+        int[] sa = new int[s.length];
+        for (int i = 0; i < s.length; i++) {
+            sa[i] = order[i];
+        }
+        return sa;
+    }
+}
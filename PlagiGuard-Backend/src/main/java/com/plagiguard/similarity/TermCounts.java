@@ -0,0 +1,54 @@
+package com.plagiguard.similarity;
+
+import java.util.Arrays;
+
+import com.plagiguard.util.TokenStream;
+
+/**
+ * Bag of words of one document: distinct term hashes in ascending order with the number
+ * of times each occurs. Hashes rather than dictionary ids are kept so that the counts
+ * can be persisted and reloaded into any dictionary.
+ */
+public final class TermCounts {
+    public static final TermCounts EMPTY = new TermCounts(new long[0], new int[0], 0);
+
+    private final long[] hashes;
+    private final int[] counts;
+    private final int size;
+
+    public TermCounts(long[] hashes, int[] counts, int size) {
+        this.hashes = hashes;
+        this.counts = counts;
+        this.size = size;
+    }
+
+    public static TermCounts of(TokenStream tokens) {
+        long[] sorted = tokens.hashes();
+        Arrays.sort(sorted);
+        long[] hashes = new long[sorted.length];
+        int[] counts = new int[sorted.length];
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size > 0 && hashes[size - 1] == sorted[i]) {
+                counts[size - 1]++;
+            } else {
+                hashes[size] = sorted[i];
+                counts[size] = 1;
+                size++;
+            }
+        }
+        return new TermCounts(hashes, counts, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long hash(int i) {
+        return hashes[i];
+    }
+
+    public int count(int i) {
+        return counts[i];
+    }
+}
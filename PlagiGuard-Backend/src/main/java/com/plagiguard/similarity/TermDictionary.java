@@ -0,0 +1,70 @@
+package com.plagiguard.similarity;
+
+/**
+ * Assigns dense int ids to term hashes, in first-seen order, so per-term statistics
+ * can live in plain arrays indexed by id. Not thread-safe; callers provide their own locking.
+ */
+public final class TermDictionary {
+    private long[] keys;
+    private int[] ids;
+    private int size;
+
+    public TermDictionary(int expectedTerms) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedTerms * 2) - 1) << 1;
+        keys = new long[capacity];
+        ids = new int[capacity];
+    }
+
+    /** Id of the term, or -1 when it has never been seen. */
+    public int find(long hash) {
+        int mask = keys.length - 1;
+        for (int slot = (int) LongPostingsMap.mix(hash) & mask; ids[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == hash) {
+                return ids[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /** Id of the term, assigning the next free id on first sight. */
+    public int id(long hash) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = (int) LongPostingsMap.mix(hash) & mask;
+        while (ids[slot] != 0) {
+            if (keys[slot] == hash) {
+                return ids[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = hash;
+        // Ids are stored plus one so that zero marks an empty slot
+        ids[slot] = ++size;
+        return size - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new long[oldKeys.length << 1];
+        ids = new int[oldKeys.length << 1];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldIds[i] == 0) {
+                continue;
+            }
+            int slot = (int) LongPostingsMap.mix(oldKeys[i]) & mask;
+            while (ids[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            ids[slot] = oldIds[i];
+        }
+    }
+}
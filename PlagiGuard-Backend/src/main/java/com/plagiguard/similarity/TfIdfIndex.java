@@ -0,0 +1,473 @@
+package com.plagiguard.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * TF-IDF vector space over the stored uploads, ranked by cosine similarity. Each document
+ * keeps its term ids and log-scaled term frequencies as sorted parallel arrays; each term
+ * keeps a postings list of (document slot, weight) in slot order. Document frequencies are
+ * updated on every add and remove. Document norms depend on the idf of the moment, so they
+ * are recomputed whenever a tenth of the corpus has changed since the last refresh. The
+ * refresh also moves live documents down into contiguous slots and rebuilds every postings
+ * list at its exact size, so removed documents release their vectors and postings.
+ * <p>
+ * Queries run document-at-a-time with MaxScore pruning (Turtle and Flood): query terms are
+ * ordered by the most they can add to any score, and once the top-k heap's minimum exceeds
+ * the combined bound of the weakest terms, those terms stop producing candidates and are
+ * only looked up in the forward vectors of documents that can still make the heap.
+ */
+public class TfIdfIndex {
+
+    public record Scored(int uploadId, double cosine) {}
+
+    private static final int MIN_REFRESH_CHANGES = 1000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TermDictionary dictionary;
+    private int[] documentFrequency = new int[1024];
+    // Upper bound of weight / norm over the term's postings
+    private float[] maxNormalizedWeight = new float[1024];
+    private int[][] postingSlots = new int[1024][];
+    private float[][] postingWeights = new float[1024][];
+    private int[] postingSizes = new int[1024];
+
+    private IntIntMap slots = new IntIntMap(1024);
+    private int[][] documentTerms;
+    private float[][] documentWeights;
+    private float[] documentNorms;
+    private int[] uploadIds;
+    private boolean[] removed;
+    private int slotCount;
+    private int liveDocuments;
+    private int changesSinceRefresh;
+
+    public TfIdfIndex(int expectedDocuments, int expectedTerms) {
+        int capacity = Math.max(16, expectedDocuments);
+        this.dictionary = new TermDictionary(expectedTerms);
+        this.documentTerms = new int[capacity][];
+        this.documentWeights = new float[capacity][];
+        this.documentNorms = new float[capacity];
+        this.uploadIds = new int[capacity];
+        this.removed = new boolean[capacity];
+    }
+
+    public void add(int uploadId, TermCounts counts) {
+        lock.writeLock().lock();
+        try {
+            if (slots.containsKey(uploadId) && !removed[slots.get(uploadId)]) {
+                return;
+            }
+            // Sort by term id, carrying the count in the low bits
+            long[] packed = new long[counts.size()];
+            for (int i = 0; i < counts.size(); i++) {
+                int term = dictionary.id(counts.hash(i));
+                ensureTermCapacity(term);
+                documentFrequency[term]++;
+                packed[i] = (long) term << 32 | counts.count(i);
+            }
+            Arrays.sort(packed);
+            int[] terms = new int[packed.length];
+            float[] weights = new float[packed.length];
+            for (int i = 0; i < packed.length; i++) {
+                terms[i] = (int) (packed[i] >>> 32);
+                weights[i] = 1 + (float) Math.log((int) packed[i]);
+            }
+
+            if (slotCount == uploadIds.length) {
+                int capacity = slotCount * 2;
+                documentTerms = Arrays.copyOf(documentTerms, capacity);
+                documentWeights = Arrays.copyOf(documentWeights, capacity);
+                documentNorms = Arrays.copyOf(documentNorms, capacity);
+                uploadIds = Arrays.copyOf(uploadIds, capacity);
+                removed = Arrays.copyOf(removed, capacity);
+            }
+            int slot = slotCount++;
+            liveDocuments++;
+            slots.put(uploadId, slot);
+            uploadIds[slot] = uploadId;
+            documentTerms[slot] = terms;
+            documentWeights[slot] = weights;
+            float norm = norm(terms, weights);
+            documentNorms[slot] = norm;
+            for (int i = 0; i < terms.length; i++) {
+                appendPosting(terms[i], slot, weights[i]);
+                maxNormalizedWeight[terms[i]] = Math.max(maxNormalizedWeight[terms[i]], weights[i] / norm);
+            }
+            changesSinceRefresh++;
+            refreshIfStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int uploadId) {
+        lock.writeLock().lock();
+        try {
+            if (!slots.containsKey(uploadId) || removed[slots.get(uploadId)]) {
+                return;
+            }
+            int slot = slots.get(uploadId);
+            removed[slot] = true;
+            liveDocuments--;
+            for (int term : documentTerms[slot]) {
+                documentFrequency[term]--;
+            }
+            changesSinceRefresh++;
+            refreshIfStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int documentCount() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The k stored documents most similar to the query. Candidates are ranked on the
+     * query's maxQueryTerms highest-weighted terms, as "more like this" queries usually
+     * are; the reported cosine is then computed over the full query vector.
+     */
+    public List<Scored> query(TermCounts query, int k, int maxQueryTerms, int excludeUploadId) {
+        lock.readLock().lock();
+        try {
+            // Full query vector over the terms the corpus knows, sorted by term id
+            int[] queryTerms = new int[query.size()];
+            float[] queryWeights = new float[query.size()];
+            int size = 0;
+            for (int i = 0; i < query.size(); i++) {
+                int term = dictionary.find(query.hash(i));
+                if (term >= 0 && documentFrequency[term] > 0) {
+                    queryTerms[size] = term;
+                    queryWeights[size] = (1 + (float) Math.log(query.count(i))) * idf(term);
+                    size++;
+                }
+            }
+            if (size == 0 || k <= 0) {
+                return List.of();
+            }
+            sortByTerm(queryTerms, queryWeights, size);
+            double queryNorm = 0;
+            for (int i = 0; i < size; i++) {
+                queryNorm += queryWeights[i] * queryWeights[i];
+            }
+            queryNorm = Math.sqrt(queryNorm);
+
+            int[] selected = strongestTerms(queryWeights, size, maxQueryTerms);
+            int m = selected.length;
+            int[] terms = new int[m];
+            float[] coefficients = new float[m];
+            float[] bounds = new float[m];
+            for (int i = 0; i < m; i++) {
+                terms[i] = queryTerms[selected[i]];
+                coefficients[i] = queryWeights[selected[i]] * idf(terms[i]);
+                bounds[i] = coefficients[i] * maxNormalizedWeight[terms[i]];
+            }
+            orderByBound(terms, coefficients, bounds);
+            float[] prefixBounds = new float[m];
+            for (int i = 0; i < m; i++) {
+                prefixBounds[i] = bounds[i] + (i > 0 ? prefixBounds[i - 1] : 0);
+            }
+
+            TopK heap = new TopK(k);
+            int[] cursors = new int[m];
+            int firstEssential = 0;
+            while (true) {
+                int slot = Integer.MAX_VALUE;
+                for (int i = firstEssential; i < m; i++) {
+                    if (cursors[i] < postingSizes[terms[i]]) {
+                        slot = Math.min(slot, postingSlots[terms[i]][cursors[i]]);
+                    }
+                }
+                if (slot == Integer.MAX_VALUE) {
+                    break;
+                }
+                float norm = documentNorms[slot];
+                float score = 0;
+                for (int i = firstEssential; i < m; i++) {
+                    int term = terms[i];
+                    if (cursors[i] < postingSizes[term] && postingSlots[term][cursors[i]] == slot) {
+                        score += coefficients[i] * postingWeights[term][cursors[i]] / norm;
+                        cursors[i]++;
+                    }
+                }
+                if (removed[slot] || uploadIds[slot] == excludeUploadId) {
+                    continue;
+                }
+                boolean competitive = true;
+                for (int i = firstEssential - 1; i >= 0; i--) {
+                    if (heap.isFull() && score + prefixBounds[i] <= heap.minScore()) {
+                        competitive = false;
+                        break;
+                    }
+                    int at = Arrays.binarySearch(documentTerms[slot], terms[i]);
+                    if (at >= 0) {
+                        score += coefficients[i] * documentWeights[slot][at] / norm;
+                    }
+                }
+                if (competitive && heap.offer(slot, score) && heap.isFull()) {
+                    while (firstEssential < m && prefixBounds[firstEssential] <= heap.minScore()) {
+                        firstEssential++;
+                    }
+                }
+            }
+
+            List<Scored> results = new ArrayList<>(heap.size());
+            for (int i = 0; i < heap.size(); i++) {
+                int slot = heap.slot(i);
+                double dot = dot(queryTerms, queryWeights, size, slot);
+                results.add(new Scored(uploadIds[slot], dot / (queryNorm * documentNorms[slot])));
+            }
+            results.sort(Comparator.comparingDouble(Scored::cosine).reversed());
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private float idf(int term) {
+        return 1 + (float) Math.log((1.0 + liveDocuments) / (1.0 + documentFrequency[term]));
+    }
+
+    private float norm(int[] terms, float[] weights) {
+        double sum = 0;
+        for (int i = 0; i < terms.length; i++) {
+            float w = weights[i] * idf(terms[i]);
+            sum += w * w;
+        }
+        return sum == 0 ? 1 : (float) Math.sqrt(sum);
+    }
+
+    private double dot(int[] queryTerms, float[] queryWeights, int size, int slot) {
+        int[] terms = documentTerms[slot];
+        float[] weights = documentWeights[slot];
+        double dot = 0;
+        for (int i = 0, j = 0; i < size && j < terms.length; ) {
+            if (queryTerms[i] < terms[j]) {
+                i++;
+            } else if (queryTerms[i] > terms[j]) {
+                j++;
+            } else {
+                dot += queryWeights[i] * weights[j] * idf(terms[j]);
+                i++;
+                j++;
+            }
+        }
+        return dot;
+    }
+
+    private void appendPosting(int term, int slot, float weight) {
+        int size = postingSizes[term];
+        if (postingSlots[term] == null) {
+            postingSlots[term] = new int[4];
+            postingWeights[term] = new float[4];
+        } else if (size == postingSlots[term].length) {
+            postingSlots[term] = Arrays.copyOf(postingSlots[term], size * 2);
+            postingWeights[term] = Arrays.copyOf(postingWeights[term], size * 2);
+        }
+        postingSlots[term][size] = slot;
+        postingWeights[term][size] = weight;
+        postingSizes[term] = size + 1;
+    }
+
+    private void ensureTermCapacity(int term) {
+        if (term >= documentFrequency.length) {
+            int capacity = Math.max(term + 1, documentFrequency.length * 2);
+            documentFrequency = Arrays.copyOf(documentFrequency, capacity);
+            maxNormalizedWeight = Arrays.copyOf(maxNormalizedWeight, capacity);
+            postingSlots = Arrays.copyOf(postingSlots, capacity);
+            postingWeights = Arrays.copyOf(postingWeights, capacity);
+            postingSizes = Arrays.copyOf(postingSizes, capacity);
+        }
+    }
+
+    private void refreshIfStale() {
+        if (changesSinceRefresh >= Math.max(MIN_REFRESH_CHANGES, liveDocuments / 10)) {
+            refresh();
+        }
+    }
+
+    /** Recomputes norms and bounds, compacting slots and postings. */
+    void refresh() {
+        lock.writeLock().lock();
+        try {
+            rebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        compactSlots();
+        Arrays.fill(maxNormalizedWeight, 0);
+        for (int term = 0; term < postingSizes.length; term++) {
+            // Document frequencies are exact, so every list is rebuilt at its final size
+            int frequency = documentFrequency[term];
+            postingSlots[term] = frequency == 0 ? null : new int[frequency];
+            postingWeights[term] = frequency == 0 ? null : new float[frequency];
+            postingSizes[term] = 0;
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            int[] terms = documentTerms[slot];
+            float[] weights = documentWeights[slot];
+            float norm = norm(terms, weights);
+            documentNorms[slot] = norm;
+            for (int i = 0; i < terms.length; i++) {
+                appendPosting(terms[i], slot, weights[i]);
+                maxNormalizedWeight[terms[i]] = Math.max(maxNormalizedWeight[terms[i]], weights[i] / norm);
+            }
+        }
+        changesSinceRefresh = 0;
+    }
+
+    // Live documents keep their relative order, so postings rebuilt in slot order stay sorted
+    private void compactSlots() {
+        int kept = 0;
+        slots = new IntIntMap(Math.max(1024, liveDocuments));
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (removed[slot]) {
+                continue;
+            }
+            documentTerms[kept] = documentTerms[slot];
+            documentWeights[kept] = documentWeights[slot];
+            uploadIds[kept] = uploadIds[slot];
+            removed[kept] = false;
+            slots.put(uploadIds[kept], kept);
+            kept++;
+        }
+        Arrays.fill(documentTerms, kept, slotCount, null);
+        Arrays.fill(documentWeights, kept, slotCount, null);
+        slotCount = kept;
+        int capacity = Math.max(16, kept * 2);
+        if (uploadIds.length > capacity * 2) {
+            documentTerms = Arrays.copyOf(documentTerms, capacity);
+            documentWeights = Arrays.copyOf(documentWeights, capacity);
+            documentNorms = Arrays.copyOf(documentNorms, capacity);
+            uploadIds = Arrays.copyOf(uploadIds, capacity);
+            removed = Arrays.copyOf(removed, capacity);
+        }
+    }
+
+    /** Indexes of the n largest weights. */
+    private static int[] strongestTerms(float[] weights, int size, int n) {
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            // Positive floats order the same as their bit patterns
+            packed[i] = (long) Float.floatToIntBits(weights[i]) << 32 | i;
+        }
+        Arrays.sort(packed);
+        int count = Math.min(n, size);
+        int[] selected = new int[count];
+        for (int i = 0; i < count; i++) {
+            selected[i] = (int) packed[size - 1 - i];
+        }
+        return selected;
+    }
+
+    private static void sortByTerm(int[] terms, float[] weights, int size) {
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            packed[i] = (long) terms[i] << 32 | Float.floatToIntBits(weights[i]) & 0xFFFFFFFFL;
+        }
+        Arrays.sort(packed);
+        for (int i = 0; i < size; i++) {
+            terms[i] = (int) (packed[i] >>> 32);
+            weights[i] = Float.intBitsToFloat((int) packed[i]);
+        }
+    }
+
+    private static void orderByBound(int[] terms, float[] coefficients, float[] bounds) {
+        long[] packed = new long[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            packed[i] = (long) Float.floatToIntBits(bounds[i]) << 32 | i;
+        }
+        Arrays.sort(packed);
+        int[] sortedTerms = new int[terms.length];
+        float[] sortedCoefficients = new float[terms.length];
+        float[] sortedBounds = new float[terms.length];
+        for (int i = 0; i < packed.length; i++) {
+            int from = (int) packed[i];
+            sortedTerms[i] = terms[from];
+            sortedCoefficients[i] = coefficients[from];
+            sortedBounds[i] = bounds[from];
+        }
+        System.arraycopy(sortedTerms, 0, terms, 0, terms.length);
+        System.arraycopy(sortedCoefficients, 0, coefficients, 0, terms.length);
+        System.arraycopy(sortedBounds, 0, bounds, 0, terms.length);
+    }
+
+    /** Bounded min-heap of (slot, score) keeping the k best scores. */
+    private static final class TopK {
+        private final int[] slots;
+        private final float[] scores;
+        private int size;
+
+        TopK(int k) {
+            slots = new int[k];
+            scores = new float[k];
+        }
+
+        boolean isFull() {
+            return size == slots.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        float minScore() {
+            return scores[0];
+        }
+
+        int slot(int i) {
+            return slots[i];
+        }
+
+        /** Returns true when the entry made it into the heap. */
+        boolean offer(int slot, float score) {
+            if (size < slots.length) {
+                int i = size++;
+                while (i > 0 && scores[(i - 1) / 2] > score) {
+                    slots[i] = slots[(i - 1) / 2];
+                    scores[i] = scores[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                slots[i] = slot;
+                scores[i] = score;
+                return true;
+            }
+            if (score <= scores[0]) {
+                return false;
+            }
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[child + 1] < scores[child]) {
+                    child++;
+                }
+                if (scores[child] >= score) {
+                    break;
+                }
+                slots[i] = slots[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            slots[i] = slot;
+            scores[i] = score;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.plagiguard.similarity;
+
+import java.util.Arrays;
+
+import com.plagiguard.util.TokenStream;
+
+/**
+ * Document fingerprinting by winnowing (Schleimer, Wilkerson and Aiken, the MOSS
+ * approach). Word k-grams of the normalized token stream are hashed with a rolling
+ * polynomial hash and the minimum hash of every window of consecutive k-grams is
+ * kept, so any shared run of at least window + k - 1 words yields a common fingerprint.
+ */
+public final class Winnowing {
+    private static final long BASE = 0x100000001b3L;
+
+    private Winnowing() {}
+
+    public static Fingerprints fingerprint(TokenStream tokens, int k, int window) {
+        int kgrams = tokens.size() - k + 1;
+        if (kgrams <= 0) {
+            return new Fingerprints(new long[0], new int[0], 0);
+        }
+
+        long[] kgramHashes = new long[kgrams];
+        long power = 1;
+        for (int i = 1; i < k; i++) {
+            power *= BASE;
+        }
+        long rolling = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i >= k) {
+                rolling -= tokens.hash(i - k) * power;
+            }
+            rolling = rolling * BASE + tokens.hash(i);
+            if (i >= k - 1) {
+                kgramHashes[i - k + 1] = LongPostingsMap.mix(rolling);
+            }
+        }
+        return winnow(kgramHashes, window);
+    }
+
+    // Robust winnowing: rightmost minimum per window, each selection recorded once
+    static Fingerprints winnow(long[] kgramHashes, int window) {
+        int n = kgramHashes.length;
+        int w = Math.min(window, n);
+        long[] hashes = new long[n / Math.max(1, w / 2) + 2];
+        int[] positions = new int[hashes.length];
+        int size = 0;
+        int minIndex = -1;
+
+        for (int end = w - 1; end < n; end++) {
+            int start = end - w + 1;
+            if (minIndex < start) {
+                minIndex = start;
+                for (int i = start + 1; i <= end; i++) {
+                    if (Long.compareUnsigned(kgramHashes[i], kgramHashes[minIndex]) <= 0) {
+                        minIndex = i;
+                    }
+                }
+            } else if (Long.compareUnsigned(kgramHashes[end], kgramHashes[minIndex]) <= 0) {
+                minIndex = end;
+            } else {
+                continue;
+            }
+            if (size == 0 || positions[size - 1] != minIndex) {
+                if (size == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, size * 2);
+                    positions = Arrays.copyOf(positions, size * 2);
+                }
+                hashes[size] = kgramHashes[minIndex];
+                positions[size] = minIndex;
+                size++;
+            }
+        }
+        return new Fingerprints(hashes, positions, size);
+    }
+}
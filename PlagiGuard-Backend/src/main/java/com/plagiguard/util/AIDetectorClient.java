@@ -1,103 +1,453 @@
 package com.plagiguard.util;
 
-import org.json.JSONObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Asynchronous client of the AI detector. Each call runs on a bounded pool sized to the
+ * HTTP connection pool; failed attempts are re-submitted from a timer after an exponential
+ * backoff with jitter, so no thread ever sleeps while the detector is unavailable. With
+ * ai.detector.batch.max.size above one, texts of concurrent callers are coalesced into
+ * /detect_batch requests by a {@link DetectionBatcher}; a replica answering 404 or 405 there
+ * predates the endpoint and gets the texts one by one on /detect until it is probed again
+ * BATCH_REPROBE_MS later. Every HTTP call first takes a
+ * {@link VegasLimiter} permit, waiting in its queue while the adaptive limit is reached,
+ * then a bulkhead permit and a circuit breaker permit; when any is refused the call fails
+ * at once and is not retried. Calls are spread over the replicas in ai.detector.urls by
+ * {@link DetectorEndpoints} and hedged to a second replica when they run past the recent
+ * p95 round trip of their replica and call type. A hedge holds limiter and bulkhead
+ * permits of its own, and every request releases its limiter permit with its own round
+ * trip. Request bodies are streamed to the connection by {@link DetectorJson},
+ * gzip-compressed from ai.detector.gzip.threshold.bytes of text on, and replies are
+ * parsed as they arrive.
+ */
 @Component
 public class AIDetectorClient {
     private static final Logger LOGGER = LoggerFactory.getLogger(AIDetectorClient.class);
-    private static final int MAX_RETRIES = 3;
-    private static final int RETRY_DELAY_MS = 2000;
-    
-    // Set the AI microservice URL as a constant for deployment
-    private final String AI_API_URL = "https://plagiguard-production.up.railway.app";
-    private final String aiDetectorUrl;
+    private static final long BATCH_REPROBE_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final DetectorEndpoints endpoints;
     private final RestTemplate restTemplate;
-    
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final ExecutorService requestExecutor;
+    private final ScheduledExecutorService retryScheduler;
+    private final DetectionBatcher batcher;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final VegasLimiter limiter;
+    private final boolean hedgeEnabled;
+    private final double hedgePercentile;
+    private final int hedgeMinSamples;
+    private final Counter hedgedRequests;
+    private final long gzipThresholdBytes;
+    // Replicas without /detect_batch, by when it was last found missing
+    private final Map<String, Long> batchUnsupported = new ConcurrentHashMap<>();
+
     public AIDetectorClient(
         @Value("${ai.detector.url:https://plagiguard-production.up.railway.app}") String aiDetectorUrl,
-        RestTemplate restTemplate
+        @Value("${ai.detector.urls:}") String aiDetectorUrls,
+        @Value("${ai.detector.health.check.interval.seconds:60}") long healthCheckIntervalSeconds,
+        @Value("${ai.detector.hedge.enabled:true}") boolean hedgeEnabled,
+        @Value("${ai.detector.hedge.percentile:0.95}") double hedgePercentile,
+        @Value("${ai.detector.hedge.min.samples:50}") int hedgeMinSamples,
+        @Value("${ai.detector.retry.max.attempts:3}") int maxAttempts,
+        @Value("${ai.detector.retry.initial.backoff.ms:500}") long initialBackoffMs,
+        @Value("${ai.detector.retry.max.backoff.ms:8000}") long maxBackoffMs,
+        @Value("${ai.detector.pool.max.per.route:20}") int requestThreads,
+        @Value("${ai.detector.batch.max.size:16}") int maxBatchSize,
+        @Value("${ai.detector.batch.max.wait.ms:5}") long maxBatchWaitMs,
+        @Value("${ai.detector.limit.initial:8}") int initialLimit,
+        @Value("${ai.detector.limit.min:2}") int minLimit,
+        @Value("${ai.detector.limit.max:64}") int maxLimit,
+        @Value("${ai.detector.limit.max.queue:256}") int maxQueue,
+        @Value("${ai.detector.gzip.threshold.bytes:16384}") long gzipThresholdBytes,
+        RestTemplate restTemplate,
+        CircuitBreaker aiDetectorCircuitBreaker,
+        Bulkhead aiDetectorBulkhead,
+        MeterRegistry meterRegistry
     ) {
-        // Use the constant if not running locally
-        if (AI_API_URL.startsWith("http")) {
-            this.aiDetectorUrl = AI_API_URL + "/detect";
-        } else {
-            this.aiDetectorUrl = aiDetectorUrl + "/detect";
+        // ai.detector.urls lists the replicas; a single ai.detector.url is the one-replica pool
+        List<String> baseUrls = new ArrayList<>();
+        for (String url : (aiDetectorUrls.isBlank() ? aiDetectorUrl : aiDetectorUrls).split(",")) {
+            if (!url.isBlank()) {
+                baseUrls.add(url.trim());
+            }
         }
+        this.endpoints = new DetectorEndpoints(baseUrls, meterRegistry);
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinSamples = hedgeMinSamples;
+        this.hedgedRequests = Counter.builder("ai.detector.hedged.requests")
+            .description("Duplicate detector calls sent after the first exceeded the hedge percentile")
+            .register(meterRegistry);
         this.restTemplate = restTemplate;
+        this.gzipThresholdBytes = gzipThresholdBytes;
+        this.circuitBreaker = aiDetectorCircuitBreaker;
+        this.bulkhead = aiDetectorBulkhead;
+        this.limiter = new VegasLimiter(initialLimit, minLimit, maxLimit, maxQueue, meterRegistry);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = Math.max(1, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+        AtomicInteger threads = new AtomicInteger();
+        this.requestExecutor = Executors.newFixedThreadPool(Math.max(1, requestThreads),
+            r -> new Thread(r, "ai-detector-" + threads.incrementAndGet()));
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "ai-detector-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Hedge timers are cancelled for nearly every call; drop them from the queue right away
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.retryScheduler = scheduler;
+        if (healthCheckIntervalSeconds > 0) {
+            retryScheduler.scheduleWithFixedDelay(() -> requestExecutor.execute(this::checkHealth),
+                healthCheckIntervalSeconds, healthCheckIntervalSeconds, TimeUnit.SECONDS);
+        }
+        this.batcher = maxBatchSize > 1
+            ? new DetectionBatcher(this::detectBatch, retryScheduler, maxBatchSize, Math.max(1, maxBatchWaitMs), meterRegistry)
+            : null;
+    }
+
+    /** Scores the text, completing exceptionally once every attempt has failed. */
+    public CompletableFuture<DetectionResult> detect(String text) {
+        if (batcher != null) {
+            return batcher.submit(text);
+        }
+        RequestCallback body = jsonBody(text.length(), DetectorJson.text(text));
+        CompletableFuture<DetectionResult> result = new CompletableFuture<>();
+        attempt((baseUrl, attempt) -> post(baseUrl, body, attempt), DetectorEndpoints.Call.SINGLE, 1, result);
+        return result;
+    }
+
+    /** Scores the texts in one request; results are in input order. */
+    public CompletableFuture<List<DetectionResult>> detectBatch(List<String> texts) {
+        long chars = 0;
+        for (String text : texts) {
+            chars += text.length();
+        }
+        RequestCallback body = jsonBody(chars, DetectorJson.texts(texts));
+        CompletableFuture<List<DetectionResult>> result = new CompletableFuture<>();
+        attempt((baseUrl, attempt) -> postBatch(baseUrl, texts, body, attempt), DetectorEndpoints.Call.BATCH, 1,
+            result);
+        return result;
+    }
+
+    // Writes the body on every attempt, so retries and hedges never share a buffer
+    private RequestCallback jsonBody(long textChars, DetectorJson.Fields fields) {
+        // Characters are a lower bound of the UTF-8 size, which is good enough for the threshold
+        boolean gzip = textChars >= gzipThresholdBytes;
+        return request -> {
+            HttpHeaders headers = request.getHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+            if (gzip) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            if (request instanceof StreamingHttpOutputMessage streaming) {
+                streaming.setBody(out -> DetectorJson.write(out, gzip, fields));
+            } else {
+                DetectorJson.write(request.getBody(), gzip, fields);
+            }
+        };
+    }
+
+    private <T> void attempt(Exchange<T> call, DetectorEndpoints.Call type, int attempt, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            return;
+        }
+        limiter.acquire().whenComplete((permit, refused) -> {
+            if (refused != null) {
+                result.completeExceptionally(refused);
+            } else {
+                call(call, type, attempt, result);
+            }
+        });
     }
-    
-    public JSONObject checkAIContent(String text) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        
-        JSONObject request = new JSONObject();
-        request.put("text", text);
-        
-        HttpEntity<String> entity = new HttpEntity<>(request.toString(), headers);
-        Exception lastException = null;
-
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+
+    // Runs one attempt holding a limiter permit, which passes to the first request sent
+    private <T> void call(Exchange<T> call, DetectorEndpoints.Call type, int attempt, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            limiter.onIgnore();
+            return;
+        }
+        if (!bulkhead.tryAcquirePermission()) {
+            limiter.onIgnore();
+            result.completeExceptionally(BulkheadFullException.createBulkheadFullException(bulkhead));
+            return;
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.onComplete();
+            limiter.onIgnore();
+            result.completeExceptionally(CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+            return;
+        }
+        long started = circuitBreaker.getCurrentTimestamp();
+        hedged(call, type, attempt).whenComplete((value, error) -> {
+            bulkhead.onComplete();
+            long elapsed = circuitBreaker.getCurrentTimestamp() - started;
+            if (error == null) {
+                circuitBreaker.onSuccess(elapsed, circuitBreaker.getTimestampUnit());
+                result.complete(value);
+                return;
+            }
+            Throwable cause = cause(error);
+            circuitBreaker.onError(elapsed, circuitBreaker.getTimestampUnit(), cause);
+            if (attempt >= maxAttempts || !retryable(cause)) {
+                result.completeExceptionally(new RuntimeException("Failed to get response from AI detector after "
+                    + attempt + " attempts. Last error: " + cause.getMessage(), cause));
+                return;
+            }
+            long delay = backoff(attempt);
+            LOGGER.warn("AI detector attempt {}/{} failed: {}; retrying in {} ms",
+                attempt, maxAttempts, cause.getMessage(), delay);
             try {
-                LOGGER.info("Attempting to connect to AI detector (attempt {}/{})", attempt, MAX_RETRIES);
-                
-                ResponseEntity<String> response = restTemplate.postForEntity(
-                    aiDetectorUrl, 
-                    entity, 
-                    String.class
-                );
-                
-                if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                    JSONObject result = new JSONObject(response.getBody());
-                    if ("success".equals(result.optString("status"))) {
-                        return result;
-                    }
-                    throw new RuntimeException("Invalid response from AI detector: " + response.getBody());
+                retryScheduler.schedule(() -> attempt(call, type, attempt + 1, result), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    /**
+     * Sends the call to a replica and, once it has been outstanding for the replica's recent
+     * latency percentile for this call type, a duplicate to another replica; the first
+     * success wins. The duplicate needs a limiter and a bulkhead permit of its own and is
+     * skipped when either is not free at once: a hedge that has to queue is no longer early.
+     */
+    private <T> CompletableFuture<T> hedged(Exchange<T> call, DetectorEndpoints.Call type, int attempt) {
+        DetectorEndpoints.Endpoint primary = endpoints.choose(null);
+        CompletableFuture<T> first = send(call, type, primary, attempt);
+        long delayNanos = hedgeEnabled && endpoints.size() > 1
+            ? endpoints.latencyPercentile(primary, type, hedgePercentile, hedgeMinSamples)
+            : -1;
+        if (delayNanos <= 0) {
+            return first;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        BiConsumer<T, Throwable> settle = (value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (running.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        };
+        ScheduledFuture<?> hedge;
+        try {
+            hedge = retryScheduler.schedule(() -> {
+                DetectorEndpoints.Endpoint secondary = endpoints.choose(primary);
+                if (first.isDone() || secondary == null || !limiter.tryAcquire()) {
+                    return;
                 }
-                
-                throw new RuntimeException("Invalid response code from AI detector: " + response.getStatusCode());
-                
-            } catch (ResourceAccessException e) {
-                lastException = e;
-                LOGGER.error("Failed to connect to AI detector (attempt {}/{}): {}", 
-                    attempt, MAX_RETRIES, e.getMessage());
-                
-                if (attempt < MAX_RETRIES) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Interrupted while waiting to retry", ie);
-                    }
+                if (!bulkhead.tryAcquirePermission()) {
+                    limiter.onIgnore();
+                    return;
                 }
-            } catch (Exception e) {
-                lastException = e;
-                LOGGER.error("Error from AI detector (attempt {}/{}): {}", 
-                    attempt, MAX_RETRIES, e.getMessage());
-                
-                if (attempt < MAX_RETRIES) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Interrupted while waiting to retry", ie);
+                running.incrementAndGet();
+                hedgedRequests.increment();
+                send(call, type, secondary, attempt).whenComplete((value, error) -> {
+                    bulkhead.onComplete();
+                    settle.accept(value, error);
+                });
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            return first;
+        }
+        first.whenComplete((value, error) -> {
+            hedge.cancel(false);
+            settle.accept(value, error);
+        });
+        return result;
+    }
+
+    // Releases the limiter permit the request holds once the request itself completes, with its
+    // own round trip: a request that lost to its hedge still loads the detector until then, and
+    // the winner's shorter round trip must not stand in for it
+    private <T> CompletableFuture<T> send(Exchange<T> call, DetectorEndpoints.Call type,
+            DetectorEndpoints.Endpoint endpoint, int attempt) {
+        long started = System.nanoTime();
+        endpoint.started();
+        try {
+            return CompletableFuture.supplyAsync(() -> call.exchange(endpoint.baseUrl(), attempt), requestExecutor)
+                .whenComplete((value, error) -> {
+                    endpoint.finished();
+                    long rttNanos = System.nanoTime() - started;
+                    if (error == null) {
+                        endpoints.recordLatency(endpoint, type, rttNanos);
+                        limiter.onSuccess(rttNanos);
+                    } else if (overloaded(cause(error))) {
+                        limiter.onDropped();
+                    } else {
+                        limiter.onIgnore();
                     }
-                }
+                });
+        } catch (RejectedExecutionException e) {
+            endpoint.finished();
+            limiter.onIgnore();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void checkHealth() {
+        for (DetectorEndpoints.Endpoint endpoint : endpoints.all()) {
+            boolean healthy;
+            try {
+                healthy = restTemplate.getForEntity(endpoint.baseUrl() + "/health", String.class)
+                    .getStatusCode().is2xxSuccessful();
+            } catch (RuntimeException e) {
+                healthy = false;
             }
+            LOGGER.debug("AI detector replica {} is {}", endpoint.baseUrl(), healthy ? "healthy" : "unhealthy");
+            endpoints.setHealthy(endpoint, healthy);
+        }
+    }
+
+    /** Health-check state of every configured detector replica. */
+    public Map<String, Boolean> endpointHealth() {
+        return endpoints.health();
+    }
+
+    private DetectionResult post(String baseUrl, RequestCallback body, int attempt) {
+        LOGGER.debug("Calling AI detector at {} (attempt {}/{})", baseUrl, attempt, maxAttempts);
+        DetectorJson.Response response = exchange(baseUrl + "/detect", body);
+        if (response.result() == null) {
+            throw new RuntimeException("Invalid response from AI detector: missing ai_score or ai_generated");
+        }
+        return response.result();
+    }
+
+    private List<DetectionResult> postBatch(String baseUrl, List<String> texts, RequestCallback body, int attempt) {
+        Long missingSince = batchUnsupported.get(baseUrl);
+        if (missingSince != null && System.currentTimeMillis() - missingSince < BATCH_REPROBE_MS) {
+            return postEach(baseUrl, texts, attempt);
+        }
+        LOGGER.debug("Calling AI detector batch endpoint at {} (attempt {}/{})", baseUrl, attempt, maxAttempts);
+        DetectorJson.Response response;
+        try {
+            response = exchange(baseUrl + "/detect_batch", body);
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND && e.getStatusCode() != HttpStatus.METHOD_NOT_ALLOWED) {
+                throw e;
+            }
+            if (batchUnsupported.put(baseUrl, System.currentTimeMillis()) == null) {
+                LOGGER.warn("AI detector at {} has no /detect_batch ({}); sending texts to /detect one by one",
+                    baseUrl, e.getStatusCode());
+            }
+            return postEach(baseUrl, texts, attempt);
+        }
+        batchUnsupported.remove(baseUrl);
+        if (response.results() == null) {
+            throw new RuntimeException("Invalid response from AI detector: missing results");
+        }
+        return response.results();
+    }
+
+    private List<DetectionResult> postEach(String baseUrl, List<String> texts, int attempt) {
+        List<DetectionResult> results = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            results.add(post(baseUrl, jsonBody(text.length(), DetectorJson.text(text)), attempt));
         }
+        return results;
+    }
+
+    private DetectorJson.Response exchange(String url, RequestCallback body) {
+        return restTemplate.execute(url, HttpMethod.POST, body, AIDetectorClient::readResponse);
+    }
+
+    private static DetectorJson.Response readResponse(ClientHttpResponse response) throws IOException {
+        if (response.getStatusCode() != HttpStatus.OK) {
+            throw new RuntimeException("Invalid response code from AI detector: " + response.getStatusCode());
+        }
+        DetectorJson.Response result;
+        try {
+            result = DetectorJson.read(response.getBody());
+        } catch (JsonProcessingException e) {
+            // A garbled reply is the detector's fault, not the network's; keep it out of the overload signal
+            throw new RuntimeException("Invalid response from AI detector: " + e.getOriginalMessage(), e);
+        }
+        if (!"success".equals(result.status())) {
+            throw new RuntimeException("Invalid response from AI detector: status " + result.status()
+                + (result.error() != null ? ", " + result.error() : ""));
+        }
+        return result;
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // Timeouts, refused connections, 5xx and 429 mean the detector is saturated
+    private static boolean overloaded(Throwable error) {
+        return error instanceof ResourceAccessException
+            || error instanceof HttpServerErrorException
+            || error instanceof HttpClientErrorException clientError
+                && clientError.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    // A rejected request fails the same way on every attempt; only throttling is worth retrying
+    private static boolean retryable(Throwable error) {
+        return !(error instanceof HttpClientErrorException clientError)
+            || clientError.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    // Exponential backoff with equal jitter: half the capped delay plus a random share of the other half
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    @FunctionalInterface
+    private interface Exchange<T> {
+        T exchange(String baseUrl, int attempt);
+    }
 
-        throw new RuntimeException("Failed to get response from AI detector after " + 
-            MAX_RETRIES + " attempts. Last error: " + 
-            (lastException != null ? lastException.getMessage() : "Unknown error"));
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        requestExecutor.shutdown();
     }
 }
@@ -0,0 +1,391 @@
+package com.plagiguard.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Byte-level BPE tokenizer of GPT-2 and RoBERTa, loaded from the model's vocab.json and
+ * merges.txt, so windows can be sized in the detector's own tokens. Text is split by a
+ * hand-written scanner equivalent to the GPT-2 pre-tokenization pattern
+ * ('s|'t|'re|'ve|'m|'ll|'d| ?\p{L}+| ?\p{N}+| ?[^\s\p{L}\p{N}]+|\s+(?!\S)|\s+), each piece
+ * is mapped byte by byte to its initial symbols and pairs are merged by rank. Merge ranks
+ * live in an open-addressing long to int table keyed by the symbol pair, and symbols are
+ * ints in a reused scratch array. Counting remembers the token count of short pieces in
+ * a direct-mapped cache checked char by char, since most words of a document recur, so
+ * it allocates nothing per word.
+ */
+public final class BpeTokenizer {
+    private static final long EMPTY = -1L;
+    private static final int CACHE_SLOTS = 4096;
+    private static final int CACHE_PIECE_CHARS = 24;
+
+    private final int[] byteIds = new int[256];
+    private long[] pairs;
+    private int[] ranks;
+    private int size;
+    private final int[] mergedIds;
+
+    private BpeTokenizer(Map<String, Integer> vocab, BufferedReader merges) throws IOException {
+        char[] byteChars = byteChars();
+        for (int b = 0; b < 256; b++) {
+            Integer id = vocab.get(String.valueOf(byteChars[b]));
+            if (id == null) {
+                throw new IllegalArgumentException("Vocabulary lacks the symbol of byte " + b);
+            }
+            byteIds[b] = id;
+        }
+
+        int[] merged = new int[Math.max(16, vocab.size())];
+        pairs = new long[Integer.highestOneBit(Math.max(16, vocab.size() * 2) - 1) << 1];
+        ranks = new int[pairs.length];
+        Arrays.fill(pairs, EMPTY);
+        int rank = 0;
+        String line;
+        while ((line = merges.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#version")) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            if (space <= 0) {
+                throw new IllegalArgumentException("Malformed merge rule: " + line);
+            }
+            String left = line.substring(0, space);
+            String right = line.substring(space + 1).trim();
+            Integer leftId = vocab.get(left);
+            Integer rightId = vocab.get(right);
+            Integer mergedId = vocab.get(left + right);
+            if (leftId == null || rightId == null || mergedId == null) {
+                throw new IllegalArgumentException("Merge rule outside the vocabulary: " + line);
+            }
+            if (rank == merged.length) {
+                merged = Arrays.copyOf(merged, rank * 2);
+            }
+            merged[rank] = mergedId;
+            putRank(pair(leftId, rightId), rank++);
+        }
+        this.mergedIds = Arrays.copyOf(merged, rank);
+    }
+
+    /** Reads a Hugging Face vocab.json (token to id) and merges.txt (one "left right" rule per line, by rank). */
+    public static BpeTokenizer load(InputStream vocabJson, InputStream mergesTxt) throws IOException {
+        Map<String, Integer> vocab = new HashMap<>(65536);
+        try (JsonParser parser = new JsonFactory().createParser(vocabJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("vocab.json is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String token = parser.currentName();
+                parser.nextToken();
+                vocab.put(token, parser.getIntValue());
+            }
+        }
+        try (BufferedReader merges = new BufferedReader(new InputStreamReader(mergesTxt, StandardCharsets.UTF_8))) {
+            return new BpeTokenizer(vocab, merges);
+        }
+    }
+
+    /** Token ids of the text, without the model's special tokens. */
+    public int[] encode(CharSequence text) {
+        Scratch scratch = new Scratch(true);
+        scratch.tokenize(text, 0, text.length());
+        return Arrays.copyOf(scratch.ids, scratch.count);
+    }
+
+    /** Number of tokens of text[start, end) tokenized on its own. */
+    public int count(CharSequence text, int start, int end) {
+        Scratch scratch = new Scratch(false);
+        scratch.tokenize(text, start, end);
+        return scratch.count;
+    }
+
+    /**
+     * Tokens each word adds when the text runs on from the word before it, i.e. the
+     * tokens of its separator and the word. Pre-tokenization never crosses a whitespace
+     * boundary except to attach one space to the following piece, so these counts add up
+     * exactly; only the first word of a span, which has no separator, needs
+     * {@link #count(CharSequence, int, int)} of the word alone.
+     */
+    public int[] wordCounts(TokenStream tokens) {
+        Scratch scratch = new Scratch(false);
+        int[] counts = new int[tokens.size()];
+        for (int w = 0; w < counts.length; w++) {
+            int start = tokens.start(w);
+            int separator = w == 0 ? start : tokens.end(w - 1);
+            scratch.count = 0;
+            if (start - separator == 1 && tokens.charAt(separator) == ' ') {
+                // A single space joins the word's first piece
+                scratch.tokenize(tokens, start - 1, tokens.end(w));
+            } else {
+                scratch.tokenize(tokens, separator, start);
+                scratch.tokenize(tokens, start, tokens.end(w));
+            }
+            counts[w] = scratch.count;
+        }
+        return counts;
+    }
+
+    private final class Scratch {
+        private final boolean keepIds;
+        private int[] symbols = new int[64];
+        private int[] ids = new int[0];
+        private int count;
+        // Piece cache for counting: slot s holds cachedLengths[s] chars at s * CACHE_PIECE_CHARS
+        private char[] cachedChars;
+        private byte[] cachedLengths;
+        private int[] cachedCounts;
+
+        Scratch(boolean keepIds) {
+            this.keepIds = keepIds;
+            if (keepIds) {
+                ids = new int[64];
+            }
+        }
+
+        void tokenize(CharSequence text, int start, int end) {
+            int i = start;
+            while (i < end) {
+                int next = pieceEnd(text, i, end);
+                if (keepIds || next - i > CACHE_PIECE_CHARS) {
+                    bpe(text, i, next);
+                } else {
+                    cachedBpe(text, i, next);
+                }
+                i = next;
+            }
+        }
+
+        private void cachedBpe(CharSequence text, int start, int end) {
+            if (cachedChars == null) {
+                cachedChars = new char[CACHE_SLOTS * CACHE_PIECE_CHARS];
+                cachedLengths = new byte[CACHE_SLOTS];
+                cachedCounts = new int[CACHE_SLOTS];
+            }
+            int length = end - start;
+            int hash = length;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+            int slot = (hash ^ (hash >>> 15)) & (CACHE_SLOTS - 1);
+            int base = slot * CACHE_PIECE_CHARS;
+            if (cachedLengths[slot] == length) {
+                int i = 0;
+                while (i < length && cachedChars[base + i] == text.charAt(start + i)) {
+                    i++;
+                }
+                if (i == length) {
+                    count += cachedCounts[slot];
+                    return;
+                }
+            }
+            int before = count;
+            bpe(text, start, end);
+            for (int i = 0; i < length; i++) {
+                cachedChars[base + i] = text.charAt(start + i);
+            }
+            cachedLengths[slot] = (byte) length;
+            cachedCounts[slot] = count - before;
+        }
+
+        // Merges the lowest-ranked adjacent pair, all its occurrences left to right, until no pair has a rank
+        private void bpe(CharSequence text, int start, int end) {
+            int n = toBytes(text, start, end);
+            while (n > 1) {
+                int best = Integer.MAX_VALUE;
+                int at = -1;
+                for (int i = 0; i < n - 1; i++) {
+                    int rank = rank(pair(symbols[i], symbols[i + 1]));
+                    if (rank >= 0 && rank < best) {
+                        best = rank;
+                        at = i;
+                    }
+                }
+                if (at < 0) {
+                    break;
+                }
+                int left = symbols[at];
+                int right = symbols[at + 1];
+                int out = at;
+                for (int i = at; i < n; i++) {
+                    if (i < n - 1 && symbols[i] == left && symbols[i + 1] == right) {
+                        symbols[out++] = mergedIds[best];
+                        i++;
+                    } else {
+                        symbols[out++] = symbols[i];
+                    }
+                }
+                n = out;
+            }
+            if (keepIds) {
+                if (count + n > ids.length) {
+                    ids = Arrays.copyOf(ids, Math.max(ids.length * 2, count + n));
+                }
+                System.arraycopy(symbols, 0, ids, count, n);
+            }
+            count += n;
+        }
+
+        // UTF-8 bytes of the piece as initial symbols; lone surrogates become U+FFFD like in Python
+        private int toBytes(CharSequence text, int start, int end) {
+            if (symbols.length < (end - start) * 3) {
+                symbols = new int[(end - start) * 3];
+            }
+            int n = 0;
+            for (int i = start; i < end; ) {
+                int cp = Character.codePointAt(text, i);
+                i += Character.charCount(cp);
+                if (Character.isSurrogate((char) cp) && cp < 0x10000) {
+                    cp = 0xFFFD;
+                }
+                if (cp < 0x80) {
+                    symbols[n++] = byteIds[cp];
+                } else if (cp < 0x800) {
+                    symbols[n++] = byteIds[0xC0 | cp >> 6];
+                    symbols[n++] = byteIds[0x80 | cp & 0x3F];
+                } else if (cp < 0x10000) {
+                    symbols[n++] = byteIds[0xE0 | cp >> 12];
+                    symbols[n++] = byteIds[0x80 | cp >> 6 & 0x3F];
+                    symbols[n++] = byteIds[0x80 | cp & 0x3F];
+                } else {
+                    symbols[n++] = byteIds[0xF0 | cp >> 18];
+                    symbols[n++] = byteIds[0x80 | cp >> 12 & 0x3F];
+                    symbols[n++] = byteIds[0x80 | cp >> 6 & 0x3F];
+                    symbols[n++] = byteIds[0x80 | cp & 0x3F];
+                }
+            }
+            return n;
+        }
+    }
+
+    // End of the pre-tokenization piece starting at i; alternatives are tried in the pattern's order
+    private static int pieceEnd(CharSequence text, int i, int end) {
+        char c = text.charAt(i);
+        if (c == '\'' && i + 1 < end) {
+            char a = text.charAt(i + 1);
+            if (a == 's' || a == 't' || a == 'm' || a == 'd') {
+                return i + 2;
+            }
+            if (i + 2 < end) {
+                char b = text.charAt(i + 2);
+                if (a == 'r' && b == 'e' || a == 'v' && b == 'e' || a == 'l' && b == 'l') {
+                    return i + 3;
+                }
+            }
+        }
+        int body = c == ' ' && i + 1 < end ? i + 1 : i;
+        int first = Character.codePointAt(text, body);
+        if (!isSpace(first)) {
+            int kind = kind(first);
+            int j = body;
+            while (j < end) {
+                int cp = Character.codePointAt(text, j);
+                if (isSpace(cp) || kind(cp) != kind) {
+                    break;
+                }
+                j += Character.charCount(cp);
+            }
+            return j;
+        }
+        // Whitespace run: all of it before the end of the text, else all but the last character
+        // when more than one, which then starts the next piece
+        int j = i;
+        while (j < end) {
+            int cp = Character.codePointAt(text, j);
+            if (!isSpace(cp)) {
+                break;
+            }
+            j += Character.charCount(cp);
+        }
+        if (j == end || j - i == 1) {
+            return j;
+        }
+        return j - Character.charCount(Character.codePointBefore(text, j));
+    }
+
+    private static final int LETTER = 0;
+    private static final int NUMBER = 1;
+    private static final int OTHER = 2;
+
+    private static int kind(int cp) {
+        if (Character.isLetter(cp)) {
+            return LETTER;
+        }
+        int type = Character.getType(cp);
+        if (type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER) {
+            return NUMBER;
+        }
+        return OTHER;
+    }
+
+    // Python's \s: Unicode whitespace plus the separators Java's isWhitespace leaves out (no-break spaces)
+    private static boolean isSpace(int cp) {
+        return Character.isWhitespace(cp) || Character.isSpaceChar(cp) || cp == 0x85;
+    }
+
+    // GPT-2 maps every byte to a printable character so that merges and vocab are plain strings
+    private static char[] byteChars() {
+        char[] chars = new char[256];
+        int shifted = 0;
+        for (int b = 0; b < 256; b++) {
+            boolean printable = b >= '!' && b <= '~' || b >= 0xA1 && b <= 0xAC || b >= 0xAE && b <= 0xFF;
+            chars[b] = printable ? (char) b : (char) (256 + shifted++);
+        }
+        return chars;
+    }
+
+    private static long pair(int left, int right) {
+        return (long) left << 32 | (right & 0xFFFFFFFFL);
+    }
+
+    private int rank(long key) {
+        int mask = pairs.length - 1;
+        for (int slot = mix(key) & mask; pairs[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (pairs[slot] == key) {
+                return ranks[slot];
+            }
+        }
+        return -1;
+    }
+
+    private void putRank(long key, int rank) {
+        if ((size + 1) * 2 > pairs.length) {
+            long[] oldPairs = pairs;
+            int[] oldRanks = ranks;
+            pairs = new long[oldPairs.length * 2];
+            ranks = new int[pairs.length];
+            Arrays.fill(pairs, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldPairs.length; i++) {
+                if (oldPairs[i] != EMPTY) {
+                    putRank(oldPairs[i], oldRanks[i]);
+                }
+            }
+        }
+        int mask = pairs.length - 1;
+        int slot = mix(key) & mask;
+        while (pairs[slot] != EMPTY) {
+            if (pairs[slot] == key) {
+                // The first, lowest rank of a duplicated rule wins, as in the reference implementation
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        pairs[slot] = key;
+        ranks[slot] = rank;
+        size++;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,344 @@
+package com.plagiguard.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lexer for the code plagiarism mode. Identifiers, numbers and string or character
+ * literals are each collapsed to a single token type, so renaming variables or changing
+ * constants does not hide copied structure; keywords and operators keep distinct types.
+ * Comments, whitespace and C preprocessor lines are dropped. Java text blocks and Python
+ * triple-quoted or prefixed strings are single literals. Python block structure lives in
+ * whitespace, so Python sources also get NEWLINE, INDENT and DEDENT tokens the way the
+ * Python tokenizer emits them: per logical line, ignoring blank lines, comments and lines
+ * continued by a backslash or an open bracket.
+ */
+public final class CodeTokenizer {
+
+    public enum Language {
+        JAVA(".java"), C(".c", ".h"), PYTHON(".py");
+
+        private final String[] extensions;
+
+        Language(String... extensions) {
+            this.extensions = extensions;
+        }
+
+        /** Language of the file by extension, or null for anything that is not source code. */
+        public static Language of(String fileName) {
+            if (fileName == null) {
+                return null;
+            }
+            String name = fileName.toLowerCase(Locale.ROOT);
+            for (Language language : values()) {
+                for (String extension : language.extensions) {
+                    if (name.endsWith(extension)) {
+                        return language;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    public static final int IDENTIFIER = 1;
+    public static final int NUMBER = 2;
+    public static final int STRING = 3;
+    public static final int NEWLINE = 4;
+    public static final int INDENT = 5;
+    public static final int DEDENT = 6;
+    private static final int FIRST_OPERATOR = 16;
+    private static final int FIRST_KEYWORD = 256;
+    private static final int OTHER_CHAR = 1024;
+
+    private static final List<String> OPERATORS = List.of(
+        ">>>=", "<<=", ">>=", ">>>", "**=", "//=", "...", "->", "::", ":=", "++", "--", "&&", "||",
+        "==", "!=", "<=", ">=", "+=", "-=", "*=", "/=", "%=", "&=", "|=", "^=", "<<", ">>", "**", "//");
+
+    private static final Set<String> JAVA_KEYWORDS = Set.of(
+        "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+        "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+        "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+        "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+        "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+        "volatile", "while", "var", "record", "yield", "true", "false", "null");
+
+    private static final Set<String> C_KEYWORDS = Set.of(
+        "auto", "break", "case", "char", "const", "continue", "default", "do", "double", "else", "enum",
+        "extern", "float", "for", "goto", "if", "inline", "int", "long", "register", "restrict", "return",
+        "short", "signed", "sizeof", "static", "struct", "switch", "typedef", "union", "unsigned", "void",
+        "volatile", "while", "NULL");
+
+    private static final Set<String> PYTHON_KEYWORDS = Set.of(
+        "False", "None", "True", "and", "as", "assert", "async", "await", "break", "class", "continue",
+        "def", "del", "elif", "else", "except", "finally", "for", "from", "global", "if", "import", "in",
+        "is", "lambda", "nonlocal", "not", "or", "pass", "raise", "return", "try", "while", "with", "yield");
+
+    private static final Map<String, Integer> OPERATOR_TYPES = new HashMap<>();
+    private static final Map<String, Integer> KEYWORD_TYPES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < OPERATORS.size(); i++) {
+            OPERATOR_TYPES.put(OPERATORS.get(i), FIRST_OPERATOR + i);
+        }
+        // Shared spellings share a type, so "while" in C and Java lexes the same
+        for (Set<String> keywords : List.of(JAVA_KEYWORDS, C_KEYWORDS, PYTHON_KEYWORDS)) {
+            for (String keyword : keywords) {
+                KEYWORD_TYPES.putIfAbsent(keyword, FIRST_KEYWORD + KEYWORD_TYPES.size());
+            }
+        }
+    }
+
+    private CodeTokenizer() {}
+
+    public static CodeTokens tokenize(String source, Language language) {
+        Set<String> keywords = switch (language) {
+            case JAVA -> JAVA_KEYWORDS;
+            case C -> C_KEYWORDS;
+            case PYTHON -> PYTHON_KEYWORDS;
+        };
+        boolean python = language == Language.PYTHON;
+        int n = source.length();
+        Output out = new Output(Math.max(16, n / 4));
+        int line = 1;
+        int lineStartIndex = 0;
+        boolean lineStart = true;
+        // Python layout: indentation stack, bracket depth and whether the logical line has tokens
+        int[] indents = new int[16];
+        int levels = 0;
+        int brackets = 0;
+        boolean logicalLine = false;
+
+        int i = 0;
+        while (i < n) {
+            char c = source.charAt(i);
+            if (c == '\n') {
+                if (python && brackets == 0 && logicalLine) {
+                    out.add(NEWLINE, line);
+                    logicalLine = false;
+                }
+                line++;
+                lineStart = true;
+                lineStartIndex = i + 1;
+                i++;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (python && c == '\\' && continuation(source, i + 1) > 0) {
+                // Explicit line joining; the next physical line continues this logical line
+                i = continuation(source, i + 1);
+                line++;
+                continue;
+            }
+            int start = i;
+            int tokenLine = line;
+            int type;
+            if (python ? c == '#' : startsWith(source, i, "//")) {
+                i = skipToLineEnd(source, i);
+                continue;
+            } else if (language == Language.C && c == '#' && lineStart) {
+                // Preprocessor directive, including backslash continuations
+                while (i < n && source.charAt(i) != '\n') {
+                    if (source.charAt(i) == '\\' && i + 1 < n && source.charAt(i + 1) == '\n') {
+                        line++;
+                        i += 2;
+                    } else {
+                        i++;
+                    }
+                }
+                continue;
+            } else if (!python && startsWith(source, i, "/*")) {
+                int end = source.indexOf("*/", i + 2);
+                end = end < 0 ? n : end + 2;
+                line += countLines(source, i, end);
+                i = end;
+                continue;
+            }
+
+            if (python && brackets == 0 && !logicalLine) {
+                int column = indentation(source, lineStartIndex, start);
+                if (column > indents[levels]) {
+                    if (++levels == indents.length) {
+                        indents = Arrays.copyOf(indents, levels * 2);
+                    }
+                    indents[levels] = column;
+                    out.add(INDENT, tokenLine);
+                }
+                while (levels > 0 && column < indents[levels]) {
+                    levels--;
+                    out.add(DEDENT, tokenLine);
+                }
+                logicalLine = true;
+            }
+
+            if (Character.isJavaIdentifierStart(c)) {
+                while (i < n && Character.isJavaIdentifierPart(source.charAt(i))) {
+                    i++;
+                }
+                if (python && i < n && (source.charAt(i) == '"' || source.charAt(i) == '\'')
+                        && isStringPrefix(source, start, i)) {
+                    // r"...", f'...', rb"""...""" and the like are one literal
+                    i = skipString(source, i, language);
+                    line += countLines(source, start, i);
+                    type = STRING;
+                } else {
+                    String word = source.substring(start, i);
+                    type = keywords.contains(word) ? KEYWORD_TYPES.get(word) : IDENTIFIER;
+                }
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < n && Character.isDigit(source.charAt(i + 1)))) {
+                while (i < n && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '.'
+                        || source.charAt(i) == '_')) {
+                    i++;
+                }
+                type = NUMBER;
+            } else if (c == '"' || c == '\'') {
+                i = skipString(source, i, language);
+                line += countLines(source, start, i);
+                type = STRING;
+            } else {
+                String operator = matchOperator(source, i, python);
+                if (operator != null) {
+                    i += operator.length();
+                    type = OPERATOR_TYPES.get(operator);
+                } else {
+                    i++;
+                    type = OTHER_CHAR + c;
+                    if (c == '(' || c == '[' || c == '{') {
+                        brackets++;
+                    } else if ((c == ')' || c == ']' || c == '}') && brackets > 0) {
+                        brackets--;
+                    }
+                }
+            }
+            out.add(type, tokenLine);
+            lineStart = false;
+        }
+        if (python) {
+            if (logicalLine) {
+                out.add(NEWLINE, line);
+            }
+            for (; levels > 0; levels--) {
+                out.add(DEDENT, line);
+            }
+        }
+        return new CodeTokens(out.types, out.lines, out.size);
+    }
+
+    private static final class Output {
+        int[] types;
+        int[] lines;
+        int size;
+
+        Output(int capacity) {
+            types = new int[capacity];
+            lines = new int[capacity];
+        }
+
+        void add(int type, int line) {
+            if (size == types.length) {
+                types = Arrays.copyOf(types, size * 2);
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            types[size] = type;
+            lines[size] = line;
+            size++;
+        }
+    }
+
+    // Width of the leading whitespace, with tabs advancing to the next multiple of 8 as in CPython
+    private static int indentation(String source, int from, int to) {
+        int column = 0;
+        for (int i = from; i < to; i++) {
+            column = source.charAt(i) == '\t' ? (column / 8 + 1) * 8 : column + 1;
+        }
+        return column;
+    }
+
+    // Index after the line break at i, accepting CRLF, or -1 when there is none
+    private static int continuation(String source, int i) {
+        if (i < source.length() && source.charAt(i) == '\r') {
+            i++;
+        }
+        return i < source.length() && source.charAt(i) == '\n' ? i + 1 : -1;
+    }
+
+    private static boolean isStringPrefix(String source, int from, int to) {
+        if (to - from > 2) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if ("rRbBfFuU".indexOf(source.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(String source, int at, String prefix) {
+        return source.startsWith(prefix, at);
+    }
+
+    private static int skipToLineEnd(String source, int i) {
+        int end = source.indexOf('\n', i);
+        return end < 0 ? source.length() : end;
+    }
+
+    private static int countLines(String source, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (source.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int skipString(String source, int i, Language language) {
+        char quote = source.charAt(i);
+        int n = source.length();
+        String triple = String.valueOf(quote).repeat(3);
+        // Python triple-quoted strings and Java text blocks run to the closing triple quote
+        if (source.startsWith(triple, i) && (language == Language.PYTHON || language == Language.JAVA && quote == '"')) {
+            for (i += 3; i < n; i++) {
+                if (source.charAt(i) == '\\') {
+                    i++;
+                } else if (source.startsWith(triple, i)) {
+                    return i + 3;
+                }
+            }
+            return n;
+        }
+        i++;
+        while (i < n) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n') {
+                // Unterminated literal; stop at the line end
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return n;
+    }
+
+    private static String matchOperator(String source, int i, boolean python) {
+        for (String operator : OPERATORS) {
+            // In Java and C "//" starts a comment, handled before operators are tried
+            if (source.startsWith(operator, i) && (python || !operator.equals("//"))) {
+                return operator;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.plagiguard.util;
+
+import java.util.Arrays;
+
+/**
+ * Source file lexed into normalized token types, with the line each token starts on.
+ */
+public final class CodeTokens {
+    private final int[] types;
+    private final int[] lines;
+    private final int size;
+
+    CodeTokens(int[] types, int[] lines, int size) {
+        this.types = types;
+        this.lines = lines;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int type(int i) {
+        return types[i];
+    }
+
+    public int line(int i) {
+        return lines[i];
+    }
+
+    /** Token types as an array of exactly size() elements. */
+    public int[] types() {
+        return Arrays.copyOf(types, size);
+    }
+}
@@ -0,0 +1,121 @@
+package com.plagiguard.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Collects detection requests from concurrent callers and sends them as one batch once
+ * maxBatchSize texts are queued or the oldest has waited maxWaitMs. Results are handed
+ * back to each caller by position. Batch sizes and queue waits are published as the
+ * ai.detector.batch.size and ai.detector.batch.queue.wait histograms.
+ */
+final class DetectionBatcher {
+    private final Function<List<String>, CompletableFuture<List<DetectionResult>>> sender;
+    private final ScheduledExecutorService timer;
+    private final int maxBatchSize;
+    private final long maxWaitMs;
+    private final DistributionSummary batchSize;
+    private final Timer queueWait;
+
+    private final Object lock = new Object();
+    private List<Pending> queued = new ArrayList<>();
+    // Bumped on every flush so a wait timer armed for an earlier batch does nothing
+    private long generation;
+
+    private record Pending(String text, long enqueuedNanos, CompletableFuture<DetectionResult> result) {}
+
+    DetectionBatcher(Function<List<String>, CompletableFuture<List<DetectionResult>>> sender,
+            ScheduledExecutorService timer, int maxBatchSize, long maxWaitMs, MeterRegistry registry) {
+        this.sender = sender;
+        this.timer = timer;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitMs = maxWaitMs;
+        this.batchSize = DistributionSummary.builder("ai.detector.batch.size")
+            .description("Texts per batched detector request")
+            .publishPercentileHistogram()
+            .register(registry);
+        this.queueWait = Timer.builder("ai.detector.batch.queue.wait")
+            .description("Time a text waits for its batch to be sent")
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    CompletableFuture<DetectionResult> submit(String text) {
+        Pending pending = new Pending(text, System.nanoTime(), new CompletableFuture<>());
+        List<Pending> full = null;
+        synchronized (lock) {
+            queued.add(pending);
+            if (queued.size() >= maxBatchSize) {
+                full = takeQueued();
+            } else if (queued.size() == 1) {
+                long armed = generation;
+                try {
+                    timer.schedule(() -> flush(armed), maxWaitMs, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    full = takeQueued();
+                }
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return pending.result();
+    }
+
+    private void flush(long armed) {
+        List<Pending> batch;
+        synchronized (lock) {
+            if (armed != generation || queued.isEmpty()) {
+                return;
+            }
+            batch = takeQueued();
+        }
+        send(batch);
+    }
+
+    private List<Pending> takeQueued() {
+        List<Pending> batch = queued;
+        queued = new ArrayList<>(maxBatchSize);
+        generation++;
+        return batch;
+    }
+
+    private void send(List<Pending> batch) {
+        long now = System.nanoTime();
+        List<String> texts = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            queueWait.record(now - pending.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            texts.add(pending.text());
+        }
+        batchSize.record(batch.size());
+
+        CompletableFuture<List<DetectionResult>> response;
+        try {
+            response = sender.apply(texts);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((results, error) -> {
+            if (error == null && results.size() != batch.size()) {
+                error = new IllegalStateException("AI detector returned " + results.size()
+                    + " results for a batch of " + batch.size());
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                if (error != null) {
+                    batch.get(i).result().completeExceptionally(error);
+                } else {
+                    batch.get(i).result().complete(results.get(i));
+                }
+            }
+        });
+    }
+}
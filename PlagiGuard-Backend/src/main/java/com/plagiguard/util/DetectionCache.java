@@ -0,0 +1,174 @@
+package com.plagiguard.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.plagiguard.entity.DetectionResultEntry;
+import com.plagiguard.repository.DetectionResultRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Two-tier cache of detector verdicts keyed by the SHA-256 of the model version and the
+ * scored text, so a new model never reads results of the old one. The memory tier is a
+ * bounded Caffeine cache with a TTL; the optional database tier survives restarts. Every
+ * hit adds the running mean detector latency to ai.detector.cache.saved.seconds.
+ * Fresh verdicts are written to the database on a background thread; when more than
+ * PERSIST_QUEUE batches are waiting, new ones are only kept in memory.
+ */
+public class DetectionCache implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DetectionCache.class);
+    private static final int PERSIST_QUEUE = 256;
+
+    private final Cache<String, DetectionResult> memory;
+    private final DetectionResultRepository repository;
+    private final String modelVersion;
+    private final Executor persister;
+    private final Counter databaseHits;
+    private final Counter databaseMisses;
+    private final Counter savedSeconds;
+    // Exponentially weighted mean detector latency in nanoseconds
+    private final AtomicLong meanDetectorNanos = new AtomicLong();
+
+    /** A null repository keeps the cache in memory only. */
+    public DetectionCache(long maxEntries, Duration ttl, String modelVersion,
+            DetectionResultRepository repository, MeterRegistry registry) {
+        this(maxEntries, ttl, modelVersion, repository, registry, repository != null ? persister() : null,
+            Ticker.systemTicker());
+    }
+
+    DetectionCache(long maxEntries, Duration ttl, String modelVersion, DetectionResultRepository repository,
+            MeterRegistry registry, Executor persister, Ticker ticker) {
+        this.memory = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterWrite(ttl)
+            .ticker(ticker)
+            .recordStats()
+            .build();
+        this.repository = repository;
+        this.modelVersion = modelVersion;
+        this.persister = persister;
+
+        CaffeineCacheMetrics.monitor(registry, memory, "ai.detection.memory");
+        this.databaseHits = registry.counter("cache.gets", "cache", "ai.detection.database", "result", "hit");
+        this.databaseMisses = registry.counter("cache.gets", "cache", "ai.detection.database", "result", "miss");
+        this.savedSeconds = Counter.builder("ai.detector.cache.saved.seconds")
+            .description("Estimated detector time avoided by cache hits")
+            .baseUnit("seconds")
+            .register(registry);
+    }
+
+    public String key(String text) {
+        MessageDigest digest = sha256();
+        digest.update(modelVersion.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** Cached verdicts of the given keys; absent keys are missing from the map. */
+    public Map<String, DetectionResult> getAll(Collection<String> keys) {
+        Map<String, DetectionResult> found = new HashMap<>(memory.getAllPresent(keys));
+        if (repository != null && found.size() < keys.size()) {
+            List<String> missing = new ArrayList<>(keys.size() - found.size());
+            for (String key : keys) {
+                if (!found.containsKey(key)) {
+                    missing.add(key);
+                }
+            }
+            try {
+                for (DetectionResultEntry entry : repository.findAllById(missing)) {
+                    DetectionResult result = new DetectionResult(entry.getAiScore(), entry.isAiGenerated());
+                    memory.put(entry.getCacheKey(), result);
+                    found.put(entry.getCacheKey(), result);
+                    databaseHits.increment();
+                }
+                databaseMisses.increment(keys.size() - found.size());
+            } catch (RuntimeException e) {
+                // The database tier is best effort, a failed lookup only costs detector calls
+                logger.warn("AI detection cache lookup failed: {}", e.getMessage());
+            }
+        }
+        savedSeconds.increment(found.size() * meanDetectorNanos.get() / 1e9);
+        return found;
+    }
+
+    /** Caches a fresh verdict in memory and folds its detector latency into the saved-time estimate. */
+    public void put(String key, DetectionResult result, long detectorNanos) {
+        memory.put(key, result);
+        meanDetectorNanos.accumulateAndGet(detectorNanos,
+            (mean, sample) -> mean == 0 ? sample : mean + (sample - mean) / 16);
+    }
+
+    /** Queues fresh verdicts for the database tier and returns without waiting for the write. */
+    public void persist(Map<String, DetectionResult> results) {
+        if (repository == null || results.isEmpty()) {
+            return;
+        }
+        List<DetectionResultEntry> entries = new ArrayList<>(results.size());
+        results.forEach((key, result) -> entries.add(new DetectionResultEntry(key, result.aiScore(), result.aiGenerated())));
+        try {
+            persister.execute(() -> save(entries));
+        } catch (RejectedExecutionException e) {
+            logger.warn("AI detection results are not persisted fast enough, keeping {} in memory only",
+                entries.size());
+        }
+    }
+
+    private void save(List<DetectionResultEntry> entries) {
+        try {
+            repository.saveAll(entries);
+        } catch (RuntimeException e) {
+            // Concurrent uploads of the same text may race on the key; the memory tier already holds it
+            logger.warn("Failed to persist {} AI detection results: {}", entries.size(), e.getMessage());
+        }
+    }
+
+    /** Writes the verdicts already queued for the database, then stops the writer. */
+    @Override
+    public void close() throws InterruptedException {
+        if (persister instanceof ExecutorService executor) {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static ExecutorService persister() {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(PERSIST_QUEUE), r -> {
+            Thread thread = new Thread(r, "ai-detection-persist");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.plagiguard.util;
+
+/** Verdict of the AI detector for one text: probability of machine generation and its label. */
+public record DetectionResult(double aiScore, boolean aiGenerated) {
+}
@@ -0,0 +1,156 @@
+package com.plagiguard.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Replicas of the AI detector. Calls go to the less loaded of two randomly picked healthy
+ * replicas (power of two choices on outstanding requests), which avoids the herd effect
+ * of always picking the global minimum from stale counts. Replicas failing the active
+ * health check are skipped until they pass again; with none healthy every replica is
+ * tried. Recent round trips are kept in a {@link LatencyHistogram} per replica and call
+ * type, since a batch takes longer than a single text, and time the hedged requests.
+ */
+final class DetectorEndpoints {
+
+    /** Kinds of detector call, whose round trips are tracked apart. */
+    enum Call { SINGLE, BATCH }
+
+    static final class Endpoint {
+        private final String baseUrl;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Call.values().length];
+        private volatile boolean healthy = true;
+
+        private Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        String baseUrl() {
+            return baseUrl;
+        }
+
+        void started() {
+            outstanding.incrementAndGet();
+        }
+
+        void finished() {
+            outstanding.decrementAndGet();
+        }
+    }
+
+    private final List<Endpoint> endpoints;
+
+    DetectorEndpoints(List<String> baseUrls, MeterRegistry registry) {
+        List<Endpoint> list = new ArrayList<>(baseUrls.size());
+        for (String baseUrl : baseUrls) {
+            Endpoint endpoint = new Endpoint(baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl);
+            list.add(endpoint);
+            Gauge.builder("ai.detector.endpoint.outstanding", endpoint, e -> e.outstanding.get())
+                .description("Requests in flight to one detector replica")
+                .tag("endpoint", endpoint.baseUrl)
+                .register(registry);
+        }
+        if (list.isEmpty()) {
+            throw new IllegalArgumentException("At least one AI detector URL is required");
+        }
+        this.endpoints = List.copyOf(list);
+        Gauge.builder("ai.detector.endpoints.healthy", this, DetectorEndpoints::healthyCount)
+            .description("Detector replicas passing the health check")
+            .register(registry);
+    }
+
+    List<Endpoint> all() {
+        return endpoints;
+    }
+
+    int size() {
+        return endpoints.size();
+    }
+
+    /** Picks a replica other than the excluded one, or null when there is none. */
+    Endpoint choose(Endpoint exclude) {
+        List<Endpoint> candidates = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.healthy && endpoint != exclude) {
+                candidates.add(endpoint);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint != exclude) {
+                    candidates.add(endpoint);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Endpoint a = candidates.get(first);
+        Endpoint b = candidates.get(second);
+        return b.outstanding.get() < a.outstanding.get() ? b : a;
+    }
+
+    void setHealthy(Endpoint endpoint, boolean healthy) {
+        endpoint.healthy = healthy;
+    }
+
+    int healthyCount() {
+        int healthy = 0;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.healthy) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    Map<String, Boolean> health() {
+        Map<String, Boolean> health = new LinkedHashMap<>();
+        for (Endpoint endpoint : endpoints) {
+            health.put(endpoint.baseUrl, endpoint.healthy);
+        }
+        return health;
+    }
+
+    void recordLatency(Endpoint endpoint, Call call, long nanos) {
+        endpoint.latencies[call.ordinal()].record(nanos);
+    }
+
+    /**
+     * Round trip of the call type at the given percentile of the replica's recent calls, or
+     * of all replicas' while the replica has fewer than minSamples; -1 when those are fewer too.
+     */
+    long latencyPercentile(Endpoint endpoint, Call call, double percentile, int minSamples) {
+        int min = Math.max(1, minSamples);
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        long total = endpoint.latencies[call.ordinal()].addTo(counts);
+        if (total < min) {
+            for (Endpoint other : endpoints) {
+                if (other != endpoint) {
+                    total += other.latencies[call.ordinal()].addTo(counts);
+                }
+            }
+        }
+        return total < min ? -1 : LatencyHistogram.percentile(counts, total, percentile);
+    }
+}
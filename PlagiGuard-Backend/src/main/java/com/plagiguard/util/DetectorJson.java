@@ -0,0 +1,123 @@
+package com.plagiguard.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+/**
+ * Streaming wire format of the AI detector. Requests are generated straight onto the
+ * connection's output stream, optionally through gzip, and responses are read token by
+ * token into {@link DetectionResult}s, so neither side holds the payload as a String or
+ * a JSON tree.
+ */
+final class DetectorJson {
+    private static final JsonFactory FACTORY = JsonFactory.builder()
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+        .build();
+    private static final int GZIP_BUFFER = 8192;
+
+    @FunctionalInterface
+    interface Fields {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    /** Parsed detector reply: one result for /detect, a list for /detect_batch. */
+    record Response(String status, String error, DetectionResult result, List<DetectionResult> results) {}
+
+    private DetectorJson() {
+    }
+
+    /** Writes one JSON object holding the given fields; the target is left open. */
+    static void write(OutputStream target, boolean gzip, Fields fields) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(target, GZIP_BUFFER) : null;
+        try (JsonGenerator generator = FACTORY.createGenerator(gzip ? compressed : target, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            fields.write(generator);
+            generator.writeEndObject();
+        }
+        if (compressed != null) {
+            compressed.finish();
+        }
+        target.flush();
+    }
+
+    static Fields text(String text) {
+        return generator -> generator.writeStringField("text", text);
+    }
+
+    static Fields texts(List<String> texts) {
+        return generator -> {
+            generator.writeArrayFieldStart("texts");
+            for (String text : texts) {
+                generator.writeString(text);
+            }
+            generator.writeEndArray();
+        };
+    }
+
+    /** Malformed or truncated replies fail with a {@link com.fasterxml.jackson.core.JsonProcessingException}. */
+    static Response read(InputStream body) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "AI detector response is not a JSON object");
+            }
+            String status = null;
+            String error = null;
+            Double score = null;
+            Boolean generated = null;
+            List<DetectionResult> results = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "status" -> status = parser.getValueAsString();
+                    case "error" -> error = parser.getValueAsString();
+                    case "ai_score" -> score = parser.getValueAsDouble();
+                    case "ai_generated" -> generated = value == JsonToken.VALUE_TRUE;
+                    case "results" -> results = readResults(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            DetectionResult result = score != null && generated != null ? new DetectionResult(score, generated) : null;
+            return new Response(status, error, result, results);
+        }
+    }
+
+    private static List<DetectionResult> readResults(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "AI detector results are not a JSON array");
+        }
+        List<DetectionResult> results = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Double score = null;
+            Boolean generated = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "ai_score" -> score = parser.getValueAsDouble();
+                    case "ai_generated" -> generated = value == JsonToken.VALUE_TRUE;
+                    default -> parser.skipChildren();
+                }
+            }
+            if (score == null || generated == null) {
+                throw new JsonParseException(parser, "AI detector result " + results.size() + " lacks ai_score or ai_generated");
+            }
+            results.add(new DetectionResult(score, generated));
+        }
+        return results;
+    }
+}
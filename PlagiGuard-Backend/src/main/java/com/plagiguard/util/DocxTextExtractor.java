@@ -0,0 +1,141 @@
+package com.plagiguard.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streams the text out of a DOCX package with StAX, reading the WordprocessingML
+ * parts straight from the zip stream instead of building an XWPFDocument. The body,
+ * headers, footers, footnotes and endnotes are written as they are parsed, in package
+ * order. Paragraphs (including table cells) are written trimmed, one per line, and empty
+ * ones are skipped. Every entry, wanted or not, is inflated through a {@link ZipBombGuard}
+ * that fails with an IOException past the per-entry or per-document size or the
+ * compression ratio limit, which replaces POI's ZipSecureFile check.
+ */
+public class DocxTextExtractor {
+    private static final String WORD_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String BODY_PART = "word/document.xml";
+    private static final Pattern AUXILIARY_PART =
+        Pattern.compile("word/(header\\d*|footer\\d*|footnotes|endnotes)\\.xml");
+
+    static final long MAX_ENTRY_BYTES = 256L * 1024 * 1024;
+    static final long MAX_DOCUMENT_BYTES = 512L * 1024 * 1024;
+    // Same bound as POI's ZipSecureFile minimum inflate ratio of 0.01
+    static final double MAX_COMPRESSION_RATIO = 100;
+
+    private static final XMLInputFactory xmlInputFactory = createInputFactory();
+
+    private DocxTextExtractor() {}
+
+    public static void extract(InputStream is, Writer out) throws IOException {
+        extract(is, out, MAX_ENTRY_BYTES, MAX_DOCUMENT_BYTES, MAX_COMPRESSION_RATIO);
+    }
+
+    static void extract(InputStream is, Writer out, long maxEntryBytes, long maxDocumentBytes, double maxRatio)
+            throws IOException {
+        boolean foundBody = false;
+        ZipBombGuard guard = new ZipBombGuard(is, maxEntryBytes, maxDocumentBytes, maxRatio);
+        ZipInputStream zip = new ZipInputStream(guard.compressed());
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            String name = entry.getName();
+            InputStream part = guard.entry(zip, name);
+            if (BODY_PART.equals(name)) {
+                foundBody = true;
+                parsePart(part, out);
+            } else if (AUXILIARY_PART.matcher(name).matches()) {
+                parsePart(part, out);
+            }
+            // Drain the rest through the guard; skipping the entry would inflate it unchecked
+            part.transferTo(OutputStream.nullOutputStream());
+        }
+        if (!foundBody) {
+            throw new IOException("Not a valid DOCX file: " + BODY_PART + " is missing");
+        }
+        out.flush();
+    }
+
+    private static void parsePart(InputStream part, Writer out) throws IOException {
+        StringBuilder paragraph = new StringBuilder();
+        boolean inText = false;
+        try {
+            // The reader must not close the zip stream, later entries are still needed
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(new NonClosingInputStream(part));
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT && WORD_NS.equals(reader.getNamespaceURI())) {
+                        switch (reader.getLocalName()) {
+                            // Text boxes nest paragraphs inside paragraphs; close the outer one first
+                            case "p" -> writeParagraph(paragraph, out);
+                            case "t" -> inText = true;
+                            case "tab" -> paragraph.append('\t');
+                            case "br", "cr" -> paragraph.append('\n');
+                            default -> { }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && WORD_NS.equals(reader.getNamespaceURI())) {
+                        switch (reader.getLocalName()) {
+                            case "p" -> writeParagraph(paragraph, out);
+                            case "t" -> inText = false;
+                            default -> { }
+                        }
+                    } else if (inText && (event == XMLStreamConstants.CHARACTERS
+                            || event == XMLStreamConstants.CDATA
+                            || event == XMLStreamConstants.SPACE)) {
+                        paragraph.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                }
+                writeParagraph(paragraph, out);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed DOCX part: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeParagraph(StringBuilder paragraph, Writer out) throws IOException {
+        int start = 0;
+        int end = paragraph.length();
+        while (start < end && Character.isWhitespace(paragraph.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(paragraph.charAt(end - 1))) {
+            end--;
+        }
+        if (start < end) {
+            out.append(paragraph, start, end).append('\n');
+        }
+        paragraph.setLength(0);
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    private static class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+            // Leave the enclosing zip stream open
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.plagiguard.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Two-tier cache of extracted document text keyed by content hash. The memory tier
+ * is a Caffeine cache (W-TinyLFU eviction) weighted by the size of the cached text;
+ * the disk tier keeps gzip-compressed text under a local directory so it survives
+ * restarts and memory evictions. Extracted text is user content, so the disk tier is
+ * bounded: entries are dropped when their upload is deleted, when they have not been
+ * read for maxDiskAge, and least recently read first once maxDiskBytes is exceeded,
+ * down to LOW_WATER_MARK of it so that the next writes do not trigger another scan.
+ */
+public class ExtractionCache {
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionCache.class);
+
+    // Bump when extraction output changes so stale disk entries are ignored
+    private static final String FORMAT_VERSION = "v1";
+    private static final double LOW_WATER_MARK = 0.9;
+    // Temp files this old were left by a crashed write rather than a put in progress
+    private static final Duration ORPHAN_TEMP_AGE = Duration.ofHours(1);
+
+    private final Cache<String, String> memory;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final Duration maxDiskAge;
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final Counter diskHits;
+    private final Counter diskMisses;
+    private final Counter diskWrites;
+    private final Counter diskEvictions;
+
+    public ExtractionCache(long maxMemoryBytes, Path directory, long maxDiskBytes, Duration maxDiskAge,
+            MeterRegistry registry) throws IOException {
+        this.memory = Caffeine.newBuilder()
+            .maximumWeight(maxMemoryBytes)
+            .weigher((String key, String text) -> key.length() * 2 + text.length() * 2)
+            .recordStats()
+            .build();
+        this.directory = directory.resolve(FORMAT_VERSION);
+        Files.createDirectories(this.directory);
+        this.maxDiskBytes = maxDiskBytes;
+        this.maxDiskAge = maxDiskAge;
+
+        CaffeineCacheMetrics.monitor(registry, memory, "extraction.memory");
+        this.diskHits = registry.counter("cache.gets", "cache", "extraction.disk", "result", "hit");
+        this.diskMisses = registry.counter("cache.gets", "cache", "extraction.disk", "result", "miss");
+        this.diskWrites = registry.counter("cache.puts", "cache", "extraction.disk");
+        this.diskEvictions = registry.counter("cache.evictions", "cache", "extraction.disk");
+        purge();
+    }
+
+    public String get(String key) {
+        String text = memory.getIfPresent(key);
+        if (text != null) {
+            return text;
+        }
+        Path file = pathFor(key);
+        if (!Files.exists(file)) {
+            diskMisses.increment();
+            return null;
+        }
+        try (InputStream is = new GZIPInputStream(Files.newInputStream(file));
+             Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
+            StringBuilder builder = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                builder.append(buffer, 0, read);
+            }
+            text = builder.toString();
+        } catch (IOException e) {
+            logger.warn("Discarding unreadable extraction cache entry {}: {}", file, e.getMessage());
+            diskMisses.increment();
+            return null;
+        }
+        diskHits.increment();
+        touch(file);
+        memory.put(key, text);
+        return text;
+    }
+
+    public void put(String key, String text) {
+        memory.put(key, text);
+        Path file = pathFor(key);
+        if (Files.exists(file)) {
+            return;
+        }
+        Path temp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(temp));
+                 Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
+                writer.write(text);
+            }
+            long size = Files.size(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            diskWrites.increment();
+            if (diskBytes.addAndGet(size) > maxDiskBytes) {
+                purge();
+            }
+        } catch (IOException e) {
+            // The disk tier is best effort, the memory tier already holds the text
+            logger.warn("Failed to write extraction cache entry {}: {}", file, e.getMessage());
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    /** Drops every entry of the given content hash, whatever extension it was cached under. */
+    public void evict(String contentHash) {
+        memory.asMap().keySet().removeIf(key -> key.startsWith(contentHash));
+        Path bucket = directory.resolve(contentHash.substring(0, 2));
+        if (!Files.isDirectory(bucket)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(bucket)) {
+            files.filter(file -> file.getFileName().toString().startsWith(contentHash))
+                .forEach(this::delete);
+        } catch (IOException e) {
+            logger.warn("Failed to evict extraction cache entries of {}: {}", contentHash, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes disk entries not read within maxDiskAge, then the least recently read ones
+     * until the tier fits in LOW_WATER_MARK of maxDiskBytes. Temp files of puts in
+     * progress are left alone. Returns the number of entries deleted.
+     */
+    public synchronized int purge() {
+        record Entry(Path file, long size, FileTime lastRead) {}
+        List<Entry> entries = new ArrayList<>();
+        FileTime orphanCutoff = FileTime.from(Instant.now().minus(ORPHAN_TEMP_AGE));
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.forEach(file -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (file.getFileName().toString().endsWith(".tmp")) {
+                        // A concurrent put moves its temp file into place; only drop crash leftovers
+                        if (attributes.lastModifiedTime().compareTo(orphanCutoff) < 0) {
+                            deleteQuietly(file);
+                        }
+                    } else if (attributes.isRegularFile()) {
+                        entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime()));
+                    }
+                } catch (IOException e) {
+                    // Removed concurrently
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Failed to scan extraction cache {}: {}", directory, e.getMessage());
+            return 0;
+        }
+        entries.sort(Comparator.comparing(Entry::lastRead));
+
+        FileTime cutoff = FileTime.from(Instant.now().minus(maxDiskAge));
+        long total = entries.stream().mapToLong(Entry::size).sum();
+        long target = total > maxDiskBytes ? (long) (maxDiskBytes * LOW_WATER_MARK) : maxDiskBytes;
+        int deleted = 0;
+        for (Entry entry : entries) {
+            if (entry.lastRead().compareTo(cutoff) >= 0 && total <= target) {
+                break;
+            }
+            if (delete(entry.file())) {
+                total -= entry.size();
+                deleted++;
+            }
+        }
+        diskBytes.set(total);
+        if (deleted > 0) {
+            logger.info("Purged {} extraction cache entries, {} KB left on disk", deleted, total / 1024);
+        }
+        return deleted;
+    }
+
+    private boolean delete(Path file) {
+        if (!deleteQuietly(file)) {
+            return false;
+        }
+        diskEvictions.increment();
+        return true;
+    }
+
+    private static boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete extraction cache file {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    // Reads refresh the modification time, which the purge treats as the last access
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            logger.debug("Failed to touch extraction cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path pathFor(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ".txt.gz");
+    }
+}
@@ -1,16 +1,18 @@
 package com.plagiguard.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.multipart.MultipartFile;
@@ -18,100 +20,176 @@ import org.springframework.web.multipart.MultipartFile;
 public class FileTextExtractor {
     private static final Logger logger = LoggerFactory.getLogger(FileTextExtractor.class);
 
+    // Heap budget for PDFBox buffers before it spills to a scratch file
+    public static final long DEFAULT_PDF_MAX_MAIN_MEMORY_BYTES = 32L * 1024 * 1024;
+
+    /** Source files accepted for the code plagiarism mode; they are read as plain UTF-8 text. */
+    public static boolean isSourceCode(String fileName) {
+        return CodeTokenizer.Language.of(fileName) != null;
+    }
+
     public static String extractText(File file) throws Exception {
-        String name = file.getName().toLowerCase();
-        String text;
+        try (InputStream is = new FileInputStream(file)) {
+            return extractText(file.getName(), is, ParallelPdfExtractor.sequential(DEFAULT_PDF_MAX_MAIN_MEMORY_BYTES));
+        }
+    }
 
-        try {
-            if (name.endsWith(".txt")) {
-                text = new String(Files.readAllBytes(file.toPath()));
-            } else if (name.endsWith(".pdf")) {
-                try (PDDocument doc = PDDocument.load(file)) {
-                    PDFTextStripper stripper = new PDFTextStripper();
-                    text = stripper.getText(doc);
-                }
-            } else if (name.endsWith(".docx")) {
-                text = extractFromDOCX(file);
-            } else {
-                throw new IllegalArgumentException("Unsupported file type: " + name);
-            }
+    public static String extractText(MultipartFile multipartFile) throws Exception {
+        return extractText(multipartFile, ParallelPdfExtractor.sequential(DEFAULT_PDF_MAX_MAIN_MEMORY_BYTES));
+    }
 
-            if (text == null || text.trim().isEmpty()) {
-                throw new Exception("No text content extracted from file");
+    public static String extractText(MultipartFile multipartFile, ParallelPdfExtractor pdfExtractor) throws Exception {
+        try (InputStream is = multipartFile.getInputStream()) {
+            return extractText(multipartFile.getOriginalFilename(), is, pdfExtractor);
+        }
+    }
+
+    public static String extractText(String fileName, InputStream is, ParallelPdfExtractor pdfExtractor) throws Exception {
+        TextBuffer buffer = new TextBuffer();
+        extractText(fileName, is, buffer, pdfExtractor);
+        return nonEmpty(fileName, buffer);
+    }
+
+    /** Extracted text and the heap bytes allocated producing it, or -1 when the JVM does not track them. */
+    public record Extracted(String text, long allocatedBytes) {}
+
+    /** Like the stream variant, but large PDFs can be split across the extractor's pool. */
+    public static String extractText(String fileName, byte[] data, ParallelPdfExtractor pdfExtractor) throws Exception {
+        return extractMeasured(fileName, data, pdfExtractor).text();
+    }
+
+    /**
+     * Extracts like {@link #extractText(String, byte[], ParallelPdfExtractor)} and counts
+     * the bytes allocated on the calling thread plus, for ranged PDF extraction, on the
+     * pool workers. That is an upper bound on the document's peak heap, and unlike heap
+     * usage sampled around the call it is not skewed by concurrent uploads or collections.
+     */
+    public static Extracted extractMeasured(String fileName, byte[] data, ParallelPdfExtractor pdfExtractor)
+            throws Exception {
+        long before = ThreadAllocation.current();
+        String text;
+        long workerBytes = 0;
+        if (!fileName.toLowerCase().endsWith(".pdf")) {
+            text = extractText(fileName, new ByteArrayInputStream(data), pdfExtractor);
+        } else {
+            TextBuffer buffer = new TextBuffer();
+            try {
+                workerBytes = pdfExtractor.extract(data, buffer);
+            } catch (Exception e) {
+                logger.error("Error extracting text from file {}: {}", fileName, e.getMessage());
+                throw e;
             }
+            text = nonEmpty(fileName, buffer);
+        }
+        long callerBytes = ThreadAllocation.since(before);
+        return new Extracted(text, callerBytes < 0 ? -1 : callerBytes + workerBytes);
+    }
 
-            return text.trim();
-        } catch (Exception e) {
-            logger.error("Error extracting text from file {}: {}", file.getName(), e.getMessage());
-            throw e;
+    private static String nonEmpty(String fileName, TextBuffer buffer) throws Exception {
+        String text = buffer.trimmed();
+        if (text.isEmpty()) {
+            logger.error("Error extracting text from file {}: no text content", fileName);
+            throw new Exception("No text content extracted from file");
         }
+        return text;
     }
 
-    public static String extractText(MultipartFile multipartFile) throws Exception {
-        String name = multipartFile.getOriginalFilename().toLowerCase();
-        String text;
-        try (InputStream is = multipartFile.getInputStream()) {
-            if (name.endsWith(".txt")) {
-                text = new String(is.readAllBytes());
+    /**
+     * Streams the text of the named document into out as it is extracted, so callers
+     * can feed downstream stages without holding the whole document first.
+     */
+    public static void extractText(String fileName, InputStream is, Writer out, ParallelPdfExtractor pdfExtractor)
+            throws Exception {
+        String name = fileName.toLowerCase();
+        try {
+            if (name.endsWith(".txt") || isSourceCode(name)) {
+                Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
+                reader.transferTo(out);
+                out.flush();
             } else if (name.endsWith(".pdf")) {
-                try (PDDocument doc = PDDocument.load(is)) {
-                    PDFTextStripper stripper = new PDFTextStripper();
-                    text = stripper.getText(doc);
-                }
+                pdfExtractor.extract(is, out);
             } else if (name.endsWith(".docx")) {
-                text = extractFromDOCX(is);
+                DocxTextExtractor.extract(is, out);
             } else {
                 throw new IllegalArgumentException("Unsupported file type: " + name);
             }
-            if (text == null || text.trim().isEmpty()) {
-                throw new Exception("No text content extracted from file");
-            }
-            return text.trim();
         } catch (Exception e) {
-            logger.error("Error extracting text from MultipartFile {}: {}", name, e.getMessage());
+            logger.error("Error extracting text from file {}: {}", fileName, e.getMessage());
             throw e;
         }
     }
 
-    private static String extractFromDOCX(File file) throws Exception {
-        try (FileInputStream fis = new FileInputStream(file);
-             XWPFDocument document = new XWPFDocument(fis)) {
-            
-            List<String> paragraphs = new ArrayList<>();
-            for (XWPFParagraph para : document.getParagraphs()) {
-                String paraText = para.getText();
-                if (paraText != null && !paraText.trim().isEmpty()) {
-                    paragraphs.add(paraText.trim());
-                }
-            }
-            
-            if (paragraphs.isEmpty()) {
-                throw new Exception("No text content found in DOCX file");
-            }
-            
-            return String.join("\n", paragraphs);
-        } catch (Exception e) {
-            logger.error("Error extracting text from DOCX file {}: {}", file.getName(), e.getMessage());
-            throw e;
+    /**
+     * Strips a PDF page by page into the given writer. PDFBox keeps at most
+     * maxMainMemoryBytes of the parsed document on heap and spills the rest to a
+     * temp scratch file, so memory per upload stays bounded regardless of file size.
+     */
+    public static int extractFromPDF(InputStream is, Writer out, long maxMainMemoryBytes) throws IOException {
+        try (PDDocument doc = PDDocument.load(is, MemoryUsageSetting.setupMixed(maxMainMemoryBytes))) {
+            return writePages(doc, out);
         }
     }
 
-    private static String extractFromDOCX(InputStream is) throws Exception {
-        try (XWPFDocument document = new XWPFDocument(is)) {
-            List<String> paragraphs = new ArrayList<>();
-            for (XWPFParagraph para : document.getParagraphs()) {
-                String paraText = para.getText();
-                if (paraText != null && !paraText.trim().isEmpty()) {
-                    paragraphs.add(paraText.trim());
-                }
+    /** Writes every page of doc to out and returns the page count. */
+    static int writePages(PDDocument doc, Writer out) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        int pages = doc.getNumberOfPages();
+        for (int page = 1; page <= pages; page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            stripper.writeText(doc, out);
+        }
+        out.flush();
+        logger.debug("Extracted {} PDF pages", pages);
+        return pages;
+    }
+
+    /**
+     * Unsynchronized writer over a StringBuilder. Unlike StringWriter followed by trim,
+     * the extracted text is copied into a String exactly once, already trimmed.
+     */
+    static final class TextBuffer extends Writer {
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            text.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            text.append(str, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            text.append((char) c);
+        }
+
+        @Override
+        public Writer append(CharSequence chars) {
+            text.append(chars);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        String trimmed() {
+            int start = 0;
+            int end = text.length();
+            while (start < end && text.charAt(start) <= ' ') {
+                start++;
             }
-            if (paragraphs.isEmpty()) {
-                throw new Exception("No text content found in DOCX file");
+            while (end > start && text.charAt(end - 1) <= ' ') {
+                end--;
             }
-            return String.join("\n", paragraphs);
-        } catch (Exception e) {
-            logger.error("Error extracting text from DOCX InputStream: {}", e.getMessage());
-            throw e;
+            return text.substring(start, end);
         }
     }
 }
@@ -0,0 +1,69 @@
+package com.plagiguard.util;
+
+/**
+ * Round trips counted in log-spaced buckets, each 15% wider than the one before, from
+ * 100 microseconds to about a minute. A percentile is read by walking the 96 buckets
+ * rather than sorting samples, and is reported as the upper bound of its bucket, so it
+ * errs by at most 15% on the long side. Every HALF_LIFE samples all counts are halved,
+ * which keeps the distribution on recent calls.
+ */
+final class LatencyHistogram {
+    static final int BUCKETS = 96;
+    private static final long MIN_NANOS = 100_000;
+    private static final double GROWTH = 1.15;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    private static final int HALF_LIFE = 512;
+    private static final long[] UPPER_BOUNDS = new long[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUNDS[i] = (long) (MIN_NANOS * Math.pow(GROWTH, i + 1));
+        }
+    }
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private int sinceDecay;
+
+    synchronized void record(long nanos) {
+        counts[bucket(nanos)]++;
+        total++;
+        if (++sinceDecay >= HALF_LIFE) {
+            sinceDecay = 0;
+            total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] >>= 1;
+                total += counts[i];
+            }
+        }
+    }
+
+    /** Adds the bucket counts to sums and returns their total. */
+    synchronized long addTo(long[] sums) {
+        for (int i = 0; i < BUCKETS; i++) {
+            sums[i] += counts[i];
+        }
+        return total;
+    }
+
+    /** Upper bound of the bucket holding the given percentile of counts, which total total. */
+    static long percentile(long[] counts, long total, double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return UPPER_BOUNDS[i];
+            }
+        }
+        return UPPER_BOUNDS[BUCKETS - 1];
+    }
+
+    static int bucket(long nanos) {
+        if (nanos <= MIN_NANOS) {
+            return 0;
+        }
+        int bucket = (int) (Math.log((double) nanos / MIN_NANOS) / LOG_GROWTH);
+        return Math.min(BUCKETS - 1, bucket);
+    }
+}
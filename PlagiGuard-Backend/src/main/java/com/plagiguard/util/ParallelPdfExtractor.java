@@ -0,0 +1,170 @@
+package com.plagiguard.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extracts PDF text by splitting the document into page ranges and stripping them
+ * concurrently on a dedicated fork-join pool. The document is opened once on the
+ * calling thread to count its pages; below the page threshold it is stripped right
+ * there. PDDocument is not thread-safe and parses objects lazily, so above the
+ * threshold every range task opens its own document over the same bytes. That
+ * re-reads the cross-reference table and page tree once per task, but content
+ * streams, where nearly all stripping time goes, are only decoded for the task's own
+ * pages: on a generated 256-page text PDF with 16-page ranges, opening took about a
+ * tenth of each warmed-up range task.
+ * Only callers holding random-access bytes (a byte array or file) are split; a plain
+ * stream is stripped on the calling thread rather than spooled to disk. Range tasks sum
+ * what they allocate on their worker threads, so callers can add it to their own.
+ */
+public class ParallelPdfExtractor implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelPdfExtractor.class);
+
+    private final ForkJoinPool pool;
+    private final int pageThreshold;
+    private final int pagesPerTask;
+    private final long maxMainMemoryBytes;
+
+    @FunctionalInterface
+    private interface Source {
+        PDDocument open(long maxMainMemoryBytes) throws IOException;
+    }
+
+    public ParallelPdfExtractor(int parallelism, int pageThreshold, int pagesPerTask, long maxMainMemoryBytes) {
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism, new NamedThreadFactory(), null, false) : null;
+        this.pageThreshold = pageThreshold;
+        this.pagesPerTask = Math.max(1, pagesPerTask);
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+    }
+
+    public static ParallelPdfExtractor sequential(long maxMainMemoryBytes) {
+        return new ParallelPdfExtractor(1, Integer.MAX_VALUE, Integer.MAX_VALUE, maxMainMemoryBytes);
+    }
+
+    public void extract(InputStream is, Writer out) throws IOException {
+        FileTextExtractor.extractFromPDF(is, out, maxMainMemoryBytes);
+    }
+
+    /**
+     * Returns the bytes allocated on pool workers for this document, 0 when it was
+     * stripped on the calling thread or the JVM does not track allocation.
+     */
+    public long extract(byte[] pdf, Writer out) throws IOException {
+        return extract(memory -> PDDocument.load(pdf, null, null, null, MemoryUsageSetting.setupMixed(memory)), out);
+    }
+
+    /** Like {@link #extract(byte[], Writer)} for a PDF file. */
+    public long extract(File pdf, Writer out) throws IOException {
+        return extract(memory -> PDDocument.load(pdf, MemoryUsageSetting.setupMixed(memory)), out);
+    }
+
+    private long extract(Source source, Writer out) throws IOException {
+        int pages;
+        try (PDDocument doc = source.open(maxMainMemoryBytes)) {
+            pages = doc.getNumberOfPages();
+            if (pool == null || pages < pageThreshold) {
+                FileTextExtractor.writePages(doc, out);
+                return 0;
+            }
+        }
+
+        long start = System.nanoTime();
+        int ranges = (pages + pagesPerTask - 1) / pagesPerTask;
+        String[] texts = new String[ranges];
+        // Every worker holds its own document, so split the heap budget between them
+        long perTaskMemory = Math.max(1024 * 1024, maxMainMemoryBytes / pool.getParallelism());
+        LongAdder allocated = new LongAdder();
+        try {
+            pool.invoke(new PageRangeTask(source, texts, allocated, 0, ranges, pages, perTaskMemory));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (String text : texts) {
+            out.write(text);
+        }
+        out.flush();
+        logger.debug("Extracted {} PDF pages in {} ranges in {} ms", pages, ranges,
+            (System.nanoTime() - start) / 1_000_000);
+        return allocated.sum();
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private class PageRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Source source;
+        private final String[] texts;
+        private final LongAdder allocated;
+        private final int fromRange;
+        private final int toRange;
+        private final int pages;
+        private final long memoryBytes;
+
+        PageRangeTask(Source source, String[] texts, LongAdder allocated, int fromRange, int toRange, int pages,
+                long memoryBytes) {
+            this.source = source;
+            this.texts = texts;
+            this.allocated = allocated;
+            this.fromRange = fromRange;
+            this.toRange = toRange;
+            this.pages = pages;
+            this.memoryBytes = memoryBytes;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRange - fromRange > 1) {
+                int mid = (fromRange + toRange) >>> 1;
+                invokeAll(new PageRangeTask(source, texts, allocated, fromRange, mid, pages, memoryBytes),
+                    new PageRangeTask(source, texts, allocated, mid, toRange, pages, memoryBytes));
+                return;
+            }
+            int startPage = fromRange * pagesPerTask + 1;
+            int endPage = Math.min(pages, startPage + pagesPerTask - 1);
+            long before = ThreadAllocation.current();
+            try (PDDocument doc = source.open(memoryBytes)) {
+                PDFTextStripper stripper = new PDFTextStripper();
+                stripper.setStartPage(startPage);
+                stripper.setEndPage(endPage);
+                texts[fromRange] = stripper.getText(doc);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            long bytes = ThreadAllocation.since(before);
+            if (bytes > 0) {
+                allocated.add(bytes);
+            }
+        }
+    }
+
+    private static class NamedThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("pdf-extract-" + counter.incrementAndGet());
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.plagiguard.util;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.plagiguard.similarity.IntIntMap;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-process pre-classifier that settles clear-cut detector windows without a remote
+ * call. One pass over a window's tokens yields cheap stylometric features (letter ratio,
+ * function-word ratio, sentence-length variation, burstiness of repeated words and
+ * character trigram entropy) which a bundled logistic model turns into P(ai). Only the
+ * HUMAN side is ever decided here: windows below humanBelow skip the detector, all others,
+ * and windows shorter than minWords, go to it. A model score never labels a window AI.
+ * A shadowRate sample of HUMAN windows is sent anyway and counted in
+ * ai.detector.precheck.agreement against the remote verdict; in shadow-only mode every
+ * one is, so a model can be calibrated on live traffic before it saves any calls.
+ */
+public class PreClassifier {
+    public enum Decision { HUMAN, ESCALATE }
+
+    /** Decision for one window; shadow windows are decided but still sent for the agreement metric. */
+    public record Verdict(Decision decision, double aiScore, boolean shadow) {}
+
+    private static final Verdict ESCALATED = new Verdict(Decision.ESCALATE, Double.NaN, false);
+
+    private static final String[] FEATURES = {
+        "letter_ratio", "function_word_ratio", "sentence_length_cv", "burstiness", "trigram_entropy"
+    };
+
+    private final boolean enabled;
+    private final boolean shadowOnly;
+    private final double humanBelow;
+    private final int minWords;
+    private final double shadowRate;
+    private final double bias;
+    private final double[] means = new double[FEATURES.length];
+    private final double[] scales = new double[FEATURES.length];
+    private final double[] weights = new double[FEATURES.length];
+    // Sorted TokenStream hashes of the function words
+    private final long[] functionWords;
+    private final Map<Decision, Counter> decisions = new EnumMap<>(Decision.class);
+    private final Map<Decision, Counter> agreed = new EnumMap<>(Decision.class);
+    private final Map<Decision, Counter> disagreed = new EnumMap<>(Decision.class);
+
+    public PreClassifier(Properties model, boolean enabled, boolean shadowOnly, double humanBelow,
+            int minWords, double shadowRate, MeterRegistry registry) {
+        this.enabled = enabled;
+        this.shadowOnly = shadowOnly;
+        this.humanBelow = humanBelow;
+        this.minWords = Math.max(1, minWords);
+        this.shadowRate = shadowRate;
+        this.bias = Double.parseDouble(model.getProperty("bias", "0"));
+        for (String name : model.getProperty("features", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            int feature = Arrays.asList(FEATURES).indexOf(name);
+            if (feature < 0) {
+                throw new IllegalArgumentException("Unknown pre-classifier feature: " + name);
+            }
+            means[feature] = Double.parseDouble(model.getProperty(name + ".mean", "0"));
+            scales[feature] = Double.parseDouble(model.getProperty(name + ".scale", "1"));
+            weights[feature] = Double.parseDouble(model.getProperty(name + ".weight", "0"));
+        }
+        this.functionWords = Arrays.stream(model.getProperty("function.words", "").split(","))
+            .map(String::trim)
+            .filter(word -> !word.isEmpty())
+            .mapToLong(word -> TextNormalizer.normalize(word).hash(0))
+            .sorted()
+            .distinct()
+            .toArray();
+
+        String version = model.getProperty("version", "unversioned");
+        for (Decision decision : Decision.values()) {
+            String tag = decision == Decision.ESCALATE ? "escalated" : decision.name().toLowerCase(Locale.ROOT);
+            decisions.put(decision, Counter.builder("ai.detector.precheck.decisions")
+                .description("Detector windows by pre-classifier decision")
+                .tag("decision", tag)
+                .tag("model", version)
+                .register(registry));
+            if (decision != Decision.ESCALATE) {
+                agreed.put(decision, agreement(registry, tag, "agree", version));
+                disagreed.put(decision, agreement(registry, tag, "disagree", version));
+            }
+        }
+    }
+
+    private static Counter agreement(MeterRegistry registry, String decision, String outcome, String version) {
+        return Counter.builder("ai.detector.precheck.agreement")
+            .description("Shadow-checked pre-classifier decisions by agreement with the remote detector")
+            .tag("decision", decision)
+            .tag("outcome", outcome)
+            .tag("model", version)
+            .register(registry);
+    }
+
+    /** Classifies tokens [first, end) of the stream. */
+    public Verdict classify(TokenStream tokens, int first, int end) {
+        if (!enabled) {
+            return ESCALATED;
+        }
+        if (end - first < minWords) {
+            decisions.get(Decision.ESCALATE).increment();
+            return ESCALATED;
+        }
+        double aiScore = score(tokens, first, end);
+        if (aiScore >= humanBelow) {
+            decisions.get(Decision.ESCALATE).increment();
+            return ESCALATED;
+        }
+        decisions.get(Decision.HUMAN).increment();
+        return new Verdict(Decision.HUMAN, aiScore, shadowOnly || ThreadLocalRandom.current().nextDouble() < shadowRate);
+    }
+
+    /** Counts whether a shadow-checked decision matched the remote detector's verdict. */
+    public void recordAgreement(Decision decision, boolean remoteAiGenerated) {
+        if (decision == Decision.ESCALATE) {
+            return;
+        }
+        (remoteAiGenerated ? disagreed : agreed).get(decision).increment();
+    }
+
+    double score(TokenStream tokens, int first, int end) {
+        double[] features = new Features(end - first).scan(tokens, first, end);
+        double z = bias;
+        for (int i = 0; i < FEATURES.length; i++) {
+            // NaN marks a feature the window gives no evidence for, e.g. sentence variation of one sentence
+            if (!Double.isNaN(features[i])) {
+                z += weights[i] * (features[i] - means[i]) / scales[i];
+            }
+        }
+        return 1 / (1 + Math.exp(-z));
+    }
+
+    private final class Features {
+        private final IntIntMap lastSeen;
+        private final IntIntMap trigrams;
+        private long letters;
+        private long visible;
+        private long functional;
+        private int gaps;
+        private double gapSum;
+        private double gapSquares;
+        private int sentences;
+        private int sentenceWords;
+        private double sentenceSum;
+        private double sentenceSquares;
+        private int history;
+        private char previous;
+        private char beforePrevious;
+        private int trigramCount;
+
+        Features(int words) {
+            this.lastSeen = new IntIntMap(words);
+            this.trigrams = new IntIntMap(words * 4);
+        }
+
+        double[] scan(TokenStream tokens, int first, int end) {
+            for (int t = first; t < end; t++) {
+                long hash = tokens.hash(t);
+                if (Arrays.binarySearch(functionWords, hash) >= 0) {
+                    functional++;
+                }
+                // Positions are stored one-based so that an absent word reads as 0
+                int key = (int) (hash ^ (hash >>> 32)) & Integer.MAX_VALUE;
+                int position = t - first + 1;
+                int seen = lastSeen.get(key);
+                if (seen > 0) {
+                    double gap = position - seen;
+                    gaps++;
+                    gapSum += gap;
+                    gapSquares += gap * gap;
+                }
+                lastSeen.put(key, position);
+
+                if (t > first) {
+                    character(' ');
+                }
+                for (int i = tokens.start(t); i < tokens.end(t); i++) {
+                    char c = tokens.charAt(i);
+                    visible++;
+                    if (Character.isLetter(c)) {
+                        letters++;
+                    }
+                    character(Character.toLowerCase(c));
+                }
+                sentenceWords++;
+                if (endsSentence(tokens, t)) {
+                    sentence();
+                }
+            }
+            if (sentenceWords > 0) {
+                sentence();
+            }
+            int words = end - first;
+            return new double[] {
+                visible == 0 ? Double.NaN : (double) letters / visible,
+                words == 0 ? Double.NaN : (double) functional / words,
+                coefficientOfVariation(),
+                burstiness(),
+                trigramEntropy()
+            };
+        }
+
+        private void character(char c) {
+            if (++history >= 3) {
+                int key = ((beforePrevious << 21) ^ (previous << 10) ^ c) & Integer.MAX_VALUE;
+                trigrams.increment(key, 1);
+                trigramCount++;
+            }
+            beforePrevious = previous;
+            previous = c;
+        }
+
+        private void sentence() {
+            sentences++;
+            sentenceSum += sentenceWords;
+            sentenceSquares += (double) sentenceWords * sentenceWords;
+            sentenceWords = 0;
+        }
+
+        private double coefficientOfVariation() {
+            if (sentences < 3) {
+                return Double.NaN;
+            }
+            double mean = sentenceSum / sentences;
+            double variance = Math.max(0, sentenceSquares / sentences - mean * mean);
+            return Math.sqrt(variance) / mean;
+        }
+
+        private double burstiness() {
+            if (gaps < 2) {
+                return Double.NaN;
+            }
+            double mean = gapSum / gaps;
+            double deviation = Math.sqrt(Math.max(0, gapSquares / gaps - mean * mean));
+            return (deviation - mean) / (deviation + mean);
+        }
+
+        private double trigramEntropy() {
+            if (trigramCount < 2) {
+                return Double.NaN;
+            }
+            double[] sum = new double[1];
+            trigrams.forEach((key, count) -> sum[0] += count * Math.log(count));
+            double entropy = Math.log(trigramCount) - sum[0] / trigramCount;
+            return entropy / Math.log(trigramCount);
+        }
+    }
+
+    // A token ends a sentence when its last character before closing quotes or brackets is . ! or ?
+    private static boolean endsSentence(TokenStream tokens, int token) {
+        for (int i = tokens.end(token) - 1; i >= tokens.start(token); i--) {
+            char c = tokens.charAt(i);
+            switch (c) {
+                case '"', '\'', ')', ']', '\u201d', '\u2019' -> {
+                    continue;
+                }
+                case '.', '!', '?' -> {
+                    return true;
+                }
+                default -> {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
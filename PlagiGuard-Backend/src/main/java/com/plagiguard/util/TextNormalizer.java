@@ -0,0 +1,107 @@
+package com.plagiguard.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Single normalization and tokenization stage shared by AI detection, highlighting
+ * and the similarity engines. In one pass over the NFKC-normalized text it drops soft
+ * hyphens and zero-width characters, re-joins words hyphenated across PDF line breaks,
+ * collapses whitespace runs (to a newline if the run contained one, so paragraphs
+ * survive, otherwise to a single space) and records token offsets.
+ * Ligatures such as U+FB01 are expanded by the NFKC step.
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {}
+
+    public static TokenStream normalize(String raw) {
+        String text = Normalizer.isNormalized(raw, Normalizer.Form.NFKC)
+            ? raw
+            : Normalizer.normalize(raw, Normalizer.Form.NFKC);
+
+        int n = text.length();
+        char[] out = new char[n];
+        int[] offsets = new int[Math.max(16, n / 3)];
+        int length = 0;
+        int tokens = 0;
+        int tokenStart = -1;
+        boolean pendingSpace = false;
+        boolean pendingNewline = false;
+
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (isIgnorable(c)) {
+                continue;
+            }
+            if (isHyphen(c) && tokenStart >= 0 && length > 0 && Character.isLetter(out[length - 1])) {
+                int next = skipLineBreak(text, i + 1);
+                if (next > 0 && Character.isLowerCase(text.charAt(next))) {
+                    // "exam-\nple" -> "example"
+                    i = next - 1;
+                    continue;
+                }
+            }
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                if (tokenStart >= 0) {
+                    offsets = ensureCapacity(offsets, tokens);
+                    offsets[tokens << 1] = tokenStart;
+                    offsets[(tokens << 1) + 1] = length;
+                    tokens++;
+                    tokenStart = -1;
+                }
+                pendingSpace = true;
+                pendingNewline |= c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029';
+                continue;
+            }
+            if (pendingSpace && length > 0) {
+                out[length++] = pendingNewline ? '\n' : ' ';
+            }
+            pendingSpace = false;
+            pendingNewline = false;
+            if (tokenStart < 0) {
+                tokenStart = length;
+            }
+            out[length++] = c;
+        }
+        if (tokenStart >= 0) {
+            offsets = ensureCapacity(offsets, tokens);
+            offsets[tokens << 1] = tokenStart;
+            offsets[(tokens << 1) + 1] = length;
+            tokens++;
+        }
+        return new TokenStream(out, length, offsets, tokens);
+    }
+
+    // Returns the index after a whitespace run containing exactly one line break, or -1
+    private static int skipLineBreak(String text, int from) {
+        boolean sawBreak = false;
+        int i = from;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                if (sawBreak) {
+                    return -1;
+                }
+                sawBreak = true;
+            } else if (c != '\r' && c != ' ' && c != '\t') {
+                break;
+            }
+            i++;
+        }
+        return sawBreak && i < text.length() ? i : -1;
+    }
+
+    private static boolean isHyphen(char c) {
+        return c == '-' || c == '\u2010';
+    }
+
+    private static boolean isIgnorable(char c) {
+        return c == '\u00AD' || c == '\u200B' || c == '\u200C' || c == '\u200D' || c == '\uFEFF';
+    }
+
+    private static int[] ensureCapacity(int[] offsets, int tokens) {
+        int required = (tokens << 1) + 2;
+        return required <= offsets.length ? offsets : Arrays.copyOf(offsets, Math.max(required, offsets.length * 2));
+    }
+}
@@ -0,0 +1,37 @@
+package com.plagiguard.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Bytes allocated on the heap by the current thread, from HotSpot's per-thread TLAB
+ * accounting. Unlike heap usage it is not disturbed by other threads or by collections,
+ * so the difference around a piece of work is what that work allocated.
+ */
+final class ThreadAllocation {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private ThreadAllocation() {
+    }
+
+    /** Running total for the current thread, or -1 when the JVM does not track it. */
+    static long current() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /** Bytes allocated since a {@link #current()} reading, or -1 when unknown. */
+    static long since(long start) {
+        long now = current();
+        return start < 0 || now < 0 ? -1 : now - start;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            if (!threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+            return threads;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,116 @@
+package com.plagiguard.util;
+
+/**
+ * Normalized document text plus its whitespace-delimited tokens. Tokens are kept as
+ * start/end offsets into the single normalized char buffer (offsets[2i], offsets[2i+1])
+ * so no String is allocated per word. Token indexes match the word indexes of the
+ * normalized text split on whitespace, which is what the result highlighting uses.
+ */
+public final class TokenStream implements CharSequence {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final char[] buffer;
+    private final int length;
+    private final int[] offsets;
+    private final int size;
+    private String text;
+
+    TokenStream(char[] buffer, int length, int[] offsets, int size) {
+        this.buffer = buffer;
+        this.length = length;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int start(int token) {
+        return offsets[token << 1];
+    }
+
+    public int end(int token) {
+        return offsets[(token << 1) + 1];
+    }
+
+    /**
+     * Case-insensitive 64-bit FNV-1a hash of a token, ignoring punctuation so that
+     * "Word," and "word" hash the same. Tokens made only of punctuation hash their raw chars.
+     */
+    public long hash(int token) {
+        int start = start(token);
+        int end = end(token);
+        long hash = FNV_OFFSET;
+        boolean sawWordChar = false;
+        for (int i = start; i < end; i++) {
+            char c = buffer[i];
+            if (Character.isLetterOrDigit(c)) {
+                hash = (hash ^ Character.toLowerCase(c)) * FNV_PRIME;
+                sawWordChar = true;
+            }
+        }
+        if (!sawWordChar) {
+            for (int i = start; i < end; i++) {
+                hash = (hash ^ buffer[i]) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    public long[] hashes() {
+        long[] hashes = new long[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = hash(i);
+        }
+        return hashes;
+    }
+
+    /** Index of the token containing or following the given char offset. */
+    public int tokenAt(int offset) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (end(mid) <= offset) {
+                low = mid + 1;
+            } else if (start(mid) > offset) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return low;
+    }
+
+    public String token(int token) {
+        return new String(buffer, start(token), end(token) - start(token));
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return buffer[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(buffer, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        if (text == null) {
+            text = new String(buffer, 0, length);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,203 @@
+package com.plagiguard.util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Adaptive concurrency limit after TCP Vegas, as in Netflix concurrency-limits. The limit
+ * follows the queue estimated from each call's round trip against the lowest round trip
+ * seen (the no-load baseline): limit * (1 - rttNoLoad / rtt) requests are assumed to be
+ * waiting at the detector. Below log10(limit) queued the limit grows quickly, below
+ * 3 log10(limit) slowly and above 6 log10(limit) it shrinks; log10 is floored at 1 so
+ * small limits still move. A dropped call halves the limit at once, since a timeout or
+ * overload response is a stronger signal than a slow round trip. The baseline is
+ * re-probed every few hundred samples so a detector that got permanently slower is
+ * not mistaken for a congested one.
+ *
+ * Callers over the limit wait in a bounded FIFO queue and are rejected once it is full.
+ * The limit, in-flight count, queue length and round trips are published as
+ * ai.detector.limit.* gauges.
+ */
+final class VegasLimiter {
+    private static final double SMOOTHING = 0.5;
+    private static final int PROBE_MULTIPLIER = 30;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final Counter rejected;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long rttNoLoadNanos;
+    private long rttNanos;
+    private long samples;
+    private long nextProbe;
+
+    VegasLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue, MeterRegistry registry) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.maxQueue = Math.max(0, maxQueue);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.nextProbe = probeInterval();
+
+        Gauge.builder("ai.detector.limit", this, VegasLimiter::limit)
+            .description("Adaptive limit of concurrent detector calls")
+            .register(registry);
+        Gauge.builder("ai.detector.limit.inflight", this, VegasLimiter::inFlight)
+            .description("Detector calls holding a limiter permit")
+            .register(registry);
+        Gauge.builder("ai.detector.limit.queued", this, VegasLimiter::queued)
+            .description("Detector calls waiting for a limiter permit")
+            .register(registry);
+        Gauge.builder("ai.detector.limit.rtt", this, limiter -> limiter.rttMillis(false))
+            .description("Round trip of the last detector call")
+            .baseUnit("milliseconds")
+            .register(registry);
+        Gauge.builder("ai.detector.limit.rtt.noload", this, limiter -> limiter.rttMillis(true))
+            .description("Lowest detector round trip since the last probe")
+            .baseUnit("milliseconds")
+            .register(registry);
+        this.rejected = Counter.builder("ai.detector.limit.rejected")
+            .description("Detector calls rejected because the limiter queue was full")
+            .register(registry);
+    }
+
+    /** Completes once a permit is held; fails at once when the wait queue is full. */
+    CompletableFuture<Void> acquire() {
+        synchronized (lock) {
+            if (inFlight < (int) limit && waiting.isEmpty()) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            if (waiting.size() < maxQueue) {
+                CompletableFuture<Void> permit = new CompletableFuture<>();
+                waiting.add(permit);
+                return permit;
+            }
+        }
+        rejected.increment();
+        return CompletableFuture.failedFuture(new RejectedExecutionException(
+            "AI detector concurrency limit of " + limit() + " reached with " + maxQueue + " calls queued"));
+    }
+
+    /** Takes a permit if one is free now, never queueing; for calls that are only worth making at once. */
+    boolean tryAcquire() {
+        synchronized (lock) {
+            if (inFlight < (int) limit && waiting.isEmpty()) {
+                inFlight++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /** Releases a permit and adjusts the limit from the call's round trip. */
+    void onSuccess(long rttNanos) {
+        release(rttNanos, false);
+    }
+
+    /** Releases a permit after a timeout or overload response, shrinking the limit. */
+    void onDropped() {
+        release(0, true);
+    }
+
+    /** Releases a permit without a sample, for calls that failed for reasons unrelated to load. */
+    void onIgnore() {
+        release(0, false);
+    }
+
+    private void release(long sampleNanos, boolean dropped) {
+        ArrayDeque<CompletableFuture<Void>> granted = new ArrayDeque<>();
+        synchronized (lock) {
+            int callsInFlight = inFlight;
+            inFlight--;
+            if (dropped) {
+                update(0, callsInFlight, true);
+            } else if (sampleNanos > 0) {
+                update(sampleNanos, callsInFlight, false);
+            }
+            while (inFlight < (int) limit && !waiting.isEmpty()) {
+                inFlight++;
+                granted.add(waiting.poll());
+            }
+        }
+        // Completed outside the lock: the permit holders start their calls on this thread
+        for (CompletableFuture<Void> permit : granted) {
+            permit.complete(null);
+        }
+    }
+
+    private void update(long sampleNanos, int callsInFlight, boolean dropped) {
+        if (dropped) {
+            limit = Math.max(minLimit, limit / 2);
+            return;
+        }
+        rttNanos = sampleNanos;
+        if (++samples >= nextProbe) {
+            // Forget the baseline; the next samples re-learn it at the current load
+            rttNoLoadNanos = sampleNanos;
+            samples = 0;
+            nextProbe = probeInterval();
+            return;
+        }
+        if (rttNoLoadNanos == 0 || sampleNanos < rttNoLoadNanos) {
+            rttNoLoadNanos = sampleNanos;
+            return;
+        }
+        // A limit the callers never fill says nothing about the detector's capacity
+        if (callsInFlight * 2 < limit) {
+            return;
+        }
+        double log = Math.log10(Math.max(10, limit));
+        double queue = Math.ceil(limit * (1 - (double) rttNoLoadNanos / sampleNanos));
+        double newLimit;
+        if (queue <= log) {
+            newLimit = limit + 6 * log;
+        } else if (queue < 3 * log) {
+            newLimit = limit + log;
+        } else if (queue > 6 * log) {
+            newLimit = limit - log;
+        } else {
+            return;
+        }
+        newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (1 - SMOOTHING) * limit + SMOOTHING * newLimit;
+    }
+
+    private long probeInterval() {
+        return (long) (PROBE_MULTIPLIER * (int) Math.max(minLimit, limit) * (1 + ThreadLocalRandom.current().nextDouble()));
+    }
+
+    int limit() {
+        synchronized (lock) {
+            return (int) limit;
+        }
+    }
+
+    int inFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    int queued() {
+        synchronized (lock) {
+            return waiting.size();
+        }
+    }
+
+    private double rttMillis(boolean noLoad) {
+        synchronized (lock) {
+            return (noLoad ? rttNoLoadNanos : rttNanos) / 1e6;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.plagiguard.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bounds what a zip archive may inflate to. {@link #compressed()} wraps the raw archive
+ * and counts the bytes the ZipInputStream pulls from it; {@link #entry} wraps the zip
+ * stream positioned at an entry and fails once the entry or the whole archive inflates
+ * past its limit, or the entry inflates to more than maxRatio times the compressed bytes
+ * read for it. The ratio is only checked from GRACE_BYTES of output on, since small
+ * parts can legitimately compress better than any sane limit.
+ */
+final class ZipBombGuard {
+    private static final long GRACE_BYTES = 1024 * 1024;
+
+    private final CountingInputStream compressed;
+    private final long maxEntryBytes;
+    private final long maxDocumentBytes;
+    private final double maxRatio;
+    private long documentBytes;
+
+    ZipBombGuard(InputStream archive, long maxEntryBytes, long maxDocumentBytes, double maxRatio) {
+        this.compressed = new CountingInputStream(archive);
+        this.maxEntryBytes = maxEntryBytes;
+        this.maxDocumentBytes = maxDocumentBytes;
+        this.maxRatio = maxRatio;
+    }
+
+    /** The archive to read the zip stream from. */
+    InputStream compressed() {
+        return compressed;
+    }
+
+    /** The current entry of zip, counted against the limits; closing it leaves zip open. */
+    InputStream entry(InputStream zip, String name) {
+        return new EntryStream(zip, name, compressed.count);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    private final class EntryStream extends FilterInputStream {
+        private final String name;
+        private final long compressedStart;
+        private long entryBytes;
+
+        EntryStream(InputStream zip, String name, long compressedStart) {
+            super(zip);
+            this.name = name;
+            this.compressedStart = compressedStart;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                inflated(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                inflated(n);
+            }
+            return n;
+        }
+
+        // ZipInputStream.skip inflates internally, so skip by reading to keep the count
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+            // Later entries are read from the same zip stream
+        }
+
+        private void inflated(int n) throws IOException {
+            entryBytes += n;
+            documentBytes += n;
+            if (entryBytes > maxEntryBytes) {
+                throw new IOException("Zip entry " + name + " inflates past " + maxEntryBytes + " bytes");
+            }
+            if (documentBytes > maxDocumentBytes) {
+                throw new IOException("Zip archive inflates past " + maxDocumentBytes + " bytes");
+            }
+            long entryCompressed = Math.max(1, compressed.count - compressedStart);
+            if (entryBytes > GRACE_BYTES && entryBytes > maxRatio * entryCompressed) {
+                throw new IOException("Zip entry " + name + " exceeds the compression ratio limit of " + maxRatio
+                    + " (" + entryBytes + " bytes from " + entryCompressed + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.plagiguard.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.plagiguard.service.AIDetectorService.Windows;
+import com.plagiguard.util.BpeTokenizer;
+import com.plagiguard.util.TextNormalizer;
+import com.plagiguard.util.TokenStream;
+
+class AIDetectorServiceTest {
+    private static final int MAX_TOKENS = 512;
+    private static final int OVERLAP_WORDS = 64;
+
+    private static BpeTokenizer tokenizer;
+
+    @BeforeAll
+    static void load() throws IOException {
+        try (InputStream vocab = AIDetectorServiceTest.class.getResourceAsStream("/ai/roberta/vocab.json");
+                InputStream merges = AIDetectorServiceTest.class.getResourceAsStream("/ai/roberta/merges.txt")) {
+            tokenizer = BpeTokenizer.load(vocab, merges);
+        }
+    }
+
+    @Test
+    void manyTokenWordsStillStepByMostOfAWindow() {
+        // Each Devanagari word is a dozen byte-level tokens, so a window holds about forty words
+        TokenStream tokens = TextNormalizer.normalize(repeat("नमस्ते दुनिया", 3000));
+
+        Windows windows = checkedWindows(tokens);
+        int windowWords = windows.ends()[0] - windows.starts()[0];
+        assertTrue(windowWords < 4 * OVERLAP_WORDS, "window of " + windowWords + " words");
+        // A quarter overlap steps three quarters of a window, give or take the pulled-back tail
+        assertTrue(windows.starts().length <= 3000 / (windowWords * 3 / 4) + 2,
+            windows.starts().length + " windows of " + windowWords + " words");
+    }
+
+    @Test
+    void englishWindowsOverlapByOverlapWords() {
+        TokenStream tokens = TextNormalizer.normalize(repeat("the quick brown fox jumps over a lazy dog", 3000));
+
+        Windows windows = checkedWindows(tokens);
+        for (int i = 1; i < windows.starts().length - 1; i++) {
+            assertEquals(OVERLAP_WORDS, windows.ends()[i - 1] - windows.starts()[i]);
+        }
+    }
+
+    // Windows cover every word in order, fit the model and overlap their predecessor
+    private static Windows checkedWindows(TokenStream tokens) {
+        AIDetectorService service = new AIDetectorService();
+        ReflectionTestUtils.setField(service, "tokenizer", tokenizer);
+        ReflectionTestUtils.setField(service, "maxTokens", MAX_TOKENS);
+        ReflectionTestUtils.setField(service, "overlapWords", OVERLAP_WORDS);
+
+        Windows windows = service.tokenWindows(tokens);
+        int[] starts = windows.starts();
+        int[] ends = windows.ends();
+        assertEquals(0, starts[0]);
+        assertEquals(tokens.size(), ends[ends.length - 1]);
+        for (int i = 0; i < starts.length; i++) {
+            String text = tokens.subSequence(tokens.start(starts[i]), tokens.end(ends[i] - 1)).toString();
+            assertTrue(tokenizer.count(text, 0, text.length()) <= MAX_TOKENS - 2, "window " + i);
+            if (i > 0) {
+                assertTrue(starts[i] > starts[i - 1] && starts[i] < ends[i - 1], "window " + i);
+            }
+        }
+        return windows;
+    }
+
+    private static String repeat(String words, int count) {
+        String[] split = words.split(" ");
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "" : " ").append(split[i % split.length]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,208 @@
+package com.plagiguard.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.plagiguard.dto.BatchComparisonDTO;
+import com.plagiguard.dto.BatchPairDTO;
+import com.plagiguard.similarity.AllPairsOverlap;
+
+class BatchComparisonServiceTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private TextExtractionService extraction;
+    private BatchComparisonService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        extraction = mock(TextExtractionService.class);
+        // Keeps the first job running until the test releases it
+        when(extraction.extract(anyString(), any(byte[].class))).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return "class A {}";
+        });
+        service = new BatchComparisonService();
+        SimilarityService similarity = new SimilarityService();
+        ReflectionTestUtils.setField(similarity, "kgramSize", 5);
+        ReflectionTestUtils.setField(similarity, "windowSize", 4);
+        ReflectionTestUtils.setField(service, "textExtractionService", extraction);
+        ReflectionTestUtils.setField(service, "similarityService", similarity);
+        ReflectionTestUtils.setField(service, "maxDocumentFrequency", 0.5);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "maxFiles", 10);
+        ReflectionTestUtils.setField(service, "codeMinMatch", 3);
+        ReflectionTestUtils.setField(service, "jobTtlMinutes", 5L);
+        ReflectionTestUtils.setField(service, "maxQueuedJobs", 1);
+        ReflectionTestUtils.setField(service, "maxQueuedMb", 1L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void rejectsJobsOnceTheQueueIsFull() throws Exception {
+        service.submit(files(1024), 0.5, true);
+        service.submit(files(1024), 0.5, true);
+
+        assertThrows(RejectedExecutionException.class, () -> service.submit(files(1024), 0.5, true));
+    }
+
+    @Test
+    void rejectsJobsWhoseFilesWouldExceedTheQueuedBytes() throws Exception {
+        service.submit(files(300 * 1024), 0.5, true);
+
+        assertThrows(RejectedExecutionException.class, () -> service.submit(files(300 * 1024), 0.5, true));
+    }
+
+    @Test
+    void acceptsJobsAgainOnceTheQueuedOnesFinish() throws Exception {
+        service.submit(files(300 * 1024), 0.5, true);
+        release.countDown();
+
+        // The bytes are released just after the job reports DONE, so allow a short wait
+        String jobId = null;
+        for (int i = 0; i < 100 && jobId == null; i++) {
+            try {
+                jobId = service.submit(files(300 * 1024), 0.5, true).getJobId();
+            } catch (RejectedExecutionException e) {
+                Thread.sleep(50);
+            }
+        }
+        assertNotNull(jobId);
+    }
+
+    @Test
+    void reportsTheEffectiveFileLimit() {
+        ReflectionTestUtils.setField(service, "maxFiles", AllPairsOverlap.MAX_DOCUMENTS + 10);
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i <= AllPairsOverlap.MAX_DOCUMENTS; i++) {
+            files.add(new MockMultipartFile("files", i + ".txt", "text/plain", new byte[1]));
+        }
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> service.submit(files, 0.5, false));
+        assertEquals("At most " + AllPairsOverlap.MAX_DOCUMENTS + " files per batch", e.getMessage());
+    }
+
+    @Test
+    void findsTheOverlappingPairOfDocuments() throws Exception {
+        extractAsText();
+        Random random = new Random(12);
+        String[] shared = words(random, 300);
+        String first = String.join(" ", shared);
+        // Two thirds of the first document followed by new text
+        String second = String.join(" ", Arrays.copyOf(shared, 200)) + " " + String.join(" ", words(random, 100));
+        String unrelated = String.join(" ", words(random, 300));
+
+        BatchComparisonDTO result = await(service.submit(List.of(file("a.txt", first), file("b.txt", second),
+            file("c.txt", unrelated)), 0.2, false).getJobId());
+
+        assertEquals(Map.of(), result.getErrors());
+        assertEquals(1, result.getPairs().size());
+        BatchPairDTO pair = result.getPairs().get(0);
+        assertEquals(List.of(0, 1), List.of(pair.getFirst(), pair.getSecond()));
+        // Jaccard of the fingerprint sets: about 200 shared words of 400 distinct ones
+        assertEquals(0.5, pair.getSimilarity(), 0.1);
+    }
+
+    @Test
+    void findsTheCopiedSourceFileWithRenamedIdentifiers() throws Exception {
+        extractAsText();
+        String original = """
+            class Stack {
+                int[] items = new int[16];
+                int size;
+                void push(int value) {
+                    if (size == items.length) {
+                        items = java.util.Arrays.copyOf(items, size * 2);
+                    }
+                    items[size++] = value;
+                }
+                int pop() {
+                    return items[--size];
+                }
+            }
+            """;
+        String renamed = original.replace("items", "data").replace("size", "count").replace("value", "v");
+        String unrelated = """
+            class Greeter {
+                String greet(String name) {
+                    StringBuilder out = new StringBuilder("Hello, ");
+                    for (char c : name.toCharArray()) {
+                        out.append(Character.toUpperCase(c));
+                    }
+                    return out.append('!').toString();
+                }
+            }
+            """;
+
+        BatchComparisonDTO result = await(service.submit(List.of(file("a.java", original), file("b.java", unrelated),
+            file("c.java", renamed)), 0.5, true).getJobId());
+
+        assertEquals(Map.of(), result.getErrors());
+        assertEquals(1, result.getPairs().size());
+        BatchPairDTO pair = result.getPairs().get(0);
+        assertEquals(List.of(0, 2), List.of(pair.getFirst(), pair.getSecond()));
+        assertEquals(1.0, pair.getSimilarity(), 1e-9);
+    }
+
+    private void extractAsText() throws Exception {
+        release.countDown();
+        when(extraction.extract(anyString(), any(byte[].class)))
+            .thenAnswer(invocation -> new String(invocation.<byte[]>getArgument(1), StandardCharsets.UTF_8));
+    }
+
+    private BatchComparisonDTO await(String jobId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            BatchComparisonDTO status = service.status(jobId);
+            if (status.getStatus().equals("DONE") || status.getStatus().equals("FAILED")) {
+                assertEquals("DONE", status.getStatus());
+                return status;
+            }
+            Thread.sleep(25);
+        }
+        throw new AssertionError("Batch " + jobId + " did not finish");
+    }
+
+    private static MultipartFile file(String name, String text) {
+        return new MockMultipartFile("files", name, "text/plain", text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] words(Random random, int count) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = "w" + random.nextInt(1_000_000);
+        }
+        return words;
+    }
+
+    private static List<MultipartFile> files(int bytesEach) {
+        return List.of(new MockMultipartFile("files", "a.java", "text/plain", new byte[bytesEach]),
+            new MockMultipartFile("files", "b.java", "text/plain", new byte[bytesEach]));
+    }
+}
@@ -0,0 +1,147 @@
+package com.plagiguard.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.plagiguard.dto.SourceMatchDTO;
+import com.plagiguard.repository.UploadRepository;
+import com.plagiguard.repository.UploadSummary;
+import com.plagiguard.similarity.Fingerprints;
+import com.plagiguard.util.TextNormalizer;
+import com.plagiguard.util.TokenStream;
+
+class SimilarityServiceTest {
+    @TempDir
+    Path segments;
+
+    private SimilarityService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        UploadRepository repository = mock(UploadRepository.class);
+        when(repository.findSummariesByIds(any())).thenAnswer(invocation ->
+            ((Collection<Integer>) invocation.getArgument(0)).stream().map(SimilarityServiceTest::summary).toList());
+        service = new SimilarityService();
+        ReflectionTestUtils.setField(service, "uploadRepository", repository);
+        ReflectionTestUtils.setField(service, "kgramSize", 5);
+        ReflectionTestUtils.setField(service, "windowSize", 4);
+        ReflectionTestUtils.setField(service, "maxSources", 5);
+        ReflectionTestUtils.setField(service, "expectedFingerprints", 4096);
+        ReflectionTestUtils.setField(service, "minHashPermutations", 32);
+        ReflectionTestUtils.setField(service, "minHashShingle", 3);
+        ReflectionTestUtils.setField(service, "lshBands", 8);
+        ReflectionTestUtils.setField(service, "lshRows", 4);
+        ReflectionTestUtils.setField(service, "expectedDocuments", 64);
+        ReflectionTestUtils.setField(service, "segmentsDir", segments.toString());
+        ReflectionTestUtils.setField(service, "verifySegments", true);
+        ReflectionTestUtils.setField(service, "simHashMaxDistance", 3);
+        ReflectionTestUtils.setField(service, "simHashMinTokens", 8);
+        ReflectionTestUtils.setField(service, "expectedParagraphs", 256);
+        ReflectionTestUtils.setField(service, "expectedTerms", 1024);
+        ReflectionTestUtils.setField(service, "indexStripes", 4);
+        ReflectionTestUtils.setField(service, "queryParallelism", 1);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void scoresSourcesByTheShareOfFingerprintsTheyContain() {
+        Random random = new Random(8);
+        String[] document = words(random, 400);
+        // Upload 1 holds the first half of the document, upload 2 its last quarter, upload 3 none of it
+        index(1, String.join(" ", slice(document, 0, 200)) + " " + String.join(" ", words(random, 100)));
+        index(2, String.join(" ", words(random, 100)) + " " + String.join(" ", slice(document, 300, 400)));
+        index(3, String.join(" ", words(random, 300)));
+
+        SimilarityService.SourceReport report = service.findSources(fingerprint(String.join(" ", document)));
+
+        List<SourceMatchDTO> sources = report.sources();
+        assertEquals(List.of(1, 2), sources.stream().map(SourceMatchDTO::getUploadId).toList());
+        assertEquals("upload-1.txt", sources.get(0).getFileName());
+        assertEquals(0.5, sources.get(0).getSimilarity(), 0.1);
+        assertEquals(0.25, sources.get(1).getSimilarity(), 0.1);
+        // Overall score counts fingerprints found in any source, so it is about three quarters
+        assertEquals(0.75, report.score(), 0.1);
+        assertTrue(report.score() >= sources.get(0).getSimilarity());
+    }
+
+    @Test
+    void removedUploadStopsMatching() {
+        Random random = new Random(9);
+        String text = String.join(" ", words(random, 300));
+        index(1, text);
+        index(2, text);
+        assertEquals(2, service.findSources(fingerprint(text)).sources().size());
+
+        service.remove(1);
+
+        SimilarityService.SourceReport report = service.findSources(fingerprint(text));
+        assertEquals(List.of(2), report.sources().stream().map(SourceMatchDTO::getUploadId).toList());
+        service.remove(2);
+        report = service.findSources(fingerprint(text));
+        assertTrue(report.sources().isEmpty());
+        assertEquals(0.0, report.score());
+    }
+
+    @Test
+    void removedUploadStopsMatchingAfterItWasFlushedToASegment() {
+        Random random = new Random(10);
+        String text = String.join(" ", words(random, 300));
+        index(1, text);
+        service.flushSegments();
+        assertEquals(1, service.findSources(fingerprint(text)).sources().size());
+
+        service.remove(1);
+
+        assertTrue(service.findSources(fingerprint(text)).sources().isEmpty());
+    }
+
+    private void index(int uploadId, String text) {
+        TokenStream tokens = TextNormalizer.normalize(text);
+        service.index(uploadId, service.fingerprint(tokens), service.signature(tokens), service.paragraphs(tokens),
+            service.terms(tokens));
+    }
+
+    private Fingerprints fingerprint(String text) {
+        return service.fingerprint(TextNormalizer.normalize(text));
+    }
+
+    private static UploadSummary summary(int id) {
+        UploadSummary summary = mock(UploadSummary.class);
+        when(summary.getId()).thenReturn(id);
+        when(summary.getOriginalFilename()).thenReturn("upload-" + id + ".txt");
+        return summary;
+    }
+
+    private static String[] slice(String[] words, int from, int to) {
+        return Arrays.copyOfRange(words, from, to);
+    }
+
+    private static String[] words(Random random, int count) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = "w" + random.nextInt(1_000_000);
+        }
+        return words;
+    }
+}
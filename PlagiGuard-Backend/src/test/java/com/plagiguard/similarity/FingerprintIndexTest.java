@@ -0,0 +1,153 @@
+package com.plagiguard.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FingerprintIndexTest {
+    private static final int SHARED = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void queryCountsSharedFingerprintsAndSkipsRemovedUploads() {
+        FingerprintIndex index = new FingerprintIndex(1024, 4, null);
+        index.add(document(1, SHARED));
+        index.add(document(2, 32));
+        index.add(document(3, 0));
+
+        FingerprintIndex.QueryResult result = index.query(document(99, SHARED).fingerprints(), -1, 10);
+        assertEquals(SHARED, result.queryFingerprints());
+        assertEquals(SHARED, result.matchedFingerprints());
+        assertEquals(List.of(new FingerprintIndex.Match(1, 64, 1.0), new FingerprintIndex.Match(2, 32, 0.5)),
+            result.matches());
+        assertEquals(List.of(new FingerprintIndex.Match(2, 32, 0.5)),
+            index.query(document(99, SHARED).fingerprints(), 1, 10).matches());
+
+        index.remove(1);
+        assertFalse(index.contains(1));
+        assertEquals(2, index.documentCount());
+        result = index.query(document(99, SHARED).fingerprints(), -1, 10);
+        assertEquals(List.of(new FingerprintIndex.Match(2, 32, 0.5)), result.matches());
+        assertEquals(0.5, result.coverage());
+        // Removed uploads are dropped from the next flush
+        assertEquals(List.of(2, 3), index.pendingDocuments().stream().map(DocumentFeatures::uploadId).toList());
+    }
+
+    @Test
+    void queriesSeeEveryCompletedAddWhileOthersAreAdded() throws Exception {
+        FingerprintIndex index = new FingerprintIndex(1024, 16, null);
+        index.add(document(1, SHARED));
+        AtomicInteger added = new AtomicInteger(1);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] readers = readers(3, done, failure, () -> {
+            int before = added.get();
+            FingerprintIndex.QueryResult result = index.query(document(99, SHARED).fingerprints(), -1, 10_000);
+            assertTrue(result.matches().size() >= before, "saw " + result.matches().size() + " of " + before);
+            // An add still in progress may be seen in some stripes only; completed ones in all
+            result.matches().stream().filter(match -> match.uploadId() <= before)
+                .forEach(match -> assertEquals(SHARED, match.sharedFingerprints()));
+        });
+        for (int id = 2; id <= 300; id++) {
+            index.add(document(id, SHARED));
+            added.set(id);
+        }
+        join(readers, done, failure);
+
+        assertEquals(300, index.query(document(99, SHARED).fingerprints(), -1, 10_000).matches().size());
+    }
+
+    @Test
+    void flushedUploadsStayVisibleToConcurrentQueries() throws Exception {
+        SegmentStore store = SegmentStore.open(directory, 4, true);
+        FingerprintIndex index = new FingerprintIndex(1024, 16, null);
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger flushed = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] readers = readers(3, done, failure, () -> {
+            int before = added.get();
+            FingerprintIndex.QueryResult result = index.query(document(99, SHARED).fingerprints(), -1, 10_000);
+            assertTrue(result.matches().size() >= before, "saw " + result.matches().size() + " of " + before);
+            // Neither lost while moving from the stripes to a segment nor counted in both
+            result.matches().stream().filter(match -> match.uploadId() <= before)
+                .forEach(match -> assertEquals(SHARED, match.sharedFingerprints()));
+        });
+        int id = 0;
+        for (int flush = 0; flush < 20; flush++) {
+            for (int i = 0; i < 10; i++) {
+                index.add(document(++id, SHARED));
+                added.set(id);
+            }
+            flushed.set(flush(store, index) + flushed.get());
+        }
+        join(readers, done, failure);
+
+        assertEquals(200, flushed.get());
+        assertTrue(index.pendingDocuments().isEmpty());
+        assertEquals(200, index.query(document(99, SHARED).fingerprints(), -1, 10_000).matches().size());
+        index.remove(7);
+        assertEquals(199, index.query(document(99, SHARED).fingerprints(), -1, 10_000).matches().size());
+    }
+
+    private static int flush(SegmentStore store, FingerprintIndex index) throws IOException {
+        List<DocumentFeatures> documents = index.pendingDocuments();
+        index.segmentFlushed(store.append(documents), documents);
+        return documents.size();
+    }
+
+    private static Thread[] readers(int count, AtomicBoolean done, AtomicReference<Throwable> failure,
+            Runnable query) {
+        Thread[] readers = new Thread[count];
+        for (int r = 0; r < count; r++) {
+            readers[r] = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        query.run();
+                        Thread.yield();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            readers[r].start();
+        }
+        return readers;
+    }
+
+    private static void join(Thread[] readers, AtomicBoolean done, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+    }
+
+    /** SHARED fingerprints, the first shared of them common to every upload, the rest its own. */
+    private static DocumentFeatures document(int uploadId, int shared) {
+        long[] hashes = new long[SHARED];
+        int[] positions = new int[SHARED];
+        for (int i = 0; i < SHARED; i++) {
+            hashes[i] = LongPostingsMap.mix(i < shared ? i : ((long) uploadId << 20) + i);
+            positions[i] = i;
+        }
+        return new DocumentFeatures(uploadId, new Fingerprints(hashes, positions, SHARED), new int[4],
+            Paragraphs.EMPTY, TermCounts.EMPTY);
+    }
+}
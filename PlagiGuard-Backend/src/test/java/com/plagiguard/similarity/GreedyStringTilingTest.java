@@ -0,0 +1,162 @@
+package com.plagiguard.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.plagiguard.similarity.GreedyStringTiling.Result;
+import com.plagiguard.similarity.GreedyStringTiling.Tile;
+
+class GreedyStringTilingTest {
+
+    @Test
+    void identicalSequencesAreOneTile() {
+        int[] tokens = run(100, 30);
+
+        Result result = compare(tokens, tokens, 5);
+        assertEquals(List.of(new Tile(0, 0, 30)), result.tiles());
+        assertEquals(30, result.covered());
+        assertEquals(1.0, result.similarity());
+    }
+
+    @Test
+    void swappedBlocksAreTwoTiles() {
+        int[] x = run(100, 20);
+        int[] y = run(200, 15);
+
+        Result result = compare(concat(x, y), concat(y, x), 5);
+        assertEquals(List.of(new Tile(0, 15, 20), new Tile(20, 0, 15)), sorted(result.tiles()));
+        assertEquals(35, result.covered());
+        assertEquals(1.0, result.similarity());
+    }
+
+    @Test
+    void matchesShorterThanMinMatchAreIgnored() {
+        int[] first = concat(run(100, 4), run(300, 10));
+        int[] second = concat(run(400, 10), run(100, 4));
+
+        Result result = compare(first, second, 5);
+        assertTrue(result.tiles().isEmpty());
+        assertEquals(0, result.covered());
+        assertEquals(0.0, result.similarity());
+        // A match exactly minMatch long does count
+        assertEquals(List.of(new Tile(0, 10, 4)), compare(first, second, 4).tiles());
+    }
+
+    @Test
+    void longestMatchIsTiledFirst() {
+        // The second text repeats the first half of the block before the whole block
+        int[] block = run(100, 12);
+        int[] first = concat(run(500, 3), block);
+        int[] second = concat(Arrays.copyOf(block, 6), run(600, 2), block);
+
+        Result result = compare(first, second, 3);
+        assertEquals(List.of(new Tile(3, 8, 12)), result.tiles());
+        assertEquals(12, result.covered());
+        assertEquals(2.0 * 12 / (15 + 20), result.similarity(), 1e-12);
+    }
+
+    @Test
+    void tilesNeverOverlap() {
+        int[] same = new int[10];
+        Arrays.fill(same, 7);
+
+        Result result = compare(same, same, 3);
+        assertEquals(List.of(new Tile(0, 0, 10)), result.tiles());
+        assertEquals(10, result.covered());
+    }
+
+    @Test
+    void randomTilesAreExactDisjointMatches() {
+        Random random = new Random(14);
+        for (int round = 0; round < 200; round++) {
+            int[] first = random(random, 1 + random.nextInt(120));
+            int[] second = random(random, 1 + random.nextInt(120));
+            // Splice in shared runs so that some tiles exist
+            for (int k = 0; k < 3 && first.length > 10 && second.length > 10; k++) {
+                int length = 3 + random.nextInt(Math.min(first.length, second.length) / 2);
+                System.arraycopy(first, random.nextInt(first.length - length + 1), second,
+                    random.nextInt(second.length - length + 1), length);
+            }
+            int minMatch = 3 + random.nextInt(4);
+
+            Result result = compare(first, second, minMatch);
+            boolean[] firstMarked = new boolean[first.length];
+            boolean[] secondMarked = new boolean[second.length];
+            int covered = 0;
+            for (Tile tile : result.tiles()) {
+                assertTrue(tile.length() >= minMatch);
+                assertArrayEquals(Arrays.copyOfRange(first, tile.firstStart(), tile.firstStart() + tile.length()),
+                    Arrays.copyOfRange(second, tile.secondStart(), tile.secondStart() + tile.length()));
+                for (int i = 0; i < tile.length(); i++) {
+                    assertFalse(firstMarked[tile.firstStart() + i]);
+                    assertFalse(secondMarked[tile.secondStart() + i]);
+                    firstMarked[tile.firstStart() + i] = true;
+                    secondMarked[tile.secondStart() + i] = true;
+                }
+                covered += tile.length();
+            }
+            assertEquals(covered, result.covered());
+            assertTrue(longestUnmarked(first, firstMarked, second, secondMarked) < minMatch,
+                "a match of minMatch or more was left untiled");
+        }
+    }
+
+    private static Result compare(int[] first, int[] second, int minMatch) {
+        return GreedyStringTiling.compare(GreedyStringTiling.prepare(first, minMatch),
+            GreedyStringTiling.prepare(second, minMatch));
+    }
+
+    // Longest common run that avoids marked tokens on both sides
+    private static int longestUnmarked(int[] first, boolean[] firstMarked, int[] second, boolean[] secondMarked) {
+        int longest = 0;
+        for (int i = 0; i < first.length; i++) {
+            for (int j = 0; j < second.length; j++) {
+                int k = 0;
+                while (i + k < first.length && j + k < second.length && !firstMarked[i + k]
+                        && !secondMarked[j + k] && first[i + k] == second[j + k]) {
+                    k++;
+                }
+                longest = Math.max(longest, k);
+            }
+        }
+        return longest;
+    }
+
+    private static List<Tile> sorted(List<Tile> tiles) {
+        return tiles.stream().sorted((a, b) -> Integer.compare(a.firstStart(), b.firstStart())).toList();
+    }
+
+    private static int[] run(int from, int length) {
+        int[] tokens = new int[length];
+        for (int i = 0; i < length; i++) {
+            tokens[i] = from + i;
+        }
+        return tokens;
+    }
+
+    private static int[] random(Random random, int length) {
+        int[] tokens = new int[length];
+        for (int i = 0; i < length; i++) {
+            tokens[i] = random.nextInt(6);
+        }
+        return tokens;
+    }
+
+    private static int[] concat(int[]... parts) {
+        int[] joined = new int[Arrays.stream(parts).mapToInt(part -> part.length).sum()];
+        int offset = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, joined, offset, part.length);
+            offset += part.length;
+        }
+        return joined;
+    }
+}
@@ -0,0 +1,69 @@
+package com.plagiguard.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LshIndexTest {
+    private static final int LENGTH = 32;
+
+    @Test
+    void removedDocumentsDisappearAndCompactionKeepsTheRest() {
+        LshIndex index = new LshIndex(8, 4, LENGTH);
+        int[] base = signature(new Random(1));
+        for (int id = 1; id <= 3000; id++) {
+            index.add(id, nearCopy(base, new Random(id), id % 4));
+        }
+        List<LshIndex.NearDuplicate> before = index.query(base, 0.5, -1);
+
+        // Crosses the compaction threshold of 1000 removals
+        for (int id = 1; id <= 3000; id += 2) {
+            index.remove(id);
+        }
+        assertEquals(1500, index.size());
+        assertNull(index.signatureOf(1));
+
+        List<LshIndex.NearDuplicate> after = index.query(base, 0.5, -1);
+        assertEquals(before.stream().filter(match -> match.uploadId() % 2 == 0).toList(), after);
+        index.compact();
+        assertEquals(after, index.query(base, 0.5, -1));
+        assertArrayEquals(nearCopy(base, new Random(2), 2), index.signatureOf(2));
+    }
+
+    @Test
+    void removedUploadCanBeAddedAgain() {
+        LshIndex index = new LshIndex(8, 4, LENGTH);
+        int[] first = signature(new Random(1));
+        int[] second = signature(new Random(2));
+        index.add(7, first);
+        index.remove(7);
+        index.add(7, second);
+
+        assertArrayEquals(second, index.signatureOf(7));
+        assertEquals(List.of(new LshIndex.NearDuplicate(7, 1.0)), index.query(second, 0.9, -1));
+        assertEquals(List.of(), index.query(first, 0.9, -1));
+        index.compact();
+        assertEquals(List.of(new LshIndex.NearDuplicate(7, 1.0)), index.query(second, 0.9, -1));
+    }
+
+    private static int[] signature(Random random) {
+        int[] signature = new int[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            signature[i] = random.nextInt();
+        }
+        return signature;
+    }
+
+    private static int[] nearCopy(int[] signature, Random random, int changes) {
+        int[] copy = signature.clone();
+        for (int i = 0; i < changes; i++) {
+            copy[random.nextInt(LENGTH)] = random.nextInt();
+        }
+        return copy;
+    }
+}
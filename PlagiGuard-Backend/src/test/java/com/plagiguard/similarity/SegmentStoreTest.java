@@ -0,0 +1,191 @@
+package com.plagiguard.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentStoreTest {
+    private static final int SIGNATURE_LENGTH = 4;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void segmentRoundTripsDocumentsAndPostings() throws IOException {
+        SegmentStore store = SegmentStore.open(directory, SIGNATURE_LENGTH, true);
+        store.append(List.of(document(9, -5L, 7L), document(2, 7L, 7L, 100L), document(5, Long.MIN_VALUE)));
+
+        FingerprintSegment segment = last(SegmentStore.open(directory, SIGNATURE_LENGTH, true));
+        assertEquals(3, segment.documentCount());
+        assertEquals(9, segment.maxUploadId());
+        assertEquals(4, segment.hashCount());
+
+        List<Integer> ids = new ArrayList<>();
+        segment.forEachDocument((uploadId, fingerprintCount, signature, paragraphs, terms) -> {
+            DocumentFeatures expected = switch (uploadId) {
+                case 2 -> document(2, 7L, 7L, 100L);
+                case 5 -> document(5, Long.MIN_VALUE);
+                default -> document(9, -5L, 7L);
+            };
+            ids.add(uploadId);
+            assertEquals(expected.fingerprints().size(), fingerprintCount);
+            assertArrayEquals(expected.signature(), signature);
+            assertEquals(expected.paragraphs().size(), paragraphs.size());
+            for (int p = 0; p < paragraphs.size(); p++) {
+                assertEquals(expected.paragraphs().hash(p), paragraphs.hash(p));
+                assertEquals(expected.paragraphs().start(p), paragraphs.start(p));
+                assertEquals(expected.paragraphs().end(p), paragraphs.end(p));
+            }
+            assertEquals(expected.terms().size(), terms.size());
+            for (int t = 0; t < terms.size(); t++) {
+                assertEquals(expected.terms().hash(t), terms.hash(t));
+                assertEquals(expected.terms().count(t), terms.count(t));
+            }
+        });
+        // Documents are stored by ascending upload id whatever order they were flushed in
+        assertEquals(List.of(2, 5, 9), ids);
+
+        assertEquals(List.of("2@0", "2@1", "9@11"), postings(segment, 7L));
+        assertEquals(List.of("2@2"), postings(segment, 100L));
+        assertEquals(List.of("5@0"), postings(segment, Long.MIN_VALUE));
+        assertFalse(segment.forEachPosting(8L, (uploadId, position) -> { }));
+    }
+
+    @Test
+    void manifestNamesEveryAppendedSegment() throws IOException {
+        SegmentStore store = SegmentStore.open(directory, SIGNATURE_LENGTH, false);
+        store.append(List.of(document(1, 11L)));
+        store.append(List.of(document(2, 22L)));
+
+        SegmentStore reopened = SegmentStore.open(directory, SIGNATURE_LENGTH, true);
+        assertEquals(2, reopened.segments().size());
+        List<String> names = reopened.segments().stream().map(s -> s.path().getFileName().toString()).toList();
+        assertEquals(names, Files.readAllLines(directory.resolve("segments.manifest")));
+        assertEquals(List.of("1@0"), postings(reopened.segments().get(0), 11L));
+        assertEquals(List.of("2@0"), postings(reopened.segments().get(1), 22L));
+        // A new segment never reuses a name from before the restart
+        FingerprintSegment third = reopened.append(List.of(document(3, 33L)));
+        assertFalse(names.contains(third.path().getFileName().toString()));
+    }
+
+    @Test
+    void filesOutsideTheManifestAreDeletedOnOpen() throws IOException {
+        SegmentStore store = SegmentStore.open(directory, SIGNATURE_LENGTH, false);
+        Path live = store.append(List.of(document(1, 11L))).path();
+        // A crash after writing a segment but before the manifest names it, and a torn temp file
+        Path orphan = store.append(List.of(document(2, 22L))).path();
+        Files.writeString(directory.resolve("segments.manifest"), live.getFileName() + "\n");
+        Files.write(directory.resolve("segment-0000000000000099.seg.tmp"), new byte[] {1, 2, 3});
+
+        SegmentStore reopened = SegmentStore.open(directory, SIGNATURE_LENGTH, true);
+        assertEquals(List.of(live), reopened.segments().stream().map(FingerprintSegment::path).toList());
+        assertEquals(List.of(live.getFileName().toString()), segmentFiles());
+        assertFalse(Files.exists(orphan));
+    }
+
+    @Test
+    void corruptSegmentIsDroppedFromTheManifest() throws IOException {
+        SegmentStore store = SegmentStore.open(directory, SIGNATURE_LENGTH, false);
+        Path good = store.append(List.of(document(1, 11L))).path();
+        Path bad = store.append(List.of(document(2, 22L))).path();
+        byte[] bytes = Files.readAllBytes(bad);
+        bytes[12] ^= 0x40;
+        Files.write(bad, bytes);
+
+        SegmentStore reopened = SegmentStore.open(directory, SIGNATURE_LENGTH, true);
+        assertEquals(List.of(good), reopened.segments().stream().map(FingerprintSegment::path).toList());
+        assertEquals(List.of(good.getFileName().toString()), Files.readAllLines(directory.resolve("segments.manifest")));
+    }
+
+    @Test
+    void truncatedSegmentIsDroppedEvenWithoutVerification() throws IOException {
+        SegmentStore store = SegmentStore.open(directory, SIGNATURE_LENGTH, false);
+        Path bad = store.append(List.of(document(1, 11L))).path();
+        byte[] bytes = Files.readAllBytes(bad);
+        Files.write(bad, Arrays.copyOf(bytes, bytes.length - 10));
+
+        assertTrue(SegmentStore.open(directory, SIGNATURE_LENGTH, false).segments().isEmpty());
+    }
+
+    @Test
+    void tornTombstoneWriteIsIgnored() throws IOException {
+        SegmentStore store = SegmentStore.open(directory, SIGNATURE_LENGTH, false);
+        store.markDeleted(4);
+        store.markDeleted(8);
+        Files.write(directory.resolve("deleted.ids"), new byte[] {0, 0}, StandardOpenOption.APPEND);
+
+        assertArrayEquals(new int[] {4, 8}, sorted(SegmentStore.open(directory, SIGNATURE_LENGTH, false).deletedIds()));
+    }
+
+    @Test
+    void compactionDropsDeletedUploadsAndKeepsPendingTombstones() throws IOException {
+        SegmentStore store = SegmentStore.open(directory, SIGNATURE_LENGTH, false);
+        store.append(List.of(document(1, 7L), document(3, 7L, 9L)));
+        store.append(List.of(document(2, 7L)));
+        store.markDeleted(3);
+        // Not flushed yet; its tombstone must outlive the compaction
+        store.markDeleted(42);
+
+        assertEquals(1, store.compact().size());
+        FingerprintSegment merged = last(store);
+        assertEquals(2, merged.documentCount());
+        assertEquals(List.of("1@0", "2@0"), postings(merged, 7L));
+        assertFalse(merged.forEachPosting(9L, (uploadId, position) -> { }));
+        assertArrayEquals(new int[] {42}, store.deletedIds());
+
+        SegmentStore reopened = SegmentStore.open(directory, SIGNATURE_LENGTH, true);
+        assertEquals(List.of(merged.path()), reopened.segments().stream().map(FingerprintSegment::path).toList());
+        assertArrayEquals(new int[] {42}, reopened.deletedIds());
+        assertEquals(List.of(merged.path().getFileName().toString()), segmentFiles());
+    }
+
+    private static FingerprintSegment last(SegmentStore store) {
+        return store.segments().get(store.segments().size() - 1);
+    }
+
+    // Fingerprint i of the document sits at position i, or i + 10 for upload 9
+    private static DocumentFeatures document(int uploadId, long... hashes) {
+        int[] positions = new int[hashes.length];
+        for (int i = 0; i < hashes.length; i++) {
+            positions[i] = uploadId == 9 ? i + 10 : i;
+        }
+        int[] signature = {uploadId, uploadId * 31, -uploadId, Integer.MAX_VALUE};
+        Paragraphs paragraphs = new Paragraphs(new long[] {uploadId * 1000L, -uploadId}, new int[] {0, 5},
+            new int[] {5, 9}, 2);
+        TermCounts terms = new TermCounts(new long[] {uploadId, uploadId + 1L}, new int[] {3, 1}, 2);
+        return new DocumentFeatures(uploadId, new Fingerprints(hashes, positions, hashes.length), signature,
+            paragraphs, terms);
+    }
+
+    private static List<String> postings(FingerprintSegment segment, long hash) {
+        List<String> postings = new ArrayList<>();
+        assertTrue(segment.forEachPosting(hash, (uploadId, position) -> postings.add(uploadId + "@" + position)));
+        return postings;
+    }
+
+    private List<String> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> name.startsWith("segment-"))
+                .sorted().toList();
+        }
+    }
+
+    private static int[] sorted(int[] values) {
+        int[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
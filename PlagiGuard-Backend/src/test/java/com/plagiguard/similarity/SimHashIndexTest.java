@@ -0,0 +1,116 @@
+package com.plagiguard.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SimHashIndexTest {
+    private static final int MAX_DISTANCE = 3;
+    private static final Comparator<SimHashIndex.ParagraphMatch> ORDER =
+        Comparator.comparingInt(SimHashIndex.ParagraphMatch::distance)
+            .thenComparingInt(SimHashIndex.ParagraphMatch::uploadId)
+            .thenComparingInt(SimHashIndex.ParagraphMatch::start);
+
+    @Test
+    void queriesMatchABruteForceScanAcrossRemovalsAndRebuilds() {
+        Random random = new Random(3);
+        long[] centers = new long[20];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = random.nextLong();
+        }
+        SimHashIndex index = new SimHashIndex(MAX_DISTANCE, 16);
+        Map<Integer, Paragraphs> live = new HashMap<>();
+        for (int uploadId = 1; uploadId <= 1500; uploadId++) {
+            Paragraphs paragraphs = paragraphs(random, centers);
+            index.add(uploadId, paragraphs);
+            live.put(uploadId, paragraphs);
+            // Enough removals to trigger compaction several times along the way
+            if (uploadId % 3 == 0) {
+                int victim = 1 + random.nextInt(uploadId);
+                index.remove(victim);
+                live.remove(victim);
+            }
+        }
+        for (long center : centers) {
+            long query = center ^ (1L << random.nextInt(64));
+            assertEquals(bruteForce(live, query, 7), sorted(index.query(query, 7)));
+        }
+        assertEquals(live.values().stream().mapToInt(Paragraphs::size).sum(), index.paragraphCount());
+    }
+
+    @Test
+    void removedParagraphsAreReclaimed() {
+        Random random = new Random(5);
+        SimHashIndex index = new SimHashIndex(MAX_DISTANCE, 16);
+        for (int uploadId = 1; uploadId <= 2000; uploadId++) {
+            index.add(uploadId, paragraphs(random, new long[] {random.nextLong()}));
+        }
+        int stored = index.storedEntries();
+        for (int uploadId = 1; uploadId <= 2000; uploadId++) {
+            index.remove(uploadId);
+        }
+        assertEquals(0, index.paragraphCount());
+        // At most the removals since the last re-sort are still held
+        assertTrue(index.storedEntries() <= Math.max(1024, stored / 8) + 4, () -> index.storedEntries() + " entries");
+    }
+
+    @Test
+    void removedUploadCanBeAddedAgain() {
+        SimHashIndex index = new SimHashIndex(MAX_DISTANCE, 16);
+        long first = 0x0123_4567_89ab_cdefL;
+        long second = ~first;
+        index.add(1, new Paragraphs(new long[] {first}, new int[] {0}, new int[] {10}, 1));
+        index.remove(1);
+        index.add(1, new Paragraphs(new long[] {second}, new int[] {5}, new int[] {20}, 1));
+
+        assertEquals(List.of(), index.query(first, -1));
+        assertEquals(List.of(new SimHashIndex.ParagraphMatch(1, 5, 20, 0)), index.query(second, -1));
+        assertEquals(1, index.paragraphCount());
+    }
+
+    private static Paragraphs paragraphs(Random random, long[] centers) {
+        int count = 1 + random.nextInt(4);
+        long[] hashes = new long[count];
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        for (int p = 0; p < count; p++) {
+            long hash = centers[random.nextInt(centers.length)];
+            for (int flips = random.nextInt(6); flips > 0; flips--) {
+                hash ^= 1L << random.nextInt(64);
+            }
+            hashes[p] = hash;
+            starts[p] = p * 10;
+            ends[p] = p * 10 + 10;
+        }
+        return new Paragraphs(hashes, starts, ends, count);
+    }
+
+    private static List<SimHashIndex.ParagraphMatch> bruteForce(Map<Integer, Paragraphs> live, long query,
+            int excludeUploadId) {
+        List<SimHashIndex.ParagraphMatch> matches = new ArrayList<>();
+        live.forEach((uploadId, paragraphs) -> {
+            for (int p = 0; p < paragraphs.size(); p++) {
+                int distance = Long.bitCount(query ^ paragraphs.hash(p));
+                if (distance <= MAX_DISTANCE && uploadId != excludeUploadId) {
+                    matches.add(new SimHashIndex.ParagraphMatch(uploadId, paragraphs.start(p), paragraphs.end(p),
+                        distance));
+                }
+            }
+        });
+        return sorted(matches);
+    }
+
+    private static List<SimHashIndex.ParagraphMatch> sorted(List<SimHashIndex.ParagraphMatch> matches) {
+        List<SimHashIndex.ParagraphMatch> copy = new ArrayList<>(matches);
+        copy.sort(ORDER);
+        return copy;
+    }
+}
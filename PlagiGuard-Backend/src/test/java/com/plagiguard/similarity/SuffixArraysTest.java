@@ -0,0 +1,77 @@
+package com.plagiguard.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class SuffixArraysTest {
+
+    @Test
+    void matchesNaiveSortOnRandomInput() {
+        Random random = new Random(42);
+        int[] alphabets = {1, 2, 3, 4, 26, 1000};
+        for (int round = 0; round < 2000; round++) {
+            int upper = alphabets[round % alphabets.length] - 1;
+            int[] s = new int[random.nextInt(400)];
+            for (int i = 0; i < s.length; i++) {
+                s[i] = random.nextInt(upper + 1);
+            }
+            check(s, upper);
+        }
+    }
+
+    @Test
+    void matchesNaiveSortOnRepetitiveInput() {
+        // Periods and runs force several levels of SA-IS recursion
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            int[] period = new int[1 + random.nextInt(6)];
+            for (int i = 0; i < period.length; i++) {
+                period[i] = random.nextInt(3);
+            }
+            int[] s = new int[random.nextInt(600)];
+            for (int i = 0; i < s.length; i++) {
+                s[i] = random.nextInt(50) == 0 ? random.nextInt(3) : period[i % period.length];
+            }
+            check(s, 2);
+        }
+    }
+
+    @Test
+    void handlesEdgeCases() {
+        check(new int[0], 0);
+        check(new int[] {5}, 5);
+        check(new int[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}, 0);
+        check(new int[] {3, 2, 1, 0, 3, 2, 1, 0, 3, 2, 1, 0, 3, 2, 1, 0}, 3);
+    }
+
+    private static void check(int[] s, int upper) {
+        int[] sa = SuffixArrays.suffixArray(s, upper);
+        String input = Arrays.toString(s);
+        assertArrayEquals(naiveSuffixArray(s), sa, input);
+        assertArrayEquals(naiveLcp(s, sa), SuffixArrays.lcpArray(s, sa), input);
+    }
+
+    private static int[] naiveSuffixArray(int[] s) {
+        return IntStream.range(0, s.length).boxed()
+            .sorted((a, b) -> Arrays.compare(s, a, s.length, s, b, s.length))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    private static int[] naiveLcp(int[] s, int[] sa) {
+        int[] lcp = new int[Math.max(0, s.length - 1)];
+        for (int i = 0; i + 1 < s.length; i++) {
+            int a = sa[i];
+            int b = sa[i + 1];
+            while (a + lcp[i] < s.length && b + lcp[i] < s.length && s[a + lcp[i]] == s[b + lcp[i]]) {
+                lcp[i]++;
+            }
+        }
+        return lcp;
+    }
+}
@@ -0,0 +1,127 @@
+package com.plagiguard.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TfIdfIndexTest {
+    private static final int VOCABULARY = 400;
+
+    private final Random random = new Random(11);
+    private final Map<Integer, TermCounts> live = new HashMap<>();
+    private TfIdfIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TfIdfIndex(16, 64);
+        for (int uploadId = 1; uploadId <= 3000; uploadId++) {
+            add(uploadId);
+        }
+    }
+
+    @Test
+    void maxScoreMatchesExhaustiveScoring() {
+        index.refresh();
+        assertMatchesExhaustive();
+    }
+
+    @Test
+    void compactionKeepsResultsExact() {
+        // Over a thousand removals, so compaction runs during the loop as well as at the end
+        for (int uploadId = 1; uploadId <= 3000; uploadId += 2) {
+            index.remove(uploadId);
+            live.remove(uploadId);
+        }
+        for (int uploadId = 3001; uploadId <= 3200; uploadId++) {
+            add(uploadId);
+        }
+        // A removed upload can come back with new content
+        index.remove(3002);
+        live.remove(3002);
+        add(3002);
+        index.refresh();
+
+        assertEquals(live.size(), index.documentCount());
+        assertMatchesExhaustive();
+    }
+
+    private void assertMatchesExhaustive() {
+        for (int q = 0; q < 50; q++) {
+            TermCounts query = document(5 + random.nextInt(40));
+            int k = 1 + random.nextInt(20);
+            List<TfIdfIndex.Scored> expected = exhaustive(query, k);
+            List<TfIdfIndex.Scored> actual = index.query(query, k, Integer.MAX_VALUE, -1);
+            assertEquals(expected.size(), actual.size());
+            // Compare scores rather than ids so that float rounding cannot reorder exact ties
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).cosine(), actual.get(i).cosine(), 1e-5, "rank " + i);
+            }
+        }
+    }
+
+    private void add(int uploadId) {
+        TermCounts terms = document(20 + random.nextInt(80));
+        index.add(uploadId, terms);
+        live.put(uploadId, terms);
+    }
+
+    // Zipf-like term choice so that frequent and rare terms both occur
+    private TermCounts document(int length) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int i = 0; i < length; i++) {
+            long term = 1000 + (long) Math.floor(Math.pow(VOCABULARY, random.nextDouble()));
+            counts.merge(term * 0x9E3779B97F4A7C15L, 1, Integer::sum);
+        }
+        long[] hashes = new long[counts.size()];
+        int[] values = new int[counts.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            hashes[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new TermCounts(hashes, values, hashes.length);
+    }
+
+    private List<TfIdfIndex.Scored> exhaustive(TermCounts query, int k) {
+        Map<Long, Integer> frequency = new HashMap<>();
+        live.values().forEach(terms -> {
+            for (int i = 0; i < terms.size(); i++) {
+                frequency.merge(terms.hash(i), 1, Integer::sum);
+            }
+        });
+        Map<Long, Double> queryVector = new HashMap<>();
+        for (int i = 0; i < query.size(); i++) {
+            if (frequency.containsKey(query.hash(i))) {
+                queryVector.put(query.hash(i), (1 + Math.log(query.count(i))) * idf(frequency, query.hash(i)));
+            }
+        }
+        double queryNorm = Math.sqrt(queryVector.values().stream().mapToDouble(w -> w * w).sum());
+        List<TfIdfIndex.Scored> scored = new ArrayList<>();
+        live.forEach((uploadId, terms) -> {
+            double dot = 0;
+            double norm = 0;
+            for (int i = 0; i < terms.size(); i++) {
+                double weight = (1 + Math.log(terms.count(i))) * idf(frequency, terms.hash(i));
+                norm += weight * weight;
+                dot += queryVector.getOrDefault(terms.hash(i), 0.0) * weight;
+            }
+            if (dot > 0) {
+                scored.add(new TfIdfIndex.Scored(uploadId, dot / (queryNorm * Math.sqrt(norm))));
+            }
+        });
+        scored.sort(Comparator.comparingDouble(TfIdfIndex.Scored::cosine).reversed());
+        return scored.subList(0, Math.min(k, scored.size()));
+    }
+
+    private double idf(Map<Long, Integer> frequency, long term) {
+        return 1 + Math.log((1.0 + live.size()) / (1.0 + frequency.get(term)));
+    }
+}
@@ -0,0 +1,92 @@
+package com.plagiguard.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.plagiguard.util.TextNormalizer;
+import com.plagiguard.util.TokenStream;
+
+class WinnowingTest {
+    private static final int K = 5;
+    private static final int WINDOW = 4;
+
+    @Test
+    void everySharedRunOfWindowPlusKMinusOneWordsSharesAFingerprint() {
+        Random random = new Random(6);
+        int run = WINDOW + K - 1;
+        for (int trial = 0; trial < 500; trial++) {
+            String[] shared = words(random, run);
+            TokenStream a = TextNormalizer.normalize(embed(random, shared, random.nextInt(200)));
+            TokenStream b = TextNormalizer.normalize(embed(random, shared, random.nextInt(200)));
+
+            assertTrue(intersects(Winnowing.fingerprint(a, K, WINDOW), Winnowing.fingerprint(b, K, WINDOW)),
+                "trial " + trial);
+        }
+    }
+
+    @Test
+    void everyWindowOfKgramsContributesItsMinimum() {
+        long[] hashes = new long[200];
+        Random random = new Random(7);
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextLong();
+        }
+        Fingerprints fingerprints = Winnowing.winnow(hashes, WINDOW);
+
+        for (int start = 0; start + WINDOW <= hashes.length; start++) {
+            long min = hashes[start];
+            for (int i = start + 1; i < start + WINDOW; i++) {
+                min = Long.compareUnsigned(hashes[i], min) < 0 ? hashes[i] : min;
+            }
+            boolean selected = false;
+            for (int f = 0; f < fingerprints.size(); f++) {
+                int position = fingerprints.position(f);
+                selected |= position >= start && position < start + WINDOW && fingerprints.hash(f) == min;
+            }
+            assertTrue(selected, "window at " + start);
+        }
+    }
+
+    @Test
+    void documentsShorterThanKHaveNoFingerprints() {
+        assertEquals(0, Winnowing.fingerprint(TextNormalizer.normalize("only four short words"), K, WINDOW).size());
+        assertEquals(1, Winnowing.fingerprint(TextNormalizer.normalize("exactly five words in here"), K, WINDOW)
+            .size());
+    }
+
+    private static boolean intersects(Fingerprints a, Fingerprints b) {
+        long[] left = a.distinctHashes();
+        for (long hash : b.distinctHashes()) {
+            if (Arrays.binarySearch(left, hash) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Random filler around the shared words; the vocabulary is large enough that filler rarely repeats
+    private static String embed(Random random, String[] shared, int before) {
+        StringBuilder text = new StringBuilder();
+        for (String word : words(random, before)) {
+            text.append(word).append(' ');
+        }
+        text.append(String.join(" ", shared)).append(' ');
+        for (String word : words(random, random.nextInt(200))) {
+            text.append(word).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static String[] words(Random random, int count) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = "w" + random.nextInt(1_000_000);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,177 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AIDetectorClientTest {
+    private static final String URL = "http://detector";
+
+    private MockRestServiceServer server;
+    private AIDetectorClient client;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        client = new AIDetectorClient(URL, "", 0, false, 0.95, 50, 1, 1, 1, 2, 1, 5, 8, 2, 64, 256, 16384,
+            restTemplate, CircuitBreaker.ofDefaults("detector"), Bulkhead.ofDefaults("detector"),
+            new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    void replicaWithoutBatchEndpointGetsTextsOneByOne() throws Exception {
+        server.expect(requestTo(URL + "/detect_batch")).andRespond(withStatus(HttpStatus.NOT_FOUND));
+        expectSingle("first", 0.9, true);
+        expectSingle("second", 0.1, false);
+        // Remembered: the next batch skips /detect_batch
+        expectSingle("third", 0.5, false);
+
+        assertEquals(List.of(new DetectionResult(0.9, true), new DetectionResult(0.1, false)),
+            client.detectBatch(List.of("first", "second")).get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(new DetectionResult(0.5, false)),
+            client.detectBatch(List.of("third")).get(5, TimeUnit.SECONDS));
+        server.verify();
+    }
+
+    @Test
+    void methodNotAllowedAlsoFallsBack() throws Exception {
+        server.expect(requestTo(URL + "/detect_batch")).andRespond(withStatus(HttpStatus.METHOD_NOT_ALLOWED));
+        expectSingle("only", 0.8, true);
+
+        assertEquals(List.of(new DetectionResult(0.8, true)),
+            client.detectBatch(List.of("only")).get(5, TimeUnit.SECONDS));
+        server.verify();
+    }
+
+    @Test
+    void otherClientErrorsStillFailTheBatch() {
+        server.expect(requestTo(URL + "/detect_batch")).andRespond(withStatus(HttpStatus.BAD_REQUEST));
+
+        assertThrows(ExecutionException.class, () -> client.detectBatch(List.of("bad")).get(5, TimeUnit.SECONDS));
+        server.verify();
+    }
+
+    @Test
+    void batchEndpointIsUsedWhenPresent() throws Exception {
+        server.expect(requestTo(URL + "/detect_batch"))
+            .andExpect(jsonPath("$.texts[1]").value("b"))
+            .andRespond(withSuccess("{\"status\":\"success\",\"results\":[{\"ai_score\":0.2,\"ai_generated\":false},"
+                + "{\"ai_score\":0.95,\"ai_generated\":true}]}", MediaType.APPLICATION_JSON));
+
+        assertEquals(List.of(new DetectionResult(0.2, false), new DetectionResult(0.95, true)),
+            client.detectBatch(List.of("a", "b")).get(5, TimeUnit.SECONDS));
+        server.verify();
+    }
+
+    @Test
+    void slowPrimaryIsHedgedToTheOtherReplica() throws Exception {
+        StubReplicas replicas = new StubReplicas();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AIDetectorClient hedging = new AIDetectorClient("", "http://slow,http://fast", 0, true, 0.95, 10, 1, 1, 1, 4,
+            1, 5, 8, 2, 64, 256, 16384, replicas, CircuitBreaker.ofDefaults("hedge"), Bulkhead.ofDefaults("hedge"),
+            registry);
+        try {
+            // Both replicas answer in a few milliseconds until their histograms are warm
+            for (int i = 0; i < 60; i++) {
+                hedging.detect("warm").get(5, TimeUnit.SECONDS);
+            }
+            replicas.stalled = true;
+
+            boolean slowPrimary = false;
+            for (int i = 0; i < 40 && !slowPrimary; i++) {
+                int sent = replicas.hosts.size();
+                double hedgedBefore = registry.counter("ai.detector.hedged.requests").count();
+                long started = System.nanoTime();
+                DetectionResult result = hedging.detect("text").get(5, TimeUnit.SECONDS);
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                slowPrimary = replicas.hosts.get(sent).equals("slow");
+                if (slowPrimary) {
+                    assertEquals(FAST, result);
+                    assertTrue(elapsedMs < STALL_MS / 2, "hedged call took " + elapsedMs + " ms");
+                    assertTrue(registry.counter("ai.detector.hedged.requests").count() > hedgedBefore);
+                }
+            }
+            assertTrue(slowPrimary, "no call picked the slow replica first");
+
+            // The stalled request keeps its own limiter permit until it completes
+            VegasLimiter limiter = (VegasLimiter) ReflectionTestUtils.getField(hedging, "limiter");
+            assertTrue(limiter.inFlight() > 0);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((replicas.active.get() > 0 || limiter.inFlight() > 0) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, limiter.inFlight());
+        } finally {
+            hedging.shutdown();
+        }
+    }
+
+    private void expectSingle(String text, double score, boolean generated) {
+        server.expect(requestTo(URL + "/detect"))
+            .andExpect(method(HttpMethod.POST))
+            .andExpect(jsonPath("$.text").value(text))
+            .andRespond(withSuccess("{\"status\":\"success\",\"ai_score\":" + score + ",\"ai_generated\":" + generated
+                + "}", MediaType.APPLICATION_JSON));
+    }
+
+    private static final long STALL_MS = 1000;
+    private static final DetectionResult SLOW = new DetectionResult(0.1, false);
+    private static final DetectionResult FAST = new DetectionResult(0.9, true);
+
+    // Two replicas behind one template: http://fast always answers in 5 ms, http://slow too until stalled
+    private static final class StubReplicas extends RestTemplate {
+        final List<String> hosts = new CopyOnWriteArrayList<>();
+        final AtomicInteger active = new AtomicInteger();
+        volatile boolean stalled;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(String url, HttpMethod method, RequestCallback requestCallback,
+                ResponseExtractor<T> responseExtractor, Object... uriVariables) {
+            boolean slow = url.startsWith("http://slow");
+            hosts.add(slow ? "slow" : "fast");
+            active.incrementAndGet();
+            try {
+                Thread.sleep(slow && stalled ? STALL_MS : 5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+            return (T) new DetectorJson.Response("success", null, slow ? SLOW : FAST, null);
+        }
+    }
+}
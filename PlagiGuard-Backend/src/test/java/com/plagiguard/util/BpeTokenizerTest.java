@@ -0,0 +1,74 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class BpeTokenizerTest {
+    // Ids from an independent GPT-2 (r50k_base) encoder; RoBERTa's merges are the same
+    private static final Map<String, int[]> GOLDEN = new LinkedHashMap<>();
+
+    static {
+        GOLDEN.put("Hello world", new int[] {15496, 995});
+        GOLDEN.put("I'm sure they'll say it's fine, but we've seen what'd happen.",
+            new int[] {40, 1101, 1654, 484, 1183, 910, 340, 338, 3734, 11, 475, 356, 1053, 1775, 644, 1549, 1645, 13});
+        GOLDEN.put("Prices rose 12345 units, or 3.14%, in 2023!",
+            new int[] {6836, 1063, 8278, 17031, 2231, 4991, 11, 393, 513, 13, 1415, 7441, 287, 1160, 1954, 0});
+        GOLDEN.put("naïve café — déjà vu 😀",
+            new int[] {2616, 38776, 40304, 851, 39073, 73, 24247, 410, 84, 30325, 222});
+        GOLDEN.put("नमस्ते दुनिया",
+            new int[] {11976, 101, 11976, 106, 11976, 116, 24231, 235, 11976, 97, 24231, 229, 28225, 99, 24231, 223,
+                11976, 101, 11976, 123, 11976, 107, 48077});
+        GOLDEN.put("a  b\n\n  c\t\td   ", new int[] {64, 220, 275, 628, 220, 269, 197, 197, 67, 220, 220, 220});
+        GOLDEN.put("Wait... what?!? (really) [yes] {no}",
+            new int[] {21321, 986, 644, 12248, 30, 357, 27485, 8, 685, 8505, 60, 1391, 3919, 92});
+        GOLDEN.put("antidisestablishmentarianism", new int[] {415, 29207, 44390, 3699, 1042});
+        GOLDEN.put("def f(x):\n    return x**2  # square",
+            new int[] {4299, 277, 7, 87, 2599, 198, 220, 220, 220, 1441, 2124, 1174, 17, 220, 1303, 6616});
+    }
+
+    private static BpeTokenizer tokenizer;
+
+    @BeforeAll
+    static void load() throws IOException {
+        try (InputStream vocab = BpeTokenizerTest.class.getResourceAsStream("/ai/roberta/vocab.json");
+                InputStream merges = BpeTokenizerTest.class.getResourceAsStream("/ai/roberta/merges.txt")) {
+            tokenizer = BpeTokenizer.load(vocab, merges);
+        }
+    }
+
+    @Test
+    void encodesGoldenIds() {
+        GOLDEN.forEach((text, ids) -> assertArrayEquals(ids, tokenizer.encode(text), text));
+    }
+
+    @Test
+    void countMatchesEncodedLength() {
+        GOLDEN.forEach((text, ids) -> {
+            assertEquals(ids.length, tokenizer.count(text, 0, text.length()), text);
+            // Counting a span must not look outside it
+            String padded = "xx" + text + "yy";
+            assertEquals(ids.length, tokenizer.count(padded, 2, 2 + text.length()), text);
+        });
+    }
+
+    @Test
+    void wordCountsAddUpToTheWholeText() {
+        String text = String.join(" ", GOLDEN.keySet()).replaceAll("\\s+", " ");
+        TokenStream tokens = TextNormalizer.normalize(text);
+        int[] counts = tokenizer.wordCounts(tokens);
+
+        // The first word has no separator, so its own count replaces its joined one
+        int total = Arrays.stream(counts).sum() - counts[0]
+            + tokenizer.count(tokens, tokens.start(0), tokens.end(0));
+        assertEquals(tokenizer.encode(tokens).length, total);
+    }
+}
@@ -0,0 +1,111 @@
+package com.plagiguard.util;
+
+import static com.plagiguard.util.CodeTokenizer.DEDENT;
+import static com.plagiguard.util.CodeTokenizer.IDENTIFIER;
+import static com.plagiguard.util.CodeTokenizer.INDENT;
+import static com.plagiguard.util.CodeTokenizer.NEWLINE;
+import static com.plagiguard.util.CodeTokenizer.NUMBER;
+import static com.plagiguard.util.CodeTokenizer.STRING;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+
+import com.plagiguard.util.CodeTokenizer.Language;
+
+class CodeTokenizerTest {
+
+    @Test
+    void javaTextBlockIsOneLiteral() {
+        String source = "String s = \"\"\"\n    int x = 1; // not code\n    \\\"\"\" still inside\n    \"\"\";\nint y;";
+
+        CodeTokens tokens = CodeTokenizer.tokenize(source, Language.JAVA);
+        assertArrayEquals(types("String s = \"x\"; int y;", Language.JAVA), tokens.types());
+        // The literal spans four lines, so "int" starts on line 5
+        assertEquals(5, tokens.line(5));
+    }
+
+    @Test
+    void commentsAreDroppedAndKeepLineNumbers() {
+        String source = "/* block\n * 'quote\" */ int a; // it's a \"comment\"\n/**/int b;";
+
+        CodeTokens tokens = CodeTokenizer.tokenize(source, Language.JAVA);
+        assertArrayEquals(types("int a; int b;", Language.JAVA), tokens.types());
+        assertEquals(2, tokens.line(0));
+        assertEquals(3, tokens.line(3));
+    }
+
+    @Test
+    void charLiteralsWithEscapesAreSingleTokens() {
+        int[] types = types("c = '\\''; d = '\\\\'; e = '\"'; f = 'x';", Language.C);
+
+        assertEquals(types("c = 1; d = 1; e = 1; f = 1;", Language.C).length, types.length);
+        for (int i = 2; i < types.length; i += 4) {
+            assertEquals(STRING, types[i]);
+        }
+    }
+
+    @Test
+    void preprocessorLinesAndContinuationsAreDropped() {
+        String source = "#define MAX(a, b) \\\n    ((a) > (b) ? (a) : (b))\nint x = 1;";
+
+        CodeTokens tokens = CodeTokenizer.tokenize(source, Language.C);
+        assertArrayEquals(types("int x = 1;", Language.C), tokens.types());
+        assertEquals(3, tokens.line(0));
+    }
+
+    @Test
+    void pythonIndentationProducesBlockTokens() {
+        int ifType = type("if", Language.PYTHON);
+        int colon = type(":", Language.PYTHON);
+
+        assertArrayEquals(new int[] {ifType, IDENTIFIER, colon, NEWLINE, INDENT, IDENTIFIER, NEWLINE, DEDENT,
+            IDENTIFIER, NEWLINE}, types("if a:\n    b\nc\n", Language.PYTHON));
+        // Same tokens, different block structure
+        assertFalse(java.util.Arrays.equals(types("if a:\n    b\n    c\n", Language.PYTHON),
+            types("if a:\n    b\nc\n", Language.PYTHON)));
+    }
+
+    @Test
+    void pythonDedentsCloseEveryLevelAtEndOfFile() {
+        int[] types = types("def f():\n\tif x:\n\t\treturn 1", Language.PYTHON);
+
+        assertEquals(NEWLINE, types[types.length - 3]);
+        assertEquals(DEDENT, types[types.length - 2]);
+        assertEquals(DEDENT, types[types.length - 1]);
+    }
+
+    @Test
+    void blankLinesCommentsAndContinuationsDoNotAffectPythonLayout() {
+        String plain = "def f(a, b):\n    x = a + b\n    return x\n";
+        String noisy = "def f(a,\n      b):\n\n    # comment\n        # deeper comment\n    x = a \\\n  + b\n"
+            + "    return x\n";
+
+        assertArrayEquals(types(plain, Language.PYTHON), types(noisy, Language.PYTHON));
+    }
+
+    @Test
+    void pythonPrefixedAndTripleQuotedStringsAreSingleLiterals() {
+        String source = "x = f\"{a}\" + rb'\\d' + '''doc\nstring ''' + u\"\"\"a \\\"\"\" b\"\"\"\ny = 1\n";
+
+        CodeTokens tokens = CodeTokenizer.tokenize(source, Language.PYTHON);
+        assertEquals(types("x = s + s + s + s\ny = 1\n", Language.PYTHON).length, tokens.size());
+        assertEquals(STRING, tokens.type(2));
+        assertEquals(STRING, tokens.type(4));
+        assertEquals(STRING, tokens.type(6));
+        assertEquals(STRING, tokens.type(8));
+        assertEquals(NUMBER, tokens.type(12));
+        assertEquals(3, tokens.line(10));
+        // An identifier that merely ends in a prefix letter is not a prefix
+        assertEquals(IDENTIFIER, type("self", Language.PYTHON));
+    }
+
+    private static int[] types(String source, Language language) {
+        return CodeTokenizer.tokenize(source, language).types();
+    }
+
+    private static int type(String token, Language language) {
+        return CodeTokenizer.tokenize(token, language).type(0);
+    }
+}
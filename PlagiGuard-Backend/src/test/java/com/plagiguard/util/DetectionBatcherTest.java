@@ -0,0 +1,134 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DetectionBatcherTest {
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<List<String>> sent = Collections.synchronizedList(new ArrayList<>());
+    private final List<CompletableFuture<List<DetectionResult>>> responses =
+        Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    // Records every batch and leaves its response for the test to complete
+    private DetectionBatcher batcher(int maxBatchSize, long maxWaitMs) {
+        return new DetectionBatcher(texts -> {
+            CompletableFuture<List<DetectionResult>> response = new CompletableFuture<>();
+            sent.add(texts);
+            responses.add(response);
+            return response;
+        }, timer, maxBatchSize, maxWaitMs, registry);
+    }
+
+    @Test
+    void sendsAsSoonAsTheBatchIsFull() {
+        DetectionBatcher batcher = batcher(3, 60_000);
+        batcher.submit("a");
+        batcher.submit("b");
+        assertTrue(sent.isEmpty());
+
+        batcher.submit("c");
+        batcher.submit("d");
+
+        assertEquals(List.of(List.of("a", "b", "c")), sent);
+        assertEquals(3.0, registry.get("ai.detector.batch.size").summary().max());
+    }
+
+    @Test
+    void sendsAPartialBatchOnceTheOldestTextHasWaitedMaxWait() throws Exception {
+        DetectionBatcher batcher = batcher(16, 50);
+        long start = System.nanoTime();
+        CompletableFuture<DetectionResult> first = batcher.submit("a");
+        batcher.submit("b");
+
+        for (int i = 0; i < 200 && sent.isEmpty(); i++) {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of(List.of("a", "b")), sent);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertFalse(first.isDone());
+
+        // The timer armed for the first batch does not cut the next one short
+        batcher.submit("c");
+        Thread.sleep(20);
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    void routesEachResultToTheCallerThatSubmittedIt() throws Exception {
+        DetectionBatcher batcher = batcher(3, 60_000);
+        CompletableFuture<DetectionResult> a = batcher.submit("a");
+        CompletableFuture<DetectionResult> b = batcher.submit("b");
+        CompletableFuture<DetectionResult> c = batcher.submit("c");
+
+        List<DetectionResult> results = List.of(new DetectionResult(0.1, false), new DetectionResult(0.9, true),
+            new DetectionResult(0.5, false));
+        responses.get(0).complete(results);
+
+        assertSame(results.get(0), a.get());
+        assertSame(results.get(1), b.get());
+        assertSame(results.get(2), c.get());
+    }
+
+    @Test
+    void failsEveryWaiterOfAFailedBatch() {
+        DetectionBatcher batcher = batcher(2, 60_000);
+        CompletableFuture<DetectionResult> a = batcher.submit("a");
+        CompletableFuture<DetectionResult> b = batcher.submit("b");
+        CompletableFuture<DetectionResult> c = batcher.submit("c");
+
+        IllegalStateException failure = new IllegalStateException("detector down");
+        responses.get(0).completeExceptionally(failure);
+
+        assertSame(failure, assertThrows(ExecutionException.class, a::get).getCause());
+        assertSame(failure, assertThrows(ExecutionException.class, b::get).getCause());
+        // The next batch is unaffected
+        assertFalse(c.isDone());
+    }
+
+    @Test
+    void failsEveryWaiterWhenTheResultCountIsWrong() {
+        DetectionBatcher batcher = batcher(2, 60_000);
+        CompletableFuture<DetectionResult> a = batcher.submit("a");
+        CompletableFuture<DetectionResult> b = batcher.submit("b");
+
+        responses.get(0).complete(List.of(new DetectionResult(0.1, false)));
+
+        assertTrue(assertThrows(ExecutionException.class, a::get).getCause() instanceof IllegalStateException);
+        assertTrue(assertThrows(ExecutionException.class, b::get).getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void failsEveryWaiterWhenTheSenderThrows() {
+        DetectionBatcher batcher = new DetectionBatcher(texts -> {
+            throw new IllegalArgumentException("no endpoint");
+        }, timer, 2, 60_000, registry);
+        CompletableFuture<DetectionResult> a = batcher.submit("a");
+        CompletableFuture<DetectionResult> b = batcher.submit("b");
+
+        assertTrue(assertThrows(ExecutionException.class, a::get).getCause() instanceof IllegalArgumentException);
+        assertTrue(assertThrows(ExecutionException.class, b::get).getCause() instanceof IllegalArgumentException);
+    }
+}
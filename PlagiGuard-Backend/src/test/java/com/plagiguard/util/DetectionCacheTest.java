@@ -0,0 +1,155 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.plagiguard.entity.DetectionResultEntry;
+import com.plagiguard.repository.DetectionResultRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DetectionCacheTest {
+    private static final DetectionResult AI = new DetectionResult(0.9, true);
+
+    private final Map<String, DetectionResultEntry> rows = new ConcurrentHashMap<>();
+    private final List<Runnable> queuedWrites = new ArrayList<>();
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private DetectionResultRepository repository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(DetectionResultRepository.class);
+        when(repository.findAllById(any())).thenAnswer(invocation ->
+            ((Collection<String>) invocation.getArgument(0)).stream().map(rows::get).filter(row -> row != null)
+                .toList());
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            for (DetectionResultEntry entry : (Iterable<DetectionResultEntry>) invocation.getArgument(0)) {
+                rows.put(entry.getCacheKey(), entry);
+            }
+            return List.of();
+        });
+    }
+
+    // Database writes wait in queuedWrites until the test runs them
+    private DetectionCache cache(String modelVersion) {
+        Executor persister = queuedWrites::add;
+        return new DetectionCache(100, Duration.ofHours(1), modelVersion, repository, registry, persister, nanos::get);
+    }
+
+    @Test
+    void newModelVersionDoesNotReadVerdictsOfTheOldOne() {
+        DetectionCache old = cache("model-1");
+        String key = old.key("some text");
+        old.put(key, AI, 1_000_000);
+        old.persist(Map.of(key, AI));
+        queuedWrites.forEach(Runnable::run);
+
+        DetectionCache current = cache("model-2");
+        String currentKey = current.key("some text");
+
+        assertNotEquals(key, currentKey);
+        assertEquals(Map.of(), current.getAll(List.of(currentKey)));
+        assertEquals(Map.of(key, AI), cache("model-1").getAll(List.of(key)));
+    }
+
+    @Test
+    void memoryEntriesExpireAfterTheTtl() {
+        DetectionCache cache = new DetectionCache(100, Duration.ofMinutes(10), "model", null, registry, null,
+            nanos::get);
+        String key = cache.key("text");
+        cache.put(key, AI, 1_000_000);
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(9));
+        assertEquals(Map.of(key, AI), cache.getAll(List.of(key)));
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertEquals(Map.of(), cache.getAll(List.of(key)));
+    }
+
+    @Test
+    void readsThroughToTheDatabaseAndKeepsTheVerdictInMemory() {
+        DetectionCache writer = cache("model");
+        String key = writer.key("text");
+        writer.persist(Map.of(key, AI));
+        // Persisting only queues the write
+        verify(repository, never()).saveAll(any());
+        queuedWrites.forEach(Runnable::run);
+
+        DetectionCache restarted = cache("model");
+        String missing = restarted.key("other text");
+        assertEquals(Map.of(key, AI), restarted.getAll(List.of(key, missing)));
+        rows.clear();
+        assertEquals(Map.of(key, AI), restarted.getAll(List.of(key)));
+
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "ai.detection.database", "result", "hit")
+            .counter().count());
+        // Only the key in neither tier missed; the second lookup was served from memory
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "ai.detection.database", "result", "miss")
+            .counter().count());
+    }
+
+    @Test
+    void databaseFailuresOnlyCostDetectorCalls() {
+        doThrow(new IllegalStateException("database down")).when(repository).findAllById(any());
+        doThrow(new IllegalStateException("database down")).when(repository).saveAll(any());
+        DetectionCache cache = cache("model");
+        String key = cache.key("text");
+
+        cache.persist(Map.of(key, AI));
+        queuedWrites.forEach(Runnable::run);
+
+        assertEquals(Map.of(), cache.getAll(List.of(key)));
+    }
+
+    @Test
+    void recordsHitRatioAndDetectorTimeSaved() {
+        DetectionCache cache = new DetectionCache(100, Duration.ofHours(1), "model", null, registry, null,
+            nanos::get);
+        String first = cache.key("first");
+        String second = cache.key("second");
+        cache.put(first, AI, TimeUnit.MILLISECONDS.toNanos(400));
+        // Later latencies move the mean by a sixteenth of their difference
+        cache.put(second, AI, TimeUnit.MILLISECONDS.toNanos(2000));
+
+        cache.getAll(List.of(first, second, cache.key("third")));
+
+        double hits = registry.get("cache.gets").tags("cache", "ai.detection.memory", "result", "hit")
+            .functionCounter().count();
+        double misses = registry.get("cache.gets").tags("cache", "ai.detection.memory", "result", "miss")
+            .functionCounter().count();
+        assertEquals(2.0 / 3, hits / (hits + misses), 1e-9);
+        assertEquals(2 * 0.5, registry.get("ai.detector.cache.saved.seconds").counter().count(), 1e-9);
+    }
+
+    @Test
+    void closeWritesTheQueuedVerdicts() throws Exception {
+        DetectionCache cache = new DetectionCache(100, Duration.ofHours(1), "model", repository, registry);
+        String key = cache.key("text");
+        cache.persist(Map.of(key, AI));
+
+        cache.close();
+
+        assertTrue(rows.containsKey(key));
+    }
+}
@@ -0,0 +1,101 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class DetectorJsonTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String AWKWARD = "quote \" backslash \\ slash / tab \t newline \n control \u0001 "
+        + "accents éü devanagari नमस्ते emoji 😀 end";
+
+    @Test
+    void textRoundTripsWithAndWithoutGzip() throws IOException {
+        for (boolean gzip : new boolean[] {false, true}) {
+            JsonNode body = written(gzip, DetectorJson.text(AWKWARD));
+            assertEquals(1, body.size());
+            assertEquals(AWKWARD, body.get("text").asText());
+        }
+    }
+
+    @Test
+    void textsRoundTripInOrder() throws IOException {
+        List<String> texts = List.of(AWKWARD, "", "x".repeat(100_000));
+        for (boolean gzip : new boolean[] {false, true}) {
+            JsonNode array = written(gzip, DetectorJson.texts(texts)).get("texts");
+            assertEquals(texts.size(), array.size());
+            for (int i = 0; i < texts.size(); i++) {
+                assertEquals(texts.get(i), array.get(i).asText());
+            }
+        }
+    }
+
+    @Test
+    void singleReplySkipsUnknownFields() throws IOException {
+        DetectorJson.Response response = read("{\"model\":{\"name\":\"roberta\",\"layers\":[1,2,{\"x\":[]}]},"
+            + "\"status\":\"success\",\"ai_score\":0.875,\"timings\":[0.1,0.2],\"ai_generated\":true,\"extra\":null}");
+
+        assertEquals("success", response.status());
+        assertNull(response.error());
+        assertEquals(new DetectionResult(0.875, true), response.result());
+        assertNull(response.results());
+    }
+
+    @Test
+    void batchReplyKeepsOrderAndSkipsUnknownFields() throws IOException {
+        DetectorJson.Response response = read("{\"status\":\"success\",\"results\":["
+            + "{\"ai_score\":0.1,\"chunks\":[{\"a\":1}],\"ai_generated\":false},"
+            + "{\"label\":\"AI\",\"ai_generated\":true,\"ai_score\":0.99}],\"elapsed_ms\":12}");
+
+        assertEquals(List.of(new DetectionResult(0.1, false), new DetectionResult(0.99, true)), response.results());
+        assertNull(response.result());
+    }
+
+    @Test
+    void errorReplyHasNoResult() throws IOException {
+        DetectorJson.Response response = read("{\"status\":\"error\",\"error\":\"model \\\"x\\\" not loaded\"}");
+
+        assertEquals("error", response.status());
+        assertEquals("model \"x\" not loaded", response.error());
+        assertNull(response.result());
+    }
+
+    @Test
+    void truncatedAndMalformedRepliesFail() {
+        for (String reply : List.of(
+                "{\"status\":\"success\",\"ai_score\":0.5",
+                "{\"status\":\"success\",\"results\":[{\"ai_score\":0.5,\"ai_generated\":true},{\"ai_sc",
+                "{\"status\":\"succ",
+                "",
+                "[1,2]",
+                "{\"status\":\"success\",\"results\":{\"ai_score\":0.5}}",
+                "{\"status\":\"success\",\"results\":[{\"ai_score\":0.5}]}")) {
+            assertThrows(JsonProcessingException.class, () -> read(reply), reply);
+        }
+    }
+
+    private static JsonNode written(boolean gzip, DetectorJson.Fields fields) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DetectorJson.write(out, gzip, fields);
+        InputStream in = new ByteArrayInputStream(out.toByteArray());
+        return MAPPER.readTree(gzip ? new GZIPInputStream(in) : in);
+    }
+
+    private static DetectorJson.Response read(String reply) throws IOException {
+        return DetectorJson.read(new ByteArrayInputStream(reply.getBytes(StandardCharsets.UTF_8)));
+    }
+}
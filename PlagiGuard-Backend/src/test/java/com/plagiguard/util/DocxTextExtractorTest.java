@@ -0,0 +1,114 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+class DocxTextExtractorTest {
+    private static final String CONTENT_TYPES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+        + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\"/>";
+
+    @Test
+    void extractsBodyTablesHeadersFootersAndNotes() throws IOException {
+        Map<String, String> parts = new LinkedHashMap<>();
+        parts.put("[Content_Types].xml", CONTENT_TYPES);
+        parts.put("word/header1.xml", part("hdr", paragraph("Running head")));
+        parts.put("word/document.xml", part("document", "<w:body>"
+            + paragraph("First <split> paragraph")
+            + "<w:p><w:r><w:t xml:space=\"preserve\">  padded  </w:t></w:r><w:r><w:tab/><w:t>tabbed</w:t></w:r></w:p>"
+            + "<w:p/>"
+            + "<w:tbl><w:tr><w:tc>" + paragraph("cell one") + "</w:tc><w:tc>" + paragraph("cell two")
+            + "</w:tc></w:tr></w:tbl>"
+            + "<w:p><w:r><w:t>line</w:t><w:br/><w:t>break</w:t></w:r></w:p>"
+            + "</w:body>"));
+        parts.put("word/footer2.xml", part("ftr", paragraph("Page footer")));
+        parts.put("word/footnotes.xml", part("footnotes", "<w:footnote>" + paragraph("A footnote") + "</w:footnote>"));
+        parts.put("word/endnotes.xml", part("endnotes", "<w:endnote>" + paragraph("An endnote") + "</w:endnote>"));
+        parts.put("word/styles.xml", part("styles", paragraph("not text")));
+        parts.put("docProps/core.xml", "<core>metadata</core>");
+
+        assertEquals("Running head\nFirst <split> paragraph\npadded  \ttabbed\ncell one\ncell two\nline\nbreak\n"
+            + "Page footer\nA footnote\nAn endnote\n", extract(docx(parts)));
+    }
+
+    @Test
+    void missingBodyIsRejected() {
+        Map<String, String> parts = new LinkedHashMap<>();
+        parts.put("[Content_Types].xml", CONTENT_TYPES);
+        parts.put("word/header1.xml", part("hdr", paragraph("Running head")));
+
+        IOException e = assertThrows(IOException.class, () -> extract(docx(parts)));
+        assertTrue(e.getMessage().contains("word/document.xml"));
+    }
+
+    @Test
+    void highlyCompressedPartIsRejected() throws IOException {
+        // 16 MB of one repeated character deflates about a thousandfold
+        String bomb = part("document", "<w:body>" + paragraph("a".repeat(16 * 1024 * 1024)) + "</w:body>");
+        byte[] docx = docx(Map.of("word/document.xml", bomb));
+        assertTrue(docx.length < 100_000);
+
+        IOException e = assertThrows(IOException.class, () -> extract(docx));
+        assertTrue(e.getMessage().contains("compression ratio"), e.getMessage());
+    }
+
+    @Test
+    void unparsedPartsCountTowardsTheLimits() throws IOException {
+        Map<String, String> parts = new LinkedHashMap<>();
+        parts.put("word/document.xml", part("document", "<w:body>" + paragraph("body") + "</w:body>"));
+        parts.put("word/media/blob.bin", "x".repeat(5000));
+
+        byte[] docx = docx(parts);
+        IOException entry = assertThrows(IOException.class,
+            () -> DocxTextExtractor.extract(new ByteArrayInputStream(docx), new StringWriter(), 4000, 1 << 20, 1e9));
+        assertTrue(entry.getMessage().contains("word/media/blob.bin"), entry.getMessage());
+        IOException document = assertThrows(IOException.class,
+            () -> DocxTextExtractor.extract(new ByteArrayInputStream(docx), new StringWriter(), 1 << 20, 5000, 1e9));
+        assertTrue(document.getMessage().contains("archive"), document.getMessage());
+
+        StringWriter out = new StringWriter();
+        DocxTextExtractor.extract(new ByteArrayInputStream(docx), out, 1 << 20, 1 << 20, 1e9);
+        assertEquals("body\n", out.toString());
+    }
+
+    private static String extract(byte[] docx) throws IOException {
+        StringWriter out = new StringWriter();
+        DocxTextExtractor.extract(new ByteArrayInputStream(docx), out);
+        return out.toString();
+    }
+
+    private static String paragraph(String text) {
+        return "<w:p><w:pPr><w:pStyle w:val=\"Normal\"/></w:pPr><w:r><w:t>" + text.replace("<", "&lt;")
+            .replace(">", "&gt;") + "</w:t></w:r></w:p>";
+    }
+
+    private static String part(String root, String content) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><w:" + root
+            + " xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\">" + content + "</w:" + root
+            + ">";
+    }
+
+    private static byte[] docx(Map<String, String> parts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> part : parts.entrySet()) {
+                zip.putNextEntry(new ZipEntry(part.getKey()));
+                zip.write(part.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,142 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ExtractionCacheTest {
+    private static final long MB = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private ExtractionCache cache(long maxDiskBytes, Duration maxDiskAge) throws IOException {
+        return new ExtractionCache(MB, directory, maxDiskBytes, maxDiskAge, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void diskTierSurvivesRestartAndLeavesNoTempFiles() throws IOException {
+        cache(MB, Duration.ofDays(1)).put("ab01.pdf", "extracted text");
+
+        assertEquals("extracted text", cache(MB, Duration.ofDays(1)).get("ab01.pdf"));
+        assertEquals(List.of("ab01.pdf.txt.gz"), fileNames());
+    }
+
+    @Test
+    void evictDropsEveryExtensionOfTheHash() throws IOException {
+        ExtractionCache cache = cache(MB, Duration.ofDays(1));
+        cache.put("ab01.pdf", "pdf text");
+        cache.put("ab01.docx", "docx text");
+        cache.put("ab02.pdf", "other text");
+
+        cache.evict("ab01");
+
+        assertNull(cache.get("ab01.pdf"));
+        assertNull(cache.get("ab01.docx"));
+        assertEquals("other text", cache.get("ab02.pdf"));
+        assertEquals(List.of("ab02.pdf.txt.gz"), fileNames());
+    }
+
+    @Test
+    void purgeDropsEntriesNotReadWithinTheMaximumAge() throws IOException {
+        ExtractionCache cache = cache(MB, Duration.ofDays(7));
+        cache.put("ab01.txt", "stale");
+        cache.put("ab02.txt", "fresh");
+        age("ab01.txt.txt.gz", Duration.ofDays(8));
+
+        assertEquals(1, cache.purge());
+        assertEquals(List.of("ab02.txt.txt.gz"), fileNames());
+    }
+
+    @Test
+    void sizeCapDropsLeastRecentlyReadEntriesFirst() throws IOException {
+        ExtractionCache seed = cache(MB, Duration.ofDays(1));
+        for (int i = 0; i < 4; i++) {
+            seed.put("cd0" + i + ".txt", random(4096, i));
+            age("cd0" + i + ".txt.txt.gz", Duration.ofMinutes(10 - i));
+        }
+        long entryBytes = Files.size(file("cd00.txt.txt.gz"));
+
+        // Reading the oldest entry makes it the most recently used one
+        ExtractionCache cache = cache(MB, Duration.ofDays(1));
+        cache.get("cd00.txt");
+        cache = cache(entryBytes * 5 / 2, Duration.ofDays(1));
+
+        assertEquals(List.of("cd00.txt.txt.gz", "cd03.txt.txt.gz"), fileNames());
+        cache.put("cd04.txt", random(4096, 4));
+        assertEquals(List.of("cd00.txt.txt.gz", "cd04.txt.txt.gz"), fileNames());
+    }
+
+    @Test
+    void sizeCapEvictsDownToTheLowWaterMark() throws IOException {
+        ExtractionCache seed = cache(MB, Duration.ofDays(1));
+        for (int i = 0; i < 11; i++) {
+            seed.put("ef" + (10 + i) + ".txt", random(4096, i));
+            age("ef" + (10 + i) + ".txt.txt.gz", Duration.ofMinutes(30 - i));
+        }
+        long entryBytes = Files.size(file("ef10.txt.txt.gz"));
+
+        // Eleven entries against a cap of 10.5 leave nine, below 90% of the cap
+        ExtractionCache cache = cache(entryBytes * 21 / 2, Duration.ofDays(1));
+        assertEquals(9, fileNames().size());
+        assertFalse(fileNames().contains("ef10.txt.txt.gz"));
+        // So the next write fits without another purge
+        cache.put("ef21.txt", random(4096, 21));
+        assertEquals(10, fileNames().size());
+    }
+
+    @Test
+    void purgeLeavesTempFilesOfWritesInProgress() throws IOException {
+        ExtractionCache cache = cache(MB, Duration.ofDays(1));
+        cache.put("ab01.txt", "text");
+        Path bucket = file("ab01.txt.txt.gz").getParent();
+        Files.writeString(bucket.resolve("ab02.txt123.tmp"), "partial");
+        Path orphan = Files.writeString(bucket.resolve("ab03.txt456.tmp"), "partial");
+        Files.setLastModifiedTime(orphan, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        age("ab01.txt.txt.gz", Duration.ofDays(2));
+
+        assertEquals(1, cache.purge());
+        assertEquals(List.of("ab02.txt123.tmp"), fileNames());
+    }
+
+    private void age(String name, Duration age) throws IOException {
+        Files.setLastModifiedTime(file(name), FileTime.from(Instant.now().minus(age)));
+    }
+
+    private Path file(String name) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(file -> file.getFileName().toString().equals(name)).findFirst().orElseThrow();
+        }
+    }
+
+    private List<String> fileNames() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    // Incompressible text so that every entry has about the same size on disk
+    private static String random(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LatencyHistogramTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void percentileIsTheUpperBoundOfItsBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * MS);
+        }
+
+        long p95 = percentile(histogram, 0.95);
+        assertTrue(p95 >= 95 * MS && p95 <= 95 * MS * 1.15, "p95 was " + p95);
+        long p50 = percentile(histogram, 0.5);
+        assertTrue(p50 >= 50 * MS && p50 <= 50 * MS * 1.15, "p50 was " + p50);
+    }
+
+    @Test
+    void oldSamplesFadeOut() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 512; i++) {
+            histogram.record(1000 * MS);
+        }
+        // Counts halve every 512 samples, leaving 16 slow samples against 480 fast ones
+        for (int i = 0; i < 2048; i++) {
+            histogram.record(MS);
+        }
+
+        assertTrue(percentile(histogram, 0.5) < 2 * MS);
+        assertTrue(percentile(histogram, 0.99) >= 1000 * MS);
+    }
+
+    @Test
+    void replicaWithFewSamplesFallsBackToAllReplicas() {
+        DetectorEndpoints endpoints = new DetectorEndpoints(List.of("http://a", "http://b"),
+            new SimpleMeterRegistry());
+        DetectorEndpoints.Endpoint a = endpoints.all().get(0);
+        DetectorEndpoints.Endpoint b = endpoints.all().get(1);
+        for (int i = 0; i < 10; i++) {
+            endpoints.recordLatency(a, DetectorEndpoints.Call.SINGLE, 10 * MS);
+            endpoints.recordLatency(a, DetectorEndpoints.Call.BATCH, 200 * MS);
+        }
+        endpoints.recordLatency(b, DetectorEndpoints.Call.SINGLE, 40 * MS);
+
+        assertEquals(-1, endpoints.latencyPercentile(a, DetectorEndpoints.Call.SINGLE, 0.95, 20));
+        long single = endpoints.latencyPercentile(a, DetectorEndpoints.Call.SINGLE, 0.95, 10);
+        assertTrue(single >= 10 * MS && single < 40 * MS, "single was " + single);
+        long batch = endpoints.latencyPercentile(a, DetectorEndpoints.Call.BATCH, 0.95, 10);
+        assertTrue(batch >= 200 * MS, "batch was " + batch);
+        // b alone has one sample, so its percentile comes from both replicas
+        long pooled = endpoints.latencyPercentile(b, DetectorEndpoints.Call.SINGLE, 0.95, 10);
+        assertTrue(pooled >= 40 * MS, "pooled was " + pooled);
+    }
+
+    private static long percentile(LatencyHistogram histogram, double percentile) {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        long total = histogram.addTo(counts);
+        return LatencyHistogram.percentile(counts, total, percentile);
+    }
+}
@@ -0,0 +1,70 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+
+class ParallelPdfExtractorTest {
+
+    @Test
+    void rangedExtractionMatchesSequentialAndCountsWorkerAllocation() throws Exception {
+        byte[] pdf = pdf(12);
+        StringWriter sequential = new StringWriter();
+        StringWriter ranged = new StringWriter();
+        long rangedWorkerBytes;
+        try (ParallelPdfExtractor inline = ParallelPdfExtractor.sequential(1 << 20);
+                ParallelPdfExtractor pool = new ParallelPdfExtractor(2, 4, 3, 1 << 20)) {
+            assertEquals(0, inline.extract(pdf, sequential));
+            rangedWorkerBytes = pool.extract(pdf, ranged);
+        }
+
+        assertEquals(sequential.toString(), ranged.toString());
+        assertTrue(ranged.toString().contains("Page 12 line 3"));
+        assertTrue(rangedWorkerBytes > 0);
+    }
+
+    @Test
+    void measuredExtractionReportsAllocatedBytes() throws Exception {
+        try (ParallelPdfExtractor pool = new ParallelPdfExtractor(2, 4, 3, 1 << 20)) {
+            FileTextExtractor.Extracted small = FileTextExtractor.extractMeasured("a.pdf", pdf(2), pool);
+            FileTextExtractor.Extracted large = FileTextExtractor.extractMeasured("b.pdf", pdf(12), pool);
+
+            assertTrue(small.text().startsWith("Page 1 line 0"));
+            assertTrue(small.allocatedBytes() > 0);
+            // Mostly allocated on the workers, which the calling thread's count alone would miss
+            assertTrue(large.allocatedBytes() > small.allocatedBytes());
+        }
+    }
+
+    static byte[] pdf(int pages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int p = 1; p <= pages; p++) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 11);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 700);
+                    for (int line = 0; line < 40; line++) {
+                        content.showText("Page " + p + " line " + line + " of generated text for extraction");
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.plagiguard.util.PreClassifier.Decision;
+import com.plagiguard.util.PreClassifier.Verdict;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PreClassifierTest {
+    private static final List<String> HUMAN = List.of(
+        "ok so I finally got the lab results back and honestly they're a mess. Sample 3 was contaminated, "
+            + "again! Tom thinks the fridge door was left open over the weekend but who knows. I redid the "
+            + "titration twice. Twice. The numbers still don't line up with what Prof. Ahmed got last year, off "
+            + "by like 12%, which is way outside the error bars. Anyway I'll bring the notebook Thursday. If you "
+            + "can, grab coffee on the way? The machine on our floor's been broken since March lol. Also did "
+            + "anyone ever fix the centrifuge or are we still using the one in B214.",
+        "My grandmother kept chickens until she was ninety. Every morning, rain or not, she'd shuffle out in "
+            + "Grandpa's old boots, three sizes too big, and count them. Eleven. Always eleven, even the year the "
+            + "fox got two; she just bought more and named them after the dead ones. We laughed. She didn't. When "
+            + "I asked why, she said the counting mattered more than the chickens. I was eight and thought that "
+            + "was nonsense. I'm forty-one now and I count things too: stairs, cars, the seconds between "
+            + "lightning and thunder.",
+        "Tried that. Didn't work. Running 5.15 on a ThinkPad X220, it panics right after the initramfs loads, "
+            + "no log because the disk isn't mounted yet. Swapped the RAM: same. Booted a live USB: fine. So it's "
+            + "something in my config, obviously. I diffed it against the Arch default and the only real "
+            + "difference is that I built ext4 as a module instead of into the kernel. Could that be it?? "
+            + "Rebuilding now, takes about forty minutes on this potato. Will report back when it's done, or "
+            + "when it catches fire, whichever comes first.");
+
+    private static final List<String> AI = List.of(
+        "Artificial intelligence has the potential to transform the way we approach education. By providing "
+            + "personalized learning experiences, it can help students engage more deeply with the material and "
+            + "develop critical thinking skills. Moreover, it enables teachers to identify areas where students "
+            + "may be struggling and to adjust their instruction accordingly. However, it is important to "
+            + "consider the ethical implications of these technologies, including concerns about privacy, bias, "
+            + "and the role of human judgment. Ultimately, the successful integration of artificial intelligence "
+            + "in education will depend on thoughtful implementation and ongoing evaluation.",
+        "Climate change is one of the most pressing challenges facing our world today. It is driven primarily "
+            + "by the burning of fossil fuels, which releases greenhouse gases into the atmosphere. These gases "
+            + "trap heat and lead to rising global temperatures. As a result, we are seeing more frequent extreme "
+            + "weather events, rising sea levels, and disruptions to ecosystems. To address this issue, it is "
+            + "essential that governments, businesses, and individuals work together to reduce emissions and "
+            + "transition to renewable energy sources. By taking action now, we can help ensure a sustainable "
+            + "future for generations to come.",
+        "In conclusion, effective communication is a vital skill in both personal and professional settings. "
+            + "It allows individuals to express their ideas clearly, build strong relationships, and resolve "
+            + "conflicts in a constructive manner. Furthermore, it fosters collaboration and helps teams achieve "
+            + "their goals more efficiently. In order to improve communication skills, it is important to "
+            + "practice active listening, to be mindful of nonverbal cues, and to seek feedback from others. By "
+            + "investing time and effort in developing these skills, individuals can enhance their overall "
+            + "success and well-being.");
+
+    private static Properties model;
+
+    @BeforeAll
+    static void loadModel() throws IOException {
+        model = new Properties();
+        try (InputStream in = PreClassifierTest.class.getResourceAsStream("/ai/preclassifier.properties")) {
+            model.load(in);
+        }
+    }
+
+    @Test
+    void highScoresEscalateInsteadOfLabellingWindowsAi() {
+        PreClassifier classifier = classifier(true, false, 0.05, new SimpleMeterRegistry());
+
+        for (String text : AI) {
+            TokenStream tokens = TextNormalizer.normalize(text);
+            assertTrue(classifier.score(tokens, 0, tokens.size()) > 0.9, text);
+            Verdict verdict = classifier.classify(tokens, 0, tokens.size());
+            assertEquals(Decision.ESCALATE, verdict.decision());
+            assertTrue(Double.isNaN(verdict.aiScore()));
+        }
+    }
+
+    @Test
+    void humanFastPathNeverClearsAiSamples() {
+        // A threshold loose enough to clear every human sample still sends every AI sample on
+        PreClassifier classifier = classifier(true, false, 0.6, new SimpleMeterRegistry());
+
+        for (String text : HUMAN) {
+            assertEquals(Decision.HUMAN, classify(classifier, text).decision(), text);
+        }
+        for (String text : AI) {
+            assertEquals(Decision.ESCALATE, classify(classifier, text).decision(), text);
+        }
+    }
+
+    @Test
+    void shadowOnlySendsEveryHumanVerdict() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        PreClassifier classifier = classifier(true, true, 0.6, registry);
+
+        for (String text : HUMAN) {
+            Verdict verdict = classify(classifier, text);
+            assertEquals(Decision.HUMAN, verdict.decision());
+            assertTrue(verdict.shadow());
+            classifier.recordAgreement(verdict.decision(), false);
+        }
+        classifier.recordAgreement(Decision.HUMAN, true);
+        assertEquals(HUMAN.size(), count(registry, "agree"));
+        assertEquals(1, count(registry, "disagree"));
+    }
+
+    @Test
+    void disabledAndShortWindowsEscalate() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        PreClassifier disabled = classifier(false, false, 0.6, registry);
+        PreClassifier enabled = classifier(true, false, 0.6, new SimpleMeterRegistry());
+        TokenStream tokens = TextNormalizer.normalize(HUMAN.get(0));
+
+        assertEquals(Decision.ESCALATE, disabled.classify(tokens, 0, tokens.size()).decision());
+        assertEquals(0, registry.get("ai.detector.precheck.decisions").counters().stream()
+            .mapToDouble(counter -> counter.count()).sum());
+        assertEquals(Decision.ESCALATE, enabled.classify(tokens, 0, 19).decision());
+        assertNotEquals(Decision.ESCALATE, enabled.classify(tokens, 0, tokens.size()).decision());
+    }
+
+    private static PreClassifier classifier(boolean enabled, boolean shadowOnly, double humanBelow,
+            MeterRegistry registry) {
+        return new PreClassifier(model, enabled, shadowOnly, humanBelow, 20, 0.0, registry);
+    }
+
+    private static Verdict classify(PreClassifier classifier, String text) {
+        TokenStream tokens = TextNormalizer.normalize(text);
+        return classifier.classify(tokens, 0, tokens.size());
+    }
+
+    private static double count(MeterRegistry registry, String outcome) {
+        return registry.get("ai.detector.precheck.agreement").tag("decision", "human").tag("outcome", outcome)
+            .counter().count();
+    }
+}
@@ -0,0 +1,75 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TextNormalizerTest {
+
+    @Test
+    void foldsCompatibilityForms() {
+        // Full-width letters and digits, superscript two, non-breaking space
+        assertEquals("ABC 123 x2 y", TextNormalizer.normalize("ＡＢＣ １２３ x² y").toString());
+    }
+
+    @Test
+    void repairsLigatures() {
+        TokenStream tokens = TextNormalizer.normalize("ﬁnal eﬀort ﬂow");
+
+        assertEquals("final effort flow", tokens.toString());
+        assertEquals(List.of("final", "effort", "flow"), tokens(tokens));
+    }
+
+    @Test
+    void joinsWordsHyphenatedAcrossLineBreaks() {
+        assertEquals("an example here", TextNormalizer.normalize("an exam-\nple here").toString());
+        assertEquals("an example here", TextNormalizer.normalize("an exam‐ \r\n  ple here").toString());
+        // A capital after the break, a blank line or no break at all keep the hyphen
+        assertEquals("well-\nKnown", TextNormalizer.normalize("well-\nKnown").toString());
+        assertEquals("well-\nknown", TextNormalizer.normalize("well-\n\nknown").toString());
+        assertEquals("well-known", TextNormalizer.normalize("well-known").toString());
+    }
+
+    @Test
+    void dropsSoftHyphensAndZeroWidthCharacters() {
+        assertEquals("invisible text", TextNormalizer.normalize("﻿in­vis​ible te‍xt").toString());
+    }
+
+    @Test
+    void collapsesWhitespaceKeepingLineBreaks() {
+        assertEquals("one two\nthree four", TextNormalizer.normalize("  one \t two \n\n  three four \n").toString());
+    }
+
+    @Test
+    void recordsTokenOffsetsIntoTheNormalizedText() {
+        TokenStream tokens = TextNormalizer.normalize(" ﬁrst  sec-\nond third ");
+
+        assertEquals(3, tokens.size());
+        assertEquals(List.of("first", "second", "third"), tokens(tokens));
+        assertEquals(0, tokens.start(0));
+        assertEquals(5, tokens.end(0));
+        assertEquals(6, tokens.start(1));
+        assertEquals(12, tokens.end(1));
+        assertEquals(13, tokens.start(2));
+        assertEquals(18, tokens.end(2));
+        assertEquals(1, tokens.tokenAt(7));
+    }
+
+    @Test
+    void emptyAndBlankTextHaveNoTokens() {
+        assertEquals(0, TextNormalizer.normalize("").size());
+        assertEquals(0, TextNormalizer.normalize(" \n\t ").size());
+        assertEquals("", TextNormalizer.normalize(" \n\t ").toString());
+    }
+
+    private static List<String> tokens(TokenStream tokens) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            words.add(tokens.token(i));
+        }
+        return words;
+    }
+}
@@ -0,0 +1,112 @@
+package com.plagiguard.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VegasLimiterTest {
+    private static final long BASELINE = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void limitGrowsWhileRoundTripsStayAtTheBaseline() {
+        VegasLimiter limiter = new VegasLimiter(10, 1, 200, 0, registry);
+        call(limiter, BASELINE);
+        int previous = limiter.limit();
+
+        for (int i = 0; i < 20; i++) {
+            call(limiter, BASELINE);
+            assertTrue(limiter.limit() >= previous);
+            previous = limiter.limit();
+        }
+
+        assertTrue(limiter.limit() > 50, "limit " + limiter.limit());
+        assertEquals(limiter.limit(), (int) registry.get("ai.detector.limit").gauge().value());
+        assertEquals(20.0, registry.get("ai.detector.limit.rtt.noload").gauge().value());
+    }
+
+    @Test
+    void limitShrinksAsQueueingRaisesRoundTrips() {
+        VegasLimiter limiter = new VegasLimiter(10, 1, 200, 0, registry);
+        for (int i = 0; i < 15; i++) {
+            call(limiter, BASELINE);
+        }
+        int grown = limiter.limit();
+
+        // Round trips at five times the baseline mean most of the limit is queued at the detector
+        int previous = grown;
+        for (int i = 0; i < 15; i++) {
+            call(limiter, 5 * BASELINE);
+            assertTrue(limiter.limit() <= previous);
+            previous = limiter.limit();
+        }
+
+        assertTrue(limiter.limit() < grown, limiter.limit() + " after " + grown);
+        assertEquals(100.0, registry.get("ai.detector.limit.rtt").gauge().value());
+    }
+
+    @Test
+    void droppedCallHalvesTheLimit() {
+        VegasLimiter limiter = new VegasLimiter(40, 1, 200, 0, registry);
+        limiter.acquire();
+
+        limiter.onDropped();
+        assertEquals(20, limiter.limit());
+        limiter.acquire();
+        limiter.onDropped();
+        assertEquals(10, limiter.limit());
+    }
+
+    @Test
+    void droppedCallsStopAtTheMinimumLimit() {
+        VegasLimiter limiter = new VegasLimiter(4, 3, 200, 0, registry);
+        limiter.acquire();
+        limiter.onDropped();
+
+        assertEquals(3, limiter.limit());
+    }
+
+    @Test
+    void callsOverTheLimitQueueInOrderUntilTheQueueIsFull() throws Exception {
+        VegasLimiter limiter = new VegasLimiter(1, 1, 1, 2, registry);
+        assertTrue(limiter.acquire().isDone());
+        CompletableFuture<Void> second = limiter.acquire();
+        CompletableFuture<Void> third = limiter.acquire();
+
+        CompletableFuture<Void> rejected = limiter.acquire();
+
+        assertInstanceOf(RejectedExecutionException.class,
+            assertThrows(ExecutionException.class, rejected::get).getCause());
+        assertEquals(1.0, registry.get("ai.detector.limit.rejected").counter().count());
+        assertEquals(2, limiter.queued());
+        assertFalse(second.isDone());
+
+        limiter.onIgnore();
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+        assertEquals(1, limiter.inFlight());
+        limiter.onSuccess(BASELINE);
+        assertTrue(third.isDone());
+        assertEquals(0, limiter.queued());
+    }
+
+    // Fills the limit, as a busy client would, then completes one call with the given round trip
+    private static void call(VegasLimiter limiter, long rttNanos) {
+        while (limiter.inFlight() < limiter.limit()) {
+            assertTrue(limiter.acquire().isDone());
+        }
+        limiter.onSuccess(rttNanos);
+    }
+}
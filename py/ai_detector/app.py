@@ -2,16 +2,54 @@ from flask import Flask, request, jsonify
 from transformers import AutoTokenizer, AutoModelForSequenceClassification
 import torch
 import numpy as np
+import io
+import json
 import time
+import zlib
 from functools import wraps
 
 # Configuration
 MAX_RETRIES = 3
 RETRY_DELAY = 1  # seconds
 REQUEST_TIMEOUT = 30  # seconds
+MAX_REQUEST_BYTES = 64 * 1024 * 1024  # decompressed limit for gzip bodies
 
 app = Flask(__name__)
 
+class GzipRequestMiddleware:
+    """Inflates request bodies sent with Content-Encoding: gzip before Flask parses them."""
+
+    def __init__(self, wsgi_app, max_bytes=MAX_REQUEST_BYTES):
+        self.wsgi_app = wsgi_app
+        self.max_bytes = max_bytes
+
+    def __call__(self, environ, start_response):
+        if environ.get('HTTP_CONTENT_ENCODING', '').strip().lower() == 'gzip':
+            stream = environ['wsgi.input']
+            length = environ.get('CONTENT_LENGTH')
+            # Chunked bodies carry no length; the server terminates the stream instead
+            compressed = stream.read(int(length)) if length else stream.read()
+            inflater = zlib.decompressobj(16 + zlib.MAX_WBITS)
+            try:
+                body = inflater.decompress(compressed, self.max_bytes + 1)
+            except zlib.error:
+                return self.reject(start_response, '400 Bad Request', "Request body is not valid gzip")
+            if len(body) > self.max_bytes or inflater.unconsumed_tail:
+                return self.reject(start_response, '413 Request Entity Too Large',
+                                   f"Request body exceeds {self.max_bytes} bytes")
+            environ['wsgi.input'] = io.BytesIO(body)
+            environ['CONTENT_LENGTH'] = str(len(body))
+            del environ['HTTP_CONTENT_ENCODING']
+        return self.wsgi_app(environ, start_response)
+
+    @staticmethod
+    def reject(start_response, status, error):
+        body = json.dumps({"error": error, "status": "error"}).encode('utf-8')
+        start_response(status, [('Content-Type', 'application/json'), ('Content-Length', str(len(body)))])
+        return [body]
+
+app.wsgi_app = GzipRequestMiddleware(app.wsgi_app)
+
 def retry_on_failure(max_retries=MAX_RETRIES, delay=RETRY_DELAY):
     def decorator(func):
         @wraps(func)
@@ -70,6 +108,23 @@ def analyze_text(text):
     except Exception as e:
         raise Exception(f"Error analyzing text: {str(e)}")
 
+MAX_BATCH_SIZE = 64
+
+@retry_on_failure()
+def analyze_batch(texts):
+    try:
+        # Pad to the longest text so the whole batch runs in one forward pass
+        inputs = tokenizer(texts, return_tensors="pt", truncation=True, max_length=512, padding=True)
+
+        with torch.no_grad():
+            outputs = model(**inputs)
+            probabilities = torch.nn.functional.softmax(outputs.logits, dim=1)
+            ai_scores = probabilities[:, 1].tolist()
+
+        return [{"ai_generated": score > 0.7, "ai_score": score} for score in ai_scores]
+    except Exception as e:
+        raise Exception(f"Error analyzing batch: {str(e)}")
+
 @app.route('/detect', methods=['POST'])
 def detect():
     try:
@@ -97,5 +152,46 @@ def detect():
             "status": "error"
         }), 500
 
+@app.route('/detect_batch', methods=['POST'])
+def detect_batch():
+    try:
+        data = request.get_json()
+
+        if not data or 'texts' not in data:
+            return jsonify({
+                "error": "Missing 'texts' field in request body",
+                "status": "error"
+            }), 400
+
+        texts = data['texts']
+        if not isinstance(texts, list) or not texts or len(texts) > MAX_BATCH_SIZE:
+            return jsonify({
+                "error": f"'texts' must be a list of 1 to {MAX_BATCH_SIZE} strings",
+                "status": "error"
+            }), 400
+        if not all(isinstance(text, str) and text.strip() for text in texts):
+            return jsonify({
+                "error": "Every text must be a non-empty string",
+                "status": "error"
+            }), 400
+
+        return jsonify({
+            "results": analyze_batch(texts),
+            "status": "success"
+        })
+
+    except Exception as e:
+        return jsonify({
+            "error": str(e),
+            "status": "error"
+        }), 500
+
+@app.route('/health', methods=['GET'])
+def health():
+    return jsonify({
+        "model": MODEL_NAME,
+        "status": "ok"
+    })
+
 if __name__ == '__main__':
     app.run(host='0.0.0.0', port=5000)
\ No newline at end of file
@@ -0,0 +1,20 @@
+"""Writes the detector model's vocab.json and merges.txt for the backend's BpeTokenizer.
+
+The backend bundles GPT-2's files, whose ids differ from RoBERTa's but whose merges, and
+so token counts, are the same. Run this to replace them with the model's own:
+
+    python py/ai_detector/export_tokenizer.py PlagiGuard-Backend/src/main/resources/ai/roberta
+"""
+import os
+import sys
+
+from transformers import AutoTokenizer
+
+MODEL_NAME = "roberta-base-openai-detector"
+
+if __name__ == '__main__':
+    target = sys.argv[1] if len(sys.argv) > 1 else "."
+    os.makedirs(target, exist_ok=True)
+    tokenizer = AutoTokenizer.from_pretrained(MODEL_NAME)
+    for path in tokenizer.save_vocabulary(target):
+        print(f"Wrote {path}")
@@ -0,0 +1,131 @@
+"""Stand-in for the AI detector with the same /detect and /detect_batch API.
+
+Scores are a deterministic hash of the text, and latency follows a simple batched
+inference model: every request costs STUB_BASE_MS plus STUB_PER_TEXT_MS per text,
+and at most STUB_WORKERS requests run at once (one for a single GPU). Point the
+backend at it with ai.detector.url=http://localhost:5001 and vary
+ai.detector.batch.max.size / max.wait.ms to trace throughput against latency from
+the ai.detector.batch.* and http.client.requests metrics.
+
+The latency model can be changed while the backend is under load, e.g. to watch the
+adaptive ai.detector.limit gauge follow a degrading and recovering detector:
+
+    STUB_BASE_MS=40 STUB_PER_TEXT_MS=5 python py/stub_detector/app.py
+    curl -X POST localhost:5001/latency -H 'Content-Type: application/json' \
+         -d '{"base_ms": 400, "workers": 2}'
+
+Several instances on different STUB_PORTs with skewed STUB_BASE_MS, listed in
+ai.detector.urls, exercise the replica balancing and hedged requests.
+"""
+import hashlib
+import io
+import json
+import os
+import threading
+import time
+import zlib
+
+from flask import Flask, request, jsonify
+
+PORT = int(os.environ.get("STUB_PORT", "5001"))
+MAX_REQUEST_BYTES = 64 * 1024 * 1024
+
+app = Flask(__name__)
+
+class GzipRequestMiddleware:
+    """Inflates request bodies sent with Content-Encoding: gzip before Flask parses them."""
+
+    def __init__(self, wsgi_app, max_bytes=MAX_REQUEST_BYTES):
+        self.wsgi_app = wsgi_app
+        self.max_bytes = max_bytes
+
+    def __call__(self, environ, start_response):
+        if environ.get('HTTP_CONTENT_ENCODING', '').strip().lower() == 'gzip':
+            stream = environ['wsgi.input']
+            length = environ.get('CONTENT_LENGTH')
+            # Chunked bodies carry no length; the server terminates the stream instead
+            compressed = stream.read(int(length)) if length else stream.read()
+            inflater = zlib.decompressobj(16 + zlib.MAX_WBITS)
+            try:
+                body = inflater.decompress(compressed, self.max_bytes + 1)
+            except zlib.error:
+                return self.reject(start_response, '400 Bad Request', "Request body is not valid gzip")
+            if len(body) > self.max_bytes or inflater.unconsumed_tail:
+                return self.reject(start_response, '413 Request Entity Too Large',
+                                   f"Request body exceeds {self.max_bytes} bytes")
+            environ['wsgi.input'] = io.BytesIO(body)
+            environ['CONTENT_LENGTH'] = str(len(body))
+            del environ['HTTP_CONTENT_ENCODING']
+        return self.wsgi_app(environ, start_response)
+
+    @staticmethod
+    def reject(start_response, status, error):
+        body = json.dumps({"error": error, "status": "error"}).encode('utf-8')
+        start_response(status, [('Content-Type', 'application/json'), ('Content-Length', str(len(body)))])
+        return [body]
+
+app.wsgi_app = GzipRequestMiddleware(app.wsgi_app)
+latency = {
+    "base_ms": float(os.environ.get("STUB_BASE_MS", "40")),
+    "per_text_ms": float(os.environ.get("STUB_PER_TEXT_MS", "5")),
+    "workers": int(os.environ.get("STUB_WORKERS", "1")),
+}
+busy = 0
+slots = threading.Condition()
+
+def score(text):
+    digest = hashlib.sha256(text.encode("utf-8")).digest()
+    ai_score = int.from_bytes(digest[:4], "big") / 2**32
+    return {"ai_generated": ai_score > 0.7, "ai_score": ai_score}
+
+def infer(texts):
+    global busy
+    with slots:
+        while busy >= latency["workers"]:
+            slots.wait()
+        busy += 1
+        delay = (latency["base_ms"] + latency["per_text_ms"] * len(texts)) / 1000.0
+    try:
+        time.sleep(delay)
+    finally:
+        with slots:
+            busy -= 1
+            slots.notify_all()
+    return [score(text) for text in texts]
+
+@app.route('/detect', methods=['POST'])
+def detect():
+    data = request.get_json(silent=True)
+    if not data or not isinstance(data.get('text'), str) or not data['text'].strip():
+        return jsonify({"error": "Text must be a non-empty string", "status": "error"}), 400
+    result = infer([data['text']])[0]
+    result["status"] = "success"
+    return jsonify(result)
+
+@app.route('/detect_batch', methods=['POST'])
+def detect_batch():
+    data = request.get_json(silent=True)
+    texts = data.get('texts') if data else None
+    if not isinstance(texts, list) or not texts or not all(isinstance(t, str) and t.strip() for t in texts):
+        return jsonify({"error": "'texts' must be a non-empty list of strings", "status": "error"}), 400
+    return jsonify({"results": infer(texts), "status": "success"})
+
+@app.route('/health', methods=['GET'])
+def health():
+    return jsonify({"model": "stub", "status": "ok"})
+
+@app.route('/latency', methods=['GET', 'POST'])
+def set_latency():
+    if request.method == 'POST':
+        data = request.get_json(silent=True) or {}
+        with slots:
+            for key in ("base_ms", "per_text_ms"):
+                if key in data:
+                    latency[key] = max(0.0, float(data[key]))
+            if "workers" in data:
+                latency["workers"] = max(1, int(data["workers"]))
+            slots.notify_all()
+    return jsonify(latency)
+
+if __name__ == '__main__':
+    app.run(host='0.0.0.0', port=PORT, threaded=True)